@@ -0,0 +1,63 @@
+/*=============================================================================#
+ # Copyright (c) 2016 Stephan Wahlbrink (WalWare.de) and others.
+ # All rights reserved. This program and the accompanying materials
+ # are made available under the terms of either (per the licensee's choosing)
+ #   - the Eclipse Public License v1.0
+ #     which accompanies this distribution, and is available at
+ #     http://www.eclipse.org/legal/epl-v10.html, or
+ #   - the GNU Lesser General Public License v2.1 or newer
+ #     which accompanies this distribution, and is available at
+ #     http://www.gnu.org/licenses/lgpl.html
+ # 
+ # Contributors:
+ #     Stephan Wahlbrink - initial API and implementation
+ #=============================================================================*/
+
+package de.walware.rj.benchmarks.data;
+
+import java.io.IOException;
+
+import de.walware.rj.data.RJIO;
+import de.walware.rj.data.RStore;
+import de.walware.rj.data.defaultImpl.RCharacterDataFixLongImpl;
+import de.walware.rj.data.defaultImpl.RFactorDataFixLongImpl;
+import de.walware.rj.data.defaultImpl.RIntegerDataFixLongImpl;
+import de.walware.rj.data.defaultImpl.RNumericDataBFixLongImpl;
+import de.walware.rj.data.defaultImpl.RObjectFactoryImpl;
+
+
+/**
+ * Object factory reading the data stores always into the <code>*FixLongImpl</code> variants.
+ * <p>
+ * The default factory uses these implementations only for vectors longer than
+ * 2<sup>31</sup>-1; this factory allows to measure their code path with data sizes
+ * suitable for benchmarks.</p>
+ */
+final class FixLongRObjectFactory extends RObjectFactoryImpl {
+	
+	
+	public FixLongRObjectFactory() {
+	}
+	
+	
+	@Override
+	public RStore<?> readStore(final RJIO io, final long length) throws IOException {
+		if ((io.flags & F_ONLY_STRUCT) == 0) {
+			final byte storeType = io.readByte();
+			switch (storeType) {
+			case RStore.INTEGER:
+				return new RIntegerDataFixLongImpl(io, length);
+			case RStore.NUMERIC:
+				return new RNumericDataBFixLongImpl(io, length);
+			case RStore.CHARACTER:
+				return new RCharacterDataFixLongImpl(io, length);
+			case RStore.FACTOR:
+				return new RFactorDataFixLongImpl(io, length);
+			default:
+				throw new IOException("store type = " + storeType); //$NON-NLS-1$
+			}
+		}
+		return super.readStore(io, length);
+	}
+	
+}
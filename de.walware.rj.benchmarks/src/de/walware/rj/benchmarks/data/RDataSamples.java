@@ -0,0 +1,157 @@
+/*=============================================================================#
+ # Copyright (c) 2016 Stephan Wahlbrink (WalWare.de) and others.
+ # All rights reserved. This program and the accompanying materials
+ # are made available under the terms of either (per the licensee's choosing)
+ #   - the Eclipse Public License v1.0
+ #     which accompanies this distribution, and is available at
+ #     http://www.eclipse.org/legal/epl-v10.html, or
+ #   - the GNU Lesser General Public License v2.1 or newer
+ #     which accompanies this distribution, and is available at
+ #     http://www.gnu.org/licenses/lgpl.html
+ # 
+ # Contributors:
+ #     Stephan Wahlbrink - initial API and implementation
+ #=============================================================================*/
+
+package de.walware.rj.benchmarks.data;
+
+import de.walware.rj.data.RObject;
+import de.walware.rj.data.RStore;
+import de.walware.rj.data.defaultImpl.RCharacterDataFixLongImpl;
+import de.walware.rj.data.defaultImpl.RFactorDataFixLongImpl;
+import de.walware.rj.data.defaultImpl.RIntegerDataFixLongImpl;
+import de.walware.rj.data.defaultImpl.RNumericDataBFixLongImpl;
+import de.walware.rj.data.defaultImpl.RObjectFactoryImpl;
+
+
+/**
+ * Factory for the R objects used as payload in the serialization benchmarks.
+ * <p>
+ * The values are generated deterministically, so the size on the wire of a sample
+ * depends only on its kind and length.</p>
+ */
+final class RDataSamples {
+	
+	
+	public static final String NUM = "num"; //$NON-NLS-1$
+	public static final String INT = "int"; //$NON-NLS-1$
+	public static final String CHR_ASCII = "chr-ascii"; //$NON-NLS-1$
+	public static final String CHR_NONASCII = "chr-nonascii"; //$NON-NLS-1$
+	public static final String FACTOR = "factor"; //$NON-NLS-1$
+	public static final String NUM_MATRIX = "num-matrix"; //$NON-NLS-1$
+	public static final String DATAFRAME = "dataframe"; //$NON-NLS-1$
+	public static final String LIST = "list"; //$NON-NLS-1$
+	public static final String NUM_FIXLONG = "num-fixlong"; //$NON-NLS-1$
+	public static final String INT_FIXLONG = "int-fixlong"; //$NON-NLS-1$
+	public static final String CHR_FIXLONG = "chr-fixlong"; //$NON-NLS-1$
+	public static final String FACTOR_FIXLONG = "factor-fixlong"; //$NON-NLS-1$
+	
+	private static final int FACTOR_LEVEL_COUNT = 20;
+	
+	
+	private final RObjectFactoryImpl factory;
+	
+	
+	public RDataSamples(final RObjectFactoryImpl factory) {
+		this.factory = factory;
+	}
+	
+	
+	public static boolean isFixLong(final String kind) {
+		return kind.endsWith("-fixlong"); //$NON-NLS-1$
+	}
+	
+	public RObject create(final String kind, final int length) {
+		switch (kind) {
+		case NUM:
+			return this.factory.createNumVector(createNums(length));
+		case INT:
+			return this.factory.createIntVector(createInts(length));
+		case CHR_ASCII:
+			return this.factory.createCharVector(createChars(length, false));
+		case CHR_NONASCII:
+			return this.factory.createCharVector(createChars(length, true));
+		case FACTOR:
+			return this.factory.createFactorVector(createCodes(length), createLevels());
+		case NUM_MATRIX: {
+			final int ncol = 10;
+			final int nrow = Math.max(1, length / ncol);
+			return this.factory.createNumMatrix(createNums(nrow * ncol), nrow, ncol); }
+		case DATAFRAME:
+			return this.factory.createDataFrame(new RStore<?>[] {
+							this.factory.createNumData(createNums(length)),
+							this.factory.createIntData(createInts(length)),
+							this.factory.createCharData(createChars(length, false)),
+							this.factory.createFactorData(createCodes(length), createLevels()),
+					},
+					new String[] { "num", "int", "chr", "fct" } ); //$NON-NLS-1$ //$NON-NLS-2$ //$NON-NLS-3$ //$NON-NLS-4$
+		case LIST:
+			return this.factory.createList(new RObject[] {
+							this.factory.createNumVector(createNums(length / 2)),
+							this.factory.createCharVector(createChars(length / 4, false)),
+							this.factory.createList(new RObject[] {
+									this.factory.createIntVector(createInts(length / 4)),
+									this.factory.createCharVector(createChars(16, true)),
+							}, new String[] { "a", "b" }), //$NON-NLS-1$ //$NON-NLS-2$
+					},
+					new String[] { "x", "y", "z" } ); //$NON-NLS-1$ //$NON-NLS-2$ //$NON-NLS-3$
+		case NUM_FIXLONG:
+			return this.factory.createVector(new RNumericDataBFixLongImpl(
+					new double[][] { createNums(length) } ));
+		case INT_FIXLONG:
+			return this.factory.createVector(new RIntegerDataFixLongImpl(
+					new int[][] { createInts(length) } ));
+		case CHR_FIXLONG:
+			return this.factory.createVector(new RCharacterDataFixLongImpl(
+					new String[][] { createChars(length, false) } ));
+		case FACTOR_FIXLONG:
+			return this.factory.createVector(new RFactorDataFixLongImpl(
+					new int[][] { createCodes(length) }, false, createLevels() ));
+		default:
+			throw new IllegalArgumentException("kind= " + kind); //$NON-NLS-1$
+		}
+	}
+	
+	
+	private static double[] createNums(final int length) {
+		final double[] values = new double[length];
+		for (int i = 0; i < length; i++) {
+			values[i] = (i % 1000) * 0.25 + i * 1e-6;
+		}
+		return values;
+	}
+	
+	private static int[] createInts(final int length) {
+		final int[] values = new int[length];
+		for (int i = 0; i < length; i++) {
+			values[i] = i * 31;
+		}
+		return values;
+	}
+	
+	private static String[] createChars(final int length, final boolean nonAscii) {
+		final String prefix = (nonAscii) ? "Zürich-東京-" : "label-"; //$NON-NLS-1$ //$NON-NLS-2$
+		final String[] values = new String[length];
+		for (int i = 0; i < length; i++) {
+			values[i] = prefix + (i % 5000);
+		}
+		return values;
+	}
+	
+	private static int[] createCodes(final int length) {
+		final int[] codes = new int[length];
+		for (int i = 0; i < length; i++) {
+			codes[i] = 1 + (i % FACTOR_LEVEL_COUNT);
+		}
+		return codes;
+	}
+	
+	private static String[] createLevels() {
+		final String[] levels = new String[FACTOR_LEVEL_COUNT];
+		for (int i = 0; i < levels.length; i++) {
+			levels[i] = "level" + (i + 1); //$NON-NLS-1$
+		}
+		return levels;
+	}
+	
+}
@@ -0,0 +1,172 @@
+/*=============================================================================#
+ # Copyright (c) 2016 Stephan Wahlbrink (WalWare.de) and others.
+ # All rights reserved. This program and the accompanying materials
+ # are made available under the terms of either (per the licensee's choosing)
+ #   - the Eclipse Public License v1.0
+ #     which accompanies this distribution, and is available at
+ #     http://www.eclipse.org/legal/epl-v10.html, or
+ #   - the GNU Lesser General Public License v2.1 or newer
+ #     which accompanies this distribution, and is available at
+ #     http://www.gnu.org/licenses/lgpl.html
+ # 
+ # Contributors:
+ #     Stephan Wahlbrink - initial API and implementation
+ #=============================================================================*/
+
+package de.walware.rj.benchmarks.data;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.ObjectInputStream;
+import java.io.ObjectOutputStream;
+import java.util.Arrays;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.AuxCounters;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import de.walware.rj.data.RJIO;
+import de.walware.rj.data.RObject;
+import de.walware.rj.data.defaultImpl.RObjectFactoryImpl;
+
+
+/**
+ * Round-trips R data objects through {@link RJIO} and the {@link RObjectFactoryImpl} over
+ * in-memory object streams, like the data items of the main loop exchange.
+ * <p>
+ * Reported are the throughput of the single operations and, as auxiliary counter
+ * <code>wireBytes</code>, the serialized bytes per second.  The size of a single serialized
+ * object is printed in the setup of each trial.  For the allocation rate run the benchmarks
+ * with the GC profiler (<code>-prof gc</code>).</p>
+ */
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 5, time = 1, timeUnit = TimeUnit.SECONDS)
+@Measurement(iterations = 10, time = 1, timeUnit = TimeUnit.SECONDS)
+@Fork(1)
+@State(Scope.Thread)
+public class RJIOSerializationBenchmark {
+	
+	
+	private static final class Buffer extends ByteArrayOutputStream {
+		
+		public Buffer(final int size) {
+			super(size);
+		}
+		
+		public byte[] getBytes() {
+			return this.buf;
+		}
+		
+	}
+	
+	
+	/**
+	 * Counts the bytes written or read by the benchmark operations.
+	 */
+	@State(Scope.Thread)
+	@AuxCounters(AuxCounters.Type.OPERATIONS)
+	public static class WireCounters {
+		
+		public long wireBytes;
+		
+		@Setup(Level.Iteration)
+		public void reset() {
+			this.wireBytes = 0;
+		}
+		
+	}
+	
+	
+	@Param({
+		RDataSamples.NUM, RDataSamples.INT,
+		RDataSamples.CHR_ASCII, RDataSamples.CHR_NONASCII,
+		RDataSamples.FACTOR,
+		RDataSamples.NUM_MATRIX, RDataSamples.DATAFRAME, RDataSamples.LIST,
+		RDataSamples.NUM_FIXLONG, RDataSamples.INT_FIXLONG,
+		RDataSamples.CHR_FIXLONG, RDataSamples.FACTOR_FIXLONG,
+	})
+	public String kind;
+	
+	@Param({ "1000", "1000000" })
+	public int length;
+	
+	
+	private RObjectFactoryImpl factory;
+	
+	private RObject object;
+	
+	private Buffer outBuffer;
+	
+	private byte[] serialized;
+	
+	
+	@Setup(Level.Trial)
+	public void setup() throws IOException {
+		this.factory = (RDataSamples.isFixLong(this.kind)) ?
+				new FixLongRObjectFactory() :
+				new RObjectFactoryImpl();
+		this.object = new RDataSamples(this.factory).create(this.kind, this.length);
+		this.outBuffer = new Buffer(1024 + this.length * 16);
+		
+		final int n = write(this.object);
+		this.serialized = Arrays.copyOf(this.outBuffer.getBytes(), n);
+		
+		System.out.println();
+		System.out.println("Serialized size of " + this.kind + "[" + this.length + "]: " + n + " bytes"); //$NON-NLS-1$ //$NON-NLS-2$ //$NON-NLS-3$ //$NON-NLS-4$
+	}
+	
+	
+	private int write(final RObject object) throws IOException {
+		this.outBuffer.reset();
+		final ObjectOutputStream out = new ObjectOutputStream(this.outBuffer);
+		final RJIO io = RJIO.get(out);
+		io.flags = 0;
+		this.factory.writeObject(object, io);
+		io.disconnect(out);
+		return this.outBuffer.size();
+	}
+	
+	private RObject read(final byte[] bytes, final int n) throws IOException {
+		final ObjectInputStream in = new ObjectInputStream(new ByteArrayInputStream(bytes, 0, n));
+		final RJIO io = RJIO.get(in);
+		io.flags = 0;
+		final RObject object = this.factory.readObject(io);
+		io.disconnect(in);
+		return object;
+	}
+	
+	
+	@Benchmark
+	public int write(final WireCounters counters) throws IOException {
+		final int n = write(this.object);
+		counters.wireBytes += n;
+		return n;
+	}
+	
+	@Benchmark
+	public RObject read(final WireCounters counters) throws IOException {
+		counters.wireBytes += this.serialized.length;
+		return read(this.serialized, this.serialized.length);
+	}
+	
+	@Benchmark
+	public RObject roundTrip(final WireCounters counters) throws IOException {
+		final int n = write(this.object);
+		counters.wireBytes += n;
+		return read(this.outBuffer.getBytes(), n);
+	}
+	
+}
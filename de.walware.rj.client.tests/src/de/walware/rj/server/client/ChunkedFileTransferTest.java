@@ -0,0 +1,291 @@
+/*=============================================================================#
+ # Copyright (c) 2016 Stephan Wahlbrink (WalWare.de) and others.
+ # All rights reserved. This program and the accompanying materials
+ # are made available under the terms of the Eclipse Public License v1.0
+ # which accompanies this distribution, and is available at
+ # http://www.eclipse.org/legal/epl-v10.html
+ # 
+ # Contributors:
+ #     Stephan Wahlbrink - initial API and implementation
+ #=============================================================================*/
+
+package de.walware.rj.server.client;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.fail;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.File;
+import java.io.IOException;
+import java.io.ObjectInputStream;
+import java.io.ObjectOutputStream;
+import java.io.Serializable;
+import java.nio.file.Files;
+import java.rmi.RemoteException;
+import java.util.Map;
+import java.util.Random;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import org.eclipse.core.runtime.CoreException;
+import org.eclipse.core.runtime.IProgressMonitor;
+import org.eclipse.core.runtime.IStatus;
+import org.eclipse.core.runtime.NullProgressMonitor;
+import org.eclipse.core.runtime.Status;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+import de.walware.rj.server.BinChunkExchange;
+import de.walware.rj.server.ConsoleEngine;
+import de.walware.rj.server.RjsComObject;
+import de.walware.rj.server.RjsStatus;
+import de.walware.rj.server.Server;
+import de.walware.rj.services.RService;
+
+
+public class ChunkedFileTransferTest {
+	
+	
+	/**
+	 * Engine transferring the exchange objects by serialization like RMI, the server executes
+	 * the file operations in the same VM.
+	 */
+	static class TestEngine implements ConsoleEngine, Serializable {
+		
+		private static final long serialVersionUID = 1L;
+		
+		
+		final AtomicInteger calls = new AtomicInteger();
+		final AtomicInteger failures = new AtomicInteger();
+		final AtomicInteger corruptions = new AtomicInteger();
+		
+		
+		private static byte[] write(final Object obj) throws IOException {
+			final ByteArrayOutputStream buffer = new ByteArrayOutputStream();
+			try (final ObjectOutputStream out = new ObjectOutputStream(buffer)) {
+				out.writeObject(obj);
+			}
+			return buffer.toByteArray();
+		}
+		
+		private static Object read(final byte[] bytes) throws IOException, ClassNotFoundException {
+			try (final ObjectInputStream in = new ObjectInputStream(new ByteArrayInputStream(bytes))) {
+				return in.readObject();
+			}
+		}
+		
+		@Override
+		public RjsComObject runAsync(final RjsComObject com) throws RemoteException {
+			this.calls.incrementAndGet();
+			if (this.failures.getAndDecrement() > 0) {
+				throw new RemoteException("Test failure."); //$NON-NLS-1$
+			}
+			try {
+				final BinChunkExchange serverCom = (BinChunkExchange) read(write(com));
+				final byte[] answer = write(serverCom);
+				if (serverCom.getBytes() != null && this.corruptions.getAndDecrement() > 0) {
+					// last byte of the chunk data
+					answer[answer.length - 2] ^= 0x01;
+				}
+				return (RjsComObject) read(answer);
+			}
+			catch (final IOException | ClassNotFoundException e) {
+				throw new RemoteException("Serialization failed.", e); //$NON-NLS-1$
+			}
+		}
+		
+		@Override
+		public Server getPublic() {
+			throw new UnsupportedOperationException();
+		}
+		
+		@Override
+		public Map<String, Object> getPlatformData() {
+			throw new UnsupportedOperationException();
+		}
+		
+		@Override
+		public void setProperties(final Map<String, ? extends Object> properties) {
+			throw new UnsupportedOperationException();
+		}
+		
+		@Override
+		public void disconnect() {
+		}
+		
+		@Override
+		public RjsComObject runMainLoop(final RjsComObject com) {
+			throw new UnsupportedOperationException();
+		}
+		
+		@Override
+		public boolean isClosed() {
+			return false;
+		}
+		
+	}
+	
+	static class TestClient extends AbstractRJComClient {
+		
+		@Override
+		protected void log(final IStatus status) {
+		}
+		
+		@Override
+		protected void handleServerStatus(final RjsStatus serverStatus, final IProgressMonitor monitor) {
+		}
+		
+		@Override
+		protected void handleStatus(final Status status, final IProgressMonitor monitor) {
+		}
+		
+	}
+	
+	
+	private static final int LENGTH = 10 * 0x100000 + 123;
+	
+	
+	private final TestEngine engine = new TestEngine();
+	private final TestClient client = new TestClient();
+	
+	private File localFile;
+	private File remoteFile;
+	
+	
+	@Before
+	public void init() throws IOException {
+		this.client.setServer(this.engine, 1);
+		this.localFile = File.createTempFile("rj-local", ".bin"); //$NON-NLS-1$ //$NON-NLS-2$
+		this.remoteFile = File.createTempFile("rj-remote", ".bin"); //$NON-NLS-1$ //$NON-NLS-2$
+	}
+	
+	@After
+	public void dispose() throws IOException {
+		Files.deleteIfExists(this.localFile.toPath());
+		Files.deleteIfExists(this.remoteFile.toPath());
+	}
+	
+	
+	private static byte[] createContent(final int length) {
+		final byte[] content = new byte[length];
+		new Random(17).nextBytes(content);
+		return content;
+	}
+	
+	private ChunkedFileTransfer upload(final int options) throws CoreException {
+		final ChunkedFileTransfer transfer = new ChunkedFileTransfer(this.client,
+				this.remoteFile.getAbsolutePath(), options );
+		transfer.upload(this.localFile, new NullProgressMonitor());
+		return transfer;
+	}
+	
+	private ChunkedFileTransfer download(final int options) throws CoreException {
+		final ChunkedFileTransfer transfer = new ChunkedFileTransfer(this.client,
+				this.remoteFile.getAbsolutePath(), options );
+		transfer.download(this.localFile, new NullProgressMonitor());
+		return transfer;
+	}
+	
+	
+	@Test
+	public void upload() throws Exception {
+		final byte[] content = createContent(LENGTH);
+		Files.write(this.localFile.toPath(), content);
+		// longer existing file is truncated
+		Files.write(this.remoteFile.toPath(), createContent(LENGTH + 1000));
+		
+		final ChunkedFileTransfer transfer = upload(0);
+		assertEquals(LENGTH, transfer.getTransferredBytes());
+		assertArrayEquals(content, Files.readAllBytes(this.remoteFile.toPath()));
+	}
+	
+	@Test
+	public void download() throws Exception {
+		final byte[] content = createContent(LENGTH);
+		Files.write(this.remoteFile.toPath(), content);
+		Files.write(this.localFile.toPath(), createContent(LENGTH + 1000));
+		
+		final ChunkedFileTransfer transfer = download(0);
+		assertEquals(LENGTH, transfer.getTransferredBytes());
+		assertArrayEquals(content, Files.readAllBytes(this.localFile.toPath()));
+	}
+	
+	@Test
+	public void transferEmpty() throws Exception {
+		upload(0);
+		assertEquals(0, this.remoteFile.length());
+		
+		Files.write(this.localFile.toPath(), createContent(10));
+		download(0);
+		assertEquals(0, this.localFile.length());
+	}
+	
+	@Test
+	public void uploadResume() throws Exception {
+		final byte[] content = createContent(LENGTH);
+		Files.write(this.remoteFile.toPath(), content);
+		content[ChunkedFileTransfer.CHUNK_LENGTH + 1]++;
+		Files.write(this.localFile.toPath(), content);
+		
+		final ChunkedFileTransfer transfer = upload(RService.FILE_RESUME);
+		assertEquals(ChunkedFileTransfer.CHUNK_LENGTH, transfer.getTransferredBytes());
+		assertArrayEquals(content, Files.readAllBytes(this.remoteFile.toPath()));
+	}
+	
+	@Test
+	public void downloadResume() throws Exception {
+		final byte[] content = createContent(LENGTH);
+		Files.write(this.remoteFile.toPath(), content);
+		// incomplete last chunk
+		final byte[] partial = new byte[LENGTH - 100];
+		System.arraycopy(content, 0, partial, 0, partial.length);
+		partial[1]++;
+		Files.write(this.localFile.toPath(), partial);
+		
+		final ChunkedFileTransfer transfer = download(RService.FILE_RESUME);
+		assertEquals(ChunkedFileTransfer.CHUNK_LENGTH + (LENGTH % ChunkedFileTransfer.CHUNK_LENGTH),
+				transfer.getTransferredBytes() );
+		assertArrayEquals(content, Files.readAllBytes(this.localFile.toPath()));
+	}
+	
+	@Test
+	public void retryFailedExchange() throws Exception {
+		final byte[] content = createContent(LENGTH);
+		Files.write(this.localFile.toPath(), content);
+		this.engine.failures.set(2);
+		
+		upload(0);
+		assertArrayEquals(content, Files.readAllBytes(this.remoteFile.toPath()));
+		// 3 chunks + truncate + 2 failed
+		assertEquals(6, this.engine.calls.get());
+	}
+	
+	@Test
+	public void retryCorruptChunk() throws Exception {
+		final byte[] content = createContent(LENGTH);
+		Files.write(this.remoteFile.toPath(), content);
+		this.engine.corruptions.set(1);
+		
+		download(0);
+		assertArrayEquals(content, Files.readAllBytes(this.localFile.toPath()));
+		// info + 3 chunks + 1 repeated
+		assertEquals(5, this.engine.calls.get());
+	}
+	
+	@Test
+	public void failPersistent() throws Exception {
+		Files.write(this.localFile.toPath(), createContent(100));
+		this.engine.failures.set(Integer.MAX_VALUE);
+		
+		try {
+			upload(0);
+			fail();
+		}
+		catch (final CoreException e) {
+			assertEquals(5, this.engine.calls.get());
+		}
+	}
+	
+}
@@ -0,0 +1,160 @@
+/*=============================================================================#
+ # Copyright (c) 2016 Stephan Wahlbrink (WalWare.de) and others.
+ # All rights reserved. This program and the accompanying materials
+ # are made available under the terms of the Eclipse Public License v1.0
+ # which accompanies this distribution, and is available at
+ # http://www.eclipse.org/legal/epl-v10.html
+ # 
+ # Contributors:
+ #     Stephan Wahlbrink - initial API and implementation
+ #=============================================================================*/
+
+package de.walware.rj.server.client;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import org.eclipse.core.runtime.CoreException;
+import org.eclipse.core.runtime.NullProgressMonitor;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+import de.walware.rj.services.RService;
+
+
+public class ComCallListenerTest {
+	
+	
+	private static class Call {
+		
+		final String name;
+		final long nanos;
+		final long bytes;
+		final int dataLevel;
+		final boolean hotMode;
+		
+		public Call(final String name, final long nanos, final long bytes, final int dataLevel,
+				final boolean hotMode) {
+			this.name = name;
+			this.nanos = nanos;
+			this.bytes = bytes;
+			this.dataLevel = dataLevel;
+			this.hotMode = hotMode;
+		}
+		
+	}
+	
+	private static class CallRecorder implements ComCallListener {
+		
+		private final List<Call> calls = new ArrayList<>();
+		
+		@Override
+		public void callCompleted(final String call, final long nanos, final long bytes,
+				final int dataLevel, final boolean hotMode) {
+			this.calls.add(new Call(call, nanos, bytes, dataLevel, hotMode));
+		}
+		
+	}
+	
+	
+	private final ChunkedFileTransferTest.TestClient client = new ChunkedFileTransferTest.TestClient();
+	
+	private final CallRecorder recorder = new CallRecorder();
+	
+	private MainLoopTestEngine engine;
+	
+	
+	@Before
+	public void init() {
+		this.engine = new MainLoopTestEngine(this.client);
+		this.engine.data.put("x", ComResultCacheTest.createData(1000)); //$NON-NLS-1$
+	}
+	
+	@After
+	public void dispose() {
+		this.engine.dispose();
+	}
+	
+	
+	@Test
+	public void notifyDataOperation() throws CoreException {
+		this.client.setCallListener(this.recorder);
+		this.client.evalData("x", null, null, 0, RService.DEPTH_INFINITE, new NullProgressMonitor()); //$NON-NLS-1$
+		
+		assertEquals(1, this.recorder.calls.size());
+		final Call call = this.recorder.calls.get(0);
+		assertEquals("EVAL_EXPR_DATA", call.name); //$NON-NLS-1$
+		assertTrue(call.nanos > 0);
+		assertTrue(call.bytes >= 1000 * 8);
+		assertEquals(1, call.dataLevel);
+		assertFalse(call.hotMode);
+	}
+	
+	@Test
+	public void notifyFailedDataOperation() {
+		this.client.setCallListener(this.recorder);
+		try {
+			this.client.evalData("z", null, null, 0, RService.DEPTH_INFINITE, new NullProgressMonitor()); //$NON-NLS-1$
+		}
+		catch (final CoreException e) {
+		}
+		
+		assertEquals(1, this.recorder.calls.size());
+		assertEquals("EVAL_EXPR_DATA", this.recorder.calls.get(0).name); //$NON-NLS-1$
+	}
+	
+	@Test
+	public void notifyBatch() throws CoreException {
+		this.client.setCallListener(this.recorder);
+		final RBatchImpl batch = new RBatchImpl(this.client);
+		batch.addEvalData("x", null, null, 0, RService.DEPTH_INFINITE); //$NON-NLS-1$
+		batch.addEvalVoid("a <- 1", null); //$NON-NLS-1$
+		batch.evaluate(new NullProgressMonitor());
+		
+		assertEquals(1, this.recorder.calls.size());
+		final Call call = this.recorder.calls.get(0);
+		assertEquals(ComCallListener.CALL_BATCH, call.name);
+		assertTrue(call.bytes >= 1000 * 8);
+		assertEquals(1, call.dataLevel);
+	}
+	
+	@Test
+	public void noListener() throws CoreException {
+		this.client.setCallListener(this.recorder);
+		this.client.setCallListener(null);
+		this.client.evalData("x", null, null, 0, RService.DEPTH_INFINITE, new NullProgressMonitor()); //$NON-NLS-1$
+		
+		assertEquals(0, this.recorder.calls.size());
+	}
+	
+	@Test
+	public void ignoreListenerError() throws CoreException {
+		this.client.setCallListener(new ComCallListener() {
+			@Override
+			public void callCompleted(final String call, final long nanos, final long bytes,
+					final int dataLevel, final boolean hotMode) {
+				throw new RuntimeException();
+			}
+		});
+		
+		assertEquals(1000, this.client.evalData("x", null, null, 0, RService.DEPTH_INFINITE, //$NON-NLS-1$
+				new NullProgressMonitor() ).getLength() );
+	}
+	
+	@Test
+	public void collectStatistics() throws CoreException {
+		final ComCallStatistics statistics = new ComCallStatistics();
+		this.client.setCallListener(statistics);
+		for (int i = 0; i < 3; i++) {
+			this.client.evalData("x", null, null, 0, RService.DEPTH_INFINITE, new NullProgressMonitor()); //$NON-NLS-1$
+		}
+		
+		assertEquals(Long.valueOf(3), statistics.getSnapshot().get("EVAL_EXPR_DATA.count")); //$NON-NLS-1$
+	}
+	
+}
@@ -0,0 +1,81 @@
+/*=============================================================================#
+ # Copyright (c) 2016 Stephan Wahlbrink (WalWare.de) and others.
+ # All rights reserved. This program and the accompanying materials
+ # are made available under the terms of the Eclipse Public License v1.0
+ # which accompanies this distribution, and is available at
+ # http://www.eclipse.org/legal/epl-v10.html
+ # 
+ # Contributors:
+ #     Stephan Wahlbrink - initial API and implementation
+ #=============================================================================*/
+
+package de.walware.rj.server.client;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+import java.util.Map;
+
+import org.junit.Test;
+
+
+public class ComCallStatisticsTest {
+	
+	
+	@Test
+	public void recordCalls() {
+		final ComCallStatistics statistics = new ComCallStatistics();
+		statistics.callCompleted("EVAL_EXPR_DATA", 2000000, 100, 1, false); //$NON-NLS-1$
+		statistics.callCompleted("EVAL_EXPR_DATA", 4000000, 300, 2, true); //$NON-NLS-1$
+		statistics.callCompleted("FIND_DATA", 1000, -1, 1, false); //$NON-NLS-1$
+		
+		final Map<String, Long> snapshot = statistics.getSnapshot();
+		assertEquals(Long.valueOf(2), snapshot.get("EVAL_EXPR_DATA.count")); //$NON-NLS-1$
+		assertEquals(Long.valueOf(3000), snapshot.get("EVAL_EXPR_DATA.mean_us")); //$NON-NLS-1$
+		assertEquals(Long.valueOf(4000), snapshot.get("EVAL_EXPR_DATA.max_us")); //$NON-NLS-1$
+		assertEquals(Long.valueOf(400), snapshot.get("EVAL_EXPR_DATA.bytes")); //$NON-NLS-1$
+		assertEquals(Long.valueOf(300), snapshot.get("EVAL_EXPR_DATA.bytes_max")); //$NON-NLS-1$
+		assertEquals(Long.valueOf(2), snapshot.get("EVAL_EXPR_DATA.level_max")); //$NON-NLS-1$
+		assertEquals(Long.valueOf(1), snapshot.get("EVAL_EXPR_DATA.hotmode")); //$NON-NLS-1$
+		assertEquals(Long.valueOf(1), snapshot.get("FIND_DATA.count")); //$NON-NLS-1$
+		assertEquals(Long.valueOf(0), snapshot.get("FIND_DATA.bytes")); //$NON-NLS-1$
+		assertEquals(18, snapshot.size());
+	}
+	
+	@Test
+	public void percentiles() {
+		final ComCallStatistics statistics = new ComCallStatistics();
+		for (int i = 0; i < 99; i++) {
+			statistics.callCompleted("FIND_DATA", 1000000, 0, 1, false); //$NON-NLS-1$
+		}
+		statistics.callCompleted("FIND_DATA", 100000000, 0, 1, false); //$NON-NLS-1$
+		
+		final Map<String, Long> snapshot = statistics.getSnapshot();
+		final long p50 = snapshot.get("FIND_DATA.p50_us").longValue(); //$NON-NLS-1$
+		final long p99 = snapshot.get("FIND_DATA.p99_us").longValue(); //$NON-NLS-1$
+		// upper bound of the histogram bucket
+		assertTrue(p50 >= 1000 && p50 < 2000);
+		assertEquals(p50, p99);
+		assertEquals(100000, snapshot.get("FIND_DATA.max_us").longValue()); //$NON-NLS-1$
+	}
+	
+	@Test
+	public void percentilesLimitedByMax() {
+		final ComCallStatistics statistics = new ComCallStatistics();
+		statistics.callCompleted("FIND_DATA", 1000000, 0, 1, false); //$NON-NLS-1$
+		
+		final Map<String, Long> snapshot = statistics.getSnapshot();
+		assertEquals(1000, snapshot.get("FIND_DATA.p50_us").longValue()); //$NON-NLS-1$
+		assertEquals(1000, snapshot.get("FIND_DATA.p99_us").longValue()); //$NON-NLS-1$
+	}
+	
+	@Test
+	public void reset() {
+		final ComCallStatistics statistics = new ComCallStatistics();
+		statistics.callCompleted("FIND_DATA", 1000, 0, 1, false); //$NON-NLS-1$
+		statistics.reset();
+		
+		assertTrue(statistics.getSnapshot().isEmpty());
+	}
+	
+}
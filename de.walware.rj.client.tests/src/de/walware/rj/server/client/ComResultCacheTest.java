@@ -0,0 +1,189 @@
+/*=============================================================================#
+ # Copyright (c) 2016 Stephan Wahlbrink (WalWare.de) and others.
+ # All rights reserved. This program and the accompanying materials
+ # are made available under the terms of the Eclipse Public License v1.0
+ # which accompanies this distribution, and is available at
+ # http://www.eclipse.org/legal/epl-v10.html
+ # 
+ # Contributors:
+ #     Stephan Wahlbrink - initial API and implementation
+ #=============================================================================*/
+
+package de.walware.rj.server.client;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNotNull;
+import static org.junit.Assert.assertNotSame;
+import static org.junit.Assert.assertNull;
+
+import org.junit.Test;
+
+import de.walware.rj.data.RObject;
+import de.walware.rj.data.RVector;
+import de.walware.rj.data.defaultImpl.RNumericDataBImpl;
+import de.walware.rj.data.defaultImpl.RVectorImpl;
+import de.walware.rj.server.DataCmdItem;
+
+
+public class ComResultCacheTest {
+	
+	
+	private static DataCmdItem createRequest(final String expr, final int options) {
+		return new DataCmdItem(DataCmdItem.EVAL_EXPR_DATA, options, (byte) -1,
+				expr, null, null, null, null );
+	}
+	
+	static RObject createData(final int length) {
+		return new RVectorImpl<>(new RNumericDataBImpl(new double[length]));
+	}
+	
+	private static DataCmdItem createAnswer(final int length) {
+		final DataCmdItem answer = createRequest("x", 0); //$NON-NLS-1$
+		answer.setAnswer(createData(length), null);
+		return answer;
+	}
+	
+	private static double getNum(final RObject data, final int idx) {
+		return ((RVector<?>) data).getData().getNum(idx);
+	}
+	
+	
+	@Test
+	public void createKey() {
+		final ComResultCache cache = new ComResultCache(10, 1000000);
+		final ComResultCache.Key key = cache.createKey(createRequest("x + 1", 0)); //$NON-NLS-1$
+		assertNotNull(key);
+		assertEquals(key, cache.createKey(createRequest("x + 1", 0))); //$NON-NLS-1$
+		assertEquals(key.hashCode(), cache.createKey(createRequest("x + 1", 0)).hashCode()); //$NON-NLS-1$
+		
+		assertFalse(key.equals(cache.createKey(createRequest("x + 2", 0)))); //$NON-NLS-1$
+		assertFalse(key.equals(cache.createKey(createRequest("x + 1", 1)))); //$NON-NLS-1$
+	}
+	
+	@Test
+	public void getPut() {
+		final ComResultCache cache = new ComResultCache(10, 1000000);
+		final ComResultCache.Key key = cache.createKey(createRequest("x", 0)); //$NON-NLS-1$
+		
+		assertNull(cache.get(key));
+		assertEquals(1, cache.getMissCount());
+		
+		cache.put(key, createAnswer(10));
+		assertEquals(1, cache.getEntryCount());
+		assertEquals(10, cache.get(cache.createKey(createRequest("x", 0))).getLength()); //$NON-NLS-1$
+		assertEquals(1, cache.getHitCount());
+		assertNull(cache.get(cache.createKey(createRequest("y", 0)))); //$NON-NLS-1$
+		assertEquals(2, cache.getMissCount());
+		
+		// replace
+		final long size = cache.getSize();
+		cache.put(key, createAnswer(20));
+		assertEquals(1, cache.getEntryCount());
+		assertEquals(size + 10 * 8, cache.getSize());
+		assertEquals(20, cache.get(key).getLength());
+		
+		cache.resetCounters();
+		assertEquals(0, cache.getHitCount());
+		assertEquals(0, cache.getMissCount());
+	}
+	
+	@Test
+	public void getCopy() {
+		final ComResultCache cache = new ComResultCache(10, 1000000);
+		final ComResultCache.Key key = cache.createKey(createRequest("x", 0)); //$NON-NLS-1$
+		final DataCmdItem answer = createAnswer(10);
+		cache.put(key, answer);
+		
+		// changes of the cached object don't affect the cache
+		((RVector<?>) answer.getData()).getData().setNum(0, 1.0);
+		final RObject data1 = cache.get(key);
+		assertEquals(0.0, getNum(data1, 0), 0.0);
+		
+		// changes of results don't affect the cache
+		((RVector<?>) data1).getData().setNum(1, 1.0);
+		final RObject data2 = cache.get(key);
+		assertNotSame(data1, data2);
+		assertEquals(0.0, getNum(data2, 1), 0.0);
+	}
+	
+	@Test
+	public void invalidate() {
+		final ComResultCache cache = new ComResultCache(10, 1000000);
+		cache.invalidate();
+		assertEquals(0, cache.getInvalidationCount());
+		
+		final ComResultCache.Key key = cache.createKey(createRequest("x", 0)); //$NON-NLS-1$
+		cache.put(key, createAnswer(10));
+		cache.put(cache.createKey(createRequest("y", 0)), createAnswer(10)); //$NON-NLS-1$
+		cache.invalidate();
+		assertEquals(0, cache.getEntryCount());
+		assertEquals(0, cache.getSize());
+		assertEquals(1, cache.getInvalidationCount());
+		assertNull(cache.get(key));
+	}
+	
+	@Test
+	public void evictByEntryCount() {
+		final ComResultCache cache = new ComResultCache(2, 1000000);
+		final ComResultCache.Key key1 = cache.createKey(createRequest("x1", 0)); //$NON-NLS-1$
+		final ComResultCache.Key key2 = cache.createKey(createRequest("x2", 0)); //$NON-NLS-1$
+		final ComResultCache.Key key3 = cache.createKey(createRequest("x3", 0)); //$NON-NLS-1$
+		cache.put(key1, createAnswer(10));
+		cache.put(key2, createAnswer(10));
+		// recently used
+		assertNotNull(cache.get(key1));
+		
+		cache.put(key3, createAnswer(10));
+		assertEquals(2, cache.getEntryCount());
+		assertNotNull(cache.get(key1));
+		assertNull(cache.get(key2));
+		assertNotNull(cache.get(key3));
+	}
+	
+	@Test
+	public void evictBySize() {
+		final ComResultCache.Key[] keys = new ComResultCache.Key[3];
+		long entrySize;
+		{	final ComResultCache cache = new ComResultCache(10, 1000000);
+			cache.put(cache.createKey(createRequest("x1", 0)), createAnswer(100)); //$NON-NLS-1$
+			entrySize = cache.getSize();
+		}
+		final ComResultCache cache = new ComResultCache(10, entrySize * 5 / 2);
+		for (int i = 0; i < keys.length; i++) {
+			keys[i] = cache.createKey(createRequest("x" + (i + 1), 0)); //$NON-NLS-1$
+			cache.put(keys[i], createAnswer(100));
+		}
+		assertEquals(2, cache.getEntryCount());
+		assertEquals(2 * entrySize, cache.getSize());
+		assertNull(cache.get(keys[0]));
+		
+		// too large
+		cache.put(keys[0], createAnswer(1000));
+		assertEquals(2, cache.getEntryCount());
+		assertNull(cache.get(keys[0]));
+	}
+	
+	@Test
+	public void invalidateByClient() {
+		final AbstractRJComClient client = new ChunkedFileTransferTest.TestClient();
+		final ComResultCache cache = new ComResultCache(10, 1000000);
+		client.setResultCache(cache);
+		client.invalidateResultCache();
+		
+		cache.put(cache.createKey(createRequest("x", 0)), createAnswer(10)); //$NON-NLS-1$
+		client.invalidateResultCache();
+		assertEquals(0, cache.getEntryCount());
+		assertEquals(1, cache.getInvalidationCount());
+		
+		cache.put(cache.createKey(createRequest("x", 0)), createAnswer(10)); //$NON-NLS-1$
+		client.setResultCache(cache);
+		assertEquals(1, cache.getEntryCount());
+		client.setResultCache(null);
+		assertEquals(0, cache.getEntryCount());
+		assertEquals(2, cache.getInvalidationCount());
+		
+		client.invalidateResultCache();
+	}
+	
+}
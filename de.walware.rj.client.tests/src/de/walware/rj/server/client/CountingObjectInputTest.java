@@ -0,0 +1,90 @@
+/*=============================================================================#
+ # Copyright (c) 2016 Stephan Wahlbrink (WalWare.de) and others.
+ # All rights reserved. This program and the accompanying materials
+ # are made available under the terms of the Eclipse Public License v1.0
+ # which accompanies this distribution, and is available at
+ # http://www.eclipse.org/legal/epl-v10.html
+ # 
+ # Contributors:
+ #     Stephan Wahlbrink - initial API and implementation
+ #=============================================================================*/
+
+package de.walware.rj.server.client;
+
+import static org.junit.Assert.assertEquals;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.ObjectInputStream;
+import java.io.ObjectOutputStream;
+
+import org.junit.Test;
+
+
+public class CountingObjectInputTest {
+	
+	
+	private static ObjectInputStream createInput() throws IOException {
+		final ByteArrayOutputStream buffer = new ByteArrayOutputStream();
+		try (final ObjectOutputStream out = new ObjectOutputStream(buffer)) {
+			out.writeBoolean(true);
+			out.writeByte(1);
+			out.writeShort(2);
+			out.writeChar('c');
+			out.writeInt(3);
+			out.writeLong(4);
+			out.writeFloat(5);
+			out.writeDouble(6);
+			out.writeUTF("a\u00e4\u20ac"); //$NON-NLS-1$
+			out.write(new byte[10]);
+			out.writeObject("object"); //$NON-NLS-1$
+			out.writeInt(7);
+		}
+		return new ObjectInputStream(new ByteArrayInputStream(buffer.toByteArray()));
+	}
+	
+	
+	@Test
+	public void countPrimitives() throws IOException, ClassNotFoundException {
+		final CountingObjectInput in = new CountingObjectInput();
+		in.connect(createInput());
+		
+		assertEquals(true, in.readBoolean());
+		assertEquals(1, in.readByte());
+		assertEquals(2, in.readShort());
+		assertEquals('c', in.readChar());
+		assertEquals(3, in.readInt());
+		assertEquals(4, in.readLong());
+		assertEquals(1 + 1 + 2 + 2 + 4 + 8, in.getCount());
+		assertEquals(5, in.readFloat(), 0);
+		assertEquals(6, in.readDouble(), 0);
+		assertEquals(1 + 1 + 2 + 2 + 4 + 8 + 4 + 8, in.getCount());
+		
+		assertEquals("a\u00e4\u20ac", in.readUTF()); //$NON-NLS-1$
+		assertEquals(30 + 2 + 1 + 2 + 3, in.getCount());
+		
+		in.readFully(new byte[10]);
+		assertEquals(38 + 10, in.getCount());
+		
+		assertEquals("object", in.readObject()); //$NON-NLS-1$
+		assertEquals(48, in.getCount());
+		
+		assertEquals(7, in.readInt());
+		assertEquals(52, in.getCount());
+	}
+	
+	@Test
+	public void keepCountOnReconnect() throws IOException {
+		final CountingObjectInput in = new CountingObjectInput();
+		in.connect(createInput());
+		in.readBoolean();
+		in.disconnect();
+		in.connect(createInput());
+		in.readBoolean();
+		in.readByte();
+		
+		assertEquals(3, in.getCount());
+	}
+	
+}
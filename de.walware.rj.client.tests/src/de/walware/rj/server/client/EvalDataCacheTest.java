@@ -0,0 +1,139 @@
+/*=============================================================================#
+ # Copyright (c) 2016 Stephan Wahlbrink (WalWare.de) and others.
+ # All rights reserved. This program and the accompanying materials
+ # are made available under the terms of the Eclipse Public License v1.0
+ # which accompanies this distribution, and is available at
+ # http://www.eclipse.org/legal/epl-v10.html
+ # 
+ # Contributors:
+ #     Stephan Wahlbrink - initial API and implementation
+ #=============================================================================*/
+
+package de.walware.rj.server.client;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNotSame;
+import static org.junit.Assert.fail;
+
+import org.eclipse.core.runtime.CoreException;
+import org.eclipse.core.runtime.NullProgressMonitor;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+import de.walware.rj.data.RObject;
+import de.walware.rj.data.RVector;
+import de.walware.rj.services.RService;
+
+
+public class EvalDataCacheTest {
+	
+	
+	private static double getNum(final RObject data, final int idx) {
+		return ((RVector<?>) data).getData().getNum(idx);
+	}
+	
+	
+	private final ChunkedFileTransferTest.TestClient client = new ChunkedFileTransferTest.TestClient();
+	private final ComResultCache cache = new ComResultCache(10, 1000000);
+	
+	private MainLoopTestEngine engine;
+	
+	
+	@Before
+	public void init() {
+		this.engine = new MainLoopTestEngine(this.client);
+		this.engine.data.put("x", ComResultCacheTest.createData(10)); //$NON-NLS-1$
+		this.engine.data.put("y", ComResultCacheTest.createData(20)); //$NON-NLS-1$
+		this.client.setResultCache(this.cache);
+	}
+	
+	@After
+	public void dispose() {
+		this.engine.dispose();
+	}
+	
+	
+	private RObject evalData(final String expression, final int options) throws CoreException {
+		return this.client.evalData(expression, null, null, options, RService.DEPTH_INFINITE,
+				new NullProgressMonitor() );
+	}
+	
+	
+	@Test
+	public void cachedEval() throws CoreException {
+		final RObject data1 = evalData("x", RService.CACHE_RESULT); //$NON-NLS-1$
+		assertEquals(10, data1.getLength());
+		assertEquals(1, this.engine.requests.size());
+		assertEquals(1, this.cache.getEntryCount());
+		
+		final RObject data2 = evalData("x", RService.CACHE_RESULT); //$NON-NLS-1$
+		assertEquals(10, data2.getLength());
+		assertEquals(1, this.engine.requests.size());
+		assertEquals(1, this.cache.getHitCount());
+		assertNotSame(data1, data2);
+	}
+	
+	@Test
+	public void cachedEvalCopy() throws CoreException {
+		final RObject data1 = evalData("x", RService.CACHE_RESULT); //$NON-NLS-1$
+		((RVector<?>) data1).getData().setNum(0, 1.0);
+		
+		final RObject data2 = evalData("x", RService.CACHE_RESULT); //$NON-NLS-1$
+		assertEquals(0.0, getNum(data2, 0), 0.0);
+		((RVector<?>) data2).getData().setNum(1, 1.0);
+		
+		final RObject data3 = evalData("x", RService.CACHE_RESULT); //$NON-NLS-1$
+		assertEquals(0.0, getNum(data3, 0), 0.0);
+		assertEquals(0.0, getNum(data3, 1), 0.0);
+		assertEquals(1, this.engine.requests.size());
+	}
+	
+	@Test
+	public void keepCacheOptionInClient() throws CoreException {
+		evalData("x", RService.CACHE_RESULT); //$NON-NLS-1$
+		evalData("y", 0); //$NON-NLS-1$
+		assertEquals(2, this.engine.requests.size());
+		assertEquals(0, this.engine.requests.get(0).getCmdOption() & RService.CACHE_RESULT);
+		assertEquals(0, this.engine.requests.get(1).getCmdOption() & RService.CACHE_RESULT);
+	}
+	
+	@Test
+	public void invalidateByUncachedEval() throws CoreException {
+		evalData("x", RService.CACHE_RESULT); //$NON-NLS-1$
+		assertEquals(1, this.cache.getEntryCount());
+		
+		evalData("y", 0); //$NON-NLS-1$
+		assertEquals(0, this.cache.getEntryCount());
+		assertEquals(1, this.cache.getInvalidationCount());
+		
+		evalData("x", RService.CACHE_RESULT); //$NON-NLS-1$
+		assertEquals(3, this.engine.requests.size());
+		assertEquals(0, this.cache.getHitCount());
+	}
+	
+	@Test
+	public void invalidateByFailedEval() throws CoreException {
+		evalData("x", RService.CACHE_RESULT); //$NON-NLS-1$
+		try {
+			evalData("z", 0); //$NON-NLS-1$
+			fail();
+		}
+		catch (final CoreException e) {
+		}
+		assertEquals(0, this.cache.getEntryCount());
+	}
+	
+	@Test
+	public void notCacheFailedEval() {
+		try {
+			evalData("z", RService.CACHE_RESULT); //$NON-NLS-1$
+			fail();
+		}
+		catch (final CoreException e) {
+		}
+		assertEquals(0, this.cache.getEntryCount());
+		assertEquals(0, this.cache.getInvalidationCount());
+	}
+	
+}
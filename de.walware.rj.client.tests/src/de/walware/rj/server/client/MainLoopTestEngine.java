@@ -0,0 +1,190 @@
+/*=============================================================================#
+ # Copyright (c) 2016 Stephan Wahlbrink (WalWare.de) and others.
+ # All rights reserved. This program and the accompanying materials
+ # are made available under the terms of the Eclipse Public License v1.0
+ # which accompanies this distribution, and is available at
+ # http://www.eclipse.org/legal/epl-v10.html
+ # 
+ # Contributors:
+ #     Stephan Wahlbrink - initial API and implementation
+ #=============================================================================*/
+
+package de.walware.rj.server.client;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.ObjectInputStream;
+import java.io.ObjectOutputStream;
+import java.rmi.ConnectException;
+import java.rmi.RemoteException;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Deque;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+import de.walware.rj.data.RObject;
+import de.walware.rj.server.ConsoleEngine;
+import de.walware.rj.server.DataCmdItem;
+import de.walware.rj.server.MainCmdC2SList;
+import de.walware.rj.server.MainCmdItem;
+import de.walware.rj.server.MainCmdS2CList;
+import de.walware.rj.server.RjsComConfig;
+import de.walware.rj.server.RjsComObject;
+import de.walware.rj.server.RjsStatus;
+import de.walware.rj.server.Server;
+
+
+/**
+ * Engine answering the data commands of the main loop of a client, the exchange objects are
+ * transferred by serialization like RMI.
+ * <p>
+ * The answers are queued and sent to the client in lists of at most {@link #listLength} items;
+ * if the client polls for answers while none is queued, the engine reports a lost connection.
+ * </p>
+ */
+class MainLoopTestEngine implements ConsoleEngine {
+	
+	
+	private static byte[] write(final Object obj) throws IOException {
+		final ByteArrayOutputStream buffer = new ByteArrayOutputStream();
+		try (final ObjectOutputStream out = new ObjectOutputStream(buffer)) {
+			out.writeObject(obj);
+		}
+		return buffer.toByteArray();
+	}
+	
+	private static Object read(final byte[] bytes) throws IOException, ClassNotFoundException {
+		try (final ObjectInputStream in = new ObjectInputStream(new ByteArrayInputStream(bytes))) {
+			return in.readObject();
+		}
+	}
+	
+	
+	private final int clientId;
+	
+	/** The data of the expressions evaluated by the engine */
+	final Map<String, RObject> data = new HashMap<>();
+	
+	/** All data commands received by the engine */
+	final List<DataCmdItem> requests = new ArrayList<>();
+	
+	final Deque<MainCmdItem> pending = new ArrayDeque<>();
+	
+	int listLength = Integer.MAX_VALUE;
+	
+	/** The number of exchanged main command lists */
+	int exchangeCount;
+	
+	
+	public MainLoopTestEngine(final AbstractRJComClient client) {
+		this.clientId = RjsComConfig.registerClientComHandler(client);
+		client.setServer(this, 1);
+	}
+	
+	public void dispose() {
+		RjsComConfig.unregisterClientComHandler(this.clientId);
+	}
+	
+	
+	/**
+	 * Answers a data command of the client by adding the answer to the queue.
+	 * <p>
+	 * The default implementation answers evaluations with the data of the expression in
+	 * {@link #data} and fails if no data is available.</p>
+	 * 
+	 * @param request the command
+	 */
+	protected void answer(final DataCmdItem request) {
+		final RObject data = this.data.get(request.getDataText());
+		if (request.getOperation().returnData) {
+			if (data != null) {
+				request.setAnswer(data, null);
+			}
+			else {
+				request.setAnswer(new RjsStatus(RjsStatus.ERROR, 0, "Object not found."));
+			}
+		}
+		else {
+			request.setAnswer(RjsStatus.OK_STATUS);
+		}
+		this.pending.add(request);
+	}
+	
+	@Override
+	public RjsComObject runMainLoop(final RjsComObject com) throws RemoteException {
+		try {
+			if (com instanceof MainCmdC2SList) {
+				final MainCmdC2SList list = (MainCmdC2SList) read(write(com));
+				MainCmdItem item = list.getItems();
+				while (item != null) {
+					final MainCmdItem next = item.next;
+					item.next = null;
+					if (item instanceof DataCmdItem) {
+						this.requests.add((DataCmdItem) item);
+						answer((DataCmdItem) item);
+					}
+					item = next;
+				}
+			}
+			else if (com == null && this.pending.isEmpty()) {
+				throw new ConnectException("No answer available.");
+			}
+			if (com == null || com instanceof MainCmdC2SList) {
+				this.exchangeCount++;
+			}
+			
+			MainCmdItem first = null;
+			MainCmdItem last = null;
+			for (int i = 0; i < this.listLength && !this.pending.isEmpty(); i++) {
+				final MainCmdItem item = this.pending.removeFirst();
+				if (first == null) {
+					first = item;
+				}
+				else {
+					last.next = item;
+				}
+				last = item;
+			}
+			final MainCmdS2CList list = new MainCmdS2CList(first, false);
+			list.setId(this.clientId);
+			// the client processes the items when reading the list
+			return (RjsComObject) read(write(list));
+		}
+		catch (final IOException | ClassNotFoundException e) {
+			throw new RemoteException("Serialization failed.", e);
+		}
+	}
+	
+	@Override
+	public RjsComObject runAsync(final RjsComObject com) throws RemoteException {
+		throw new UnsupportedOperationException();
+	}
+	
+	@Override
+	public Server getPublic() {
+		throw new UnsupportedOperationException();
+	}
+	
+	@Override
+	public Map<String, Object> getPlatformData() {
+		throw new UnsupportedOperationException();
+	}
+	
+	@Override
+	public void setProperties(final Map<String, ? extends Object> properties) {
+		throw new UnsupportedOperationException();
+	}
+	
+	@Override
+	public void disconnect() {
+	}
+	
+	@Override
+	public boolean isClosed() {
+		return false;
+	}
+	
+}
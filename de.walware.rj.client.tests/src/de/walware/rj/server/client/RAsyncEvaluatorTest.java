@@ -0,0 +1,287 @@
+/*=============================================================================#
+ # Copyright (c) 2016 Stephan Wahlbrink (WalWare.de) and others.
+ # All rights reserved. This program and the accompanying materials
+ # are made available under the terms of the Eclipse Public License v1.0
+ # which accompanies this distribution, and is available at
+ # http://www.eclipse.org/legal/epl-v10.html
+ # 
+ # Contributors:
+ #     Stephan Wahlbrink - initial API and implementation
+ #=============================================================================*/
+
+package de.walware.rj.server.client;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CancellationException;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Executor;
+import java.util.concurrent.Future;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+
+import org.eclipse.core.runtime.CoreException;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+import de.walware.rj.data.RObject;
+import de.walware.rj.server.DataCmdItem;
+import de.walware.rj.server.RjsStatus;
+import de.walware.rj.services.RService;
+
+
+public class RAsyncEvaluatorTest {
+	
+	
+	/** Executor running the tasks on demand in the test thread */
+	private static class QueueExecutor implements Executor {
+		
+		private final List<Runnable> tasks = new ArrayList<>();
+		
+		@Override
+		public void execute(final Runnable command) {
+			this.tasks.add(command);
+		}
+		
+		public void runAll() {
+			while (!this.tasks.isEmpty()) {
+				this.tasks.remove(0).run();
+			}
+		}
+		
+	}
+	
+	
+	private final ChunkedFileTransferTest.TestClient client = new ChunkedFileTransferTest.TestClient();
+	
+	private final QueueExecutor executor = new QueueExecutor();
+	
+	private MainLoopTestEngine engine;
+	
+	private RAsyncEvaluator evaluator;
+	
+	
+	@Before
+	public void init() {
+		this.engine = new MainLoopTestEngine(this.client);
+		this.engine.data.put("x", ComResultCacheTest.createData(10)); //$NON-NLS-1$
+		this.engine.data.put("y", ComResultCacheTest.createData(20)); //$NON-NLS-1$
+		this.evaluator = new RAsyncEvaluator(this.client, this.executor);
+	}
+	
+	@After
+	public void dispose() {
+		this.engine.dispose();
+	}
+	
+	
+	private Future<RObject> evalData(final String expression) {
+		return this.evaluator.evalData(expression, null, null, 0, RService.DEPTH_INFINITE);
+	}
+	
+	
+	@Test
+	public void evaluateQueuedAsBatch() throws Exception {
+		final Future<RObject> x = evalData("x"); //$NON-NLS-1$
+		final Future<Void> a = this.evaluator.evalVoid("a <- 1", null); //$NON-NLS-1$
+		final Future<RObject> y = evalData("y"); //$NON-NLS-1$
+		assertEquals(1, this.executor.tasks.size());
+		assertFalse(x.isDone());
+		
+		this.executor.runAll();
+		
+		assertEquals(1, this.engine.exchangeCount);
+		assertEquals(3, this.engine.requests.size());
+		assertTrue(x.isDone());
+		assertTrue(a.isDone());
+		assertTrue(y.isDone());
+		assertEquals(10, x.get().getLength());
+		assertNull(a.get());
+		assertEquals(20, y.get().getLength());
+	}
+	
+	@Test
+	public void scheduleAgainAfterRun() throws Exception {
+		final Future<RObject> x = evalData("x"); //$NON-NLS-1$
+		this.executor.runAll();
+		final Future<RObject> y = evalData("y"); //$NON-NLS-1$
+		assertEquals(1, this.executor.tasks.size());
+		this.executor.runAll();
+		
+		assertEquals(2, this.engine.exchangeCount);
+		assertEquals(10, x.get().getLength());
+		assertEquals(20, y.get().getLength());
+	}
+	
+	@Test
+	public void failMiddleRequest() throws Exception {
+		final Future<RObject> x = evalData("x"); //$NON-NLS-1$
+		final Future<RObject> z = evalData("z"); //$NON-NLS-1$
+		final Future<RObject> y = evalData("y"); //$NON-NLS-1$
+		this.executor.runAll();
+		
+		assertEquals(10, x.get().getLength());
+		assertTrue(z.isDone());
+		assertFalse(z.isCancelled());
+		try {
+			z.get();
+			fail();
+		}
+		catch (final ExecutionException e) {
+			assertTrue(e.getCause() instanceof CoreException);
+		}
+		assertEquals(20, y.get().getLength());
+	}
+	
+	@Test
+	public void cancelPending() throws Exception {
+		final Future<RObject> x = evalData("x"); //$NON-NLS-1$
+		final Future<RObject> y = evalData("y"); //$NON-NLS-1$
+		assertTrue(x.cancel(false));
+		assertTrue(x.isCancelled());
+		assertTrue(x.isDone());
+		this.executor.runAll();
+		
+		assertEquals(1, this.engine.requests.size());
+		try {
+			x.get();
+			fail();
+		}
+		catch (final CancellationException e) {
+		}
+		assertEquals(20, y.get().getLength());
+	}
+	
+	@Test
+	public void cancelAllPending() {
+		final Future<RObject> x = evalData("x"); //$NON-NLS-1$
+		x.cancel(true);
+		this.executor.runAll();
+		
+		assertEquals(0, this.engine.exchangeCount);
+	}
+	
+	@Test
+	public void cancelDone() throws Exception {
+		final Future<RObject> x = evalData("x"); //$NON-NLS-1$
+		this.executor.runAll();
+		
+		assertFalse(x.cancel(true));
+		assertFalse(x.isCancelled());
+		assertEquals(10, x.get().getLength());
+	}
+	
+	@Test
+	public void cancelledByServer() throws Exception {
+		final MainLoopTestEngine engine = new MainLoopTestEngine(this.client) {
+			@Override
+			protected void answer(final DataCmdItem request) {
+				request.setAnswer(RjsStatus.CANCEL_STATUS);
+				this.pending.add(request);
+			}
+		};
+		try {
+			final Future<RObject> x = evalData("x"); //$NON-NLS-1$
+			this.executor.runAll();
+			
+			assertTrue(x.isDone());
+			try {
+				x.get();
+				fail();
+			}
+			catch (final CancellationException e) {
+			}
+		}
+		finally {
+			engine.dispose();
+		}
+	}
+	
+	@Test
+	public void getTimeout() throws Exception {
+		final Future<RObject> x = evalData("x"); //$NON-NLS-1$
+		try {
+			x.get(10, TimeUnit.MILLISECONDS);
+			fail();
+		}
+		catch (final TimeoutException e) {
+		}
+		this.executor.runAll();
+		
+		assertEquals(10, x.get(10, TimeUnit.MILLISECONDS).getLength());
+	}
+	
+	@Test
+	public void getWaitsForOtherThread() throws Exception {
+		final Future<RObject> x = evalData("x"); //$NON-NLS-1$
+		final Thread thread = new Thread(new Runnable() {
+			@Override
+			public void run() {
+				RAsyncEvaluatorTest.this.executor.runAll();
+			}
+		});
+		thread.start();
+		try {
+			assertEquals(10, x.get(10, TimeUnit.SECONDS).getLength());
+		}
+		finally {
+			thread.join();
+		}
+	}
+	
+	@Test
+	public void failAllOnLostConnection() throws Exception {
+		final MainLoopTestEngine engine = new MainLoopTestEngine(this.client) {
+			@Override
+			protected void answer(final DataCmdItem request) {
+			}
+		};
+		try {
+			final Future<RObject> x = evalData("x"); //$NON-NLS-1$
+			final Future<RObject> y = evalData("y"); //$NON-NLS-1$
+			this.executor.runAll();
+			
+			assertTrue(x.isDone());
+			assertTrue(y.isDone());
+			try {
+				y.get();
+				fail();
+			}
+			catch (final ExecutionException e) {
+			}
+		}
+		finally {
+			engine.dispose();
+		}
+	}
+	
+	@Test
+	public void failAllOnRejectedExecution() throws Exception {
+		final RAsyncEvaluator evaluator = new RAsyncEvaluator(this.client, new Executor() {
+			@Override
+			public void execute(final Runnable command) {
+				throw new RejectedExecutionException();
+			}
+		});
+		final Future<RObject> x = evaluator.evalData("x", null, null, 0, RService.DEPTH_INFINITE); //$NON-NLS-1$
+		
+		assertTrue(x.isDone());
+		try {
+			x.get();
+			fail();
+		}
+		catch (final ExecutionException e) {
+			assertTrue(e.getCause() instanceof CoreException);
+		}
+		assertEquals(0, this.engine.exchangeCount);
+	}
+	
+}
@@ -0,0 +1,270 @@
+/*=============================================================================#
+ # Copyright (c) 2016 Stephan Wahlbrink (WalWare.de) and others.
+ # All rights reserved. This program and the accompanying materials
+ # are made available under the terms of the Eclipse Public License v1.0
+ # which accompanies this distribution, and is available at
+ # http://www.eclipse.org/legal/epl-v10.html
+ # 
+ # Contributors:
+ #     Stephan Wahlbrink - initial API and implementation
+ #=============================================================================*/
+
+package de.walware.rj.server.client;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import org.eclipse.core.runtime.CoreException;
+import org.eclipse.core.runtime.IStatus;
+import org.eclipse.core.runtime.NullProgressMonitor;
+import org.eclipse.core.runtime.Status;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+import de.walware.rj.server.ConsoleMessageCmdItem;
+import de.walware.rj.server.ConsoleWriteCmdItem;
+import de.walware.rj.server.DataCmdItem;
+import de.walware.rj.server.RjsStatus;
+import de.walware.rj.services.RService;
+
+
+public class RBatchImplTest {
+	
+	
+	private static class OutputClient extends ChunkedFileTransferTest.TestClient {
+		
+		private final List<String> output = new ArrayList<>();
+		
+		@Override
+		protected void writeConsoleOutput(final byte streamId, final String text) {
+			this.output.add(text);
+		}
+		
+		@Override
+		protected void showMessage(final String text) {
+			this.output.add(text);
+		}
+		
+	}
+	
+	
+	private final OutputClient client = new OutputClient();
+	
+	private MainLoopTestEngine engine;
+	
+	
+	@Before
+	public void init() {
+		this.engine = new MainLoopTestEngine(this.client);
+		this.engine.data.put("x", ComResultCacheTest.createData(10)); //$NON-NLS-1$
+		this.engine.data.put("y", ComResultCacheTest.createData(20)); //$NON-NLS-1$
+	}
+	
+	@After
+	public void dispose() {
+		this.engine.dispose();
+	}
+	
+	
+	private RBatchImpl createBatch() {
+		final RBatchImpl batch = new RBatchImpl(this.client);
+		batch.addEvalData("x", null, null, 0, RService.DEPTH_INFINITE); //$NON-NLS-1$
+		batch.addEvalVoid("a <- 1", null); //$NON-NLS-1$
+		batch.addAssignData("b", ComResultCacheTest.createData(5), null); //$NON-NLS-1$
+		batch.addEvalData("y", null, null, RService.CACHE_RESULT, RService.DEPTH_INFINITE); //$NON-NLS-1$
+		return batch;
+	}
+	
+	private void assertAnswers(final RBatchImpl batch) throws CoreException {
+		for (int i = 0; i < batch.getCount(); i++) {
+			assertTrue(batch.getStatus(i).isOK());
+		}
+		assertEquals(10, batch.getData(0).getLength());
+		assertEquals(20, batch.getData(3).getLength());
+	}
+	
+	
+	@Test
+	public void evaluate() throws CoreException {
+		final RBatchImpl batch = createBatch();
+		batch.evaluate(new NullProgressMonitor());
+		
+		assertEquals(1, this.engine.exchangeCount);
+		assertAnswers(batch);
+	}
+	
+	@Test
+	public void evaluateEmpty() throws CoreException {
+		final RBatchImpl batch = new RBatchImpl(this.client);
+		batch.evaluate(new NullProgressMonitor());
+		
+		assertEquals(0, this.engine.exchangeCount);
+		assertEquals(0, batch.getCount());
+	}
+	
+	@Test
+	public void sendBatchInOneList() throws CoreException {
+		final RBatchImpl batch = createBatch();
+		batch.evaluate(new NullProgressMonitor());
+		
+		final List<DataCmdItem> requests = this.engine.requests;
+		assertEquals(4, requests.size());
+		for (int i = 0; i < requests.size() - 1; i++) {
+			assertTrue(requests.get(i).hasBatchNext());
+		}
+		assertFalse(requests.get(3).hasBatchNext());
+		assertEquals(0, requests.get(3).getCmdOption() & RService.CACHE_RESULT);
+	}
+	
+	@Test
+	public void receivePartialAnswers() throws CoreException {
+		this.engine.listLength = 1;
+		final RBatchImpl batch = createBatch();
+		batch.evaluate(new NullProgressMonitor());
+		
+		assertEquals(4, this.engine.exchangeCount);
+		assertAnswers(batch);
+	}
+	
+	@Test
+	public void receiveAnswersWithConsoleOutput() throws CoreException {
+		final MainLoopTestEngine engine = new MainLoopTestEngine(this.client) {
+			@Override
+			protected void answer(final DataCmdItem request) {
+				this.pending.add(new ConsoleWriteCmdItem(ConsoleWriteCmdItem.R_OUTPUT,
+						"output " + request.getDataText() )); //$NON-NLS-1$
+				super.answer(request);
+				this.pending.add(new ConsoleMessageCmdItem("message")); //$NON-NLS-1$
+			}
+		};
+		try {
+			engine.data.putAll(this.engine.data);
+			engine.listLength = 2;
+			final RBatchImpl batch = createBatch();
+			batch.evaluate(new NullProgressMonitor());
+			
+			assertEquals(6, engine.exchangeCount);
+			assertAnswers(batch);
+			assertEquals(8, this.client.output.size());
+			assertEquals("output x", this.client.output.get(0)); //$NON-NLS-1$
+			assertEquals("message", this.client.output.get(1)); //$NON-NLS-1$
+			assertEquals("output y", this.client.output.get(6)); //$NON-NLS-1$
+		}
+		finally {
+			engine.dispose();
+		}
+	}
+	
+	@Test
+	public void failMiddleItem() throws CoreException {
+		final RBatchImpl batch = new RBatchImpl(this.client);
+		batch.addEvalData("x", null, null, 0, RService.DEPTH_INFINITE); //$NON-NLS-1$
+		batch.addEvalData("z", null, null, 0, RService.DEPTH_INFINITE); //$NON-NLS-1$
+		batch.addEvalData("y", null, null, 0, RService.DEPTH_INFINITE); //$NON-NLS-1$
+		batch.evaluate(new NullProgressMonitor());
+		
+		assertTrue(batch.getStatus(0).isOK());
+		assertEquals(IStatus.ERROR, batch.getStatus(1).getSeverity());
+		assertTrue(batch.getStatus(2).isOK());
+		assertEquals(20, batch.getData(2).getLength());
+		try {
+			batch.getData(1);
+			fail();
+		}
+		catch (final CoreException e) {
+			assertEquals(IStatus.ERROR, e.getStatus().getSeverity());
+		}
+	}
+	
+	@Test
+	public void cancel() throws CoreException {
+		final MainLoopTestEngine engine = new MainLoopTestEngine(this.client) {
+			private int count;
+			@Override
+			protected void answer(final DataCmdItem request) {
+				if (this.count++ >= 1) {
+					request.setAnswer(RjsStatus.CANCEL_STATUS);
+					this.pending.add(request);
+				}
+				else {
+					super.answer(request);
+				}
+			}
+		};
+		try {
+			engine.data.putAll(this.engine.data);
+			final RBatchImpl batch = createBatch();
+			batch.evaluate(new NullProgressMonitor());
+			
+			assertTrue(batch.getStatus(0).isOK());
+			for (int i = 1; i < batch.getCount(); i++) {
+				assertEquals(Status.CANCEL_STATUS, batch.getStatus(i));
+			}
+		}
+		finally {
+			engine.dispose();
+		}
+	}
+	
+	@Test
+	public void failIncompleteAnswers() {
+		final MainLoopTestEngine engine = new MainLoopTestEngine(this.client) {
+			@Override
+			protected void answer(final DataCmdItem request) {
+				if (request.hasBatchNext()) {
+					super.answer(request);
+				}
+			}
+		};
+		try {
+			engine.data.putAll(this.engine.data);
+			final RBatchImpl batch = createBatch();
+			try {
+				batch.evaluate(new NullProgressMonitor());
+				fail();
+			}
+			catch (final CoreException e) {
+			}
+			try {
+				batch.getStatus(0);
+				fail();
+			}
+			catch (final IllegalStateException e) {
+			}
+		}
+		finally {
+			engine.dispose();
+		}
+	}
+	
+	@Test
+	public void ignoreUnexpectedAnswers() throws CoreException {
+		final MainLoopTestEngine engine = new MainLoopTestEngine(this.client) {
+			@Override
+			protected void answer(final DataCmdItem request) {
+				super.answer(request);
+				if (this.requests.size() == 2) {
+					// repeated answer
+					this.pending.add(request);
+				}
+			}
+		};
+		try {
+			engine.data.putAll(this.engine.data);
+			final RBatchImpl batch = createBatch();
+			batch.evaluate(new NullProgressMonitor());
+			
+			assertAnswers(batch);
+		}
+		finally {
+			engine.dispose();
+		}
+	}
+	
+}
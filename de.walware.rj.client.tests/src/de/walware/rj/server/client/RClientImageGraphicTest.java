@@ -0,0 +1,245 @@
+/*=============================================================================#
+ # Copyright (c) 2016 Stephan Wahlbrink (WalWare.de) and others.
+ # All rights reserved. This program and the accompanying materials
+ # are made available under the terms of the Eclipse Public License v1.0
+ # which accompanies this distribution, and is available at
+ # http://www.eclipse.org/legal/epl-v10.html
+ # 
+ # Contributors:
+ #     Stephan Wahlbrink - initial API and implementation
+ #=============================================================================*/
+
+package de.walware.rj.server.client;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNotNull;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+
+import java.awt.image.BufferedImage;
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+
+import javax.imageio.ImageIO;
+
+import org.junit.After;
+import org.junit.Test;
+
+import de.walware.rj.graphic.RGraphicInstruction;
+import de.walware.rj.server.client.RClientGraphic.InitConfig;
+
+
+public class RClientImageGraphicTest {
+	
+	
+	private static final int WHITE = 0xffffffff;
+	private static final int RED = 0xff0000ff;
+	private static final int BLUE = 0xffff0000;
+	
+	
+	private RClientImageGraphicFactory factory;
+	
+	
+	@After
+	public void dispose() {
+		if (this.factory != null) {
+			this.factory.dispose();
+		}
+	}
+	
+	
+	private RClientImageGraphic createGraphic(final int threads, final double w, final double h) {
+		this.factory = new RClientImageGraphicFactory(96.0, threads);
+		final InitConfig config = new InitConfig();
+		config.canvasColor = WHITE;
+		return (RClientImageGraphic) this.factory.newGraphic(1, w, h, config, true, null, 0);
+	}
+	
+	private static void draw(final RClientGraphic graphic) {
+		graphic.addSetColor(BLUE);
+		graphic.addSetFill(RED);
+		graphic.addSetLine(0, 2f, (byte) 1, (byte) 1, 10f);
+		graphic.addDrawRect(100.5, 100.5, 1100.5, 800.5);
+		graphic.addDrawCircle(512, 512, 300);
+		graphic.addDrawLine(0, 0, 1200, 900);
+		graphic.addDrawPolyline(new double[] { 10, 600, 1190 }, new double[] { 890, 10, 890 });
+		graphic.addSetFill(BLUE);
+		graphic.addDrawPolygon(new double[] { 500, 530, 520 }, new double[] { 500, 500, 530 });
+		graphic.addSetFont("sans", 1, 12f, 1.2f); //$NON-NLS-1$
+		graphic.addDrawText("Tile", 505, 515, 30, 0.5); //$NON-NLS-1$
+		graphic.addSetClip(0, 0, 600, 600);
+		graphic.addDrawCircle(600, 600, 100);
+	}
+	
+	private static int[] getPixels(final BufferedImage image) {
+		return image.getRGB(0, 0, image.getWidth(), image.getHeight(), null, 0, image.getWidth());
+	}
+	
+	/**
+	 * Asserts that the pixels are equal except for small differences of the anti-aliasing,
+	 * which is computed depending on the clip of the tile.
+	 */
+	private static void assertSimilarPixels(final int[] expected, final int[] actual) {
+		assertEquals(expected.length, actual.length);
+		for (int i = 0; i < expected.length; i++) {
+			for (int shift = 0; shift < 32; shift += 8) {
+				final int diff = ((expected[i] >>> shift) & 0xff) - ((actual[i] >>> shift) & 0xff);
+				if (Math.abs(diff) > 32) {
+					fail("pixel " + i + ": expected " + Integer.toHexString(expected[i]) //$NON-NLS-1$ //$NON-NLS-2$
+							+ " but was " + Integer.toHexString(actual[i]) ); //$NON-NLS-1$
+				}
+			}
+		}
+	}
+	
+	
+	@Test
+	public void renderImage() {
+		final RClientImageGraphic graphic = createGraphic(1, 200, 100);
+		graphic.addSetFill(RED);
+		graphic.addSetColor(0);
+		graphic.addDrawRect(50, 20, 150, 80);
+		
+		final BufferedImage image = graphic.renderImage();
+		assertEquals(200, image.getWidth());
+		assertEquals(100, image.getHeight());
+		assertEquals(0xffffffff, image.getRGB(10, 10));
+		assertEquals(0xffff0000, image.getRGB(100, 50));
+	}
+	
+	@Test
+	public void renderScaledImage() {
+		final RClientImageGraphic graphic = createGraphic(1, 200, 100);
+		graphic.addSetFill(RED);
+		graphic.addSetColor(0);
+		graphic.addDrawRect(100, 0, 200, 100);
+		
+		final BufferedImage image = graphic.renderImage(400, 50);
+		assertEquals(400, image.getWidth());
+		assertEquals(50, image.getHeight());
+		assertEquals(0xffffffff, image.getRGB(190, 25));
+		assertEquals(0xffff0000, image.getRGB(210, 25));
+	}
+	
+	@Test
+	public void renderWithClip() {
+		final RClientImageGraphic graphic = createGraphic(1, 200, 100);
+		graphic.addSetFill(RED);
+		graphic.addSetColor(0);
+		graphic.addSetClip(0, 0, 100, 100);
+		graphic.addDrawRect(0, 0, 200, 100);
+		graphic.addSetClip(0, 0, 200, 100);
+		graphic.addDrawRect(0, 0, 200, 10);
+		
+		final BufferedImage image = graphic.renderImage();
+		assertEquals(0xffff0000, image.getRGB(50, 50));
+		assertEquals(0xffffffff, image.getRGB(150, 50));
+		assertEquals(0xffff0000, image.getRGB(150, 5));
+	}
+	
+	@Test
+	public void renderTilesLikeSingleImage() {
+		final RClientImageGraphic single = createGraphic(1, 1200, 900);
+		draw(single);
+		final int[] expected = getPixels(single.renderImage());
+		this.factory.dispose();
+		
+		final RClientImageGraphic tiled = createGraphic(4, 1200, 900);
+		draw(tiled);
+		final BufferedImage image = tiled.renderImage();
+		assertEquals(1200, image.getWidth());
+		assertEquals(900, image.getHeight());
+		assertSimilarPixels(expected, getPixels(image));
+	}
+	
+	@Test
+	public void renderTilesScaled() {
+		final RClientImageGraphic single = createGraphic(1, 1200, 900);
+		draw(single);
+		final int[] expected = getPixels(single.renderImage(1700, 1100));
+		this.factory.dispose();
+		
+		final RClientImageGraphic tiled = createGraphic(3, 1200, 900);
+		draw(tiled);
+		assertSimilarPixels(expected, getPixels(tiled.renderImage(1700, 1100)));
+	}
+	
+	@Test(expected= IllegalArgumentException.class)
+	public void failInvalidSize() {
+		createGraphic(1, 200, 100).renderImage(0, 100);
+	}
+	
+	@Test
+	public void capture() {
+		final RClientImageGraphic graphic = createGraphic(1, 20, 10);
+		graphic.addSetFill(RED);
+		graphic.addSetColor(0);
+		graphic.addDrawRect(10, 0, 20, 10);
+		
+		final byte[] data = graphic.capture(20, 10);
+		assertEquals(20 * 10 * 4, data.length);
+		// BGRA
+		assertArrayEquals(new byte[] { -1, -1, -1, -1 }, new byte[] { data[0], data[1], data[2], data[3] });
+		final int i = (5 * 20 + 15) * 4;
+		assertArrayEquals(new byte[] { 0, 0, -1, -1 }, new byte[] { data[i], data[i + 1], data[i + 2], data[i + 3] });
+	}
+	
+	@Test
+	public void writePNG() throws IOException {
+		final RClientImageGraphic graphic = createGraphic(1, 200, 100);
+		draw(graphic);
+		final ByteArrayOutputStream out = new ByteArrayOutputStream();
+		graphic.writePNG(out);
+		
+		final BufferedImage image = ImageIO.read(new ByteArrayInputStream(out.toByteArray()));
+		assertNotNull(image);
+		assertEquals(200, image.getWidth());
+		assertArrayEquals(getPixels(graphic.renderImage()), getPixels(image));
+	}
+	
+	@Test
+	public void reset() {
+		final RClientImageGraphic graphic = createGraphic(1, 200, 100);
+		draw(graphic);
+		final InitConfig config = new InitConfig();
+		graphic.reset(300, 150, config);
+		
+		assertEquals(1, graphic.getInstructions().size());
+		assertEquals(RGraphicInstruction.INIT, graphic.getInstructions().get(0).getInstructionType());
+		assertArrayEquals(new double[] { 300, 150 }, graphic.computeSize(), 0);
+	}
+	
+	@Test
+	public void computeStringWidth() {
+		final RClientImageGraphic graphic = createGraphic(1, 200, 100);
+		final double width1 = graphic.computeStringWidth("a")[0]; //$NON-NLS-1$
+		final double width3 = graphic.computeStringWidth("aaa")[0]; //$NON-NLS-1$
+		assertTrue(width1 > 0);
+		assertEquals(3 * width1, width3, 0.01 * width3);
+		
+		graphic.addSetFont("sans", 1, 24f, 1.2f); //$NON-NLS-1$
+		assertEquals(2 * width3, graphic.computeStringWidth("aaa")[0], 0.05 * width3); //$NON-NLS-1$
+	}
+	
+	@Test
+	public void computeFontMetric() {
+		final RClientImageGraphic graphic = createGraphic(1, 200, 100);
+		final double[] max = graphic.computeFontMetric(0);
+		final double[] m = graphic.computeFontMetric('M');
+		final double[] g = graphic.computeFontMetric('g');
+		
+		assertTrue(max[0] >= m[0] && m[0] > 0);
+		assertTrue(g[1] > m[1]);
+		assertTrue(m[2] > 0);
+	}
+	
+	@Test
+	public void initServerProperties() {
+		this.factory = new RClientImageGraphicFactory(72.0, 1);
+		assertArrayEquals(new double[] { 72.0, 72.0 },
+				(double[]) this.factory.getInitServerProperties().get("display.ppi"), 0); //$NON-NLS-1$
+	}
+	
+}
@@ -0,0 +1,77 @@
+/*=============================================================================#
+ # Copyright (c) 2016 Stephan Wahlbrink (WalWare.de) and others.
+ # All rights reserved. This program and the accompanying materials
+ # are made available under the terms of the Eclipse Public License v1.0
+ # which accompanies this distribution, and is available at
+ # http://www.eclipse.org/legal/epl-v10.html
+ # 
+ # Contributors:
+ #     Stephan Wahlbrink - initial API and implementation
+ #=============================================================================*/
+
+package de.walware.rj.server.client;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertTrue;
+
+import org.junit.Test;
+
+import de.walware.rj.data.REnvironment;
+import de.walware.rj.data.RObject;
+import de.walware.rj.data.defaultImpl.RCharacterDataImpl;
+import de.walware.rj.data.defaultImpl.REnvironmentImpl;
+import de.walware.rj.data.defaultImpl.RObjectFactoryImpl;
+
+
+public class REnvironmentDiffTest {
+	
+	
+	private static class TestEnvironment extends REnvironmentImpl {
+		
+		public TestEnvironment(final String[] names) {
+			super("test", 1, createComponents(names.length), names, names.length, //$NON-NLS-1$
+					(byte) 0, RObject.CLASSNAME_ENV );
+		}
+		
+	}
+	
+	private static RObject[] createComponents(final int length) {
+		final RObjectFactoryImpl factory = RObjectFactoryImpl.INSTANCE;
+		final RObject[] components = new RObject[length];
+		for (int i = 0; i < length; i++) {
+			components[i] = factory.createNumVector(new double[] { i });
+		}
+		return components;
+	}
+	
+	
+	@Test
+	public void applyComplete() {
+		final REnvironment previous = new TestEnvironment(new String[] { "a" }); //$NON-NLS-1$
+		final REnvironment changed = new TestEnvironment(new String[] { "a", "b" }); //$NON-NLS-1$ //$NON-NLS-2$
+		final REnvironmentDiff diff = new REnvironmentDiff(changed, null, 2);
+		
+		assertTrue(diff.isComplete());
+		assertEquals(2, diff.getVersion());
+		assertSame(changed, diff.applyTo(previous));
+		assertEquals(1, previous.getLength());
+	}
+	
+	@Test
+	public void applyChanges() {
+		final REnvironment previous = new TestEnvironment(new String[] { "a", "b" }); //$NON-NLS-1$ //$NON-NLS-2$
+		final REnvironment changed = new TestEnvironment(new String[] { "c" }); //$NON-NLS-1$
+		final REnvironmentDiff diff = new REnvironmentDiff(changed,
+				new RCharacterDataImpl(new String[] { "a" }), 3 ); //$NON-NLS-1$
+		
+		assertFalse(diff.isComplete());
+		assertSame(previous, diff.applyTo(previous));
+		assertEquals(2, previous.getLength());
+		assertEquals("b", previous.getName(0)); //$NON-NLS-1$
+		assertEquals("c", previous.getName(1)); //$NON-NLS-1$
+		assertSame(changed.get(0), previous.get("c")); //$NON-NLS-1$
+	}
+	
+}
@@ -0,0 +1,200 @@
+/*=============================================================================#
+ # Copyright (c) 2016 Stephan Wahlbrink (WalWare.de) and others.
+ # All rights reserved. This program and the accompanying materials
+ # are made available under the terms of the Eclipse Public License v1.0
+ # which accompanies this distribution, and is available at
+ # http://www.eclipse.org/legal/epl-v10.html
+ # 
+ # Contributors:
+ #     Stephan Wahlbrink - initial API and implementation
+ #=============================================================================*/
+
+package de.walware.rj.server.client;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+import java.io.IOException;
+import java.io.StringReader;
+import java.io.StringWriter;
+import java.util.Collections;
+
+import javax.xml.parsers.DocumentBuilderFactory;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+import org.w3c.dom.Document;
+import org.w3c.dom.Element;
+import org.w3c.dom.Node;
+import org.w3c.dom.NodeList;
+import org.xml.sax.InputSource;
+
+import de.walware.rj.graphic.RGraphicInstruction;
+import de.walware.rj.server.client.RClientGraphic.InitConfig;
+
+
+public class RGraphicSVGWriterTest {
+	
+	
+	private static final String SVG_NS = "http://www.w3.org/2000/svg"; //$NON-NLS-1$
+	
+	
+	private RClientImageGraphicFactory factory;
+	
+	private RClientImageGraphic graphic;
+	
+	
+	@Before
+	public void init() {
+		this.factory = new RClientImageGraphicFactory(96.0, 1);
+		final InitConfig config = new InitConfig();
+		config.canvasColor = 0xffffffff;
+		this.graphic = (RClientImageGraphic) this.factory.newGraphic(1, 200, 100, config, true, null, 0);
+	}
+	
+	@After
+	public void dispose() {
+		this.factory.dispose();
+	}
+	
+	
+	private String writeSVG() throws IOException {
+		final StringWriter out = new StringWriter();
+		new RGraphicSVGWriter(out, 96.0).write(this.graphic);
+		return out.toString();
+	}
+	
+	private static Document parse(final String svg) throws Exception {
+		final DocumentBuilderFactory factory = DocumentBuilderFactory.newInstance();
+		factory.setNamespaceAware(true);
+		return factory.newDocumentBuilder().parse(new InputSource(new StringReader(svg)));
+	}
+	
+	private static NodeList getElements(final Node node, final String name) {
+		return (node instanceof Document) ?
+				((Document) node).getElementsByTagNameNS(SVG_NS, name) :
+				((Element) node).getElementsByTagNameNS(SVG_NS, name);
+	}
+	
+	
+	@Test
+	public void writeDocument() throws Exception {
+		this.graphic.addSetColor(0xff0000ff);
+		this.graphic.addSetFill(0x80ff0000);
+		this.graphic.addDrawRect(10, 20, 50, 40);
+		this.graphic.addDrawLine(0, 0, 200, 100);
+		
+		final Document document = parse(writeSVG());
+		final Element svg = document.getDocumentElement();
+		assertEquals("svg", svg.getLocalName()); //$NON-NLS-1$
+		assertEquals("200", svg.getAttribute("width")); //$NON-NLS-1$ //$NON-NLS-2$
+		assertEquals("100", svg.getAttribute("height")); //$NON-NLS-1$ //$NON-NLS-2$
+		
+		final NodeList rects = getElements(document, "rect"); //$NON-NLS-1$
+		assertEquals(2, rects.getLength());
+		final Element rect = (Element) rects.item(1);
+		assertEquals("10", rect.getAttribute("x")); //$NON-NLS-1$ //$NON-NLS-2$
+		assertEquals("40", rect.getAttribute("width")); //$NON-NLS-1$ //$NON-NLS-2$
+		assertEquals("#0000ff", rect.getAttribute("fill")); //$NON-NLS-1$ //$NON-NLS-2$
+		assertEquals("0.5", rect.getAttribute("fill-opacity")); //$NON-NLS-1$ //$NON-NLS-2$
+		assertEquals("#ff0000", rect.getAttribute("stroke")); //$NON-NLS-1$ //$NON-NLS-2$
+		assertFalse(rect.hasAttribute("stroke-opacity")); //$NON-NLS-1$
+		assertEquals(1, getElements(document, "line").getLength()); //$NON-NLS-1$
+	}
+	
+	@Test
+	public void escapeText() throws Exception {
+		this.graphic.addSetColor(0xff000000);
+		this.graphic.addDrawText("a < b && c > \"d\" 'e'\u0001", 10, 10, 0, 0); //$NON-NLS-1$
+		this.graphic.addDrawText("]]> <!-- -->", 10, 30, 0, 0.5); //$NON-NLS-1$
+		
+		final Document document = parse(writeSVG());
+		final NodeList texts = getElements(document, "text"); //$NON-NLS-1$
+		assertEquals(2, texts.getLength());
+		assertEquals("a < b && c > \"d\" 'e'", texts.item(0).getTextContent()); //$NON-NLS-1$
+		assertEquals("]]> <!-- -->", texts.item(1).getTextContent()); //$NON-NLS-1$
+		assertEquals("middle", ((Element) texts.item(1)).getAttribute("text-anchor")); //$NON-NLS-1$ //$NON-NLS-2$
+	}
+	
+	@Test
+	public void escapeFontFamily() throws Exception {
+		this.graphic.addSetColor(0xff000000);
+		this.graphic.addSetFont("My \"Font\" & <Co>", 2, 12f, 1.2f); //$NON-NLS-1$
+		this.graphic.addDrawText("text", 10, 10, 0, 0.3); //$NON-NLS-1$
+		
+		final Element text = (Element) getElements(parse(writeSVG()), "text").item(0); //$NON-NLS-1$
+		assertEquals("My \"Font\" & <Co>", text.getAttribute("font-family")); //$NON-NLS-1$ //$NON-NLS-2$
+		assertEquals("bold", text.getAttribute("font-weight")); //$NON-NLS-1$ //$NON-NLS-2$
+		assertEquals("16", text.getAttribute("font-size")); //$NON-NLS-1$ //$NON-NLS-2$
+	}
+	
+	@Test
+	public void groupByClip() throws Exception {
+		this.graphic.addSetColor(0xff000000);
+		this.graphic.addDrawLine(0, 0, 1, 1);
+		this.graphic.addSetClip(0, 0, 100, 100);
+		this.graphic.addDrawLine(0, 0, 2, 2);
+		this.graphic.addDrawLine(0, 0, 3, 3);
+		this.graphic.addSetClip(100, 100, 0, 0);
+		this.graphic.addDrawLine(0, 0, 4, 4);
+		
+		final Document document = parse(writeSVG());
+		final NodeList clipPaths = getElements(document, "clipPath"); //$NON-NLS-1$
+		assertEquals(2, clipPaths.getLength());
+		assertEquals("clip1", ((Element) clipPaths.item(0)).getAttribute("id")); //$NON-NLS-1$ //$NON-NLS-2$
+		assertEquals("clip2", ((Element) clipPaths.item(1)).getAttribute("id")); //$NON-NLS-1$ //$NON-NLS-2$
+		final Element clipRect = (Element) getElements(clipPaths.item(1), "rect").item(0); //$NON-NLS-1$
+		assertEquals("0", clipRect.getAttribute("x")); //$NON-NLS-1$ //$NON-NLS-2$
+		assertEquals("100", clipRect.getAttribute("width")); //$NON-NLS-1$ //$NON-NLS-2$
+		
+		// groups are not nested
+		final NodeList groups = getElements(document, "g"); //$NON-NLS-1$
+		assertEquals(2, groups.getLength());
+		for (int i = 0; i < groups.getLength(); i++) {
+			final Element group = (Element) groups.item(i);
+			assertEquals(document.getDocumentElement(), group.getParentNode());
+			assertEquals("url(#clip" + (i + 1) + ")", group.getAttribute("clip-path")); //$NON-NLS-1$ //$NON-NLS-2$ //$NON-NLS-3$
+		}
+		assertEquals(2, getElements(groups.item(0), "line").getLength()); //$NON-NLS-1$
+		assertEquals(1, getElements(groups.item(1), "line").getLength()); //$NON-NLS-1$
+		assertEquals(4, getElements(document, "line").getLength()); //$NON-NLS-1$
+	}
+	
+	@Test
+	public void restartClipsPerDocument() throws Exception {
+		this.graphic.addSetClip(0, 0, 100, 100);
+		final String expected = writeSVG();
+		
+		final StringWriter out = new StringWriter();
+		final RGraphicSVGWriter writer = new RGraphicSVGWriter(out, 96.0);
+		writer.write(this.graphic);
+		out.getBuffer().setLength(0);
+		writer.write(this.graphic);
+		
+		assertEquals(expected, out.toString());
+	}
+	
+	@Test
+	public void embedRaster() throws Exception {
+		final byte[] data = new byte[2 * 2 * 4];
+		for (int i = 0; i < data.length; i++) {
+			data[i] = (byte) 0xff;
+		}
+		this.graphic.addDrawRaster(data, true, 2, 2, 10, 60, 20, -20, 0, false);
+		
+		final Element image = (Element) getElements(parse(writeSVG()), "image").item(0); //$NON-NLS-1$
+		final String href = image.getAttributeNS("http://www.w3.org/1999/xlink", "href"); //$NON-NLS-1$ //$NON-NLS-2$
+		assertTrue(href.startsWith("data:image/png;base64,iVBORw0KGgo")); //$NON-NLS-1$
+		assertEquals(0, (href.length() - "data:image/png;base64,".length()) % 4); //$NON-NLS-1$
+		assertEquals("20", image.getAttribute("height")); //$NON-NLS-1$ //$NON-NLS-2$
+	}
+	
+	@Test(expected= IllegalArgumentException.class)
+	public void failWithoutInit() throws IOException {
+		new RGraphicSVGWriter(new StringWriter(), 96.0).write(
+				Collections.<RGraphicInstruction>emptyList() );
+	}
+	
+}
@@ -0,0 +1,326 @@
+/*=============================================================================#
+ # Copyright (c) 2016 Stephan Wahlbrink (WalWare.de) and others.
+ # All rights reserved. This program and the accompanying materials
+ # are made available under the terms of the Eclipse Public License v1.0
+ # which accompanies this distribution, and is available at
+ # http://www.eclipse.org/legal/epl-v10.html
+ # 
+ # Contributors:
+ #     Stephan Wahlbrink - initial API and implementation
+ #=============================================================================*/
+
+package de.walware.rj.server.client;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNotNull;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.Map;
+
+import org.eclipse.core.runtime.CoreException;
+import org.eclipse.core.runtime.NullProgressMonitor;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+import de.walware.rj.data.RDataFrame;
+import de.walware.rj.data.REnvironment;
+import de.walware.rj.data.RList;
+import de.walware.rj.data.RObject;
+import de.walware.rj.data.RObjectFactory;
+import de.walware.rj.data.defaultImpl.REnvironmentImpl;
+import de.walware.rj.data.defaultImpl.RObjectFactoryImpl;
+import de.walware.rj.data.defaultImpl.RReferenceImpl;
+import de.walware.rj.server.DataCmdItem;
+import de.walware.rj.server.RjsStatus;
+import de.walware.rj.services.RService;
+
+
+public class RLazyDataLoaderTest {
+	
+	
+	/**
+	 * Engine answering the requests with data containing lazy references like the server.
+	 */
+	private static class LazyTestEngine extends MainLoopTestEngine {
+		
+		/** The pinned references of the data */
+		private final Map<String, String> pins = new HashMap<>();
+		
+		private String released;
+		
+		public LazyTestEngine(final AbstractRJComClient client) {
+			super(client);
+		}
+		
+		void put(final String expression, final RObject data, final String pins) {
+			this.data.put(expression, data);
+			if (pins != null) {
+				this.pins.put(expression, pins);
+			}
+		}
+		
+		void putReferenced(final long handle, final RObject data, final String pins) {
+			put(Long.toString(handle), data, pins);
+		}
+		
+		@Override
+		protected void answer(final DataCmdItem request) {
+			final String text = request.getDataText();
+			if (request.getOperation() == DataCmdItem.EVAL_FCALL_DATA) {
+				request.setAnswer(answerFCall(text, (RList) request.getData()), null, null);
+			}
+			else if (request.getOperation() == DataCmdItem.RELEASE_DATA) {
+				this.released = text;
+				request.setAnswer(RjsStatus.OK_STATUS);
+			}
+			else {
+				final RObject data = this.data.get(text);
+				if (data != null) {
+					request.setAnswer(data, null, this.pins.get(text));
+				}
+				else {
+					request.setAnswer(new RjsStatus(RjsStatus.ERROR, 0, "Object not found.")); //$NON-NLS-1$
+				}
+			}
+			this.pending.add(request);
+		}
+		
+		private RObject answerFCall(final String name, final RList args) {
+			switch (name) {
+			case ".subset2": //$NON-NLS-1$
+				final int column = ((RObject) args.get(1)).getData().getInt(0);
+				return ComResultCacheTest.createData(column * 100);
+			case "row.names": //$NON-NLS-1$
+				return RObjectFactoryImpl.INSTANCE.createCharVector(new String[] { "r1", "r2" }); //$NON-NLS-1$ //$NON-NLS-2$
+			case "attributes": //$NON-NLS-1$
+				return RObjectFactoryImpl.INSTANCE.createList(new RObject[] {
+						RObjectFactoryImpl.INSTANCE.createCharVector(new String[] { "test" }) }, //$NON-NLS-1$
+						new String[] { "comment" } ); //$NON-NLS-1$
+			default:
+				return null;
+			}
+		}
+		
+	}
+	
+	
+	private final ChunkedFileTransferTest.TestClient client = new ChunkedFileTransferTest.TestClient();
+	
+	private LazyTestEngine engine;
+	
+	private RLazyDataLoader loader;
+	
+	
+	@Before
+	public void init() {
+		this.engine = new LazyTestEngine(this.client);
+		this.engine.put("l", RObjectFactoryImpl.INSTANCE.createList(new RObject[] { //$NON-NLS-1$
+						new RReferenceImpl(1, RObject.TYPE_VECTOR, "numeric"), //$NON-NLS-1$
+						new RReferenceImpl(2, RObject.TYPE_LIST, "list"), //$NON-NLS-1$
+						ComResultCacheTest.createData(3) },
+						new String[] { "a", "b", "c" }), //$NON-NLS-1$ //$NON-NLS-2$ //$NON-NLS-3$
+				"1,2" ); //$NON-NLS-1$
+		this.engine.putReferenced(1, ComResultCacheTest.createData(10), null);
+		this.engine.putReferenced(2, RObjectFactoryImpl.INSTANCE.createList(new RObject[] {
+						new RReferenceImpl(3, RObject.TYPE_VECTOR, "numeric") }, //$NON-NLS-1$
+						new String[] { "d" }), //$NON-NLS-1$
+				"3" ); //$NON-NLS-1$
+		this.engine.putReferenced(3, ComResultCacheTest.createData(30), null);
+		this.loader = new RLazyDataLoader(this.client, null, RService.CACHE_RESULT, 1);
+	}
+	
+	@After
+	public void dispose() {
+		this.engine.dispose();
+	}
+	
+	
+	private RList evalList(final String expression) throws CoreException {
+		final RObject data = this.loader.evalData(expression, null, new NullProgressMonitor());
+		assertTrue(data instanceof RList);
+		return (RList) data;
+	}
+	
+	
+	@Test
+	public void pinReferences() throws CoreException {
+		final RList list = evalList("l"); //$NON-NLS-1$
+		
+		assertEquals(1, this.engine.requests.size());
+		final int options = this.engine.requests.get(0).getCmdOption();
+		assertEquals(RService.LOAD_LAZY, options & RService.LOAD_LAZY);
+		assertEquals(0, options & RService.CACHE_RESULT);
+		assertEquals(3, list.getLength());
+		assertEquals(2, this.loader.getPinnedCount());
+	}
+	
+	@Test
+	public void resolveOnAccess() throws CoreException {
+		final RList list = evalList("l"); //$NON-NLS-1$
+		
+		assertEquals(3, list.get(2).getLength());
+		assertEquals(1, this.engine.requests.size());
+		
+		assertEquals(10, list.get("a").getLength()); //$NON-NLS-1$
+		assertEquals(3, this.engine.requests.size());
+		assertEquals(DataCmdItem.RESOLVE_DATA, this.engine.requests.get(1).getOperation());
+		assertEquals(2, this.engine.exchangeCount);
+		
+		// sibling resolved in the same batch
+		final RObject b = list.get(1);
+		assertTrue(b instanceof RList);
+		assertEquals(3, this.engine.requests.size());
+		assertEquals(3, this.loader.getPinnedCount());
+		
+		assertEquals(30, ((RList) b).get(0).getLength());
+		assertEquals(4, this.engine.requests.size());
+		assertEquals(list.get(0), list.get(0));
+	}
+	
+	@Test
+	public void release() throws CoreException {
+		final RList list = evalList("l"); //$NON-NLS-1$
+		((RList) list.get(1)).get(0);
+		this.loader.release(new NullProgressMonitor());
+		
+		assertEquals(0, this.loader.getPinnedCount());
+		assertEquals(new HashSet<>(Arrays.asList("1", "2", "3")), //$NON-NLS-1$ //$NON-NLS-2$ //$NON-NLS-3$
+				new HashSet<>(Arrays.asList(this.engine.released.split(",")))); //$NON-NLS-1$
+	}
+	
+	@Test
+	public void releaseDuplicatePins() throws CoreException {
+		evalList("l"); //$NON-NLS-1$
+		evalList("l"); //$NON-NLS-1$
+		assertEquals(4, this.loader.getPinnedCount());
+		this.loader.release(new NullProgressMonitor());
+		
+		assertEquals(4, this.engine.released.split(",").length); //$NON-NLS-1$
+	}
+	
+	@Test
+	public void releaseWithoutPins() throws CoreException {
+		this.engine.put("x", ComResultCacheTest.createData(5), null); //$NON-NLS-1$
+		final RObject data = this.loader.evalData("x", null, new NullProgressMonitor()); //$NON-NLS-1$
+		this.loader.release(new NullProgressMonitor());
+		
+		assertEquals(5, data.getLength());
+		assertEquals(1, this.engine.requests.size());
+	}
+	
+	@Test
+	public void failAccessAfterRelease() throws CoreException {
+		final RList list = evalList("l"); //$NON-NLS-1$
+		list.get(2);
+		this.loader.release(new NullProgressMonitor());
+		
+		// resolved children remain available
+		assertEquals(3, list.get(2).getLength());
+		try {
+			list.get(0);
+			fail();
+		}
+		catch (final IllegalStateException e) {
+		}
+	}
+	
+	@Test
+	public void failResolve() throws CoreException {
+		this.engine.put("f", RObjectFactoryImpl.INSTANCE.createList(new RObject[] { //$NON-NLS-1$
+						new RReferenceImpl(9, RObject.TYPE_VECTOR, "numeric"), //$NON-NLS-1$
+						new RReferenceImpl(1, RObject.TYPE_VECTOR, "numeric") }, //$NON-NLS-1$
+						null ),
+				"9,1" ); //$NON-NLS-1$
+		final RList list = evalList("f"); //$NON-NLS-1$
+		try {
+			list.get(0);
+			fail();
+		}
+		catch (final RLazyDataException e) {
+			assertNotNull(e.getCause());
+		}
+		// sibling resolved by the failed batch
+		assertEquals(10, list.get(1).getLength());
+		assertEquals(3, this.engine.requests.size());
+	}
+	
+	@Test
+	public void loadAttributes() throws CoreException {
+		final RList list = evalList("l"); //$NON-NLS-1$
+		final RList b = (RList) list.get(1);
+		final int count = this.engine.requests.size();
+		
+		final RList attributes = b.getAttributes();
+		assertEquals(1, attributes.getLength());
+		assertEquals("comment", attributes.getName(0)); //$NON-NLS-1$
+		assertEquals(count + 1, this.engine.requests.size());
+		final DataCmdItem request = this.engine.requests.get(count);
+		assertEquals(DataCmdItem.EVAL_FCALL_DATA, request.getOperation());
+		assertEquals(RService.LOAD_LAZY, request.getCmdOption() & RService.LOAD_LAZY);
+		
+		b.getAttributes();
+		assertEquals(count + 1, this.engine.requests.size());
+	}
+	
+	@Test
+	public void loadDataFrameColumns() throws CoreException {
+		this.engine.put("d", RObjectFactoryImpl.INSTANCE.createList(new RObject[] { //$NON-NLS-1$
+						new RReferenceImpl(4, RObject.TYPE_DATAFRAME, "data.frame") }, //$NON-NLS-1$
+						null ),
+				"4" ); //$NON-NLS-1$
+		this.engine.putReferenced(4, RObjectFactoryImpl.INSTANCE.createDataFrame(new RObject[] {
+						ComResultCacheTest.createData(2), ComResultCacheTest.createData(2) },
+						new String[] { "x", "y" }, null ), //$NON-NLS-1$ //$NON-NLS-2$
+				null );
+		final RList list = evalList("d"); //$NON-NLS-1$
+		
+		final RObject child = list.get(0);
+		assertTrue(child instanceof RDataFrame);
+		assertEquals(RObjectFactory.F_ONLY_STRUCT,
+				this.engine.requests.get(1).getCmdOption() & RObjectFactory.F_ONLY_STRUCT );
+		final RDataFrame dataFrame = (RDataFrame) child;
+		assertEquals(2, dataFrame.getColumnCount());
+		
+		assertEquals(200, dataFrame.getColumn(1).getLength());
+		final DataCmdItem request = this.engine.requests.get(2);
+		assertEquals(DataCmdItem.EVAL_FCALL_DATA, request.getOperation());
+		assertEquals(0, request.getCmdOption() & RService.LOAD_LAZY);
+		assertEquals(3, this.engine.requests.size());
+		
+		assertEquals(2, dataFrame.getRowNames().getLength());
+		dataFrame.getRowNames();
+		assertEquals(4, this.engine.requests.size());
+	}
+	
+	@Test
+	public void loadEnvironment() throws CoreException {
+		this.engine.put("e", new REnvironmentImpl("test", 5, new RObject[] { //$NON-NLS-1$ //$NON-NLS-2$
+						new RReferenceImpl(1, RObject.TYPE_VECTOR, "numeric") }, //$NON-NLS-1$
+						new String[] { "a" }, 1, REnvironment.ENVTYPE_GLOBAL, REnvironment.CLASSNAME_ENV ) {}, //$NON-NLS-1$
+				"1" ); //$NON-NLS-1$
+		final RObject data = this.loader.evalData("e", null, new NullProgressMonitor()); //$NON-NLS-1$
+		
+		assertTrue(data instanceof REnvironment);
+		final REnvironment envir = (REnvironment) data;
+		assertEquals(5, envir.getHandle());
+		assertEquals(REnvironment.ENVTYPE_GLOBAL, envir.getSpecialType());
+		assertEquals(10, envir.get("a").getLength()); //$NON-NLS-1$
+		assertEquals(1, this.loader.getPinnedCount());
+	}
+	
+	@Test
+	public void resolveReference() throws CoreException {
+		final RObject data = this.loader.resolve(
+				new RReferenceImpl(2, RObject.TYPE_LIST, "list"), new NullProgressMonitor() ); //$NON-NLS-1$
+		
+		assertTrue(data instanceof RList);
+		assertEquals(30, ((RList) data).get(0).getLength());
+		assertEquals(1, this.loader.getPinnedCount());
+	}
+	
+}
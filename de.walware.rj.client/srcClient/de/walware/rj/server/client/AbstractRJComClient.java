@@ -13,13 +13,17 @@ package de.walware.rj.server.client;
 
 import static de.walware.rj.server.srvext.ServerUtil.MISSING_ANSWER_STATUS;
 
+import java.io.ByteArrayInputStream;
+import java.io.File;
 import java.io.IOException;
 import java.io.InputStream;
 import java.io.ObjectInput;
+import java.io.ObjectInputStream;
 import java.io.OutputStream;
 import java.rmi.ConnectException;
 import java.rmi.RemoteException;
 import java.util.ArrayList;
+import java.util.Arrays;
 import java.util.List;
 import java.util.Map;
 import java.util.Random;
@@ -213,6 +217,8 @@ public abstract class AbstractRJComClient implements ComHandler {
 	private final RunnableList mainDeferredCmds = new RunnableList();
 	private boolean mainRunGC;
 	
+	private RJIO gdDisplayListIO;
+	
 	private boolean consoleReadCallbackRequired;
 	private ConsoleReadCmdItem consoleReadCallback;
 	
@@ -228,6 +234,18 @@ public abstract class AbstractRJComClient implements ComHandler {
 	private byte dataRequestCounter = (byte) (0xff & RAND.nextInt(255));
 	private final int[] dataRequestId = new int[32];
 	private final MainCmdItem[] dataAnswer = new MainCmdItem[32];
+	private final int[][] dataBatchRequestIds = new int[32][];
+	private final MainCmdItem[][] dataBatchAnswers = new MainCmdItem[32][];
+	private final int[] dataBatchCount = new int[32];
+	
+	private volatile ComCallListener callListener;
+	private final CountingObjectInput mainCountingIn = new CountingObjectInput();
+	private final long[] dataLevelStartNanos = new long[32];
+	private final long[] dataLevelStartBytes = new long[32];
+	private final String[] dataLevelCall = new String[32];
+	private final boolean[] dataLevelHotMode = new boolean[32];
+	
+	private volatile ComResultCache resultCache;
 	
 	private boolean runFinishTask;
 	
@@ -273,6 +291,31 @@ public abstract class AbstractRJComClient implements ComHandler {
 		this.rService = r;
 		properties.put("rj.com.init", Boolean.TRUE); //$NON-NLS-1$
 		properties.put(RjsComConfig.RJ_COM_S2C_ID_PROPERTY_ID, id);
+		{	final Object codec = RjsComConfig.getProperty(RjsComConfig.RJ_COM_DATA_COMPRESSION_PROPERTY_ID);
+			if (codec != null) {
+				properties.put(RjsComConfig.RJ_COM_DATA_COMPRESSION_PROPERTY_ID, codec);
+				final Object minLength = RjsComConfig.getProperty(RjsComConfig.RJ_COM_DATA_COMPRESSION_MIN_LENGTH_PROPERTY_ID);
+				if (minLength != null) {
+					properties.put(RjsComConfig.RJ_COM_DATA_COMPRESSION_MIN_LENGTH_PROPERTY_ID, minLength);
+				}
+			}
+		}
+		{	final Object stringDict = RjsComConfig.getProperty(RjsComConfig.RJ_COM_DATA_STRING_DICT_PROPERTY_ID);
+			properties.put(RjsComConfig.RJ_COM_DATA_STRING_DICT_PROPERTY_ID,
+					(stringDict != null) ? stringDict : Boolean.TRUE );
+		}
+		{	final Object encoding = RjsComConfig.getProperty(RjsComConfig.RJ_GD_GEOMETRY_ENCODING_PROPERTY_ID);
+			properties.put(RjsComConfig.RJ_GD_GEOMETRY_ENCODING_PROPERTY_ID,
+					(encoding != null) ? encoding : RjsComConfig.RJ_GD_GEOMETRY_COMPACT );
+		}
+		{	final Object displayList = RjsComConfig.getProperty(RjsComConfig.RJ_GD_DISPLAY_LIST_PROPERTY_ID);
+			properties.put(RjsComConfig.RJ_GD_DISPLAY_LIST_PROPERTY_ID,
+					(displayList != null) ? displayList : Boolean.TRUE );
+		}
+		{	final Object metricTable = RjsComConfig.getProperty(RjsComConfig.RJ_GD_FONT_METRIC_TABLE_PROPERTY_ID);
+			properties.put(RjsComConfig.RJ_GD_FONT_METRIC_TABLE_PROPERTY_ID,
+					(metricTable != null) ? metricTable : Boolean.TRUE );
+		}
 		
 		try {
 			initGraphicFactory();
@@ -376,6 +419,68 @@ public abstract class AbstractRJComClient implements ComHandler {
 		}
 	}
 	
+	/**
+	 * Sets the listener to instrument the calls of this client.
+	 * 
+	 * @param listener the listener or <code>null</code> to disable the instrumentation
+	 */
+	public void setCallListener(final ComCallListener listener) {
+		this.callListener = listener;
+	}
+	
+	public ComCallListener getCallListener() {
+		return this.callListener;
+	}
+	
+	private void notifyCallCompleted(final ComCallListener listener, final String call,
+			final long nanos, final long bytes, final int dataLevel, final boolean hotMode) {
+		try {
+			listener.callCompleted(call, nanos, bytes, dataLevel, hotMode);
+		}
+		catch (final RuntimeException e) {
+			log(new Status(IStatus.ERROR, RJ_CLIENT_ID, -1, "An error occurred when notifying the call listener.", e));
+		}
+	}
+	
+	/**
+	 * Sets the cache for the results of data evaluations with the option
+	 * {@link RService#CACHE_RESULT}.
+	 * 
+	 * @param cache the cache or <code>null</code> to disable the caching
+	 */
+	public void setResultCache(final ComResultCache cache) {
+		final ComResultCache oldCache = this.resultCache;
+		this.resultCache = cache;
+		if (oldCache != null && oldCache != cache) {
+			oldCache.invalidate();
+		}
+	}
+	
+	public ComResultCache getResultCache() {
+		return this.resultCache;
+	}
+	
+	/**
+	 * Invalidates the result cache, if enabled.
+	 */
+	public void invalidateResultCache() {
+		final ComResultCache cache = this.resultCache;
+		if (cache != null) {
+			cache.invalidate();
+		}
+	}
+	
+	/**
+	 * Returns the options for a data request, without the options handled only by the client
+	 * ({@link RService#CACHE_RESULT}).
+	 * 
+	 * @param options the options of the caller
+	 * @return the options for the server
+	 */
+	static int toRequestOptions(final int options) {
+		return (options & ~RService.CACHE_RESULT);
+	}
+	
 	public void setRjsProperties(final Map<String, ? extends Object> properties) throws CoreException {
 		try {
 			this.rjConsoleServer.setProperties(properties);
@@ -387,7 +492,9 @@ public abstract class AbstractRJComClient implements ComHandler {
 	
 	
 	@Override
-	public final void processMainCmd(final ObjectInput in) throws IOException {
+	public final void processMainCmd(final ObjectInput comIn) throws IOException {
+		final ComCallListener listener = this.callListener;
+		final ObjectInput in = (listener != null) ? this.mainCountingIn.connect(comIn) : comIn;
 		boolean runGC = false;
 		updateBusy(in.readBoolean());
 		if (this.hotModeState == 4) {
@@ -409,6 +516,7 @@ public abstract class AbstractRJComClient implements ComHandler {
 			case MainCmdItem.T_NONE:
 				this.mainIO.readCheck2(check);
 				this.mainIO.disconnect(in);
+				this.mainCountingIn.disconnect();
 				this.mainRunGC = runGC;
 				return;
 			case MainCmdItem.T_CONSOLE_READ_ITEM:
@@ -428,7 +536,17 @@ public abstract class AbstractRJComClient implements ComHandler {
 				continue;
 			case MainCmdItem.T_GRAPH_ITEM:
 				runGC = true;
-				processGDCmd(this.mainIO);
+				if (listener != null) {
+					final long startNanos = System.nanoTime();
+					final long startBytes = this.mainCountingIn.getCount();
+					processGDCmd(this.mainIO);
+					notifyCallCompleted(listener, ComCallListener.CALL_GRAPHIC,
+							System.nanoTime() - startNanos, this.mainCountingIn.getCount() - startBytes,
+							0, (this.hotModeState == 3) );
+				}
+				else {
+					processGDCmd(this.mainIO);
+				}
 				continue;
 			case MainCmdItem.T_MAIN_CTRL_ITEM:
 				runGC = true;
@@ -448,6 +566,7 @@ public abstract class AbstractRJComClient implements ComHandler {
 				continue;
 			default:
 				this.mainIO.disconnect(in);
+				this.mainCountingIn.disconnect();
 				throw new IOException("Unknown cmdtype id: " + type);
 			}
 		}
@@ -496,7 +615,8 @@ public abstract class AbstractRJComClient implements ComHandler {
 		}
 		byte requestId = -1;
 		try {
-			switch (io.readByte()) {
+			final byte type = io.readByte();
+			switch (type) {
 			case GDCmdItem.C_NEW_PAGE:
 				addGraphic(devId,
 						io.readDouble(),
@@ -525,100 +645,19 @@ public abstract class AbstractRJComClient implements ComHandler {
 						devId, getGraphic(devId).computeFontMetric(
 								io.readInt() )));
 				return;
+			case GDCmdItem.C_GET_FONTMETRIC_TABLE:
+				addC2SCmd(new GDCmdItem.DoubleAnswer(requestId = io.readByte(),
+						devId, computeFontMetricTable(getGraphic(devId),
+								io.readIntArray() )));
+				return;
 			case GDCmdItem.C_GET_STRINGWIDTH:
 				addC2SCmd(new GDCmdItem.DoubleAnswer(requestId = io.readByte(),
 						devId, getGraphic(devId).computeStringWidth(
 								io.readString() )));
 				return;
 				
-			case GDCmdItem.SET_CLIP:
-				getGraphic(devId).addSetClip(
-						io.readDouble(),
-						io.readDouble(),
-						io.readDouble(),
-						io.readDouble() );
-				return;
-			case GDCmdItem.SET_COLOR:
-				getGraphic(devId).addSetColor(
-						io.readInt() );
-				return;
-			case GDCmdItem.SET_FILL:
-				getGraphic(devId).addSetFill(
-						io.readInt() );
-				return;
-			case GDCmdItem.SET_LINE:
-				getGraphic(devId).addSetLine(
-						io.readInt(),
-						io.readFloat(),
-						io.readByte(),
-						io.readByte(),
-						io.readFloat() );
-				return;
-			case GDCmdItem.SET_FONT:
-				getGraphic(devId).addSetFont(
-						io.readString(),
-						io.readInt(),
-						io.readFloat(),
-						io.readFloat() );
-				return;
-				
-			case GDCmdItem.DRAW_LINE:
-				getGraphic(devId).addDrawLine(
-						io.readDouble(),
-						io.readDouble(),
-						io.readDouble(),
-						io.readDouble() );
-				return;
-			case GDCmdItem.DRAW_RECTANGLE:
-				getGraphic(devId).addDrawRect(
-						io.readDouble(),
-						io.readDouble(),
-						io.readDouble(),
-						io.readDouble() );
-				return;
-			case GDCmdItem.DRAW_POLYLINE:
-				getGraphic(devId).addDrawPolyline(
-						io.readDoubleArray(),
-						io.readDoubleArray2() );
-				return;
-			case GDCmdItem.DRAW_POLYGON:
-				getGraphic(devId).addDrawPolygon(
-						io.readDoubleArray(),
-						io.readDoubleArray2() );
-				return;
-			case GDCmdItem.DRAW_PATH:
-				getGraphic(devId).addDrawPath(
-						io.readIntArray(),
-						io.readDoubleArray(),
-						io.readDoubleArray2(),
-						io.readInt() );
-				return;
-			case GDCmdItem.DRAW_CIRCLE:
-				getGraphic(devId).addDrawCircle(
-						io.readDouble(),
-						io.readDouble(),
-						io.readDouble() );
-				return;
-			case GDCmdItem.DRAW_TEXT:
-				getGraphic(devId).addDrawText(
-						io.readString(),
-						io.readDouble(),
-						io.readDouble(),
-						io.readDouble(),
-						io.readDouble() );
-				return;
-			case GDCmdItem.DRAW_RASTER:
-				getGraphic(devId).addDrawRaster(
-						io.readByteArray(),
-						io.readBoolean(),
-						io.readInt(),
-						io.readInt(),
-						io.readDouble(),
-						io.readDouble(),
-						io.readDouble(),
-						io.readDouble(),
-						io.readDouble(),
-						io.readBoolean() );
+			case GDCmdItem.DISPLAY_LIST:
+				processGDDisplayList(getGraphic(devId), io);
 				return;
 				
 			case GDCmdItem.CAPTURE:
@@ -644,8 +683,10 @@ public abstract class AbstractRJComClient implements ComHandler {
 			default:
 				if ((options & MainCmdItem.OV_WAITFORCLIENT) != 0) {
 					requestId = io.readByte();
+					throw new UnsupportedOperationException("Unknown GD command.");
 				}
-				throw new UnsupportedOperationException("Unknown GD command.");
+				processGDDrawCmd(getGraphic(devId), type, io);
+				return;
 			}
 		}
 		catch (final IOException e) {
@@ -661,6 +702,164 @@ public abstract class AbstractRJComClient implements ComHandler {
 	}
 	
 	
+	private double[] computeFontMetricTable(final RClientGraphic graphic, final int[] chars) {
+		final double[] table = new double[chars.length * 3];
+		for (int i = 0, j = 0; i < chars.length; i++, j += 3) {
+			final double[] metric = graphic.computeFontMetric(chars[i]);
+			if (metric != null && metric.length == 3) {
+				System.arraycopy(metric, 0, table, j, 3);
+			}
+			else {
+				Arrays.fill(table, j, j + 3, Double.NaN);
+			}
+		}
+		return table;
+	}
+	
+	private void processGDDrawCmd(final RClientGraphic graphic, final byte type,
+			final RJIO io) throws IOException {
+		switch (type) {
+		case GDCmdItem.SET_CLIP:
+			graphic.addSetClip(
+					io.readDouble(),
+					io.readDouble(),
+					io.readDouble(),
+					io.readDouble() );
+			return;
+		case GDCmdItem.SET_COLOR:
+			graphic.addSetColor(
+					io.readInt() );
+			return;
+		case GDCmdItem.SET_FILL:
+			graphic.addSetFill(
+					io.readInt() );
+			return;
+		case GDCmdItem.SET_LINE:
+			graphic.addSetLine(
+					io.readInt(),
+					io.readFloat(),
+					io.readByte(),
+					io.readByte(),
+					io.readFloat() );
+			return;
+		case GDCmdItem.SET_FONT:
+			graphic.addSetFont(
+					io.readString(),
+					io.readInt(),
+					io.readFloat(),
+					io.readFloat() );
+			return;
+			
+		case GDCmdItem.DRAW_LINE:
+			graphic.addDrawLine(
+					io.readDouble(),
+					io.readDouble(),
+					io.readDouble(),
+					io.readDouble() );
+			return;
+		case GDCmdItem.DRAW_RECTANGLE:
+			graphic.addDrawRect(
+					io.readDouble(),
+					io.readDouble(),
+					io.readDouble(),
+					io.readDouble() );
+			return;
+		case GDCmdItem.DRAW_POLYLINE:
+			graphic.addDrawPolyline(
+					io.readDoubleArray(),
+					io.readDoubleArray2() );
+			return;
+		case GDCmdItem.DRAW_POLYGON:
+			graphic.addDrawPolygon(
+					io.readDoubleArray(),
+					io.readDoubleArray2() );
+			return;
+		case GDCmdItem.DRAW_PATH:
+			graphic.addDrawPath(
+					io.readIntArray(),
+					io.readDoubleArray(),
+					io.readDoubleArray2(),
+					io.readInt() );
+			return;
+		case GDCmdItem.DRAW_POLYLINE | GDCmdItem.GEOMETRY_COMPACT: {
+			final double[][] xy = GDCmdItem.readCompactCoords(io);
+			graphic.addDrawPolyline(
+					xy[0],
+					xy[1] );
+			return; }
+		case GDCmdItem.DRAW_POLYGON | GDCmdItem.GEOMETRY_COMPACT: {
+			final double[][] xy = GDCmdItem.readCompactCoords(io);
+			graphic.addDrawPolygon(
+					xy[0],
+					xy[1] );
+			return; }
+		case GDCmdItem.DRAW_PATH | GDCmdItem.GEOMETRY_COMPACT: {
+			final int[] n = io.readIntArray();
+			final double[][] xy = GDCmdItem.readCompactCoords(io);
+			graphic.addDrawPath(
+					n,
+					xy[0],
+					xy[1],
+					io.readInt() );
+			return; }
+		case GDCmdItem.DRAW_CIRCLE:
+			graphic.addDrawCircle(
+					io.readDouble(),
+					io.readDouble(),
+					io.readDouble() );
+			return;
+		case GDCmdItem.DRAW_TEXT:
+			graphic.addDrawText(
+					io.readString(),
+					io.readDouble(),
+					io.readDouble(),
+					io.readDouble(),
+					io.readDouble() );
+			return;
+		case GDCmdItem.DRAW_RASTER:
+			graphic.addDrawRaster(
+					io.readByteArray(),
+					io.readBoolean(),
+					io.readInt(),
+					io.readInt(),
+					io.readDouble(),
+					io.readDouble(),
+					io.readDouble(),
+					io.readDouble(),
+					io.readDouble(),
+					io.readBoolean() );
+			return;
+		
+		default:
+			throw new UnsupportedOperationException("Unknown GD command.");
+		}
+	}
+	
+	private void processGDDisplayList(final RClientGraphic graphic,
+			final RJIO io) throws IOException {
+		final int count = io.readInt();
+		final byte[] data = io.readByteArray();
+		if (this.gdDisplayListIO == null) {
+			this.gdDisplayListIO = new RJIO();
+		}
+		final RJIO listIO = this.gdDisplayListIO;
+		final ObjectInputStream in = new ObjectInputStream(new ByteArrayInputStream(data));
+		listIO.connect(in);
+		try {
+			for (int i = 0; i < count; i++) {
+				processGDDrawCmd(graphic, listIO.readByte(), listIO);
+			}
+		}
+		catch (final IOException e) {
+			// the data of the command is read completely
+			throw new IllegalStateException("Invalid display list.", e);
+		}
+		finally {
+			listIO.disconnect(in);
+		}
+	}
+	
+	
 	private final void processMainCtrlCmd(final RJIO io) throws IOException {
 		try {
 			final MainCtrlCmdItem item = new MainCtrlCmdItem(io);
@@ -708,6 +907,11 @@ public abstract class AbstractRJComClient implements ComHandler {
 		}
 		this.dataLevelAnswer = 0;
 		
+		if (this.callListener != null) {
+			this.dataLevelStartNanos[level] = System.nanoTime();
+			this.dataLevelStartBytes[level] = this.mainCountingIn.getCount();
+			this.dataLevelHotMode[level] = (this.hotModeState == 3);
+		}
 		return level;
 	}
 	
@@ -717,12 +921,44 @@ public abstract class AbstractRJComClient implements ComHandler {
 				| ((0xff & this.randomId << 8))
 				| ((0xff & ++this.dataRequestCounter)) ); 
 		item.requestId = (((0xff & level) << 24) | (0xffffff & this.dataRequestId[level]));
+		if (this.dataLevelStartNanos[level] != 0) {
+			this.dataLevelCall[level] = (item instanceof DataCmdItem) ?
+					((DataCmdItem) item).getOperation().toString() :
+					getCallName(item);
+		}
 		return item;
 	}
 	
+	private static String getCallName(final MainCmdItem item) {
+		switch (item.getCmdType()) {
+		case MainCmdItem.T_MAIN_CTRL_ITEM:
+			return "MAIN_CTRL"; //$NON-NLS-1$
+		case MainCmdItem.T_GRAPHICS_OP_ITEM:
+			return "GRAPHICS_OP"; //$NON-NLS-1$
+		default:
+			return "0x" + Integer.toHexString(item.getCmdType()); //$NON-NLS-1$
+		}
+	}
+	
 	private final void addDataAnswer(final MainCmdItem item) throws RjException {
 		final int level = (((0xff000000) & item.requestId) >>> 24);
 		if (level > 0 && level <= this.dataLevelRequest
+				&& this.dataBatchAnswers[level] != null) {
+			// answers of a batch in order of the requests
+			final int idx = this.dataBatchCount[level];
+			if (idx < this.dataBatchAnswers[level].length
+					&& this.dataBatchRequestIds[level][idx] == (((0xff & item.getCmdType()) << 24)
+							| (0xffffff & item.requestId)) ) {
+				this.dataBatchAnswers[level][idx] = item;
+				this.dataBatchCount[level] = idx + 1;
+				if (idx + 1 == this.dataBatchAnswers[level].length) {
+					this.dataAnswer[level] = item;
+					this.dataLevelAnswer = level;
+				}
+				return;
+			}
+		}
+		else if (level > 0 && level <= this.dataLevelRequest
 				&& this.dataRequestId[level] == (((0xff & item.getCmdType()) << 24)
 						| (0xffffff & item.requestId)) ) {
 			this.dataAnswer[level] = item;
@@ -739,7 +975,21 @@ public abstract class AbstractRJComClient implements ComHandler {
 	
 	private final void finalizeDataLevel() {
 		final int level = this.dataLevelRequest--;
+		if (this.dataLevelStartNanos[level] != 0) {
+			final ComCallListener listener = this.callListener;
+			if (listener != null) {
+				notifyCallCompleted(listener, this.dataLevelCall[level],
+						System.nanoTime() - this.dataLevelStartNanos[level],
+						this.mainCountingIn.getCount() - this.dataLevelStartBytes[level],
+						level, this.dataLevelHotMode[level] );
+			}
+			this.dataLevelStartNanos[level] = 0;
+			this.dataLevelCall[level] = null;
+		}
 		this.dataAnswer[level] = null;
+		this.dataBatchRequestIds[level] = null;
+		this.dataBatchAnswers[level] = null;
+		this.dataBatchCount[level] = 0;
 		this.dataLevelAnswer = (this.dataAnswer[this.dataLevelRequest] != null) ? this.dataLevelRequest : 0;
 		
 		this.runFinishTask= true;
@@ -929,11 +1179,20 @@ public abstract class AbstractRJComClient implements ComHandler {
 							this.hotModeState = 3;
 							this.hotModeRequested.set(false);
 							this.dataLevelIgnore = this.dataLevelRequest;
+							// R is interrupted in a running command, the state may have changed
+							invalidateResultCache();
+							final ComCallListener listener = this.callListener;
+							final long hotModeStart = (listener != null) ? System.nanoTime() : 0;
 							try {
 								processHotMode();
 								continue;
 							}
 							finally {
+								if (listener != null) {
+									notifyCallCompleted(listener, ComCallListener.CALL_HOT_MODE,
+											System.nanoTime() - hotModeStart, -1,
+											0, true );
+								}
 								this.progressMonitor = monitor;
 								this.hotModeState = 4;
 								this.consoleReadCallback.setAnswer(RjsStatus.OK_STATUS);
@@ -1171,7 +1430,12 @@ public abstract class AbstractRJComClient implements ComHandler {
 	
 	public final void answerConsole(final String input, final IProgressMonitor monitor) throws CoreException {
 		this.consoleReadCallback.setAnswer(input);
-		runMainLoop(null, this.consoleReadCallback, monitor);
+		try {
+			runMainLoop(null, this.consoleReadCallback, monitor);
+		}
+		finally {
+			invalidateResultCache();
+		}
 		
 		this.runFinishTask= false;
 	}
@@ -1297,6 +1561,7 @@ public abstract class AbstractRJComClient implements ComHandler {
 		}
 		finally {
 			finalizeDataLevel();
+			invalidateResultCache();
 		}
 	}
 	
@@ -1329,6 +1594,7 @@ public abstract class AbstractRJComClient implements ComHandler {
 		}
 		finally {
 			finalizeDataLevel();
+			invalidateResultCache();
 		}
 	}
 	
@@ -1342,10 +1608,19 @@ public abstract class AbstractRJComClient implements ComHandler {
 			throw new IllegalArgumentException("envir");
 		}
 		final byte checkedDepth = (depth < Byte.MAX_VALUE) ? (byte) depth : Byte.MAX_VALUE;
+		final DataCmdItem request = new DataCmdItem(DataCmdItem.EVAL_EXPR_DATA,
+				toRequestOptions(options), checkedDepth, expression, null, null, envir, factoryId );
+		final ComResultCache cache = ((options & RService.CACHE_RESULT) != 0) ? this.resultCache : null;
+		final ComResultCache.Key cacheKey = (cache != null) ? cache.createKey(request) : null;
+		if (cacheKey != null) {
+			final RObject data = cache.get(cacheKey);
+			if (data != null) {
+				return data;
+			}
+		}
 		final int level = newDataLevel();
 		try {
-			runMainLoop(null, createDataRequestId(level, new DataCmdItem(DataCmdItem.EVAL_EXPR_DATA,
-					options, checkedDepth, expression, null, null, envir, factoryId )), monitor);
+			runMainLoop(null, createDataRequestId(level, request), monitor);
 			if (this.dataAnswer[level] == null || !this.dataAnswer[level].isOK()) {
 				final RjsStatus status = (this.dataAnswer[level] != null) ? this.dataAnswer[level].getStatus() : MISSING_ANSWER_STATUS;
 				if (status.getSeverity() == RjsStatus.CANCEL) {
@@ -1356,10 +1631,18 @@ public abstract class AbstractRJComClient implements ComHandler {
 							"Evaluation failed: " + status.getMessage(), null));
 				}
 			}
-			return ((DataCmdItem) this.dataAnswer[level]).getData();
+			final RObject data = ((DataCmdItem) this.dataAnswer[level]).getData();
+			if (cacheKey != null && data != null) {
+				cache.put(cacheKey, (DataCmdItem) this.dataAnswer[level]);
+			}
+			return data;
 		}
 		finally {
 			finalizeDataLevel();
+			if ((options & RService.CACHE_RESULT) == 0) {
+				// possibly changed the state of R
+				invalidateResultCache();
+			}
 		}
 	}
 	
@@ -1376,10 +1659,19 @@ public abstract class AbstractRJComClient implements ComHandler {
 			throw new IllegalArgumentException("envir");
 		}
 		final byte checkedDepth = (depth < Byte.MAX_VALUE) ? (byte) depth : Byte.MAX_VALUE;
+		final DataCmdItem request = new DataCmdItem(DataCmdItem.EVAL_FCALL_DATA,
+				toRequestOptions(options), checkedDepth, name, args, null, envir, factoryId );
+		final ComResultCache cache = ((options & RService.CACHE_RESULT) != 0) ? this.resultCache : null;
+		final ComResultCache.Key cacheKey = (cache != null) ? cache.createKey(request) : null;
+		if (cacheKey != null) {
+			final RObject data = cache.get(cacheKey);
+			if (data != null) {
+				return data;
+			}
+		}
 		final int level = newDataLevel();
 		try {
-			runMainLoop(null, createDataRequestId(level, new DataCmdItem(DataCmdItem.EVAL_FCALL_DATA,
-					options, checkedDepth, name, args, null, envir, factoryId )), monitor );
+			runMainLoop(null, createDataRequestId(level, request), monitor );
 			if (this.dataAnswer[level] == null || !this.dataAnswer[level].isOK()) {
 				final RjsStatus status = (this.dataAnswer[level] != null) ? this.dataAnswer[level].getStatus() : MISSING_ANSWER_STATUS;
 				if (status.getSeverity() == RjsStatus.CANCEL) {
@@ -1390,10 +1682,18 @@ public abstract class AbstractRJComClient implements ComHandler {
 							"Evaluation failed: " + status.getMessage(), null));
 				}
 			}
-			return ((DataCmdItem) this.dataAnswer[level]).getData();
+			final RObject data = ((DataCmdItem) this.dataAnswer[level]).getData();
+			if (cacheKey != null && data != null) {
+				cache.put(cacheKey, (DataCmdItem) this.dataAnswer[level]);
+			}
+			return data;
 		}
 		finally {
 			finalizeDataLevel();
+			if ((options & RService.CACHE_RESULT) == 0) {
+				// possibly changed the state of R
+				invalidateResultCache();
+			}
 		}
 	}
 	
@@ -1405,7 +1705,7 @@ public abstract class AbstractRJComClient implements ComHandler {
 		try {
 			final long handle = reference.getHandle();
 			runMainLoop(null, createDataRequestId(level, new DataCmdItem(DataCmdItem.RESOLVE_DATA,
-					options, checkedDepth, Long.toString(handle), null, null, null, factoryId )), monitor );
+					toRequestOptions(options), checkedDepth, Long.toString(handle), null, null, null, factoryId )), monitor );
 			
 			if (this.dataAnswer[level] == null || !this.dataAnswer[level].isOK()) {
 				final RjsStatus status = (this.dataAnswer[level] != null) ? this.dataAnswer[level].getStatus() : MISSING_ANSWER_STATUS;
@@ -1443,11 +1743,20 @@ public abstract class AbstractRJComClient implements ComHandler {
 		}
 		
 		final byte checkedDepth = (depth < Byte.MAX_VALUE) ? (byte) depth : Byte.MAX_VALUE;
+		final DataCmdItem request = new DataCmdItem(operation,
+				toRequestOptions(options), checkedDepth,
+				name, null, null, null, factoryId );
+		final ComResultCache cache = ((options & RService.CACHE_RESULT) != 0) ? this.resultCache : null;
+		final ComResultCache.Key cacheKey = (cache != null) ? cache.createKey(request) : null;
+		if (cacheKey != null) {
+			final RObject data = cache.get(cacheKey);
+			if (data != null) {
+				return data;
+			}
+		}
 		final int level = newDataLevel();
 		try {
-			runMainLoop(null, createDataRequestId(level, new DataCmdItem(operation,
-					options, checkedDepth,
-					name, null, null, null, factoryId )), monitor );
+			runMainLoop(null, createDataRequestId(level, request), monitor );
 			
 			if (this.dataAnswer[level] == null || !this.dataAnswer[level].isOK()) {
 				final RjsStatus status = (this.dataAnswer[level] != null) ? this.dataAnswer[level].getStatus() : MISSING_ANSWER_STATUS;
@@ -1459,10 +1768,18 @@ public abstract class AbstractRJComClient implements ComHandler {
 							"Evaluation failed: " + status.getMessage(), null));
 				}
 			}
-			return ((DataCmdItem) this.dataAnswer[level]).getData();
+			final RObject data = ((DataCmdItem) this.dataAnswer[level]).getData();
+			if (cacheKey != null && data != null) {
+				cache.put(cacheKey, (DataCmdItem) this.dataAnswer[level]);
+			}
+			return data;
 		}
 		finally {
 			finalizeDataLevel();
+			if ((options & RService.CACHE_RESULT) == 0) {
+				// possibly changed the state of R
+				invalidateResultCache();
+			}
 		}
 	}
 	
@@ -1495,6 +1812,7 @@ public abstract class AbstractRJComClient implements ComHandler {
 		}
 		finally {
 			finalizeDataLevel();
+			invalidateResultCache();
 		}
 	}
 	
@@ -1531,6 +1849,7 @@ public abstract class AbstractRJComClient implements ComHandler {
 		}
 		finally {
 			finalizeDataLevel();
+			invalidateResultCache();
 		}
 	}
 	
@@ -1544,7 +1863,7 @@ public abstract class AbstractRJComClient implements ComHandler {
 		final int level = newDataLevel();
 		try {
 			runMainLoop(null, createDataRequestId(level, new DataCmdItem(DataCmdItem.FIND_DATA,
-					(inherits) ? (options | 0x1000) : options, checkedDepth,
+					toRequestOptions((inherits) ? (options | 0x1000) : options), checkedDepth,
 					symbol, null, null, envir, factoryId )), monitor );
 			if (this.dataAnswer[level] == null || !this.dataAnswer[level].isOK()) {
 				final RjsStatus status = (this.dataAnswer[level] != null) ? this.dataAnswer[level].getStatus() : MISSING_ANSWER_STATUS;
@@ -1566,15 +1885,173 @@ public abstract class AbstractRJComClient implements ComHandler {
 		}
 	}
 	
+	/**
+	 * Loads the bindings of an environment changed since a previous snapshot.
+	 * <p>
+	 * If the previous snapshot is not available, the answer contains all bindings of the
+	 * environment.</p>
+	 * <p>
+	 * The server compares all bindings with the snapshot, so the evaluation time at the server
+	 * is about the same as for loading the complete environment; only the transferred data is
+	 * reduced.</p>
+	 * 
+	 * @param envir the environment (reference or expression), <code>null</code> for the global
+	 *     environment
+	 * @param version the version of the previous snapshot, <code>0</code> for none
+	 * @param factoryId
+	 * @param options
+	 * @param depth
+	 * @param monitor
+	 * @return the changes
+	 * @throws CoreException if the operation was canceled or failed
+	 * 
+	 * @see REnvironmentDiff#applyTo(REnvironment)
+	 */
+	public REnvironmentDiff evalEnvirDiff(final RObject envir, final long version,
+			final String factoryId, final int options, final int depth,
+			final IProgressMonitor monitor) throws CoreException {
+		if (envir != null && !isValidEnvir(envir)) {
+			throw new IllegalArgumentException("envir");
+		}
+		final byte checkedDepth = (depth < Byte.MAX_VALUE) ? (byte) depth : Byte.MAX_VALUE;
+		final int level = newDataLevel();
+		try {
+			runMainLoop(null, createDataRequestId(level, new DataCmdItem(DataCmdItem.EVAL_ENVIR_DIFF_DATA,
+					toRequestOptions(options), checkedDepth,
+					Long.toString(version), null, null, envir, factoryId )), monitor );
+			if (this.dataAnswer[level] == null || !this.dataAnswer[level].isOK()) {
+				final RjsStatus status = (this.dataAnswer[level] != null) ? this.dataAnswer[level].getStatus() : MISSING_ANSWER_STATUS;
+				if (status.getSeverity() == RjsStatus.CANCEL) {
+					throw new CoreException(Status.CANCEL_STATUS);
+				}
+				else {
+					throw new CoreException(new Status(status.getSeverity(), RJ_CLIENT_ID, status.getCode(),
+							"Evaluation failed: " + status.getMessage(), null));
+				}
+			}
+			final DataCmdItem dataItem = (DataCmdItem) this.dataAnswer[level];
+			final String newVersion = dataItem.getDataText();
+			return new REnvironmentDiff((REnvironment) dataItem.getData(),
+					(dataItem.getRho() instanceof RList) ? ((RList) dataItem.getRho()).getNames() : null,
+					(newVersion != null) ? Long.parseLong(newVersion) : 0 );
+		}
+		finally {
+			finalizeDataLevel();
+		}
+	}
+	
+	/**
+	 * Releases references pinned at the server, created by data evaluations with the option
+	 * {@link RService#LOAD_LAZY}.
+	 * 
+	 * @param handles the handles of the references to release or <code>null</code> to release
+	 *     all pinned references
+	 * @param monitor
+	 * @throws CoreException if the operation was canceled or failed
+	 * 
+	 * @see RLazyDataLoader
+	 */
+	public void releaseData(final long[] handles,
+			final IProgressMonitor monitor) throws CoreException {
+		final StringBuilder sb = new StringBuilder();
+		if (handles != null) {
+			if (handles.length == 0) {
+				return;
+			}
+			sb.append(handles[0]);
+			for (int i = 1; i < handles.length; i++) {
+				sb.append(',').append(handles[i]);
+			}
+		}
+		final int level = newDataLevel();
+		try {
+			runMainLoop(null, createDataRequestId(level, new DataCmdItem(DataCmdItem.RELEASE_DATA,
+					0, sb.toString(), null, null, null )), monitor );
+			if (this.dataAnswer[level] == null || !this.dataAnswer[level].isOK()) {
+				final RjsStatus status = (this.dataAnswer[level] != null) ? this.dataAnswer[level].getStatus() : MISSING_ANSWER_STATUS;
+				if (status.getSeverity() == RjsStatus.CANCEL) {
+					throw new CoreException(Status.CANCEL_STATUS);
+				}
+				else {
+					throw new CoreException(new Status(status.getSeverity(), RJ_CLIENT_ID, status.getCode(),
+							"Releasing data failed: " + status.getMessage(), null));
+				}
+			}
+		}
+		finally {
+			finalizeDataLevel();
+		}
+	}
+	
+	
+	/**
+	 * Executes the specified data commands as batch.
+	 * <p>
+	 * All commands are sent together to the server, which executes them one after another
+	 * and sends the answers together back.  Failures of single commands don't stop the
+	 * execution of the other commands.</p>
+	 * 
+	 * @param items the data commands
+	 * @param monitor
+	 * @return the answers for the commands, an answer is <code>null</code> if missing
+	 * @throws CoreException if the operation was canceled or failed
+	 */
+	public final MainCmdItem[] evalDataBatch(final DataCmdItem[] items,
+			final IProgressMonitor monitor) throws CoreException {
+		if (items == null) {
+			throw new NullPointerException("items");
+		}
+		final MainCmdItem[] answers = new MainCmdItem[items.length];
+		if (items.length == 0) {
+			return answers;
+		}
+		final int level = newDataLevel();
+		try {
+			final int[] requestIds = new int[items.length];
+			for (int i = 0; i < items.length; i++) {
+				createDataRequestId(level, items[i]);
+				requestIds[i] = this.dataRequestId[level];
+				if (i > 0) {
+					items[i - 1].setBatchNext();
+					items[i - 1].next = items[i];
+				}
+			}
+			this.dataBatchRequestIds[level] = requestIds;
+			this.dataBatchAnswers[level] = answers;
+			this.dataBatchCount[level] = 0;
+			if (this.dataLevelStartNanos[level] != 0) {
+				this.dataLevelCall[level] = ComCallListener.CALL_BATCH;
+			}
+			runMainLoop(null, items[0], monitor);
+			if (this.dataAnswer[level] == null) {
+				final RjsStatus status = MISSING_ANSWER_STATUS;
+				throw new CoreException(new Status(status.getSeverity(), RJ_CLIENT_ID, status.getCode(),
+						"Evaluation of batch failed: " + status.getMessage(), null));
+			}
+			return answers;
+		}
+		finally {
+			finalizeDataLevel();
+			invalidateResultCache();
+		}
+	}
+	
 	
 	public void downloadFile(final OutputStream out, final String fileName, final int options, final IProgressMonitor monitor) throws CoreException {
 		final BinExchange request = new BinExchange(out, fileName, this.rjConsoleServer, options);
-		final BinExchange answer;
+		final ComCallListener listener = this.callListener;
+		final long startNanos = (listener != null) ? System.nanoTime() : 0;
+		BinExchange answer = null;
 		try {
 			answer = (BinExchange) runAsync(request);
 		}
 		finally {
 			request.clear();
+			if (listener != null) {
+				notifyCallCompleted(listener, ComCallListener.CALL_DOWNLOAD_FILE,
+						System.nanoTime() - startNanos, -1,
+						0, false );
+			}
 		}
 		if (answer == null || !answer.isOK()) {
 			final RjsStatus status = (answer != null) ? answer.getStatus() : MISSING_ANSWER_STATUS;
@@ -1590,12 +2067,19 @@ public abstract class AbstractRJComClient implements ComHandler {
 	
 	public byte[] downloadFile(final String fileName, final int options, final IProgressMonitor monitor) throws CoreException {
 		final BinExchange request = new BinExchange(fileName, this.rjConsoleServer, options);
-		final BinExchange answer;
+		final ComCallListener listener = this.callListener;
+		final long startNanos = (listener != null) ? System.nanoTime() : 0;
+		BinExchange answer = null;
 		try {
 			answer = (BinExchange) runAsync(request);
 		}
 		finally {
 			request.clear();
+			if (listener != null) {
+				notifyCallCompleted(listener, ComCallListener.CALL_DOWNLOAD_FILE,
+						System.nanoTime() - startNanos, (answer != null && answer.getBytes() != null) ? answer.getBytes().length : -1,
+						0, false );
+			}
 		}
 		if (answer == null || !answer.isOK()) {
 			final RjsStatus status = (answer != null) ? answer.getStatus() : MISSING_ANSWER_STATUS;
@@ -1610,14 +2094,45 @@ public abstract class AbstractRJComClient implements ComHandler {
 		return answer.getBytes();
 	}
 	
+	/**
+	 * Downloads the file by chunks.
+	 * 
+	 * @see RService#downloadFile(File, String, int, IProgressMonitor)
+	 */
+	public void downloadFile(final File file, final String fileName, final int options, final IProgressMonitor monitor) throws CoreException {
+		if (file == null || fileName == null) {
+			throw new NullPointerException();
+		}
+		final ChunkedFileTransfer transfer = new ChunkedFileTransfer(this, fileName, options);
+		final ComCallListener listener = this.callListener;
+		final long startNanos = (listener != null) ? System.nanoTime() : 0;
+		try {
+			transfer.download(file, monitor);
+		}
+		finally {
+			if (listener != null) {
+				notifyCallCompleted(listener, ComCallListener.CALL_DOWNLOAD_FILE,
+						System.nanoTime() - startNanos, transfer.getTransferredBytes(),
+						0, false );
+			}
+		}
+	}
+	
 	public void uploadFile(final InputStream in, final long length, final String fileName, final int options, final IProgressMonitor monitor) throws CoreException {
 		final BinExchange request = new BinExchange(in, length, fileName, this.rjConsoleServer, options);
-		final BinExchange answer;
+		final ComCallListener listener = this.callListener;
+		final long startNanos = (listener != null) ? System.nanoTime() : 0;
+		BinExchange answer = null;
 		try {
 			answer = (BinExchange) runAsync(request);
 		}
 		finally {
 			request.clear();
+			if (listener != null) {
+				notifyCallCompleted(listener, ComCallListener.CALL_UPLOAD_FILE,
+						System.nanoTime() - startNanos, -1,
+						0, false );
+			}
 		}
 		if (answer == null || !answer.isOK()) {
 			final RjsStatus status = (answer != null) ? answer.getStatus() : MISSING_ANSWER_STATUS;
@@ -1631,6 +2146,30 @@ public abstract class AbstractRJComClient implements ComHandler {
 		}
 	}
 	
+	/**
+	 * Uploads the file by chunks.
+	 * 
+	 * @see RService#uploadFile(File, String, int, IProgressMonitor)
+	 */
+	public void uploadFile(final File file, final String fileName, final int options, final IProgressMonitor monitor) throws CoreException {
+		if (file == null || fileName == null) {
+			throw new NullPointerException();
+		}
+		final ChunkedFileTransfer transfer = new ChunkedFileTransfer(this, fileName, options);
+		final ComCallListener listener = this.callListener;
+		final long startNanos = (listener != null) ? System.nanoTime() : 0;
+		try {
+			transfer.upload(file, monitor);
+		}
+		finally {
+			if (listener != null) {
+				notifyCallCompleted(listener, ComCallListener.CALL_UPLOAD_FILE,
+						System.nanoTime() - startNanos, transfer.getTransferredBytes(),
+						0, false );
+			}
+		}
+	}
+	
 	
 	public Object execSyncDbgOp(final byte dbgOp, final RJIOExternalizable request,
 			final IProgressMonitor monitor) throws CoreException {
@@ -1663,6 +2202,7 @@ public abstract class AbstractRJComClient implements ComHandler {
 		finally {
 			this.dbgOpRequest = false;
 			this.dbgOpAnswer = null;
+			invalidateResultCache();
 		}
 	}
 	
@@ -0,0 +1,297 @@
+/*=============================================================================#
+ # Copyright (c) 2016 Stephan Wahlbrink (WalWare.de) and others.
+ # All rights reserved. This program and the accompanying materials
+ # are made available under the terms of the Eclipse Public License v1.0
+ # which accompanies this distribution, and is available at
+ # http://www.eclipse.org/legal/epl-v10.html
+ # 
+ # Contributors:
+ #     Stephan Wahlbrink - initial API and implementation
+ #=============================================================================*/
+
+package de.walware.rj.server.client;
+
+import static de.walware.rj.server.client.AbstractRJComClient.RJ_CLIENT_ID;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicReference;
+
+import org.eclipse.core.runtime.CoreException;
+import org.eclipse.core.runtime.IProgressMonitor;
+import org.eclipse.core.runtime.IStatus;
+import org.eclipse.core.runtime.Status;
+
+import de.walware.rj.server.BinChunkExchange;
+import de.walware.rj.server.RjsStatus;
+import de.walware.rj.services.RService;
+
+
+/**
+ * Transfer of a file between client and server by chunks.
+ * <p>
+ * The chunks are transferred in parallel by {@link #PARALLEL} streams. A chunk is repeated
+ * if the exchange failed, e.g. because of a broken connection or a wrong checksum. With the
+ * option {@link RService#FILE_RESUME} chunks already existing at the target are skipped.</p>
+ * 
+ * @see BinChunkExchange
+ */
+class ChunkedFileTransfer {
+	
+	
+	static final int CHUNK_LENGTH = 0x400000;
+	
+	static final int PARALLEL = 4;
+	
+	private static final int MAX_ATTEMPTS = 5;
+	
+	private static final ExecutorService EXECUTOR = Executors.newCachedThreadPool(
+			new DaemonThreadFactory("RJ File Transfer") );
+	
+	
+	private static interface ChunkTask {
+		
+		void run(long offset, int length) throws CoreException, IOException;
+		
+	}
+	
+	
+	private final AbstractRJComClient client;
+	
+	private final String remoteFilePath;
+	
+	private final boolean resume;
+	
+	private final AtomicLong transferred = new AtomicLong();
+	
+	
+	public ChunkedFileTransfer(final AbstractRJComClient client, final String remoteFilePath,
+			final int options) {
+		this.client = client;
+		this.remoteFilePath = remoteFilePath;
+		this.resume = ((options & RService.FILE_RESUME) != 0);
+	}
+	
+	
+	/**
+	 * Returns the number of bytes of the file content actually transferred.
+	 */
+	public long getTransferredBytes() {
+		return this.transferred.get();
+	}
+	
+	public void upload(final File file, final IProgressMonitor monitor) throws CoreException {
+		try (final FileChannel channel = FileChannel.open(file.toPath(), StandardOpenOption.READ)) {
+			final long length = channel.size();
+			run(length, new ChunkTask() {
+				@Override
+				public void run(final long offset, final int length) throws CoreException, IOException {
+					final byte[] bytes = new byte[length];
+					readFully(channel, offset, bytes);
+					if (ChunkedFileTransfer.this.resume) {
+						final BinChunkExchange remote = exchange(new BinChunkExchange(
+								BinChunkExchange.OP_CHECKSUM, ChunkedFileTransfer.this.remoteFilePath,
+								ChunkedFileTransfer.this.client.getConsoleServer(), offset, length ), true );
+						if (remote != null && remote.getChecksum() != -1
+								&& remote.getChecksum() == BinChunkExchange.computeChecksum(bytes, 0, length)) {
+							return;
+						}
+					}
+					exchange(new BinChunkExchange(ChunkedFileTransfer.this.remoteFilePath,
+							ChunkedFileTransfer.this.client.getConsoleServer(), offset, bytes, length ), false );
+					ChunkedFileTransfer.this.transferred.addAndGet(length);
+				}
+			}, "Uploading file", monitor );
+			exchange(new BinChunkExchange(BinChunkExchange.OP_TRUNCATE, this.remoteFilePath,
+					this.client.getConsoleServer(), length, 0 ), false );
+		}
+		catch (final IOException e) {
+			throw new CoreException(new Status(IStatus.ERROR, RJ_CLIENT_ID, 0,
+					"Uploading file failed: " + e.getMessage(), e ));
+		}
+	}
+	
+	public void download(final File file, final IProgressMonitor monitor) throws CoreException {
+		final BinChunkExchange info = exchange(new BinChunkExchange(BinChunkExchange.OP_INFO,
+				this.remoteFilePath, this.client.getConsoleServer(), 0, 0 ), false );
+		final long length = info.getFileLength();
+		try (final FileChannel channel = FileChannel.open(file.toPath(),
+				StandardOpenOption.READ, StandardOpenOption.WRITE, StandardOpenOption.CREATE )) {
+			run(length, new ChunkTask() {
+				@Override
+				public void run(final long offset, final int length) throws CoreException, IOException {
+					if (ChunkedFileTransfer.this.resume && channel.size() >= offset + length) {
+						final byte[] bytes = new byte[length];
+						readFully(channel, offset, bytes);
+						final BinChunkExchange remote = exchange(new BinChunkExchange(
+								BinChunkExchange.OP_CHECKSUM, ChunkedFileTransfer.this.remoteFilePath,
+								ChunkedFileTransfer.this.client.getConsoleServer(), offset, length ), false );
+						if (remote.getChecksum() == BinChunkExchange.computeChecksum(bytes, 0, length)) {
+							return;
+						}
+					}
+					final BinChunkExchange answer = exchange(new BinChunkExchange(
+							BinChunkExchange.OP_READ, ChunkedFileTransfer.this.remoteFilePath,
+							ChunkedFileTransfer.this.client.getConsoleServer(), offset, length ), false );
+					if (answer.getLength() != length) {
+						throw new IOException("The file was modified during the transfer.");
+					}
+					final ByteBuffer buffer = ByteBuffer.wrap(answer.getBytes(), 0, length);
+					long position = offset;
+					while (buffer.hasRemaining()) {
+						position += channel.write(buffer, position);
+					}
+					ChunkedFileTransfer.this.transferred.addAndGet(length);
+				}
+			}, "Downloading file", monitor );
+			if (channel.size() > length) {
+				channel.truncate(length);
+			}
+		}
+		catch (final IOException e) {
+			throw new CoreException(new Status(IStatus.ERROR, RJ_CLIENT_ID, 0,
+					"Downloading file failed: " + e.getMessage(), e ));
+		}
+	}
+	
+	private void run(final long length, final ChunkTask task, final String label,
+			final IProgressMonitor monitor) throws CoreException {
+		final int chunkCount = (int) ((length + CHUNK_LENGTH - 1) / CHUNK_LENGTH);
+		final AtomicInteger nextChunk = new AtomicInteger();
+		final AtomicReference<Exception> failure = new AtomicReference<>();
+		final Runnable worker = new Runnable() {
+			@Override
+			public void run() {
+				int i;
+				while (failure.get() == null && !monitor.isCanceled()
+						&& (i = nextChunk.getAndIncrement()) < chunkCount) {
+					final long offset = (long) i * CHUNK_LENGTH;
+					try {
+						task.run(offset, (int) Math.min(CHUNK_LENGTH, length - offset));
+					}
+					catch (final Exception e) {
+						failure.compareAndSet(null, e);
+						return;
+					}
+					synchronized (monitor) {
+						monitor.worked(1);
+					}
+				}
+			}
+		};
+		
+		monitor.beginTask(label + " '" + this.remoteFilePath + "'...", chunkCount);
+		try {
+			final int parallel = Math.min(PARALLEL, chunkCount);
+			final List<Future<?>> futures = new ArrayList<>(parallel);
+			for (int i = 1; i < parallel; i++) {
+				futures.add(EXECUTOR.submit(worker));
+			}
+			worker.run();
+			for (final Future<?> future : futures) {
+				while (true) {
+					try {
+						future.get();
+						break;
+					}
+					catch (final InterruptedException e) {
+						// wait for the running chunks
+					}
+					catch (final ExecutionException e) {
+						final Throwable cause = e.getCause();
+						failure.compareAndSet(null, (cause instanceof Exception) ?
+								(Exception) cause : e );
+						break;
+					}
+				}
+			}
+		}
+		finally {
+			monitor.done();
+		}
+		
+		final Exception e = failure.get();
+		if (e instanceof CoreException) {
+			throw (CoreException) e;
+		}
+		if (e != null) {
+			throw new CoreException(new Status(IStatus.ERROR, RJ_CLIENT_ID, 0,
+					label + " failed: " + e.getMessage(), e ));
+		}
+		if (monitor.isCanceled()) {
+			throw new CoreException(Status.CANCEL_STATUS);
+		}
+	}
+	
+	/**
+	 * Executes the exchange; communication errors and wrong checksums are retried.
+	 * 
+	 * @param request the request
+	 * @param optional if errors of the file operation are ignored
+	 * @return the answer or <code>null</code> if optional and failed
+	 */
+	private BinChunkExchange exchange(final BinChunkExchange request, final boolean optional)
+			throws CoreException {
+		for (int attempt = 1; true; attempt++) {
+			BinChunkExchange answer = null;
+			CoreException error = null;
+			try {
+				answer = (BinChunkExchange) this.client.runAsync(request);
+			}
+			catch (final CoreException e) {
+				if (this.client.isClosed()) {
+					throw e;
+				}
+				error = e; // communication error
+			}
+			if (answer != null) {
+				if (answer.isOK()) {
+					return answer;
+				}
+				final RjsStatus status = answer.getStatus();
+				error = new CoreException(new Status(status.getSeverity(), RJ_CLIENT_ID, status.getCode(),
+						"File transfer failed: " + status.getMessage(), null ));
+				if (status.getCode() != BinChunkExchange.CHECKSUM_ERROR) {
+					if (optional) {
+						return null;
+					}
+					throw error;
+				}
+			}
+			if (attempt >= MAX_ATTEMPTS) {
+				throw error;
+			}
+			try {
+				Thread.sleep(500L * attempt);
+			}
+			catch (final InterruptedException e) {
+				throw error;
+			}
+		}
+	}
+	
+	private static void readFully(final FileChannel channel, final long offset, final byte[] bytes)
+			throws IOException {
+		final ByteBuffer buffer = ByteBuffer.wrap(bytes);
+		long position = offset;
+		while (buffer.hasRemaining()) {
+			final int n = channel.read(buffer, position);
+			if (n == -1) {
+				throw new IOException("Unexcepted end of file content.");
+			}
+			position += n;
+		}
+	}
+	
+}
@@ -0,0 +1,60 @@
+/*=============================================================================#
+ # Copyright (c) 2016 Stephan Wahlbrink (WalWare.de) and others.
+ # All rights reserved. This program and the accompanying materials
+ # are made available under the terms of the Eclipse Public License v1.0
+ # which accompanies this distribution, and is available at
+ # http://www.eclipse.org/legal/epl-v10.html
+ # 
+ # Contributors:
+ #     Stephan Wahlbrink - initial API and implementation
+ #=============================================================================*/
+
+package de.walware.rj.server.client;
+
+
+/**
+ * Listener to instrument the calls of an {@link AbstractRJComClient}.
+ * <p>
+ * The listener is notified in the thread executing the call, so implementations must be fast
+ * and must not call the client.</p>
+ * 
+ * @see AbstractRJComClient#setCallListener(ComCallListener)
+ * @see ComCallStatistics
+ */
+public interface ComCallListener {
+	
+	
+	/**
+	 * Call of a batch of data operations
+	 */
+	String CALL_BATCH = "BATCH"; //$NON-NLS-1$
+	
+	/**
+	 * Processing of a graphic command sent by the server
+	 */
+	String CALL_GRAPHIC = "GRAPHIC"; //$NON-NLS-1$
+	
+	/**
+	 * Processing of the hot mode
+	 */
+	String CALL_HOT_MODE = "HOT_MODE"; //$NON-NLS-1$
+	
+	String CALL_DOWNLOAD_FILE = "DOWNLOAD_FILE"; //$NON-NLS-1$
+	String CALL_UPLOAD_FILE = "UPLOAD_FILE"; //$NON-NLS-1$
+	
+	
+	/**
+	 * Is called when a call is completed (successfully or not).
+	 * 
+	 * @param call the name of the call, the name of the data operation (e.g. <code>EVAL_EXPR_DATA</code>,
+	 *     <code>FIND_DATA</code>) or one of the <code>CALL_</code> constants
+	 * @param nanos the duration of the call in nanoseconds
+	 * @param bytes the number of bytes received from the server during the call (including
+	 *     nested calls), or <code>-1</code> if unknown
+	 * @param dataLevel the nesting depth of data operations (<code>1</code> for a top level
+	 *     operation), or <code>0</code> if the call is not a data operation
+	 * @param hotMode if the call was executed in hot mode
+	 */
+	void callCompleted(String call, long nanos, long bytes, int dataLevel, boolean hotMode);
+	
+}
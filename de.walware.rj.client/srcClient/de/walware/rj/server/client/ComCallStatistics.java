@@ -0,0 +1,145 @@
+/*=============================================================================#
+ # Copyright (c) 2016 Stephan Wahlbrink (WalWare.de) and others.
+ # All rights reserved. This program and the accompanying materials
+ # are made available under the terms of the Eclipse Public License v1.0
+ # which accompanies this distribution, and is available at
+ # http://www.eclipse.org/legal/epl-v10.html
+ # 
+ # Contributors:
+ #     Stephan Wahlbrink - initial API and implementation
+ #=============================================================================*/
+
+package de.walware.rj.server.client;
+
+import java.util.HashMap;
+import java.util.Map;
+import java.util.TreeMap;
+
+
+/**
+ * Default implementation of {@link ComCallListener} collecting the calls in memory.
+ * <p>
+ * For each call name the count, the durations (histogram with buckets of powers of two),
+ * the received bytes, the maximal data level and the number of calls in hot mode are
+ * recorded.</p>
+ */
+public class ComCallStatistics implements ComCallListener {
+	
+	
+	private static final int BUCKETS = 48;
+	
+	
+	private static final class CallStats {
+		
+		
+		private final long[] buckets = new long[BUCKETS];
+		
+		private long count;
+		private long totalNanos;
+		private long maxNanos;
+		
+		private long totalBytes;
+		private long maxBytes;
+		
+		private int maxDataLevel;
+		private long hotModeCount;
+		
+		
+		public CallStats() {
+		}
+		
+		
+		public void add(final long nanos, final long bytes, final int dataLevel, final boolean hotMode) {
+			this.buckets[Math.min(64 - Long.numberOfLeadingZeros(Math.max(nanos, 0)), BUCKETS - 1)]++;
+			this.count++;
+			this.totalNanos += nanos;
+			if (nanos > this.maxNanos) {
+				this.maxNanos = nanos;
+			}
+			if (bytes > 0) {
+				this.totalBytes += bytes;
+				if (bytes > this.maxBytes) {
+					this.maxBytes = bytes;
+				}
+			}
+			if (dataLevel > this.maxDataLevel) {
+				this.maxDataLevel = dataLevel;
+			}
+			if (hotMode) {
+				this.hotModeCount++;
+			}
+		}
+		
+		public long getPercentileNanos(final double percentile) {
+			final long limit = (long) Math.ceil(this.count * percentile / 100.0);
+			long n = 0;
+			for (int i = 0; i < BUCKETS; i++) {
+				n += this.buckets[i];
+				if (n >= limit && this.buckets[i] > 0) {
+					return Math.min((i > 0) ? (1L << i) - 1 : 0, this.maxNanos);
+				}
+			}
+			return this.maxNanos;
+		}
+		
+	}
+	
+	
+	private final Map<String, CallStats> calls = new HashMap<>();
+	
+	
+	public ComCallStatistics() {
+	}
+	
+	
+	@Override
+	public synchronized void callCompleted(final String call, final long nanos, final long bytes,
+			final int dataLevel, final boolean hotMode) {
+		CallStats stats = this.calls.get(call);
+		if (stats == null) {
+			stats = new CallStats();
+			this.calls.put(call, stats);
+		}
+		stats.add(nanos, bytes, dataLevel, hotMode);
+	}
+	
+	/**
+	 * Returns a snapshot of the statistics.
+	 * <p>
+	 * The keys are composed of the call name and the metric, e.g. <code>EVAL_EXPR_DATA.count</code>
+	 * or <code>FIND_DATA.p99_us</code>. Durations are in microseconds.</p>
+	 * 
+	 * @return a sorted map with the metric names and values
+	 */
+	public synchronized Map<String, Long> getSnapshot() {
+		final Map<String, Long> snapshot = new TreeMap<>();
+		for (final Map.Entry<String, CallStats> entry : this.calls.entrySet()) {
+			final String name = entry.getKey();
+			final CallStats stats = entry.getValue();
+			snapshot.put(name + ".count", Long.valueOf(stats.count)); //$NON-NLS-1$
+			snapshot.put(name + ".mean_us", Long.valueOf(stats.totalNanos / stats.count / 1000)); //$NON-NLS-1$
+			snapshot.put(name + ".p50_us", Long.valueOf(stats.getPercentileNanos(50) / 1000)); //$NON-NLS-1$
+			snapshot.put(name + ".p99_us", Long.valueOf(stats.getPercentileNanos(99) / 1000)); //$NON-NLS-1$
+			snapshot.put(name + ".max_us", Long.valueOf(stats.maxNanos / 1000)); //$NON-NLS-1$
+			snapshot.put(name + ".bytes", Long.valueOf(stats.totalBytes)); //$NON-NLS-1$
+			snapshot.put(name + ".bytes_max", Long.valueOf(stats.maxBytes)); //$NON-NLS-1$
+			snapshot.put(name + ".level_max", Long.valueOf(stats.maxDataLevel)); //$NON-NLS-1$
+			snapshot.put(name + ".hotmode", Long.valueOf(stats.hotModeCount)); //$NON-NLS-1$
+		}
+		return snapshot;
+	}
+	
+	/**
+	 * Resets the statistics.
+	 */
+	public synchronized void reset() {
+		this.calls.clear();
+	}
+	
+	
+	@Override
+	public String toString() {
+		return getSnapshot().toString();
+	}
+	
+}
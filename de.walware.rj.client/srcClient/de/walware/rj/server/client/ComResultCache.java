@@ -0,0 +1,271 @@
+/*=============================================================================#
+ # Copyright (c) 2016 Stephan Wahlbrink (WalWare.de) and others.
+ # All rights reserved. This program and the accompanying materials
+ # are made available under the terms of the Eclipse Public License v1.0
+ # which accompanies this distribution, and is available at
+ # http://www.eclipse.org/legal/epl-v10.html
+ # 
+ # Contributors:
+ #     Stephan Wahlbrink - initial API and implementation
+ #=============================================================================*/
+
+package de.walware.rj.server.client;
+
+import java.io.ByteArrayOutputStream;
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.io.ObjectInputStream;
+import java.io.ObjectOutputStream;
+import java.util.Arrays;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+import de.walware.rj.data.RJIO;
+import de.walware.rj.data.RObject;
+import de.walware.rj.server.DataCmdItem;
+import de.walware.rj.services.RService;
+
+
+/**
+ * Cache for the results of data evaluations of the client.
+ * <p>
+ * Only requests with the option {@link RService#CACHE_RESULT} are cached; the key of an entry
+ * consists of the operation, the expression or function name and arguments, the environment,
+ * the factory id, the options and the depth of the request.</p>
+ * <p>
+ * The cache is invalidated by the client when the console or a request possibly changing the
+ * state of R ({@link AbstractRJComClient#evalVoid(String, RObject, org.eclipse.core.runtime.IProgressMonitor) evalVoid},
+ * {@link AbstractRJComClient#assignData(String, RObject, RObject, org.eclipse.core.runtime.IProgressMonitor) assignData},
+ * batch and debug operations) is executed, and when the hot mode is entered during a running
+ * command. The size of the cache is limited by the number of entries and the size of the
+ * cached answers; the least recently used entries are removed first.</p>
+ * <p>
+ * The answers are cached in serialized form; each caller gets its own copy of the R object,
+ * created by the factory of the request, so callers can't affect the results of each other.</p>
+ * 
+ * @see AbstractRJComClient#setResultCache(ComResultCache)
+ */
+public class ComResultCache {
+	
+	
+	static final class Key {
+		
+		
+		private final byte[] request;
+		private final int hash;
+		
+		
+		private Key(final byte[] request) {
+			this.request = request;
+			this.hash = Arrays.hashCode(request);
+		}
+		
+		
+		@Override
+		public int hashCode() {
+			return this.hash;
+		}
+		
+		@Override
+		public boolean equals(final Object obj) {
+			return (this == obj
+					|| (obj instanceof Key && Arrays.equals(this.request, ((Key) obj).request)) );
+		}
+		
+	}
+	
+	private static final class Entry {
+		
+		
+		private final byte[] answer;
+		private final long size;
+		
+		
+		public Entry(final byte[] answer, final long size) {
+			this.answer = answer;
+			this.size = size;
+		}
+		
+	}
+	
+	
+	private final int maxEntries;
+	private final long maxSize;
+	
+	private final Map<Key, Entry> entries = new LinkedHashMap<>(16, 0.75f, true);
+	private long size;
+	
+	private long hitCount;
+	private long missCount;
+	private long invalidationCount;
+	
+	private final ByteArrayOutputStream buffer = new ByteArrayOutputStream(256);
+	private final RJIO io = new RJIO();
+	
+	
+	/**
+	 * Creates a new cache.
+	 * 
+	 * @param maxEntries the maximal number of entries
+	 * @param maxSize the maximal size of all cached answers in bytes
+	 */
+	public ComResultCache(final int maxEntries, final long maxSize) {
+		if (maxEntries <= 0) {
+			throw new IllegalArgumentException("maxEntries");
+		}
+		if (maxSize <= 0) {
+			throw new IllegalArgumentException("maxSize");
+		}
+		this.maxEntries = maxEntries;
+		this.maxSize = maxSize;
+	}
+	
+	
+	/**
+	 * Creates the key for the specified request.
+	 * 
+	 * @param request the data request (before the request id is set)
+	 * @return the key or <code>null</code>, if the request is not cacheable
+	 */
+	synchronized Key createKey(final DataCmdItem request) {
+		try {
+			return new Key(write(request));
+		}
+		catch (final IOException e) {
+			return null;
+		}
+	}
+	
+	/**
+	 * Returns a copy of the cached data.
+	 * 
+	 * @param key the key of the request
+	 * @return the data or <code>null</code>, if not cached
+	 */
+	synchronized RObject get(final Key key) {
+		final Entry entry = this.entries.get(key);
+		if (entry != null) {
+			try {
+				final RObject data = read(entry.answer).getData();
+				this.hitCount++;
+				return data;
+			}
+			catch (final IOException e) {
+				this.entries.remove(key);
+				this.size -= entry.size;
+			}
+		}
+		this.missCount++;
+		return null;
+	}
+	
+	/**
+	 * Caches the data of the answer.
+	 * 
+	 * @param key the key of the request
+	 * @param answer the answer with the data
+	 */
+	synchronized void put(final Key key, final DataCmdItem answer) {
+		final byte[] bytes;
+		try {
+			bytes = write(answer);
+		}
+		catch (final IOException e) {
+			return;
+		}
+		final long size = bytes.length + key.request.length;
+		if (size > this.maxSize) {
+			return;
+		}
+		final Entry old = this.entries.put(key, new Entry(bytes, size));
+		if (old != null) {
+			this.size -= old.size;
+		}
+		this.size += size;
+		
+		final Iterator<Entry> iter = this.entries.values().iterator();
+		while ((this.entries.size() > this.maxEntries || this.size > this.maxSize)
+				&& iter.hasNext() ) {
+			this.size -= iter.next().size;
+			iter.remove();
+		}
+	}
+	
+	private byte[] write(final DataCmdItem item) throws IOException {
+		this.buffer.reset();
+		final ObjectOutputStream out = new ObjectOutputStream(this.buffer);
+		this.io.connect(out);
+		try {
+			item.writeExternal(this.io);
+		}
+		finally {
+			this.io.disconnect(out);
+		}
+		out.close();
+		return this.buffer.toByteArray();
+	}
+	
+	private DataCmdItem read(final byte[] bytes) throws IOException {
+		final ObjectInputStream in = new ObjectInputStream(new ByteArrayInputStream(bytes));
+		this.io.connect(in);
+		try {
+			return new DataCmdItem(this.io);
+		}
+		finally {
+			this.io.disconnect(in);
+		}
+	}
+	
+	/**
+	 * Removes all entries from the cache.
+	 */
+	public synchronized void invalidate() {
+		if (!this.entries.isEmpty()) {
+			this.entries.clear();
+			this.size = 0;
+			this.invalidationCount++;
+		}
+	}
+	
+	
+	public synchronized int getEntryCount() {
+		return this.entries.size();
+	}
+	
+	/**
+	 * Returns the size of all cached answers.
+	 * 
+	 * @return the size in bytes
+	 */
+	public synchronized long getSize() {
+		return this.size;
+	}
+	
+	public synchronized long getHitCount() {
+		return this.hitCount;
+	}
+	
+	public synchronized long getMissCount() {
+		return this.missCount;
+	}
+	
+	/**
+	 * Returns the number of invalidations removing at least one entry.
+	 * 
+	 * @return the count
+	 */
+	public synchronized long getInvalidationCount() {
+		return this.invalidationCount;
+	}
+	
+	/**
+	 * Resets the counters.
+	 */
+	public synchronized void resetCounters() {
+		this.hitCount = 0;
+		this.missCount = 0;
+		this.invalidationCount = 0;
+	}
+	
+}
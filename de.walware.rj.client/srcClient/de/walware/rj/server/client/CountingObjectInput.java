@@ -0,0 +1,204 @@
+/*=============================================================================#
+ # Copyright (c) 2016 Stephan Wahlbrink (WalWare.de) and others.
+ # All rights reserved. This program and the accompanying materials
+ # are made available under the terms of the Eclipse Public License v1.0
+ # which accompanies this distribution, and is available at
+ # http://www.eclipse.org/legal/epl-v10.html
+ # 
+ # Contributors:
+ #     Stephan Wahlbrink - initial API and implementation
+ #=============================================================================*/
+
+package de.walware.rj.server.client;
+
+import java.io.IOException;
+import java.io.ObjectInput;
+
+
+/**
+ * Object input counting the bytes read by the primitive read methods.
+ * <p>
+ * Bytes read by {@link #readObject()} are not counted.</p>
+ */
+final class CountingObjectInput implements ObjectInput {
+	
+	
+	private ObjectInput in;
+	
+	private long count;
+	
+	
+	public CountingObjectInput() {
+	}
+	
+	
+	public ObjectInput connect(final ObjectInput in) {
+		this.in = in;
+		return this;
+	}
+	
+	public void disconnect() {
+		this.in = null;
+	}
+	
+	/**
+	 * Returns the total number of bytes read.
+	 * 
+	 * @return the number of bytes
+	 */
+	public long getCount() {
+		return this.count;
+	}
+	
+	
+	@Override
+	public void readFully(final byte[] b) throws IOException {
+		this.in.readFully(b);
+		this.count += b.length;
+	}
+	
+	@Override
+	public void readFully(final byte[] b, final int off, final int len) throws IOException {
+		this.in.readFully(b, off, len);
+		this.count += len;
+	}
+	
+	@Override
+	public int skipBytes(final int n) throws IOException {
+		final int skipped = this.in.skipBytes(n);
+		this.count += skipped;
+		return skipped;
+	}
+	
+	@Override
+	public boolean readBoolean() throws IOException {
+		this.count++;
+		return this.in.readBoolean();
+	}
+	
+	@Override
+	public byte readByte() throws IOException {
+		this.count++;
+		return this.in.readByte();
+	}
+	
+	@Override
+	public int readUnsignedByte() throws IOException {
+		this.count++;
+		return this.in.readUnsignedByte();
+	}
+	
+	@Override
+	public short readShort() throws IOException {
+		this.count += 2;
+		return this.in.readShort();
+	}
+	
+	@Override
+	public int readUnsignedShort() throws IOException {
+		this.count += 2;
+		return this.in.readUnsignedShort();
+	}
+	
+	@Override
+	public char readChar() throws IOException {
+		this.count += 2;
+		return this.in.readChar();
+	}
+	
+	@Override
+	public int readInt() throws IOException {
+		this.count += 4;
+		return this.in.readInt();
+	}
+	
+	@Override
+	public long readLong() throws IOException {
+		this.count += 8;
+		return this.in.readLong();
+	}
+	
+	@Override
+	public float readFloat() throws IOException {
+		this.count += 4;
+		return this.in.readFloat();
+	}
+	
+	@Override
+	public double readDouble() throws IOException {
+		this.count += 8;
+		return this.in.readDouble();
+	}
+	
+	@Override
+	@Deprecated
+	public String readLine() throws IOException {
+		final String s = this.in.readLine();
+		if (s != null) {
+			this.count += s.length() + 1;
+		}
+		return s;
+	}
+	
+	@Override
+	public String readUTF() throws IOException {
+		final String s = this.in.readUTF();
+		long n = 2;
+		for (int i = 0; i < s.length(); i++) {
+			final char c = s.charAt(i);
+			n += (c >= 0x0001 && c <= 0x007f) ? 1 : ((c <= 0x07ff) ? 2 : 3);
+		}
+		this.count += n;
+		return s;
+	}
+	
+	@Override
+	public Object readObject() throws ClassNotFoundException, IOException {
+		return this.in.readObject();
+	}
+	
+	@Override
+	public int read() throws IOException {
+		final int b = this.in.read();
+		if (b >= 0) {
+			this.count++;
+		}
+		return b;
+	}
+	
+	@Override
+	public int read(final byte[] b) throws IOException {
+		final int n = this.in.read(b);
+		if (n > 0) {
+			this.count += n;
+		}
+		return n;
+	}
+	
+	@Override
+	public int read(final byte[] b, final int off, final int len) throws IOException {
+		final int n = this.in.read(b, off, len);
+		if (n > 0) {
+			this.count += n;
+		}
+		return n;
+	}
+	
+	@Override
+	public long skip(final long n) throws IOException {
+		final long skipped = this.in.skip(n);
+		this.count += skipped;
+		return skipped;
+	}
+	
+	@Override
+	public int available() throws IOException {
+		return this.in.available();
+	}
+	
+	@Override
+	public void close() throws IOException {
+		this.in.close();
+	}
+	
+}
@@ -160,7 +160,15 @@ public class FunctionCallImpl implements FunctionCall {
 	}
 	
 	
-	private RList prepareArgs(final IProgressMonitor monitor) throws CoreException {
+	AbstractRJComClient getClient() {
+		return this.rjs;
+	}
+	
+	String getName() {
+		return this.name;
+	}
+	
+	RList prepareArgs(final IProgressMonitor monitor) throws CoreException {
 		// TODO step by step upload for large objects
 		final String[] names = this.argNames.toArray(new String[this.argNames.size()]);
 		final RObject[] values = this.argValues.toArray(new RObject[this.argValues.size()]);
@@ -0,0 +1,420 @@
+/*=============================================================================#
+ # Copyright (c) 2016 Stephan Wahlbrink (WalWare.de) and others.
+ # All rights reserved. This program and the accompanying materials
+ # are made available under the terms of the Eclipse Public License v1.0
+ # which accompanies this distribution, and is available at
+ # http://www.eclipse.org/legal/epl-v10.html
+ # 
+ # Contributors:
+ #     Stephan Wahlbrink - initial API and implementation
+ #=============================================================================*/
+
+package de.walware.rj.server.client;
+
+import java.awt.BasicStroke;
+import java.awt.Color;
+import java.awt.Font;
+import java.awt.Graphics2D;
+import java.awt.RenderingHints;
+import java.awt.Shape;
+import java.awt.Transparency;
+import java.awt.color.ColorSpace;
+import java.awt.font.FontRenderContext;
+import java.awt.font.GlyphVector;
+import java.awt.geom.AffineTransform;
+import java.awt.geom.Ellipse2D;
+import java.awt.geom.Line2D;
+import java.awt.geom.Path2D;
+import java.awt.geom.Rectangle2D;
+import java.awt.image.BufferedImage;
+import java.awt.image.ComponentColorModel;
+import java.awt.image.DataBuffer;
+import java.awt.image.DataBufferByte;
+import java.awt.image.PixelInterleavedSampleModel;
+import java.awt.image.Raster;
+import java.awt.image.WritableRaster;
+import java.util.List;
+
+import de.walware.rj.graphic.RCircle;
+import de.walware.rj.graphic.RClipSetting;
+import de.walware.rj.graphic.RColorSetting;
+import de.walware.rj.graphic.RFillSetting;
+import de.walware.rj.graphic.RFontSetting;
+import de.walware.rj.graphic.RGraphicInitialization;
+import de.walware.rj.graphic.RGraphicInstruction;
+import de.walware.rj.graphic.RLine;
+import de.walware.rj.graphic.RLineSetting;
+import de.walware.rj.graphic.RPath;
+import de.walware.rj.graphic.RPolygon;
+import de.walware.rj.graphic.RPolyline;
+import de.walware.rj.graphic.RRaster;
+import de.walware.rj.graphic.RRect;
+import de.walware.rj.graphic.RText;
+
+
+/**
+ * Paints graphic instructions using Java2D.
+ * <p>
+ * A renderer keeps the current settings, so an instance must be used for one sequence of
+ * instructions and one thread only.</p>
+ */
+final class Java2DGraphicRenderer {
+	
+	
+	/** Context for font metrics, the same hints are set for painting */
+	static final FontRenderContext FONT_RENDER_CONTEXT = new FontRenderContext(null, true, true);
+	
+	private static final ComponentColorModel RASTER_COLOR_MODEL = new ComponentColorModel(
+			ColorSpace.getInstance(ColorSpace.CS_sRGB), true, false,
+			Transparency.TRANSLUCENT, DataBuffer.TYPE_BYTE );
+	private static final int[] RASTER_BAND_OFFSETS = new int[] { 0, 1, 2, 3 };
+	
+	
+	/**
+	 * Creates the AWT font for the font setting.
+	 * 
+	 * @param setting the font setting or <code>null</code>
+	 * @param ppi the resolution of the device
+	 * @return the font
+	 */
+	static Font createFont(final RFontSetting setting, final double ppi) {
+		if (setting == null) {
+			return new Font(Font.SANS_SERIF, Font.PLAIN, 1).deriveFont((float) (12 * ppi / 72.0));
+		}
+		String name;
+		switch ((setting.family != null) ? setting.family.toLowerCase() : "") { //$NON-NLS-1$
+		case "serif": //$NON-NLS-1$
+		case "times": //$NON-NLS-1$
+			name = Font.SERIF;
+			break;
+		case "mono": //$NON-NLS-1$
+		case "courier": //$NON-NLS-1$
+			name = Font.MONOSPACED;
+			break;
+		case "": //$NON-NLS-1$
+		case "sans": //$NON-NLS-1$
+		case "helvetica": //$NON-NLS-1$
+			name = Font.SANS_SERIF;
+			break;
+		default:
+			name = setting.family;
+			break;
+		}
+		int style;
+		switch (setting.face) {
+		case 2:
+			style = Font.BOLD;
+			break;
+		case 3:
+			style = Font.ITALIC;
+			break;
+		case 4:
+			style = Font.BOLD | Font.ITALIC;
+			break;
+		case 5: // symbol
+			name = Font.SERIF;
+			style = Font.PLAIN;
+			break;
+		default:
+			style = Font.PLAIN;
+			break;
+		}
+		return new Font(name, style, 1).deriveFont((float) (setting.pointSize * ppi / 72.0));
+	}
+	
+	private static Color createColor(final int color) {
+		final int alpha = ((color >> 24) & 255);
+		if (alpha == 0) {
+			return null;
+		}
+		return new Color((color & 255), ((color >> 8) & 255), ((color >> 16) & 255), alpha);
+	}
+	
+	
+	private final Graphics2D g;
+	private final double ppi;
+	
+	private final Shape baseClip;
+	
+	private Color color;
+	private Color fill;
+	private BasicStroke stroke;
+	private Font font;
+	
+	private final Line2D.Double line = new Line2D.Double();
+	private final Rectangle2D.Double rect = new Rectangle2D.Double();
+	private final Ellipse2D.Double ellipse = new Ellipse2D.Double();
+	
+	
+	/**
+	 * Creates a new renderer.
+	 * 
+	 * @param g the graphics to paint on, the transformation must be set to device units
+	 * @param ppi the resolution of the device
+	 */
+	public Java2DGraphicRenderer(final Graphics2D g, final double ppi) {
+		this.g = g;
+		this.ppi = ppi;
+		this.baseClip = g.getClip();
+		
+		g.setRenderingHint(RenderingHints.KEY_ANTIALIASING, RenderingHints.VALUE_ANTIALIAS_ON);
+		g.setRenderingHint(RenderingHints.KEY_TEXT_ANTIALIASING, RenderingHints.VALUE_TEXT_ANTIALIAS_ON);
+		g.setRenderingHint(RenderingHints.KEY_FRACTIONALMETRICS, RenderingHints.VALUE_FRACTIONALMETRICS_ON);
+		g.setRenderingHint(RenderingHints.KEY_STROKE_CONTROL, RenderingHints.VALUE_STROKE_PURE);
+		
+		this.color = Color.BLACK;
+		this.stroke = new BasicStroke((float) (ppi / 96.0));
+		this.font = createFont(null, ppi);
+	}
+	
+	
+	public void paint(final List<? extends RGraphicInstruction> instructions) {
+		for (int i = 0; i < instructions.size(); i++) {
+			paint(instructions.get(i));
+		}
+	}
+	
+	public void paint(final RGraphicInstruction instruction) {
+		switch (instruction.getInstructionType()) {
+		case RGraphicInstruction.INIT:
+			paintInit((RGraphicInitialization) instruction);
+			return;
+		case RGraphicInstruction.SET_CLIP:
+			setClip((RClipSetting) instruction);
+			return;
+		case RGraphicInstruction.SET_COLOR:
+			this.color = createColor(((RColorSetting) instruction).color);
+			return;
+		case RGraphicInstruction.SET_FILL:
+			this.fill = createColor(((RFillSetting) instruction).color);
+			return;
+		case RGraphicInstruction.SET_LINE:
+			setLine((RLineSetting) instruction);
+			return;
+		case RGraphicInstruction.SET_FONT:
+			this.font = createFont((RFontSetting) instruction, this.ppi);
+			return;
+		case RGraphicInstruction.DRAW_LINE: {
+			final RLine element = (RLine) instruction;
+			this.line.setLine(element.x0, element.y0, element.x1, element.y1);
+			draw(this.line);
+			return; }
+		case RGraphicInstruction.DRAW_RECTANGLE: {
+			final RRect element = (RRect) instruction;
+			this.rect.setFrameFromDiagonal(element.x0, element.y0, element.x1, element.y1);
+			fillAndDraw(this.rect);
+			return; }
+		case RGraphicInstruction.DRAW_POLYLINE: {
+			final RPolyline element = (RPolyline) instruction;
+			draw(createPath(element.x, element.y, false));
+			return; }
+		case RGraphicInstruction.DRAW_POLYGON: {
+			final RPolygon element = (RPolygon) instruction;
+			fillAndDraw(createPath(element.x, element.y, true));
+			return; }
+		case RGraphicInstruction.DRAW_PATH:
+			fillAndDraw(createPath((RPath) instruction));
+			return;
+		case RGraphicInstruction.DRAW_CIRCLE: {
+			final RCircle element = (RCircle) instruction;
+			this.ellipse.setFrame(element.x - element.r, element.y - element.r,
+					2 * element.r, 2 * element.r );
+			fillAndDraw(this.ellipse);
+			return; }
+		case RGraphicInstruction.DRAW_TEXT:
+			paintText((RText) instruction);
+			return;
+		case RGraphicInstruction.DRAW_RASTER:
+			paintRaster((RRaster) instruction);
+			return;
+		default:
+			return;
+		}
+	}
+	
+	
+	private void paintInit(final RGraphicInitialization init) {
+		final Color canvas = createColor(init.canvasColor);
+		if (canvas != null) {
+			this.g.setColor(canvas);
+			this.rect.setFrame(0, 0, init.width, init.height);
+			this.g.fill(this.rect);
+		}
+	}
+	
+	private void setClip(final RClipSetting setting) {
+		this.g.setClip(this.baseClip);
+		this.rect.setFrameFromDiagonal(setting.x0, setting.y0, setting.x1, setting.y1);
+		this.g.clip(this.rect);
+	}
+	
+	private void setLine(final RLineSetting setting) {
+		if (setting.type == RLineSetting.TYPE_BLANK) {
+			this.stroke = null;
+			return;
+		}
+		// lwd = 1 is 1/96 inch
+		final float width = (float) Math.max(setting.width * this.ppi / 96.0, 0.01);
+		final int cap;
+		switch (setting.cap) {
+		case RLineSetting.CAP_BUTT:
+			cap = BasicStroke.CAP_BUTT;
+			break;
+		case RLineSetting.CAP_SQUARE:
+			cap = BasicStroke.CAP_SQUARE;
+			break;
+		default:
+			cap = BasicStroke.CAP_ROUND;
+			break;
+		}
+		final int join;
+		switch (setting.join) {
+		case RLineSetting.JOIN_MITER:
+			join = BasicStroke.JOIN_MITER;
+			break;
+		case RLineSetting.JOIN_BEVEL:
+			join = BasicStroke.JOIN_BEVEL;
+			break;
+		default:
+			join = BasicStroke.JOIN_ROUND;
+			break;
+		}
+		final float miterLimit = Math.max(setting.joinMiterLimit, 1f);
+		if (setting.type == RLineSetting.TYPE_SOLID) {
+			this.stroke = new BasicStroke(width, cap, join, miterLimit);
+			return;
+		}
+		// each hex digit is the length of a segment (in units of the line width)
+		int n = 0;
+		for (int dt = setting.type; dt != 0 && n < 8; dt >>>= 4) {
+			n++;
+		}
+		final float[] dash = new float[n];
+		int dt = setting.type;
+		for (int i = 0; i < n; i++, dt >>>= 4) {
+			dash[i] = Math.max((dt & 15), 1) * width;
+		}
+		this.stroke = new BasicStroke(width, cap, join, miterLimit, dash, 0f);
+	}
+	
+	
+	private void draw(final Shape shape) {
+		if (this.color != null && this.stroke != null) {
+			this.g.setColor(this.color);
+			this.g.setStroke(this.stroke);
+			this.g.draw(shape);
+		}
+	}
+	
+	private void fillAndDraw(final Shape shape) {
+		if (this.fill != null) {
+			this.g.setColor(this.fill);
+			this.g.fill(shape);
+		}
+		draw(shape);
+	}
+	
+	private static Path2D createPath(final double[] x, final double[] y, final boolean close) {
+		final int n = Math.min(x.length, y.length);
+		final Path2D.Double path = new Path2D.Double(Path2D.WIND_NON_ZERO, n);
+		if (n > 0) {
+			path.moveTo(x[0], y[0]);
+			for (int i = 1; i < n; i++) {
+				path.lineTo(x[i], y[i]);
+			}
+			if (close) {
+				path.closePath();
+			}
+		}
+		return path;
+	}
+	
+	private static Path2D createPath(final RPath element) {
+		final Path2D.Double path = new Path2D.Double(
+				((element.mode & RClientGraphic.MASK_FILL_RULE) == RClientGraphic.FILL_WIND_NON_ZERO) ?
+						Path2D.WIND_NON_ZERO : Path2D.WIND_EVEN_ODD,
+				element.x.length );
+		int k = 0;
+		for (int i = 0; i < element.n.length; i++) {
+			final int end = Math.min(k + element.n[i], element.x.length);
+			if (k < end) {
+				path.moveTo(element.x[k], element.y[k]);
+				for (k++; k < end; k++) {
+					path.lineTo(element.x[k], element.y[k]);
+				}
+				path.closePath();
+			}
+		}
+		return path;
+	}
+	
+	private void paintText(final RText element) {
+		if (this.color == null || element.text.isEmpty()) {
+			return;
+		}
+		final GlyphVector glyphs = this.font.createGlyphVector(FONT_RENDER_CONTEXT, element.text);
+		final AffineTransform savedTransform = this.g.getTransform();
+		try {
+			this.g.translate(element.x, element.y);
+			if (element.rotateDegree != 0) {
+				this.g.rotate(-Math.toRadians(element.rotateDegree));
+			}
+			final double width = (element.horizontalAdjust != 0) ?
+					glyphs.getLogicalBounds().getWidth() : 0;
+			this.g.setColor(this.color);
+			this.g.drawGlyphVector(glyphs, (float) (-width * element.horizontalAdjust), 0f);
+		}
+		finally {
+			this.g.setTransform(savedTransform);
+		}
+	}
+	
+	/**
+	 * Creates an image for the raster element (without copying the data).
+	 * 
+	 * @param element the raster element
+	 * @return the image or <code>null</code> if the data is invalid
+	 */
+	static BufferedImage createImage(final RRaster element) {
+		final int imgWidth = element.imgWidth;
+		final int imgHeight = element.imgHeight;
+		if (imgWidth <= 0 || imgHeight <= 0 || element.imgData.length < imgWidth * imgHeight * 4) {
+			return null;
+		}
+		final WritableRaster raster = Raster.createWritableRaster(
+				new PixelInterleavedSampleModel(DataBuffer.TYPE_BYTE, imgWidth, imgHeight,
+						4, imgWidth * 4, RASTER_BAND_OFFSETS ),
+				new DataBufferByte(element.imgData, imgWidth * imgHeight * 4), null );
+		return new BufferedImage(RASTER_COLOR_MODEL, raster, false, null);
+	}
+	
+	private void paintRaster(final RRaster element) {
+		final BufferedImage image = createImage(element);
+		if (image == null) {
+			return;
+		}
+		
+		// (x, y) is the bottom left corner, the height is negative if the y axis is downwards
+		final AffineTransform transform = new AffineTransform();
+		transform.translate(element.x, element.y);
+		if (element.rotateDegree != 0) {
+			transform.rotate(-Math.toRadians(element.rotateDegree));
+		}
+		transform.translate(0, element.height);
+		transform.scale(element.width / element.imgWidth, -element.height / element.imgHeight);
+		
+		final Object savedHint = this.g.getRenderingHint(RenderingHints.KEY_INTERPOLATION);
+		this.g.setRenderingHint(RenderingHints.KEY_INTERPOLATION, (element.interpolate) ?
+				RenderingHints.VALUE_INTERPOLATION_BILINEAR :
+				RenderingHints.VALUE_INTERPOLATION_NEAREST_NEIGHBOR );
+		try {
+			this.g.drawImage(image, transform, null);
+		}
+		finally {
+			if (savedHint != null) {
+				this.g.setRenderingHint(RenderingHints.KEY_INTERPOLATION, savedHint);
+			}
+		}
+	}
+	
+}
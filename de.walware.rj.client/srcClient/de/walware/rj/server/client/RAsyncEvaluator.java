@@ -0,0 +1,311 @@
+/*=============================================================================#
+ # Copyright (c) 2016 Stephan Wahlbrink (WalWare.de) and others.
+ # All rights reserved. This program and the accompanying materials
+ # are made available under the terms of the Eclipse Public License v1.0
+ # which accompanies this distribution, and is available at
+ # http://www.eclipse.org/legal/epl-v10.html
+ # 
+ # Contributors:
+ #     Stephan Wahlbrink - initial API and implementation
+ #=============================================================================*/
+
+package de.walware.rj.server.client;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CancellationException;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Executor;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+
+import org.eclipse.core.runtime.CoreException;
+import org.eclipse.core.runtime.IStatus;
+import org.eclipse.core.runtime.NullProgressMonitor;
+import org.eclipse.core.runtime.Status;
+
+import de.walware.rj.data.RObject;
+import de.walware.rj.server.DataCmdItem;
+import de.walware.rj.server.MainCmdItem;
+import de.walware.rj.services.FunctionCall;
+
+
+/**
+ * Asynchronous evaluation of data commands returning {@link Future}s.
+ * <p>
+ * The requests are queued and executed by the specified executor. All requests queued until
+ * the executor runs the task are sent together as batch (see
+ * {@link AbstractRJComClient#evalDataBatch(DataCmdItem[], org.eclipse.core.runtime.IProgressMonitor)}),
+ * so multiple callers can keep R busy without waiting for the exchange of each single
+ * request.</p>
+ * <p>
+ * The executor must run the tasks in the thread owning the client or otherwise make sure that
+ * the tasks are not executed concurrently to each other or other operations of the client,
+ * e.g. by a single thread used for all operations of the client.</p>
+ */
+public class RAsyncEvaluator {
+	
+	
+	private static final byte PENDING = 0;
+	private static final byte RUNNING = 1;
+	private static final byte DONE = 2;
+	private static final byte CANCELLED = 3;
+	
+	private static final class Request<T> implements Future<T> {
+		
+		
+		private final DataCmdItem item;
+		
+		private byte state;
+		
+		private T value;
+		private CoreException exception;
+		
+		
+		public Request(final DataCmdItem item) {
+			this.item = item;
+		}
+		
+		
+		synchronized boolean start() {
+			if (this.state != PENDING) {
+				return false;
+			}
+			this.state = RUNNING;
+			return true;
+		}
+		
+		@SuppressWarnings("unchecked")
+		synchronized void setAnswer(final MainCmdItem answer) {
+			if (answer != null && answer.isOK()) {
+				this.value = (T) ((DataCmdItem) answer).getData();
+			}
+			else {
+				this.exception = new CoreException(RBatchImpl.createStatus(answer));
+			}
+			this.state = DONE;
+			notifyAll();
+		}
+		
+		synchronized void setException(final CoreException e) {
+			if (this.state >= DONE) {
+				return;
+			}
+			this.exception = e;
+			this.state = DONE;
+			notifyAll();
+		}
+		
+		@Override
+		public synchronized boolean cancel(final boolean mayInterruptIfRunning) {
+			if (this.state != PENDING) {
+				return false;
+			}
+			this.state = CANCELLED;
+			notifyAll();
+			return true;
+		}
+		
+		@Override
+		public synchronized boolean isCancelled() {
+			return (this.state == CANCELLED);
+		}
+		
+		@Override
+		public synchronized boolean isDone() {
+			return (this.state >= DONE);
+		}
+		
+		private T getValue() throws ExecutionException {
+			if (this.state == CANCELLED) {
+				throw new CancellationException();
+			}
+			if (this.exception != null) {
+				if (this.exception.getStatus().getSeverity() == IStatus.CANCEL) {
+					throw new CancellationException();
+				}
+				throw new ExecutionException(this.exception);
+			}
+			return this.value;
+		}
+		
+		@Override
+		public synchronized T get() throws InterruptedException, ExecutionException {
+			while (this.state < DONE) {
+				wait();
+			}
+			return getValue();
+		}
+		
+		@Override
+		public synchronized T get(final long timeout, final TimeUnit unit)
+				throws InterruptedException, ExecutionException, TimeoutException {
+			final long end = System.nanoTime() + unit.toNanos(timeout);
+			while (this.state < DONE) {
+				final long nanos = end - System.nanoTime();
+				if (nanos <= 0) {
+					throw new TimeoutException();
+				}
+				TimeUnit.NANOSECONDS.timedWait(this, nanos);
+			}
+			return getValue();
+		}
+		
+	}
+	
+	
+	private final AbstractRJComClient rjs;
+	
+	private final Executor executor;
+	
+	private List<Request<?>> pending = new ArrayList<>();
+	private boolean scheduled;
+	
+	private final Runnable runnable = new Runnable() {
+		@Override
+		public void run() {
+			runPending();
+		}
+	};
+	
+	
+	/**
+	 * @param client the client
+	 * @param executor the executor running the requests, see class description
+	 */
+	public RAsyncEvaluator(final AbstractRJComClient client, final Executor executor) {
+		if (client == null) {
+			throw new NullPointerException("client");
+		}
+		if (executor == null) {
+			throw new NullPointerException("executor");
+		}
+		this.rjs = client;
+		this.executor = executor;
+	}
+	
+	
+	private <T> Future<T> add(final DataCmdItem item) {
+		final Request<T> request = new Request<>(item);
+		final boolean schedule;
+		synchronized (this) {
+			this.pending.add(request);
+			schedule = !this.scheduled;
+			this.scheduled = true;
+		}
+		if (schedule) {
+			try {
+				this.executor.execute(this.runnable);
+			}
+			catch (final RuntimeException e) { // rejected
+				final List<Request<?>> requests;
+				synchronized (this) {
+					requests = this.pending;
+					this.pending = new ArrayList<>();
+					this.scheduled = false;
+				}
+				final CoreException ce = new CoreException(new Status(
+						IStatus.ERROR, AbstractRJComClient.RJ_CLIENT_ID, 0,
+						"An error occurred when scheduling the requests.", e ));
+				for (final Request<?> pendingRequest : requests) {
+					pendingRequest.setException(ce);
+				}
+			}
+		}
+		return request;
+	}
+	
+	/**
+	 * Queues the evaluation of the given expression without returning a value.
+	 * 
+	 * @see de.walware.rj.services.RService#evalVoid(String, RObject, org.eclipse.core.runtime.IProgressMonitor)
+	 */
+	public Future<Void> evalVoid(final String expression, final RObject envir) {
+		return add(RBatchImpl.createEvalVoid(this.rjs, expression, envir));
+	}
+	
+	/**
+	 * Queues the evaluation of the given function call without returning a value.
+	 * 
+	 * @see FunctionCall#evalVoid(RObject, org.eclipse.core.runtime.IProgressMonitor)
+	 */
+	public Future<Void> evalVoid(final FunctionCall call, final RObject envir) throws CoreException {
+		return add(RBatchImpl.createEvalVoid(this.rjs, call, envir));
+	}
+	
+	/**
+	 * Queues the evaluation of the given expression returning its value.
+	 * 
+	 * @see de.walware.rj.services.RService#evalData(String, RObject, String, int, int, org.eclipse.core.runtime.IProgressMonitor)
+	 */
+	public Future<RObject> evalData(final String expression, final RObject envir,
+			final String factoryId, final int options, final int depth) {
+		return add(RBatchImpl.createEvalData(this.rjs, expression, envir, factoryId, options, depth));
+	}
+	
+	/**
+	 * Queues the evaluation of the given function call returning its value.
+	 * 
+	 * @see FunctionCall#evalData(RObject, String, int, int, org.eclipse.core.runtime.IProgressMonitor)
+	 */
+	public Future<RObject> evalData(final FunctionCall call, final RObject envir,
+			final String factoryId, final int options, final int depth) throws CoreException {
+		return add(RBatchImpl.createEvalData(this.rjs, call, envir, factoryId, options, depth));
+	}
+	
+	/**
+	 * Queues the assignment of the given R data object to an expression.
+	 * 
+	 * @see de.walware.rj.services.RService#assignData(String, RObject, org.eclipse.core.runtime.IProgressMonitor)
+	 */
+	public Future<Void> assignData(final String target, final RObject data, final RObject envir) {
+		return add(RBatchImpl.createAssignData(this.rjs, target, data, envir));
+	}
+	
+	
+	private void runPending() {
+		final List<Request<?>> requests;
+		synchronized (this) {
+			requests = this.pending;
+			this.pending = new ArrayList<>();
+			this.scheduled = false;
+		}
+		final List<Request<?>> started = new ArrayList<>(requests.size());
+		for (final Request<?> request : requests) {
+			if (request.start()) {
+				started.add(request);
+			}
+		}
+		if (started.isEmpty()) {
+			return;
+		}
+		final DataCmdItem[] items = new DataCmdItem[started.size()];
+		for (int i = 0; i < items.length; i++) {
+			items[i] = started.get(i).item;
+		}
+		try {
+			final MainCmdItem[] answers = this.rjs.evalDataBatch(items, new NullProgressMonitor());
+			for (int i = 0; i < items.length; i++) {
+				started.get(i).setAnswer(answers[i]);
+			}
+		}
+		catch (final CoreException e) {
+			for (int i = 0; i < items.length; i++) {
+				started.get(i).setException(e);
+			}
+		}
+		catch (final Throwable e) {
+			final CoreException ce = new CoreException(new Status(
+					IStatus.ERROR, AbstractRJComClient.RJ_CLIENT_ID, 0,
+					"An error occurred when running the requests.", e ));
+			for (int i = 0; i < items.length; i++) {
+				started.get(i).setException(ce);
+			}
+			if (e instanceof Error) {
+				throw (Error) e;
+			}
+		}
+	}
+	
+}
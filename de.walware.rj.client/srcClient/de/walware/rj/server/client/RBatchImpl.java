@@ -0,0 +1,208 @@
+/*=============================================================================#
+ # Copyright (c) 2016 Stephan Wahlbrink (WalWare.de) and others.
+ # All rights reserved. This program and the accompanying materials
+ # are made available under the terms of the Eclipse Public License v1.0
+ # which accompanies this distribution, and is available at
+ # http://www.eclipse.org/legal/epl-v10.html
+ # 
+ # Contributors:
+ #     Stephan Wahlbrink - initial API and implementation
+ #=============================================================================*/
+
+package de.walware.rj.server.client;
+
+import static de.walware.rj.server.srvext.ServerUtil.MISSING_ANSWER_STATUS;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import org.eclipse.core.runtime.CoreException;
+import org.eclipse.core.runtime.IProgressMonitor;
+import org.eclipse.core.runtime.IStatus;
+import org.eclipse.core.runtime.Status;
+
+import de.walware.rj.data.RList;
+import de.walware.rj.data.RObject;
+import de.walware.rj.server.DataCmdItem;
+import de.walware.rj.server.MainCmdItem;
+import de.walware.rj.server.RjsStatus;
+import de.walware.rj.services.FunctionCall;
+import de.walware.rj.services.RBatch;
+
+
+public class RBatchImpl implements RBatch {
+	
+	
+	private static void checkEnvir(final AbstractRJComClient client, final RObject envir) {
+		if (envir != null && !client.isValidEnvir(envir)) {
+			throw new IllegalArgumentException("envir");
+		}
+	}
+	
+	private static FunctionCallImpl checkCall(final AbstractRJComClient client, final FunctionCall call) {
+		if (call == null) {
+			throw new NullPointerException("call");
+		}
+		if (!(call instanceof FunctionCallImpl) || ((FunctionCallImpl) call).getClient() != client) {
+			throw new IllegalArgumentException("call");
+		}
+		return (FunctionCallImpl) call;
+	}
+	
+	private static byte checkDepth(final int depth) {
+		return (depth < Byte.MAX_VALUE) ? (byte) depth : Byte.MAX_VALUE;
+	}
+	
+	static DataCmdItem createEvalVoid(final AbstractRJComClient client,
+			final String expression, final RObject envir) {
+		if (expression == null) {
+			throw new NullPointerException("expression");
+		}
+		checkEnvir(client, envir);
+		return new DataCmdItem(DataCmdItem.EVAL_EXPR_VOID,
+				0, expression, null, null, envir );
+	}
+	
+	static DataCmdItem createEvalVoid(final AbstractRJComClient client,
+			final FunctionCall call, final RObject envir) throws CoreException {
+		final FunctionCallImpl callImpl = checkCall(client, call);
+		checkEnvir(client, envir);
+		final RList args = callImpl.prepareArgs(null);
+		return new DataCmdItem(DataCmdItem.EVAL_FCALL_VOID,
+				0, callImpl.getName(), args, null, envir );
+	}
+	
+	static DataCmdItem createEvalData(final AbstractRJComClient client,
+			final String expression, final RObject envir,
+			final String factoryId, final int options, final int depth) {
+		if (expression == null) {
+			throw new NullPointerException("expression");
+		}
+		checkEnvir(client, envir);
+		return new DataCmdItem(DataCmdItem.EVAL_EXPR_DATA,
+				AbstractRJComClient.toRequestOptions(options), checkDepth(depth),
+				expression, null, null, envir, factoryId );
+	}
+	
+	static DataCmdItem createEvalData(final AbstractRJComClient client,
+			final FunctionCall call, final RObject envir,
+			final String factoryId, final int options, final int depth) throws CoreException {
+		final FunctionCallImpl callImpl = checkCall(client, call);
+		checkEnvir(client, envir);
+		final RList args = callImpl.prepareArgs(null);
+		return new DataCmdItem(DataCmdItem.EVAL_FCALL_DATA,
+				AbstractRJComClient.toRequestOptions(options), checkDepth(depth),
+				callImpl.getName(), args, null, envir, factoryId );
+	}
+	
+	static DataCmdItem createAssignData(final AbstractRJComClient client,
+			final String target, final RObject data, final RObject envir) {
+		if (target == null) {
+			throw new NullPointerException("target");
+		}
+		if (data == null) {
+			throw new NullPointerException("data");
+		}
+		checkEnvir(client, envir);
+		return new DataCmdItem(DataCmdItem.ASSIGN_DATA,
+				0, null, data, target, envir );
+	}
+	
+	static IStatus createStatus(final MainCmdItem answer) {
+		if (answer != null && answer.isOK()) {
+			return Status.OK_STATUS;
+		}
+		final RjsStatus status = (answer != null) ? answer.getStatus() : MISSING_ANSWER_STATUS;
+		if (status.getSeverity() == RjsStatus.CANCEL) {
+			return Status.CANCEL_STATUS;
+		}
+		return new Status(status.getSeverity(), AbstractRJComClient.RJ_CLIENT_ID, status.getCode(),
+				"Evaluation failed: " + status.getMessage(), null );
+	}
+	
+	
+	private final AbstractRJComClient rjs;
+	
+	private final List<DataCmdItem> items = new ArrayList<>();
+	
+	private MainCmdItem[] answers;
+	
+	
+	public RBatchImpl(final AbstractRJComClient client) {
+		this.rjs = client;
+	}
+	
+	
+	private int add(final DataCmdItem item) {
+		if (this.answers != null) {
+			throw new IllegalStateException("already evaluated");
+		}
+		this.items.add(item);
+		return this.items.size() - 1;
+	}
+	
+	@Override
+	public int addEvalVoid(final String expression, final RObject envir) {
+		return add(createEvalVoid(this.rjs, expression, envir));
+	}
+	
+	@Override
+	public int addEvalVoid(final FunctionCall call, final RObject envir) throws CoreException {
+		return add(createEvalVoid(this.rjs, call, envir));
+	}
+	
+	@Override
+	public int addEvalData(final String expression, final RObject envir,
+			final String factoryId, final int options, final int depth) {
+		return add(createEvalData(this.rjs, expression, envir, factoryId, options, depth));
+	}
+	
+	@Override
+	public int addEvalData(final FunctionCall call, final RObject envir,
+			final String factoryId, final int options, final int depth) throws CoreException {
+		return add(createEvalData(this.rjs, call, envir, factoryId, options, depth));
+	}
+	
+	@Override
+	public int addAssignData(final String target, final RObject data, final RObject envir) {
+		return add(createAssignData(this.rjs, target, data, envir));
+	}
+	
+	@Override
+	public int getCount() {
+		return this.items.size();
+	}
+	
+	
+	@Override
+	public void evaluate(final IProgressMonitor monitor) throws CoreException {
+		if (this.answers != null) {
+			throw new IllegalStateException("already evaluated");
+		}
+		final DataCmdItem[] items = this.items.toArray(new DataCmdItem[this.items.size()]);
+		this.answers = this.rjs.evalDataBatch(items, monitor);
+		this.items.clear();
+	}
+	
+	private MainCmdItem getAnswer(final int idx) {
+		if (this.answers == null) {
+			throw new IllegalStateException("not yet evaluated");
+		}
+		return this.answers[idx];
+	}
+	
+	@Override
+	public IStatus getStatus(final int idx) {
+		return createStatus(getAnswer(idx));
+	}
+	
+	@Override
+	public RObject getData(final int idx) throws CoreException {
+		final MainCmdItem answer = getAnswer(idx);
+		if (answer == null || !answer.isOK()) {
+			throw new CoreException(createStatus(answer));
+		}
+		return ((DataCmdItem) answer).getData();
+	}
+	
+}
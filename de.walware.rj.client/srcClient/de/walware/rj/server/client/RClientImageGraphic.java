@@ -0,0 +1,426 @@
+/*=============================================================================#
+ # Copyright (c) 2016 Stephan Wahlbrink (WalWare.de) and others.
+ # All rights reserved. This program and the accompanying materials
+ # are made available under the terms of the Eclipse Public License v1.0
+ # which accompanies this distribution, and is available at
+ # http://www.eclipse.org/legal/epl-v10.html
+ # 
+ # Contributors:
+ #     Stephan Wahlbrink - initial API and implementation
+ #=============================================================================*/
+
+package de.walware.rj.server.client;
+
+import java.awt.Font;
+import java.awt.Graphics2D;
+import java.awt.font.GlyphVector;
+import java.awt.geom.Rectangle2D;
+import java.awt.image.BufferedImage;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Future;
+
+import javax.imageio.ImageIO;
+
+import org.eclipse.core.runtime.IProgressMonitor;
+
+import de.walware.rj.graphic.RCircle;
+import de.walware.rj.graphic.RClipSetting;
+import de.walware.rj.graphic.RColorSetting;
+import de.walware.rj.graphic.RFillSetting;
+import de.walware.rj.graphic.RFontSetting;
+import de.walware.rj.graphic.RGraphic;
+import de.walware.rj.graphic.RGraphicInitialization;
+import de.walware.rj.graphic.RGraphicInstruction;
+import de.walware.rj.graphic.RLine;
+import de.walware.rj.graphic.RLineSetting;
+import de.walware.rj.graphic.RPath;
+import de.walware.rj.graphic.RPolygon;
+import de.walware.rj.graphic.RPolyline;
+import de.walware.rj.graphic.RRaster;
+import de.walware.rj.graphic.RRect;
+import de.walware.rj.graphic.RText;
+import de.walware.rj.services.RService;
+
+
+/**
+ * Headless {@link RClientGraphic} collecting the graphic instructions and rendering them into
+ * a {@link BufferedImage} using Java2D.
+ * <p>
+ * String widths and font metrics are computed locally, so no display is required. Large
+ * images are rendered in tiles in parallel, if the factory provides an executor.</p>
+ * 
+ * @see RClientImageGraphicFactory
+ */
+public class RClientImageGraphic implements RClientGraphic, RGraphic {
+	
+	
+	/** Size of the tiles for parallel rendering */
+	private static final int TILE_SIZE = 512;
+	
+	
+	private final int devId;
+	
+	private final double ppi;
+	private final ExecutorService executor;
+	
+	private double[] size;
+	
+	private boolean isActive;
+	private int mode;
+	
+	private final List<RGraphicInstruction> instructions = new ArrayList<>();
+	
+	private Font currentFont;
+	
+	private final CopyOnWriteArrayList<Listener> listeners = new CopyOnWriteArrayList<>();
+	
+	
+	/**
+	 * Creates a new graphic.
+	 * 
+	 * @param devId the device id
+	 * @param w the width of the graphic
+	 * @param h the height of the graphic
+	 * @param config initialization configuration
+	 * @param active if the device is active
+	 * @param ppi the resolution
+	 * @param executor the executor for parallel rendering or <code>null</code>
+	 */
+	public RClientImageGraphic(final int devId, final double w, final double h,
+			final InitConfig config, final boolean active,
+			final double ppi, final ExecutorService executor) {
+		this.devId = devId;
+		this.ppi = ppi;
+		this.executor = executor;
+		this.isActive = active;
+		reset(w, h, config);
+	}
+	
+	
+	@Override
+	public int getDevId() {
+		return this.devId;
+	}
+	
+	@Override
+	public void reset(final double w, final double h, final InitConfig config) {
+		synchronized (this.instructions) {
+			this.size = new double[] { w, h };
+			this.instructions.clear();
+			this.instructions.add(new RGraphicInitialization(w, h, config.canvasColor));
+		}
+		this.currentFont = null;
+	}
+	
+	@Override
+	public void setMode(final int mode) {
+		if (this.mode == mode) {
+			return;
+		}
+		this.mode = mode;
+		for (final Listener listener : this.listeners) {
+			if (mode == 1) {
+				listener.drawingStarted();
+			}
+			else if (mode == 0) {
+				listener.drawingStopped();
+			}
+		}
+	}
+	
+	@Override
+	public void setActive(final boolean active) {
+		if (this.isActive == active) {
+			return;
+		}
+		this.isActive = active;
+		for (final Listener listener : this.listeners) {
+			if (active) {
+				listener.activated();
+			}
+			else {
+				listener.deactivated();
+			}
+		}
+	}
+	
+	@Override
+	public boolean isActive() {
+		return this.isActive;
+	}
+	
+	@Override
+	public void addListener(final Listener listener) {
+		this.listeners.addIfAbsent(listener);
+	}
+	
+	@Override
+	public void removeListener(final Listener listener) {
+		this.listeners.remove(listener);
+	}
+	
+	/**
+	 * Returns the resolution of the graphic.
+	 * 
+	 * @return the pixels per inch
+	 */
+	public double getPPI() {
+		return this.ppi;
+	}
+	
+	@Override
+	public double[] computeSize() {
+		return this.size;
+	}
+	
+	@Override
+	public double[] computeFontMetric(final int ch) {
+		final Font font = getCurrentFont();
+		if (ch == 0) {
+			final Rectangle2D bounds = font.getMaxCharBounds(Java2DGraphicRenderer.FONT_RENDER_CONTEXT);
+			return new double[] { -bounds.getMinY(), bounds.getMaxY(), 0 };
+		}
+		final int codePoint = Math.abs(ch);
+		if (!Character.isValidCodePoint(codePoint)) {
+			return null;
+		}
+		final GlyphVector glyphs = font.createGlyphVector(Java2DGraphicRenderer.FONT_RENDER_CONTEXT,
+				new String(Character.toChars(codePoint)) );
+		final Rectangle2D bounds = glyphs.getVisualBounds();
+		return new double[] {
+				Math.max(-bounds.getMinY(), 0),
+				Math.max(bounds.getMaxY(), 0),
+				glyphs.getLogicalBounds().getWidth() };
+	}
+	
+	@Override
+	public double[] computeStringWidth(final String txt) {
+		final Font font = getCurrentFont();
+		return new double[] {
+				font.createGlyphVector(Java2DGraphicRenderer.FONT_RENDER_CONTEXT, txt)
+						.getLogicalBounds().getWidth() };
+	}
+	
+	private Font getCurrentFont() {
+		Font font = this.currentFont;
+		if (font == null) {
+			font = Java2DGraphicRenderer.createFont(null, this.ppi);
+			this.currentFont = font;
+		}
+		return font;
+	}
+	
+	
+	private void add(final RGraphicInstruction instruction) {
+		synchronized (this.instructions) {
+			this.instructions.add(instruction);
+		}
+	}
+	
+	@Override
+	public void addSetClip(final double x0, final double y0, final double x1, final double y1) {
+		add(new RClipSetting(x0, y0, x1, y1));
+	}
+	
+	@Override
+	public void addSetColor(final int color) {
+		add(new RColorSetting(color));
+	}
+	
+	@Override
+	public void addSetFill(final int color) {
+		add(new RFillSetting(color));
+	}
+	
+	@Override
+	public void addSetLine(final int type, final float width,
+			final byte cap, final byte join, final float joinMiterLimit) {
+		add(new RLineSetting(type, width, cap, join, joinMiterLimit));
+	}
+	
+	@Override
+	public void addSetFont(final String family, final int face, final float pointSize, final float lineHeight) {
+		final RFontSetting setting = new RFontSetting(family, face, pointSize, lineHeight);
+		this.currentFont = Java2DGraphicRenderer.createFont(setting, this.ppi);
+		add(setting);
+	}
+	
+	@Override
+	public void addDrawLine(final double x0, final double y0, final double x1, final double y1) {
+		add(new RLine(x0, y0, x1, y1));
+	}
+	
+	@Override
+	public void addDrawRect(final double x0, final double y0, final double x1, final double y1) {
+		add(new RRect(x0, y0, x1, y1));
+	}
+	
+	@Override
+	public void addDrawPolyline(final double[] x, final double[] y) {
+		add(new RPolyline(x, y));
+	}
+	
+	@Override
+	public void addDrawPolygon(final double[] x, final double[] y) {
+		add(new RPolygon(x, y));
+	}
+	
+	@Override
+	public void addDrawPath(final int[] n, final double[] x, final double[] y, final int winding) {
+		add(new RPath(n, x, y, winding));
+	}
+	
+	@Override
+	public void addDrawCircle(final double x, final double y, final double r) {
+		add(new RCircle(x, y, r));
+	}
+	
+	@Override
+	public void addDrawText(final String text,
+			final double x, final double y, final double rDeg, final double hAdj) {
+		add(new RText(text, x, y, rDeg, hAdj));
+	}
+	
+	@Override
+	public void addDrawRaster(final byte[] imgData, final boolean imgAlpha, final int imgWidth, final int imgHeight,
+			final double x, final double y, final double w, final double h,
+			final double rDeg, final boolean interpolate) {
+		add(new RRaster(imgData, imgWidth, imgHeight, x, y, w, h, rDeg, interpolate));
+	}
+	
+	
+	@Override
+	public List<? extends RGraphicInstruction> getInstructions() {
+		synchronized (this.instructions) {
+			return Collections.unmodifiableList(new ArrayList<>(this.instructions));
+		}
+	}
+	
+	/**
+	 * Renders the graphic in its original size.
+	 * 
+	 * @return the image
+	 */
+	public BufferedImage renderImage() {
+		final double[] size = this.size;
+		return renderImage((int) Math.ceil(size[0]), (int) Math.ceil(size[1]));
+	}
+	
+	/**
+	 * Renders the graphic scaled to the specified size.
+	 * 
+	 * @param width the width of the image in pixels
+	 * @param height the height of the image in pixels
+	 * @return the image
+	 */
+	public BufferedImage renderImage(final int width, final int height) {
+		if (width <= 0 || height <= 0) {
+			throw new IllegalArgumentException("size: " + width + " x " + height);
+		}
+		final List<? extends RGraphicInstruction> instructions;
+		final double[] size;
+		synchronized (this.instructions) {
+			instructions = getInstructions();
+			size = this.size;
+		}
+		final double scaleX = (size[0] > 0) ? width / size[0] : 1.0;
+		final double scaleY = (size[1] > 0) ? height / size[1] : 1.0;
+		
+		final BufferedImage image = new BufferedImage(width, height, BufferedImage.TYPE_INT_ARGB);
+		if (this.executor == null
+				|| ((long) width * height) <= 2L * TILE_SIZE * TILE_SIZE) {
+			renderTile(image, 0, 0, width, height, scaleX, scaleY, instructions);
+			return image;
+		}
+		
+		final List<Future<?>> tasks = new ArrayList<>();
+		for (int y = 0; y < height; y += TILE_SIZE) {
+			for (int x = 0; x < width; x += TILE_SIZE) {
+				final int tileX = x;
+				final int tileY = y;
+				final int tileWidth = Math.min(TILE_SIZE, width - x);
+				final int tileHeight = Math.min(TILE_SIZE, height - y);
+				tasks.add(this.executor.submit(new Runnable() {
+					@Override
+					public void run() {
+						renderTile(image, tileX, tileY, tileWidth, tileHeight, scaleX, scaleY,
+								instructions );
+					}
+				}));
+			}
+		}
+		try {
+			for (final Future<?> task : tasks) {
+				task.get();
+			}
+		}
+		catch (final InterruptedException e) {
+			for (final Future<?> task : tasks) {
+				task.cancel(true);
+			}
+			Thread.currentThread().interrupt();
+			throw new IllegalStateException("Rendering was interrupted.", e);
+		}
+		catch (final ExecutionException e) {
+			throw new IllegalStateException("An error occurred when rendering the graphic.",
+					e.getCause() );
+		}
+		return image;
+	}
+	
+	private void renderTile(final BufferedImage image,
+			final int x, final int y, final int width, final int height,
+			final double scaleX, final double scaleY,
+			final List<? extends RGraphicInstruction> instructions) {
+		final Graphics2D g = image.createGraphics();
+		try {
+			g.clipRect(x, y, width, height);
+			g.scale(scaleX, scaleY);
+			new Java2DGraphicRenderer(g, this.ppi).paint(instructions);
+		}
+		finally {
+			g.dispose();
+		}
+	}
+	
+	/**
+	 * Renders the graphic in its original size and writes it as PNG image.
+	 * 
+	 * @param out the output stream, not closed by this method
+	 * @throws IOException if writing the image failed
+	 */
+	public void writePNG(final OutputStream out) throws IOException {
+		if (!ImageIO.write(renderImage(), "png", out)) { //$NON-NLS-1$
+			throw new IOException("No PNG writer available.");
+		}
+	}
+	
+	@Override
+	public byte[] capture(final int width, final int height) {
+		final BufferedImage image = renderImage(width, height);
+		final int[] pixels = image.getRGB(0, 0, width, height, null, 0, width);
+		final byte[] data = new byte[pixels.length * 4];
+		for (int i = 0, j = 0; i < pixels.length; i++, j += 4) {
+			final int argb = pixels[i];
+			data[j] = (byte) argb; // blue
+			data[j + 1] = (byte) (argb >> 8);
+			data[j + 2] = (byte) (argb >> 16);
+			data[j + 3] = (byte) (argb >> 24);
+		}
+		return data;
+	}
+	
+	
+	@Override
+	public double[] runRLocator(final RService r, final IProgressMonitor monitor) {
+		return null;
+	}
+	
+}
@@ -0,0 +1,86 @@
+/*=============================================================================#
+ # Copyright (c) 2016 Stephan Wahlbrink (WalWare.de) and others.
+ # All rights reserved. This program and the accompanying materials
+ # are made available under the terms of the Eclipse Public License v1.0
+ # which accompanies this distribution, and is available at
+ # http://www.eclipse.org/legal/epl-v10.html
+ # 
+ # Contributors:
+ #     Stephan Wahlbrink - initial API and implementation
+ #=============================================================================*/
+
+package de.walware.rj.server.client;
+
+import java.util.Collections;
+import java.util.Map;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+
+import de.walware.rj.server.client.RClientGraphic.InitConfig;
+
+
+/**
+ * Factory for headless graphics rendered into images, see {@link RClientImageGraphic}.
+ * <p>
+ * The factory can be used for clients without display, e.g. for batch processing; the
+ * graphics can be obtained by {@link AbstractRJComClient#getLastGraphic()}.</p>
+ */
+public class RClientImageGraphicFactory implements RClientGraphicFactory {
+	
+	
+	private final double ppi;
+	
+	private final ExecutorService executor;
+	
+	
+	/**
+	 * Creates a new factory with 96 ppi, rendering in parallel using all available
+	 * processors.
+	 */
+	public RClientImageGraphicFactory() {
+		this(96.0, Runtime.getRuntime().availableProcessors());
+	}
+	
+	/**
+	 * Creates a new factory.
+	 * 
+	 * @param ppi the resolution of the graphics
+	 * @param threads the number of threads for parallel rendering, <code>1</code> to disable it
+	 */
+	public RClientImageGraphicFactory(final double ppi, final int threads) {
+		if (ppi <= 0) {
+			throw new IllegalArgumentException("ppi");
+		}
+		this.ppi = ppi;
+		this.executor = (threads > 1) ?
+				Executors.newFixedThreadPool(threads, new DaemonThreadFactory("RJ-GraphicRenderer")) : //$NON-NLS-1$
+				null;
+	}
+	
+	
+	@Override
+	public Map<String, ? extends Object> getInitServerProperties() {
+		return Collections.singletonMap("display.ppi", new double[] { this.ppi, this.ppi }); //$NON-NLS-1$
+	}
+	
+	@Override
+	public RClientGraphic newGraphic(final int devId, final double w, final double h,
+			final InitConfig config, final boolean active,
+			final RClientGraphicActions actions, final int options) {
+		return new RClientImageGraphic(devId, w, h, config, active, this.ppi, this.executor);
+	}
+	
+	@Override
+	public void closeGraphic(final RClientGraphic graphic) {
+	}
+	
+	/**
+	 * Stops the threads for parallel rendering.
+	 */
+	public void dispose() {
+		if (this.executor != null) {
+			this.executor.shutdown();
+		}
+	}
+	
+}
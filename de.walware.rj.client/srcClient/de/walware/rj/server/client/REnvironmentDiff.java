@@ -0,0 +1,95 @@
+/*=============================================================================#
+ # Copyright (c) 2016 Stephan Wahlbrink (WalWare.de) and others.
+ # All rights reserved. This program and the accompanying materials
+ # are made available under the terms of the Eclipse Public License v1.0
+ # which accompanies this distribution, and is available at
+ # http://www.eclipse.org/legal/epl-v10.html
+ # 
+ # Contributors:
+ #     Stephan Wahlbrink - initial API and implementation
+ #=============================================================================*/
+
+package de.walware.rj.server.client;
+
+import de.walware.rj.data.RCharacterStore;
+import de.walware.rj.data.REnvironment;
+import de.walware.rj.data.defaultImpl.REnvironmentImpl;
+
+
+/**
+ * Changes of the bindings of an environment since a previous snapshot.
+ * 
+ * @see AbstractRJComClient#evalEnvirDiff(de.walware.rj.data.RObject, long, String, int, int, org.eclipse.core.runtime.IProgressMonitor)
+ */
+public final class REnvironmentDiff {
+	
+	
+	private final REnvironment changed;
+	private final RCharacterStore removedNames;
+	
+	private final long version;
+	
+	
+	REnvironmentDiff(final REnvironment changed, final RCharacterStore removedNames,
+			final long version) {
+		this.changed = changed;
+		this.removedNames = removedNames;
+		this.version = version;
+	}
+	
+	
+	/**
+	 * Returns the version of the new snapshot to use for the next request.
+	 * 
+	 * @return the version or <code>0</code>, if no snapshot was created (e.g. if the
+	 *     environment is too large)
+	 */
+	public long getVersion() {
+		return this.version;
+	}
+	
+	/**
+	 * Returns if the diff is complete, i.e. not based on the previous snapshot.
+	 * 
+	 * @return <code>true</code> if {@link #getChanged()} contains all bindings
+	 */
+	public boolean isComplete() {
+		return (this.removedNames == null);
+	}
+	
+	/**
+	 * Returns the environment with the changed and added bindings.
+	 * 
+	 * @return the environment
+	 */
+	public REnvironment getChanged() {
+		return this.changed;
+	}
+	
+	/**
+	 * Returns the names of the removed bindings.
+	 * 
+	 * @return the names or <code>null</code>, if complete
+	 */
+	public RCharacterStore getRemovedNames() {
+		return this.removedNames;
+	}
+	
+	/**
+	 * Applies the changes to the environment loaded before.
+	 * 
+	 * @param envir the environment of the previous snapshot
+	 * @return the updated environment, if complete the environment of this diff
+	 */
+	public REnvironment applyTo(final REnvironment envir) {
+		if (isComplete()) {
+			return this.changed;
+		}
+		if (!(envir instanceof REnvironmentImpl)) {
+			throw new IllegalArgumentException("envir: unsupported implementation");
+		}
+		((REnvironmentImpl) envir).applyChanges(this.changed, this.removedNames);
+		return envir;
+	}
+	
+}
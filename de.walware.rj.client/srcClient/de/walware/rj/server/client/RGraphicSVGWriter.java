@@ -0,0 +1,683 @@
+/*=============================================================================#
+ # Copyright (c) 2016 Stephan Wahlbrink (WalWare.de) and others.
+ # All rights reserved. This program and the accompanying materials
+ # are made available under the terms of the Eclipse Public License v1.0
+ # which accompanies this distribution, and is available at
+ # http://www.eclipse.org/legal/epl-v10.html
+ # 
+ # Contributors:
+ #     Stephan Wahlbrink - initial API and implementation
+ #=============================================================================*/
+
+package de.walware.rj.server.client;
+
+import java.awt.Font;
+import java.awt.image.BufferedImage;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.io.Writer;
+import java.util.List;
+
+import javax.imageio.ImageIO;
+
+import de.walware.rj.graphic.RCircle;
+import de.walware.rj.graphic.RClipSetting;
+import de.walware.rj.graphic.RColorSetting;
+import de.walware.rj.graphic.RFillSetting;
+import de.walware.rj.graphic.RFontSetting;
+import de.walware.rj.graphic.RGraphic;
+import de.walware.rj.graphic.RGraphicInitialization;
+import de.walware.rj.graphic.RGraphicInstruction;
+import de.walware.rj.graphic.RLine;
+import de.walware.rj.graphic.RLineSetting;
+import de.walware.rj.graphic.RPath;
+import de.walware.rj.graphic.RPolygon;
+import de.walware.rj.graphic.RPolyline;
+import de.walware.rj.graphic.RRaster;
+import de.walware.rj.graphic.RRect;
+import de.walware.rj.graphic.RText;
+
+
+/**
+ * Writes the instructions of a graphic as SVG document.
+ * <p>
+ * The elements are written directly to the writer one after another, no document model is
+ * created. Rasters are embedded as PNG images. The coordinates are in device units (pixels),
+ * the resolution is used to convert line widths and font sizes.</p>
+ * <p>
+ * A writer keeps the current settings, so an instance must be used for one document only.</p>
+ */
+public class RGraphicSVGWriter {
+	
+	
+	private static final char[] BASE64_CHARS = "ABCDEFGHIJKLMNOPQRSTUVWXYZabcdefghijklmnopqrstuvwxyz0123456789+/".toCharArray(); //$NON-NLS-1$
+	
+	
+	/**
+	 * Writes bytes base64 encoded to the writer.
+	 */
+	private static final class Base64Output extends OutputStream {
+		
+		private final Writer out;
+		
+		private final byte[] buffer = new byte[3];
+		private int count;
+		
+		private final char[] chars = new char[4];
+		
+		public Base64Output(final Writer out) {
+			this.out = out;
+		}
+		
+		@Override
+		public void write(final int b) throws IOException {
+			this.buffer[this.count++] = (byte) b;
+			if (this.count == 3) {
+				writeChars();
+			}
+		}
+		
+		private void writeChars() throws IOException {
+			final int n = this.count;
+			final int v = ((this.buffer[0] & 255) << 16)
+					| ((n > 1) ? ((this.buffer[1] & 255) << 8) : 0)
+					| ((n > 2) ? (this.buffer[2] & 255) : 0);
+			this.chars[0] = BASE64_CHARS[(v >> 18) & 63];
+			this.chars[1] = BASE64_CHARS[(v >> 12) & 63];
+			this.chars[2] = (n > 1) ? BASE64_CHARS[(v >> 6) & 63] : '=';
+			this.chars[3] = (n > 2) ? BASE64_CHARS[v & 63] : '=';
+			this.out.write(this.chars);
+			this.count = 0;
+		}
+		
+		/**
+		 * Writes the remaining bytes, the writer is not closed.
+		 */
+		@Override
+		public void close() throws IOException {
+			if (this.count > 0) {
+				writeChars();
+			}
+		}
+		
+	}
+	
+	
+	private final Writer out;
+	private final double ppi;
+	
+	private final StringBuilder sb = new StringBuilder(0x400);
+	
+	/** Attributes for the stroke or <code>null</code> if no stroke */
+	private String strokeAttr;
+	/** Attributes for the fill or <code>null</code> if no fill */
+	private String fillAttr;
+	/** Attributes for text or <code>null</code> if no text */
+	private String textAttr;
+	private RLineSetting lineSetting;
+	private int color;
+	private RFontSetting fontSetting;
+	private Font font;
+	
+	private int clipCount;
+	
+	
+	/**
+	 * Creates a new writer.
+	 * 
+	 * @param out the writer for the SVG document, should be buffered
+	 * @param ppi the resolution of the graphic
+	 */
+	public RGraphicSVGWriter(final Writer out, final double ppi) {
+		if (out == null) {
+			throw new NullPointerException("out");
+		}
+		if (ppi <= 0) {
+			throw new IllegalArgumentException("ppi");
+		}
+		this.out = out;
+		this.ppi = ppi;
+	}
+	
+	
+	/**
+	 * Writes the SVG document for the current instructions of the graphic.
+	 * 
+	 * @param graphic the graphic
+	 * @throws IOException if writing the document failed
+	 */
+	public void write(final RGraphic graphic) throws IOException {
+		write(graphic.getInstructions());
+	}
+	
+	/**
+	 * Writes the SVG document for the instructions.
+	 * 
+	 * @param instructions the graphic instructions, starting with the initialization
+	 * @throws IOException if writing the document failed
+	 */
+	public void write(final List<? extends RGraphicInstruction> instructions) throws IOException {
+		if (instructions.isEmpty()
+				|| instructions.get(0).getInstructionType() != RGraphicInstruction.INIT) {
+			throw new IllegalArgumentException("instructions");
+		}
+		this.clipCount = 0;
+		this.color = 0xff000000;
+		this.lineSetting = null;
+		this.fontSetting = null;
+		this.font = null;
+		this.fillAttr = null;
+		updateStroke();
+		updateText();
+		
+		writeStart((RGraphicInitialization) instructions.get(0));
+		for (int i = 1; i < instructions.size(); i++) {
+			write(instructions.get(i));
+		}
+		writeEnd();
+		this.out.flush();
+	}
+	
+	
+	private void writeStart(final RGraphicInitialization init) throws IOException {
+		final StringBuilder sb = this.sb;
+		sb.setLength(0);
+		sb.append("<?xml version=\"1.0\" encoding=\"UTF-8\"?>\n"); //$NON-NLS-1$
+		sb.append("<svg xmlns=\"http://www.w3.org/2000/svg\" xmlns:xlink=\"http://www.w3.org/1999/xlink\" version=\"1.1\""); //$NON-NLS-1$
+		sb.append(" width=\""); //$NON-NLS-1$
+		append(init.width);
+		sb.append("\" height=\""); //$NON-NLS-1$
+		append(init.height);
+		sb.append("\" viewBox=\"0 0 "); //$NON-NLS-1$
+		append(init.width);
+		sb.append(' ');
+		append(init.height);
+		sb.append("\">\n"); //$NON-NLS-1$
+		final String canvas = createPaint(init.canvasColor);
+		if (canvas != null) {
+			sb.append("<rect width=\"100%\" height=\"100%\" fill=\""); //$NON-NLS-1$
+			sb.append(canvas);
+			sb.append("\"/>\n"); //$NON-NLS-1$
+		}
+		flushBuffer();
+	}
+	
+	private void writeEnd() throws IOException {
+		final StringBuilder sb = this.sb;
+		if (this.clipCount > 0) {
+			sb.append("</g>\n"); //$NON-NLS-1$
+		}
+		sb.append("</svg>\n"); //$NON-NLS-1$
+		flushBuffer();
+	}
+	
+	private void flushBuffer() throws IOException {
+		this.out.append(this.sb);
+		this.sb.setLength(0);
+	}
+	
+	private void write(final RGraphicInstruction instruction) throws IOException {
+		switch (instruction.getInstructionType()) {
+		case RGraphicInstruction.SET_CLIP:
+			writeClip((RClipSetting) instruction);
+			break;
+		case RGraphicInstruction.SET_COLOR:
+			this.color = ((RColorSetting) instruction).color;
+			updateStroke();
+			updateText();
+			return;
+		case RGraphicInstruction.SET_FILL: {
+			final String paint = createPaint(((RFillSetting) instruction).color);
+			this.fillAttr = (paint != null) ?
+					createPaintAttr("fill", paint, ((RFillSetting) instruction).color) : null; //$NON-NLS-1$
+			return; }
+		case RGraphicInstruction.SET_LINE:
+			this.lineSetting = (RLineSetting) instruction;
+			updateStroke();
+			return;
+		case RGraphicInstruction.SET_FONT:
+			this.fontSetting = (RFontSetting) instruction;
+			this.font = null;
+			updateText();
+			return;
+		case RGraphicInstruction.DRAW_LINE: {
+			if (this.strokeAttr == null) {
+				return;
+			}
+			final RLine element = (RLine) instruction;
+			this.sb.append("<line x1=\""); //$NON-NLS-1$
+			append(element.x0);
+			this.sb.append("\" y1=\""); //$NON-NLS-1$
+			append(element.y0);
+			this.sb.append("\" x2=\""); //$NON-NLS-1$
+			append(element.x1);
+			this.sb.append("\" y2=\""); //$NON-NLS-1$
+			append(element.y1);
+			this.sb.append('"');
+			this.sb.append(this.strokeAttr);
+			this.sb.append("/>\n"); //$NON-NLS-1$
+			break; }
+		case RGraphicInstruction.DRAW_RECTANGLE: {
+			if (this.strokeAttr == null && this.fillAttr == null) {
+				return;
+			}
+			final RRect element = (RRect) instruction;
+			this.sb.append("<rect x=\""); //$NON-NLS-1$
+			append(Math.min(element.x0, element.x1));
+			this.sb.append("\" y=\""); //$NON-NLS-1$
+			append(Math.min(element.y0, element.y1));
+			this.sb.append("\" width=\""); //$NON-NLS-1$
+			append(Math.abs(element.x1 - element.x0));
+			this.sb.append("\" height=\""); //$NON-NLS-1$
+			append(Math.abs(element.y1 - element.y0));
+			this.sb.append('"');
+			appendShapeAttr();
+			this.sb.append("/>\n"); //$NON-NLS-1$
+			break; }
+		case RGraphicInstruction.DRAW_POLYLINE: {
+			if (this.strokeAttr == null) {
+				return;
+			}
+			final RPolyline element = (RPolyline) instruction;
+			this.sb.append("<polyline points=\""); //$NON-NLS-1$
+			appendPoints(element.x, element.y, 0, Math.min(element.x.length, element.y.length));
+			this.sb.append("\" fill=\"none\""); //$NON-NLS-1$
+			this.sb.append(this.strokeAttr);
+			this.sb.append("/>\n"); //$NON-NLS-1$
+			break; }
+		case RGraphicInstruction.DRAW_POLYGON: {
+			if (this.strokeAttr == null && this.fillAttr == null) {
+				return;
+			}
+			final RPolygon element = (RPolygon) instruction;
+			this.sb.append("<polygon points=\""); //$NON-NLS-1$
+			appendPoints(element.x, element.y, 0, Math.min(element.x.length, element.y.length));
+			this.sb.append('"');
+			appendShapeAttr();
+			this.sb.append("/>\n"); //$NON-NLS-1$
+			break; }
+		case RGraphicInstruction.DRAW_PATH:
+			if (this.strokeAttr == null && this.fillAttr == null) {
+				return;
+			}
+			writePath((RPath) instruction);
+			break;
+		case RGraphicInstruction.DRAW_CIRCLE: {
+			if (this.strokeAttr == null && this.fillAttr == null) {
+				return;
+			}
+			final RCircle element = (RCircle) instruction;
+			this.sb.append("<circle cx=\""); //$NON-NLS-1$
+			append(element.x);
+			this.sb.append("\" cy=\""); //$NON-NLS-1$
+			append(element.y);
+			this.sb.append("\" r=\""); //$NON-NLS-1$
+			append(element.r);
+			this.sb.append('"');
+			appendShapeAttr();
+			this.sb.append("/>\n"); //$NON-NLS-1$
+			break; }
+		case RGraphicInstruction.DRAW_TEXT:
+			if (this.textAttr == null) {
+				return;
+			}
+			writeText((RText) instruction);
+			break;
+		case RGraphicInstruction.DRAW_RASTER:
+			writeRaster((RRaster) instruction);
+			break;
+		default:
+			return;
+		}
+		if (this.sb.length() >= 0x2000) {
+			flushBuffer();
+		}
+	}
+	
+	
+	private void writeClip(final RClipSetting setting) {
+		final StringBuilder sb = this.sb;
+		if (this.clipCount > 0) {
+			sb.append("</g>\n"); //$NON-NLS-1$
+		}
+		final int id = ++this.clipCount;
+		sb.append("<clipPath id=\"clip"); //$NON-NLS-1$
+		sb.append(id);
+		sb.append("\"><rect x=\""); //$NON-NLS-1$
+		append(Math.min(setting.x0, setting.x1));
+		sb.append("\" y=\""); //$NON-NLS-1$
+		append(Math.min(setting.y0, setting.y1));
+		sb.append("\" width=\""); //$NON-NLS-1$
+		append(Math.abs(setting.x1 - setting.x0));
+		sb.append("\" height=\""); //$NON-NLS-1$
+		append(Math.abs(setting.y1 - setting.y0));
+		sb.append("\"/></clipPath>\n"); //$NON-NLS-1$
+		sb.append("<g clip-path=\"url(#clip"); //$NON-NLS-1$
+		sb.append(id);
+		sb.append(")\">\n"); //$NON-NLS-1$
+	}
+	
+	private void writePath(final RPath element) {
+		final StringBuilder sb = this.sb;
+		sb.append("<path d=\""); //$NON-NLS-1$
+		final int length = Math.min(element.x.length, element.y.length);
+		int k = 0;
+		for (int i = 0; i < element.n.length; i++) {
+			final int end = Math.min(k + element.n[i], length);
+			if (k < end) {
+				if (k > 0) {
+					sb.append(' ');
+				}
+				sb.append('M');
+				appendPoints(element.x, element.y, k, end);
+				sb.append('Z');
+				k = end;
+			}
+		}
+		sb.append("\" fill-rule=\""); //$NON-NLS-1$
+		sb.append(((element.mode & RClientGraphic.MASK_FILL_RULE) == RClientGraphic.FILL_WIND_NON_ZERO) ?
+				"nonzero" : "evenodd" ); //$NON-NLS-1$ //$NON-NLS-2$
+		sb.append('"');
+		appendShapeAttr();
+		sb.append("/>\n"); //$NON-NLS-1$
+	}
+	
+	private void writeText(final RText element) {
+		if (element.text.isEmpty()) {
+			return;
+		}
+		final StringBuilder sb = this.sb;
+		sb.append("<text"); //$NON-NLS-1$
+		final double hAdj = element.horizontalAdjust;
+		if (hAdj == 0 || hAdj == 0.5 || hAdj == 1) {
+			if (hAdj != 0) {
+				sb.append((hAdj == 1) ?
+						" text-anchor=\"end\"" : " text-anchor=\"middle\"" ); //$NON-NLS-1$ //$NON-NLS-2$
+			}
+			appendTextPosition(element, 0);
+		}
+		else {
+			if (this.font == null) {
+				this.font = Java2DGraphicRenderer.createFont(this.fontSetting, this.ppi);
+			}
+			final double width = this.font.createGlyphVector(
+					Java2DGraphicRenderer.FONT_RENDER_CONTEXT, element.text )
+					.getLogicalBounds().getWidth();
+			appendTextPosition(element, -width * hAdj);
+		}
+		sb.append(this.textAttr);
+		sb.append('>');
+		appendEscaped(element.text);
+		sb.append("</text>\n"); //$NON-NLS-1$
+	}
+	
+	private void appendTextPosition(final RText element, final double dx) {
+		final StringBuilder sb = this.sb;
+		if (element.rotateDegree == 0) {
+			sb.append(" x=\""); //$NON-NLS-1$
+			append(element.x + dx);
+			sb.append("\" y=\""); //$NON-NLS-1$
+			append(element.y);
+			sb.append('"');
+		}
+		else {
+			sb.append(" transform=\"translate("); //$NON-NLS-1$
+			append(element.x);
+			sb.append(',');
+			append(element.y);
+			sb.append(") rotate("); //$NON-NLS-1$
+			append(-element.rotateDegree);
+			sb.append(")\""); //$NON-NLS-1$
+			if (dx != 0) {
+				sb.append(" x=\""); //$NON-NLS-1$
+				append(dx);
+				sb.append('"');
+			}
+		}
+	}
+	
+	private void writeRaster(final RRaster element) throws IOException {
+		final BufferedImage image = Java2DGraphicRenderer.createImage(element);
+		if (image == null) {
+			return;
+		}
+		final StringBuilder sb = this.sb;
+		// (x, y) is the bottom left corner, the height is negative if the y axis is downwards
+		sb.append("<image transform=\"translate("); //$NON-NLS-1$
+		append(element.x);
+		sb.append(',');
+		append(element.y);
+		sb.append(')');
+		if (element.rotateDegree != 0) {
+			sb.append(" rotate("); //$NON-NLS-1$
+			append(-element.rotateDegree);
+			sb.append(')');
+		}
+		if (element.height > 0) {
+			sb.append(" scale(1,-1)"); //$NON-NLS-1$
+		}
+		sb.append("\" x=\"0\" y=\""); //$NON-NLS-1$
+		append(-Math.abs(element.height));
+		sb.append("\" width=\""); //$NON-NLS-1$
+		append(element.width);
+		sb.append("\" height=\""); //$NON-NLS-1$
+		append(Math.abs(element.height));
+		sb.append("\" preserveAspectRatio=\"none\""); //$NON-NLS-1$
+		if (!element.interpolate) {
+			sb.append(" image-rendering=\"optimizeSpeed\" style=\"image-rendering:pixelated\""); //$NON-NLS-1$
+		}
+		sb.append(" xlink:href=\"data:image/png;base64,"); //$NON-NLS-1$
+		flushBuffer();
+		
+		final Base64Output base64 = new Base64Output(this.out);
+		ImageIO.write(image, "png", base64); //$NON-NLS-1$
+		base64.close();
+		
+		sb.append("\"/>\n"); //$NON-NLS-1$
+	}
+	
+	
+	private void updateStroke() {
+		final String paint = createPaint(this.color);
+		final RLineSetting setting = this.lineSetting;
+		if (paint == null || (setting != null && setting.type == RLineSetting.TYPE_BLANK)) {
+			this.strokeAttr = null;
+			return;
+		}
+		final StringBuilder sb = new StringBuilder(createPaintAttr("stroke", paint, this.color)); //$NON-NLS-1$
+		// lwd = 1 is 1/96 inch
+		final double width = Math.max(((setting != null) ? setting.width : 1.0) * this.ppi / 96.0, 0.01);
+		sb.append(" stroke-width=\""); //$NON-NLS-1$
+		appendTo(sb, width);
+		sb.append('"');
+		if (setting == null) {
+			sb.append(" stroke-linecap=\"round\" stroke-linejoin=\"round\""); //$NON-NLS-1$
+			this.strokeAttr = sb.toString();
+			return;
+		}
+		switch (setting.cap) {
+		case RLineSetting.CAP_BUTT:
+			sb.append(" stroke-linecap=\"butt\""); //$NON-NLS-1$
+			break;
+		case RLineSetting.CAP_SQUARE:
+			sb.append(" stroke-linecap=\"square\""); //$NON-NLS-1$
+			break;
+		default:
+			sb.append(" stroke-linecap=\"round\""); //$NON-NLS-1$
+			break;
+		}
+		switch (setting.join) {
+		case RLineSetting.JOIN_MITER:
+			sb.append(" stroke-linejoin=\"miter\" stroke-miterlimit=\""); //$NON-NLS-1$
+			appendTo(sb, Math.max(setting.joinMiterLimit, 1f));
+			sb.append('"');
+			break;
+		case RLineSetting.JOIN_BEVEL:
+			sb.append(" stroke-linejoin=\"bevel\""); //$NON-NLS-1$
+			break;
+		default:
+			sb.append(" stroke-linejoin=\"round\""); //$NON-NLS-1$
+			break;
+		}
+		if (setting.type != RLineSetting.TYPE_SOLID) {
+			// each hex digit is the length of a segment (in units of the line width)
+			sb.append(" stroke-dasharray=\""); //$NON-NLS-1$
+			int dt = setting.type;
+			for (int i = 0; dt != 0 && i < 8; i++, dt >>>= 4) {
+				if (i > 0) {
+					sb.append(',');
+				}
+				appendTo(sb, Math.max((dt & 15), 1) * width);
+			}
+			sb.append('"');
+		}
+		this.strokeAttr = sb.toString();
+	}
+	
+	private void updateText() {
+		final String paint = createPaint(this.color);
+		if (paint == null) {
+			this.textAttr = null;
+			return;
+		}
+		final RFontSetting setting = this.fontSetting;
+		final StringBuilder sb = new StringBuilder(createPaintAttr("fill", paint, this.color)); //$NON-NLS-1$
+		sb.append(" font-family=\""); //$NON-NLS-1$
+		String family = (setting != null && setting.family != null) ? setting.family : ""; //$NON-NLS-1$
+		switch (family.toLowerCase()) {
+		case "serif": //$NON-NLS-1$
+		case "times": //$NON-NLS-1$
+			family = "serif"; //$NON-NLS-1$
+			break;
+		case "mono": //$NON-NLS-1$
+		case "courier": //$NON-NLS-1$
+			family = "monospace"; //$NON-NLS-1$
+			break;
+		case "": //$NON-NLS-1$
+		case "sans": //$NON-NLS-1$
+		case "helvetica": //$NON-NLS-1$
+			family = "sans-serif"; //$NON-NLS-1$
+			break;
+		default:
+			break;
+		}
+		if (setting != null && setting.face == 5) {
+			family = "serif"; //$NON-NLS-1$
+		}
+		appendEscaped(sb, family);
+		sb.append("\" font-size=\""); //$NON-NLS-1$
+		appendTo(sb, ((setting != null) ? setting.pointSize : 12.0) * this.ppi / 72.0);
+		sb.append('"');
+		if (setting != null) {
+			if (setting.face == 2 || setting.face == 4) {
+				sb.append(" font-weight=\"bold\""); //$NON-NLS-1$
+			}
+			if (setting.face == 3 || setting.face == 4) {
+				sb.append(" font-style=\"italic\""); //$NON-NLS-1$
+			}
+		}
+		this.textAttr = sb.toString();
+	}
+	
+	private static String createPaint(final int color) {
+		if (((color >> 24) & 255) == 0) {
+			return null;
+		}
+		final StringBuilder sb = new StringBuilder(7);
+		sb.append('#');
+		appendHex(sb, color & 255);
+		appendHex(sb, (color >> 8) & 255);
+		appendHex(sb, (color >> 16) & 255);
+		return sb.toString();
+	}
+	
+	private static String createPaintAttr(final String name, final String paint, final int color) {
+		final int alpha = ((color >> 24) & 255);
+		final StringBuilder sb = new StringBuilder(32);
+		sb.append(' ');
+		sb.append(name);
+		sb.append("=\""); //$NON-NLS-1$
+		sb.append(paint);
+		sb.append('"');
+		if (alpha != 255) {
+			sb.append(' ');
+			sb.append(name);
+			sb.append("-opacity=\""); //$NON-NLS-1$
+			appendTo(sb, alpha / 255.0);
+			sb.append('"');
+		}
+		return sb.toString();
+	}
+	
+	private static void appendHex(final StringBuilder sb, final int value) {
+		sb.append(Character.forDigit(value >> 4, 16));
+		sb.append(Character.forDigit(value & 15, 16));
+	}
+	
+	private void appendShapeAttr() {
+		this.sb.append((this.fillAttr != null) ? this.fillAttr : " fill=\"none\""); //$NON-NLS-1$
+		if (this.strokeAttr != null) {
+			this.sb.append(this.strokeAttr);
+		}
+	}
+	
+	private void appendPoints(final double[] x, final double[] y, final int start, final int end) {
+		final StringBuilder sb = this.sb;
+		for (int i = start; i < end; i++) {
+			if (i > start) {
+				sb.append(' ');
+			}
+			append(x[i]);
+			sb.append(',');
+			append(y[i]);
+		}
+	}
+	
+	private void append(final double value) {
+		appendTo(this.sb, value);
+	}
+	
+	/**
+	 * Appends the number rounded to 2 decimal places.
+	 */
+	private static void appendTo(final StringBuilder sb, final double value) {
+		final long scaled = Math.round(value * 100);
+		if (scaled % 100 == 0) {
+			sb.append(scaled / 100);
+		}
+		else {
+			sb.append(scaled / 100.0);
+		}
+	}
+	
+	private void appendEscaped(final String s) {
+		appendEscaped(this.sb, s);
+	}
+	
+	private static void appendEscaped(final StringBuilder sb, final String s) {
+		for (int i = 0; i < s.length(); i++) {
+			final char c = s.charAt(i);
+			switch (c) {
+			case '&':
+				sb.append("&amp;"); //$NON-NLS-1$
+				break;
+			case '<':
+				sb.append("&lt;"); //$NON-NLS-1$
+				break;
+			case '>':
+				sb.append("&gt;"); //$NON-NLS-1$
+				break;
+			case '"':
+				sb.append("&quot;"); //$NON-NLS-1$
+				break;
+			default:
+				if (c < 0x20 && c != '\t' && c != '\n' && c != '\r') {
+					break; // not allowed in XML
+				}
+				sb.append(c);
+				break;
+			}
+		}
+	}
+	
+}
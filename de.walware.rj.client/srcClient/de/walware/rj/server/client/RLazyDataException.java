@@ -0,0 +1,42 @@
+/*=============================================================================#
+ # Copyright (c) 2016 Stephan Wahlbrink (WalWare.de) and others.
+ # All rights reserved. This program and the accompanying materials
+ # are made available under the terms of the Eclipse Public License v1.0
+ # which accompanies this distribution, and is available at
+ # http://www.eclipse.org/legal/epl-v10.html
+ # 
+ # Contributors:
+ #     Stephan Wahlbrink - initial API and implementation
+ #=============================================================================*/
+
+package de.walware.rj.server.client;
+
+import org.eclipse.core.runtime.CoreException;
+import org.eclipse.core.runtime.IStatus;
+
+
+/**
+ * Unchecked exception thrown by the proxies of {@link RLazyDataLoader} if lazy R data could
+ * not be loaded.
+ */
+public class RLazyDataException extends RuntimeException {
+	
+	
+	private static final long serialVersionUID = -2895409316572241076L;
+	
+	
+	public RLazyDataException(final CoreException cause) {
+		super(cause.getMessage(), cause);
+	}
+	
+	
+	/**
+	 * Returns the status of the failed operation.
+	 * 
+	 * @return the status
+	 */
+	public IStatus getStatus() {
+		return ((CoreException) getCause()).getStatus();
+	}
+	
+}
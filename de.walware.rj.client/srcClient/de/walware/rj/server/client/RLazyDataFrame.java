@@ -0,0 +1,96 @@
+/*=============================================================================#
+ # Copyright (c) 2016 Stephan Wahlbrink (WalWare.de) and others.
+ # All rights reserved. This program and the accompanying materials
+ # are made available under the terms of the Eclipse Public License v1.0
+ # which accompanies this distribution, and is available at
+ # http://www.eclipse.org/legal/epl-v10.html
+ # 
+ # Contributors:
+ #     Stephan Wahlbrink - initial API and implementation
+ #=============================================================================*/
+
+package de.walware.rj.server.client;
+
+import de.walware.rj.data.RCharacterStore;
+import de.walware.rj.data.RDataFrame;
+import de.walware.rj.data.RObject;
+import de.walware.rj.data.RReference;
+import de.walware.rj.data.RStore;
+import de.walware.rj.data.defaultImpl.RObjectFactoryImpl;
+import de.walware.rj.server.DataCmdItem;
+
+
+/**
+ * Proxy for a data frame loaded by {@link RLazyDataLoader} without the data of the columns.
+ */
+final class RLazyDataFrame extends RLazyList implements RDataFrame {
+	
+	
+	private final RDataFrame delegate;
+	
+	private RStore<?> rowNames;
+	private boolean rowNamesLoaded;
+	
+	
+	public RLazyDataFrame(final RLazyDataLoader loader, final RDataFrame delegate,
+			final RReference reference) {
+		super(loader, delegate, reference);
+		this.delegate = delegate;
+	}
+	
+	
+	@Override
+	public long getColumnCount() {
+		return this.delegate.getColumnCount();
+	}
+	
+	@Override
+	public RCharacterStore getColumnNames() {
+		return this.delegate.getColumnNames();
+	}
+	
+	@Override
+	public RStore<?> getColumn(final int idx) {
+		final RObject obj = get(idx);
+		return (obj != null) ? obj.getData() : null;
+	}
+	
+	@Override
+	public RStore<?> getColumn(final long idx) {
+		final RObject obj = get(idx);
+		return (obj != null) ? obj.getData() : null;
+	}
+	
+	@Override
+	public RStore<?> getColumn(final String name) {
+		final RObject obj = get(name);
+		return (obj != null) ? obj.getData() : null;
+	}
+	
+	@Override
+	public long getRowCount() {
+		return this.delegate.getRowCount();
+	}
+	
+	@Override
+	public RStore<?> getRowNames() {
+		if (!this.rowNamesLoaded) {
+			final RObject data = this.loader.load(this.loader.createFCallRequest("row.names", //$NON-NLS-1$
+					new RObject[] { this.reference }, false ));
+			if (data != null) {
+				this.rowNames = data.getData();
+			}
+			this.rowNamesLoaded = true;
+		}
+		return this.rowNames;
+	}
+	
+	
+	@Override
+	DataCmdItem createResolveRequest(final int idx) {
+		return this.loader.createFCallRequest(".subset2", new RObject[] { //$NON-NLS-1$
+				this.reference, RObjectFactoryImpl.INSTANCE.createIntVector(new int[] { idx + 1 }) },
+				false );
+	}
+	
+}
@@ -0,0 +1,330 @@
+/*=============================================================================#
+ # Copyright (c) 2016 Stephan Wahlbrink (WalWare.de) and others.
+ # All rights reserved. This program and the accompanying materials
+ # are made available under the terms of the Eclipse Public License v1.0
+ # which accompanies this distribution, and is available at
+ # http://www.eclipse.org/legal/epl-v10.html
+ # 
+ # Contributors:
+ #     Stephan Wahlbrink - initial API and implementation
+ #=============================================================================*/
+
+package de.walware.rj.server.client;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+import org.eclipse.core.runtime.CoreException;
+import org.eclipse.core.runtime.IProgressMonitor;
+import org.eclipse.core.runtime.IStatus;
+import org.eclipse.core.runtime.NullProgressMonitor;
+
+import de.walware.rj.data.RDataFrame;
+import de.walware.rj.data.REnvironment;
+import de.walware.rj.data.RList;
+import de.walware.rj.data.RObject;
+import de.walware.rj.data.RObjectFactory;
+import de.walware.rj.data.RReference;
+import de.walware.rj.data.defaultImpl.RObjectFactoryImpl;
+import de.walware.rj.server.DataCmdItem;
+import de.walware.rj.server.MainCmdItem;
+import de.walware.rj.services.RService;
+
+
+/**
+ * Loader for R data resolving the children of lists, environments and data frames on first
+ * access.
+ * <p>
+ * The data is loaded with the option {@link RService#LOAD_LAZY}, so R objects beyond the depth
+ * are transfered as references pinned at the server. The lists, environments and data frames
+ * returned by the loader are proxies resolving these references on demand; unresolved siblings
+ * are resolved together in one batch. Data frames resolved from a reference are loaded without
+ * data, their columns, row names and the attributes of resolved objects are loaded on first
+ * access too.</p>
+ * <p>
+ * The pinned references must be released by {@link #release(IProgressMonitor)} if the data is
+ * no longer required. If a child cannot be resolved, the proxy throws a
+ * {@link RLazyDataException}; after the loader is released, an {@link IllegalStateException}.</p>
+ * <p>
+ * The proxies load data when their children, attributes or row names are accessed. Like all
+ * methods of the loader, they must be called in the thread owning the client or otherwise
+ * not concurrently to other operations of the client (see {@link RAsyncEvaluator}).</p>
+ */
+public class RLazyDataLoader {
+	
+	
+	private static final int BATCH_SIZE = 32;
+	
+	
+	private final AbstractRJComClient rjs;
+	
+	private final String factoryId;
+	private final int options;
+	private final byte depth;
+	
+	/** Pinned references, handle to count */
+	private final Map<Long, int[]> pinned = new HashMap<>();
+	private int pinnedCount;
+	private boolean released;
+	
+	
+	/**
+	 * Creates a new loader.
+	 * 
+	 * @param client the client
+	 * @param factoryId the id of the factory to use
+	 * @param options the options for the data evaluations
+	 * @param depth the depth to load per request, at least <code>1</code>
+	 */
+	public RLazyDataLoader(final AbstractRJComClient client,
+			final String factoryId, final int options, final int depth) {
+		if (client == null) {
+			throw new NullPointerException("client");
+		}
+		if (depth < 1) {
+			throw new IllegalArgumentException("depth");
+		}
+		this.rjs = client;
+		this.factoryId = factoryId;
+		// cached results would share the pinned references
+		this.options = ((options | RService.LOAD_LAZY) & ~RService.CACHE_RESULT);
+		this.depth = (depth < Byte.MAX_VALUE) ? (byte) depth : Byte.MAX_VALUE;
+	}
+	
+	
+	/**
+	 * Evaluates the expression and returns the R data with lazy children.
+	 * 
+	 * @param expression a single valid R expression to evaluate
+	 * @param envir the environment where to perform the evaluation or <code>null</code>
+	 * @param monitor
+	 * @return the R data
+	 * @throws CoreException if the operation was canceled or failed
+	 */
+	public synchronized RObject evalData(final String expression, final RObject envir,
+			final IProgressMonitor monitor) throws CoreException {
+		if (expression == null) {
+			throw new NullPointerException("expression");
+		}
+		if (envir != null && !this.rjs.isValidEnvir(envir)) {
+			throw new IllegalArgumentException("envir");
+		}
+		return createProxy(evalData(new DataCmdItem(DataCmdItem.EVAL_EXPR_DATA,
+						this.options, this.depth, expression, null, null, envir, this.factoryId ),
+						monitor ),
+				null );
+	}
+	
+	/**
+	 * Resolves the reference and returns the R data with lazy children.
+	 * 
+	 * @param reference the reference
+	 * @param monitor
+	 * @return the R data
+	 * @throws CoreException if the operation was canceled or failed
+	 */
+	public synchronized RObject resolve(final RReference reference,
+			final IProgressMonitor monitor) throws CoreException {
+		if (reference == null) {
+			throw new NullPointerException("reference");
+		}
+		return createProxy(evalData(createResolveRequest(reference), monitor), reference);
+	}
+	
+	/**
+	 * Returns the number of references currently pinned by this loader.
+	 * 
+	 * @return the count
+	 */
+	public synchronized int getPinnedCount() {
+		return this.pinnedCount;
+	}
+	
+	/**
+	 * Releases all references pinned by this loader.
+	 * <p>
+	 * The proxies created by the loader no longer resolve children after calling this
+	 * method.</p>
+	 * 
+	 * @param monitor
+	 * @throws CoreException if the operation was canceled or failed
+	 */
+	public synchronized void release(final IProgressMonitor monitor) throws CoreException {
+		this.released = true;
+		if (this.pinnedCount == 0) {
+			return;
+		}
+		final long[] handles = new long[this.pinnedCount];
+		int i = 0;
+		for (final Map.Entry<Long, int[]> entry : this.pinned.entrySet()) {
+			final long handle = entry.getKey().longValue();
+			for (int j = 0; j < entry.getValue()[0]; j++) {
+				handles[i++] = handle;
+			}
+		}
+		this.pinned.clear();
+		this.pinnedCount = 0;
+		this.rjs.releaseData(handles, monitor);
+	}
+	
+	
+	private RObject evalData(final DataCmdItem request,
+			final IProgressMonitor monitor) throws CoreException {
+		final DataCmdItem answer = evalBatch(new DataCmdItem[] { request }, monitor)[0];
+		if (answer == null || !answer.isOK()) {
+			throw new CoreException(RBatchImpl.createStatus(answer));
+		}
+		return answer.getData();
+	}
+	
+	private DataCmdItem[] evalBatch(final DataCmdItem[] requests,
+			final IProgressMonitor monitor) throws CoreException {
+		final boolean[] lazy = new boolean[requests.length];
+		for (int i = 0; i < requests.length; i++) {
+			lazy[i] = ((requests[i].getCmdOption() & RService.LOAD_LAZY) != 0);
+		}
+		final MainCmdItem[] answers = this.rjs.evalDataBatch(requests, monitor);
+		final DataCmdItem[] dataAnswers = new DataCmdItem[answers.length];
+		for (int i = 0; i < answers.length; i++) {
+			if (answers[i] instanceof DataCmdItem) {
+				dataAnswers[i] = (DataCmdItem) answers[i];
+				if (lazy[i] && dataAnswers[i].isOK()) {
+					addPinned(dataAnswers[i].getDataText());
+				}
+			}
+		}
+		return dataAnswers;
+	}
+	
+	private void addPinned(final String handles) {
+		if (handles == null || handles.isEmpty()) {
+			return;
+		}
+		for (final String handle : handles.split(",")) { //$NON-NLS-1$
+			final Long key = Long.valueOf(handle);
+			final int[] count = this.pinned.get(key);
+			if (count != null) {
+				count[0]++;
+			}
+			else {
+				this.pinned.put(key, new int[] { 1 });
+			}
+			this.pinnedCount++;
+		}
+	}
+	
+	
+	boolean isLazyReference(final RObject obj) {
+		return (obj instanceof RReference
+				&& this.pinned.containsKey(Long.valueOf(((RReference) obj).getHandle())) );
+	}
+	
+	DataCmdItem createResolveRequest(final RReference reference) {
+		int options = this.options;
+		if (reference.getReferencedRObjectType() == RObject.TYPE_DATAFRAME) {
+			options |= RObjectFactory.F_ONLY_STRUCT;
+		}
+		return new DataCmdItem(DataCmdItem.RESOLVE_DATA,
+				options, this.depth, Long.toString(reference.getHandle()), null, null, null,
+				this.factoryId );
+	}
+	
+	DataCmdItem createFCallRequest(final String name, final RObject[] args, final boolean lazy) {
+		return new DataCmdItem(DataCmdItem.EVAL_FCALL_DATA,
+				(lazy) ? this.options : (this.options & ~RService.LOAD_LAZY), this.depth,
+				name, RObjectFactoryImpl.INSTANCE.createList(args, null), null, null,
+				this.factoryId );
+	}
+	
+	RObject createProxy(final RObject data, final RReference reference) {
+		if (data == null || data.getLength() > Integer.MAX_VALUE) {
+			return data;
+		}
+		switch (data.getRObjectType()) {
+		case RObject.TYPE_LIST:
+			return (data instanceof RList) ?
+					new RLazyList(this, (RList) data, reference) : data;
+		case RObject.TYPE_ENV:
+			return (data instanceof REnvironment) ?
+					new RLazyEnvironment(this, (REnvironment) data, reference) : data;
+		case RObject.TYPE_DATAFRAME:
+			// columns are not loaded only if resolved from a reference
+			return (data instanceof RDataFrame && reference != null) ?
+					new RLazyDataFrame(this, (RDataFrame) data, reference) : data;
+		default:
+			return data;
+		}
+	}
+	
+	/**
+	 * Resolves the children of the list starting at the specified index.
+	 * 
+	 * @param list the list
+	 * @param idx the index of the child to resolve
+	 */
+	synchronized void resolve(final RLazyList list, final int idx) {
+		checkReleased();
+		final int length = list.getChildCount();
+		final List<DataCmdItem> requests = new ArrayList<>();
+		final int[] idxs = new int[BATCH_SIZE];
+		for (int i = idx; i < length && requests.size() < BATCH_SIZE; i++) {
+			if (!list.isResolved(i)) {
+				final DataCmdItem request = list.createResolveRequest(i);
+				if (request != null) {
+					idxs[requests.size()] = i;
+					requests.add(request);
+				}
+			}
+		}
+		if (requests.isEmpty()) {
+			return;
+		}
+		final DataCmdItem[] answers;
+		try {
+			answers = evalBatch(requests.toArray(new DataCmdItem[requests.size()]),
+					new NullProgressMonitor() );
+		}
+		catch (final CoreException e) {
+			throw new RLazyDataException(e);
+		}
+		IStatus failure = null;
+		for (int i = 0; i < answers.length; i++) {
+			if (answers[i] != null && answers[i].isOK()) {
+				list.setResolved(idxs[i], answers[i].getData());
+			}
+			else if (idxs[i] == idx) {
+				// failed siblings remain unresolved
+				failure = RBatchImpl.createStatus(answers[i]);
+			}
+		}
+		if (failure != null) {
+			throw new RLazyDataException(new CoreException(failure));
+		}
+	}
+	
+	/**
+	 * Loads the result of a function call for a proxy.
+	 * 
+	 * @return the result
+	 * @throws RLazyDataException if the loading failed
+	 */
+	synchronized RObject load(final DataCmdItem request) {
+		checkReleased();
+		try {
+			final RObject data = evalData(request, new NullProgressMonitor());
+			return createProxy(data, null);
+		}
+		catch (final CoreException e) {
+			throw new RLazyDataException(e);
+		}
+	}
+	
+	private void checkReleased() {
+		if (this.released) {
+			throw new IllegalStateException("The lazy data loader is released.");
+		}
+	}
+	
+}
@@ -0,0 +1,49 @@
+/*=============================================================================#
+ # Copyright (c) 2016 Stephan Wahlbrink (WalWare.de) and others.
+ # All rights reserved. This program and the accompanying materials
+ # are made available under the terms of the Eclipse Public License v1.0
+ # which accompanies this distribution, and is available at
+ # http://www.eclipse.org/legal/epl-v10.html
+ # 
+ # Contributors:
+ #     Stephan Wahlbrink - initial API and implementation
+ #=============================================================================*/
+
+package de.walware.rj.server.client;
+
+import de.walware.rj.data.REnvironment;
+import de.walware.rj.data.RReference;
+
+
+/**
+ * Proxy for an environment loaded by {@link RLazyDataLoader}.
+ */
+final class RLazyEnvironment extends RLazyList implements REnvironment {
+	
+	
+	private final REnvironment delegate;
+	
+	
+	public RLazyEnvironment(final RLazyDataLoader loader, final REnvironment delegate,
+			final RReference reference) {
+		super(loader, delegate, reference);
+		this.delegate = delegate;
+	}
+	
+	
+	@Override
+	public int getSpecialType() {
+		return this.delegate.getSpecialType();
+	}
+	
+	@Override
+	public String getEnvironmentName() {
+		return this.delegate.getEnvironmentName();
+	}
+	
+	@Override
+	public long getHandle() {
+		return this.delegate.getHandle();
+	}
+	
+}
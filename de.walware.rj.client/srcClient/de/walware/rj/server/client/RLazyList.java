@@ -0,0 +1,166 @@
+/*=============================================================================#
+ # Copyright (c) 2016 Stephan Wahlbrink (WalWare.de) and others.
+ # All rights reserved. This program and the accompanying materials
+ # are made available under the terms of the Eclipse Public License v1.0
+ # which accompanies this distribution, and is available at
+ # http://www.eclipse.org/legal/epl-v10.html
+ # 
+ # Contributors:
+ #     Stephan Wahlbrink - initial API and implementation
+ #=============================================================================*/
+
+package de.walware.rj.server.client;
+
+import de.walware.rj.data.RCharacterStore;
+import de.walware.rj.data.RList;
+import de.walware.rj.data.RObject;
+import de.walware.rj.data.RReference;
+import de.walware.rj.data.RStore;
+import de.walware.rj.server.DataCmdItem;
+
+
+/**
+ * Proxy for a list loaded by {@link RLazyDataLoader}.
+ * <p>
+ * The children are resolved on access; see {@link RLazyDataLoader} for the thread contract and
+ * the exceptions thrown if resolving fails.</p>
+ */
+class RLazyList implements RList {
+	
+	
+	final RLazyDataLoader loader;
+	
+	private final RList delegate;
+	final RReference reference;
+	
+	private final RObject[] children;
+	
+	private RList attributes;
+	private boolean attributesLoaded;
+	
+	
+	public RLazyList(final RLazyDataLoader loader, final RList delegate,
+			final RReference reference) {
+		this.loader = loader;
+		this.delegate = delegate;
+		this.reference = reference;
+		this.children = new RObject[(int) delegate.getLength()];
+	}
+	
+	
+	@Override
+	public byte getRObjectType() {
+		return this.delegate.getRObjectType();
+	}
+	
+	@Override
+	public String getRClassName() {
+		return this.delegate.getRClassName();
+	}
+	
+	@Override
+	public long getLength() {
+		return this.delegate.getLength();
+	}
+	
+	@Override
+	public RCharacterStore getNames() {
+		return this.delegate.getNames();
+	}
+	
+	@Override
+	public String getName(final int idx) {
+		return this.delegate.getName(idx);
+	}
+	
+	@Override
+	public String getName(final long idx) {
+		return this.delegate.getName(idx);
+	}
+	
+	@Override
+	public RObject get(final int idx) {
+		RObject child = this.children[idx];
+		if (child == null) {
+			this.loader.resolve(this, idx);
+			child = this.children[idx];
+		}
+		return child;
+	}
+	
+	@Override
+	public RObject get(final long idx) {
+		if (idx < 0 || idx >= this.children.length) {
+			throw new IndexOutOfBoundsException(Long.toString(idx));
+		}
+		return get((int) idx);
+	}
+	
+	@Override
+	public RObject get(final String name) {
+		final RCharacterStore names = getNames();
+		if (names != null) {
+			final long idx = names.indexOf(name);
+			if (idx >= 0) {
+				return get((int) idx);
+			}
+		}
+		return null;
+	}
+	
+	@Override
+	public RStore<?> getData() {
+		return this.delegate.getData();
+	}
+	
+	@Override
+	public RList getAttributes() {
+		if (!this.attributesLoaded && this.reference != null) {
+			final RObject data = this.loader.load(this.loader.createFCallRequest("attributes", //$NON-NLS-1$
+					new RObject[] { this.reference }, true ));
+			if (data instanceof RList) {
+				this.attributes = (RList) data;
+			}
+			this.attributesLoaded = true;
+		}
+		return (this.attributes != null) ? this.attributes : this.delegate.getAttributes();
+	}
+	
+	
+	int getChildCount() {
+		return this.children.length;
+	}
+	
+	boolean isResolved(final int idx) {
+		return (this.children[idx] != null);
+	}
+	
+	/**
+	 * Returns the request to resolve the child, or sets the child directly, if it doesn't
+	 * require a request.
+	 * 
+	 * @param idx the index of the child
+	 * @return the request or <code>null</code>
+	 */
+	DataCmdItem createResolveRequest(final int idx) {
+		final RObject child = this.delegate.get(idx);
+		if (this.loader.isLazyReference(child)) {
+			return this.loader.createResolveRequest((RReference) child);
+		}
+		this.children[idx] = this.loader.createProxy(child, null);
+		return null;
+	}
+	
+	void setResolved(final int idx, final RObject data) {
+		final RObject child = this.delegate.get(idx);
+		this.children[idx] = this.loader.createProxy(data,
+				(child instanceof RReference) ? (RReference) child : null );
+	}
+	
+	
+	@Override
+	public String toString() {
+		return this.delegate.toString();
+	}
+	
+}
@@ -0,0 +1,147 @@
+/*=============================================================================#
+ # Copyright (c) 2016 Stephan Wahlbrink (WalWare.de) and others.
+ # All rights reserved. This program and the accompanying materials
+ # are made available under the terms of the Eclipse Public License v1.0
+ # which accompanies this distribution, and is available at
+ # http://www.eclipse.org/legal/epl-v10.html
+ # 
+ # Contributors:
+ #     Stephan Wahlbrink - initial API and implementation
+ #=============================================================================*/
+
+package de.walware.rj.services;
+
+import org.eclipse.core.runtime.CoreException;
+import org.eclipse.core.runtime.IProgressMonitor;
+import org.eclipse.core.runtime.IStatus;
+
+import de.walware.rj.data.RObject;
+
+
+/**
+ * A batch collects several evaluations and assignments which are sent to R and executed
+ * together.
+ * 
+ * <p>A batch can be created by {@link RService#createBatch()}.</p>
+ * 
+ * <p>The commands are added by the <code>#add...()</code> methods and executed by
+ * {@link #evaluate(IProgressMonitor)} in the order they are added. In contrast to the
+ * single operations of the {@link RService}, the batch requires only one exchange with R
+ * for all commands, which saves the latency of the other exchanges. The failure of a single
+ * command does not stop the execution of the following commands; the result of each command
+ * can be checked after the evaluation by {@link #getStatus(int)} and {@link #getData(int)}.</p>
+ * 
+ * <p>The common guidelines in {@link RService} (like concurrency) are effective
+ * for all evaluation methods in this interface.</p>
+ * 
+ * @since de.walware.rj.services 2.1
+ */
+public interface RBatch {
+	
+	
+	/**
+	 * Adds the evaluation of the given expression without returning a value.
+	 * 
+	 * @param expression a single valid R expression to evaluate
+	 * @param envir the environment where to perform the evaluation; specified by an reference
+	 *     or language object, or <code>null</code> for the global environment
+	 * @return the index of the command in the batch
+	 * @see RService#evalVoid(String, RObject, IProgressMonitor)
+	 */
+	int addEvalVoid(String expression, RObject envir);
+	
+	/**
+	 * Adds the evaluation of the given function call without returning a value.
+	 * 
+	 * @param call the function call created by the same RService
+	 * @param envir the environment where to perform the evaluation; specified by an reference
+	 *     or language object, or <code>null</code> for the global environment
+	 * @return the index of the command in the batch
+	 * @throws CoreException if the operation failed; the status
+	 *     of the exception contains detail about the cause
+	 * @see FunctionCall#evalVoid(RObject, IProgressMonitor)
+	 */
+	int addEvalVoid(FunctionCall call, RObject envir) throws CoreException;
+	
+	/**
+	 * Adds the evaluation of the given expression returning its value.
+	 * 
+	 * @param expression a single valid R expression to evaluate
+	 * @param envir the environment where to perform the evaluation; specified by an reference
+	 *     or language object, or <code>null</code> for the global environment
+	 * @param factoryId the id of the factory to use when creating the RObject in this VM.
+	 * @param options 0
+	 * @param depth object tree depth for the created return value
+	 * @return the index of the command in the batch
+	 * @see RService#evalData(String, RObject, String, int, int, IProgressMonitor)
+	 */
+	int addEvalData(String expression, RObject envir,
+			String factoryId, int options, int depth);
+	
+	/**
+	 * Adds the evaluation of the given function call returning its value.
+	 * 
+	 * @param call the function call created by the same RService
+	 * @param envir the environment where to perform the evaluation; specified by an reference
+	 *     or language object, or <code>null</code> for the global environment
+	 * @param factoryId the id of the factory to use when creating the RObject in this VM.
+	 * @param options 0
+	 * @param depth object tree depth for the created return value
+	 * @return the index of the command in the batch
+	 * @throws CoreException if the operation failed; the status
+	 *     of the exception contains detail about the cause
+	 * @see FunctionCall#evalData(RObject, String, int, int, IProgressMonitor)
+	 */
+	int addEvalData(FunctionCall call, RObject envir,
+			String factoryId, int options, int depth) throws CoreException;
+	
+	/**
+	 * Adds the assignment of the given R data object to an expression.
+	 * 
+	 * @param target a single valid expression to assign the data to
+	 * @param data a valid R data object to assign
+	 * @param envir the environment where to perform the assignment; specified by an reference
+	 *     or language object, or <code>null</code> for the global environment
+	 * @return the index of the command in the batch
+	 * @see RService#assignData(String, RObject, IProgressMonitor)
+	 */
+	int addAssignData(String target, RObject data, RObject envir);
+	
+	/**
+	 * Returns the number of commands in the batch.
+	 * 
+	 * @return the number of commands
+	 */
+	int getCount();
+	
+	/**
+	 * Executes all commands of the batch.
+	 * 
+	 * <p>The method returns after the execution of all commands is finished. The batch can be
+	 * executed only once.</p>
+	 * 
+	 * @param monitor a progress monitor to catch cancellation and provide progress feedback
+	 * @throws CoreException if the operation was canceled or the exchange failed; the status
+	 *     of the exception contains detail about the cause
+	 */
+	void evaluate(IProgressMonitor monitor) throws CoreException;
+	
+	/**
+	 * Returns the status of the command with the specified index after the execution.
+	 * 
+	 * @param idx the index of the command
+	 * @return the status
+	 */
+	IStatus getStatus(int idx);
+	
+	/**
+	 * Returns the value returned by the command with the specified index after the execution.
+	 * 
+	 * @param idx the index of the command
+	 * @return the value as R data object or <code>null</code> for commands without value
+	 * @throws CoreException if the command was canceled or failed; the status
+	 *     of the exception contains detail about the cause
+	 */
+	RObject getData(int idx) throws CoreException;
+	
+}
@@ -11,6 +11,7 @@
 
 package de.walware.rj.services;
 
+import java.io.File;
 import java.io.InputStream;
 import java.io.OutputStream;
 
@@ -95,6 +96,39 @@ public interface RService {
 	 **/
 	int LOAD_PROMISE=                                       1 << 5;
 	
+	/**
+	 * Option flag indicating to create references for R objects beyond the depth instead of
+	 * omitting them.
+	 * <p>
+	 * The referenced R objects are pinned at the server until they are released, so the
+	 * references can be resolved later on demand.</p>
+	 * 
+	 * @since de.walware.rj.services 2.1
+	 **/
+	int LOAD_LAZY=                                          1 << 6;
+	
+	/**
+	 * Option flag indicating that the evaluation is free of side effects and its result can be
+	 * cached by the client.
+	 * <p>
+	 * The flag is a hint only; the result is cached only if the client supports and enabled
+	 * caching. A cached result is valid until the next operation which possibly changes the
+	 * state of R.</p>
+	 * 
+	 * @since de.walware.rj.services 2.1
+	 **/
+	int CACHE_RESULT=                                       1 << 8;
+	
+	/**
+	 * Option flag for file transfers by chunks indicating to resume a previous transfer:
+	 * chunks already existing at the target with equal checksum are not transferred again.
+	 * 
+	 * @see #uploadFile(File, String, int, IProgressMonitor)
+	 * @see #downloadFile(File, String, int, IProgressMonitor)
+	 * @since de.walware.rj.services 2.1
+	 **/
+	int FILE_RESUME=                                        1 << 0;
+	
 	
 	RPlatform getPlatform();
 	
@@ -257,6 +291,29 @@ public interface RService {
 	
 //	void uploadFile(byte[], long length, String fileName, int options, IProgressMonitor monitor) throws CoreException;
 	
+	/**
+	 * Uploads a local file to a file on the R host system.
+	 * <p>
+	 * In contrast to {@link #uploadFile(InputStream, long, String, int, IProgressMonitor)}
+	 * the file is transferred by several chunks in parallel, each secured by a checksum.
+	 * Chunks failed because of a broken connection are repeated. This method is recommended
+	 * for large files.</p>
+	 * <p>
+	 * The file name can be relative or absolute. A relative file name is handled relative
+	 * to the current R working directory. An absolute file name must be a valid absolute
+	 * path on the R host system.</p>
+	 * 
+	 * @param file the local file
+	 * @param fileName the name of the file on the R host system
+	 * @param options 0 or {@link #FILE_RESUME}
+	 * @param monitor a progress monitor to catch cancellation and provide progress feedback
+	 * @throws CoreException if the operation was canceled or failed; the status
+	 *     of the exception contains detail about the cause
+	 * @since de.walware.rj.services 2.1
+	 */
+	void uploadFile(File file, String fileName, int options,
+			IProgressMonitor monitor) throws CoreException;
+	
 	/**
 	 * Downloads a file on the R host system to a local file or another output stream.
 	 * <p>
@@ -290,6 +347,29 @@ public interface RService {
 	void downloadFile(OutputStream out, String fileName, int options,
 			IProgressMonitor monitor) throws CoreException;
 	
+	/**
+	 * Downloads a file on the R host system to a local file.
+	 * <p>
+	 * In contrast to {@link #downloadFile(OutputStream, String, int, IProgressMonitor)}
+	 * the file is transferred by several chunks in parallel, each secured by a checksum.
+	 * Chunks failed because of a broken connection are repeated. This method is recommended
+	 * for large files.</p>
+	 * <p>
+	 * The file name can be relative or absolute. A relative file name is handled relative
+	 * to the current R working directory. An absolute file name must be a valid absolute
+	 * path on the R host system.</p>
+	 * 
+	 * @param file the local file, an existing file is overwritten
+	 * @param fileName the name of the file on the R host system
+	 * @param options 0 or {@link #FILE_RESUME}
+	 * @param monitor a progress monitor to catch cancellation and provide progress feedback
+	 * @throws CoreException if the operation was canceled or failed; the status
+	 *     of the exception contains detail about the cause
+	 * @since de.walware.rj.services 2.1
+	 */
+	void downloadFile(File file, String fileName, int options,
+			IProgressMonitor monitor) throws CoreException;
+	
 	/**
 	 * Downloads a file on the R host system into a byte array.
 	 * <p>
@@ -324,6 +404,20 @@ public interface RService {
 	 */
 	FunctionCall createFunctionCall(String name) throws CoreException;
 	
+	/**
+	 * Creates a new batch to collect several evaluations and assignments which are executed
+	 * together in a single exchange with R.
+	 * 
+	 * <p>The batch is valid as long as the RService owns the consumer. After the service is for
+	 * example closed, it must not longer be used.</p>
+	 * 
+	 * @return a new batch
+	 * @throws CoreException if the operation failed; the status
+	 *     of the exception contains detail about the cause
+	 * @since de.walware.rj.services 2.1
+	 */
+	RBatch createBatch() throws CoreException;
+	
 	/**
 	 * Creates a new creator for {@link RGraphic}s.
 	 * 
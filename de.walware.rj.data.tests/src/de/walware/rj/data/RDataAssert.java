@@ -0,0 +1,103 @@
+/*=============================================================================#
+ # Copyright (c) 2016 Stephan Wahlbrink (WalWare.de) and others.
+ # All rights reserved. This program and the accompanying materials
+ # are made available under the terms of either (per the licensee's choosing)
+ #   - the Eclipse Public License v1.0
+ #     which accompanies this distribution, and is available at
+ #     http://www.eclipse.org/legal/epl-v10.html, or
+ #   - the GNU Lesser General Public License v2.1 or newer
+ #     which accompanies this distribution, and is available at
+ #     http://www.gnu.org/licenses/lgpl.html
+ # 
+ # Contributors:
+ #     Stephan Wahlbrink - initial API and implementation
+ #=============================================================================*/
+
+package de.walware.rj.data;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNotNull;
+import static org.junit.Assert.assertNull;
+
+
+/**
+ * Assertions for R data objects.
+ */
+public final class RDataAssert {
+	
+	
+	public static void assertObjectEquals(final RObject expected, final RObject actual) {
+		if (expected == null) {
+			assertNull(actual);
+			return;
+		}
+		assertNotNull(actual);
+		assertEquals(expected.getRObjectType(), actual.getRObjectType());
+		assertEquals(expected.getRClassName(), actual.getRClassName());
+		assertEquals(expected.getLength(), actual.getLength());
+		if (expected.getData() != null) {
+			assertStoreEquals(expected.getData(), actual.getData());
+		}
+		if (expected instanceof RList) {
+			final RList expectedList = (RList) expected;
+			final RList actualList = (RList) actual;
+			for (long i = 0; i < expectedList.getLength(); i++) {
+				assertEquals(expectedList.getName(i), actualList.getName(i));
+				assertObjectEquals(expectedList.get(i), actualList.get(i));
+			}
+		}
+		assertObjectEquals(expected.getAttributes(), actual.getAttributes());
+	}
+	
+	public static void assertStoreEquals(final RStore<?> expected, final RStore<?> actual) {
+		assertNotNull(actual);
+		assertEquals(expected.getStoreType(), actual.getStoreType());
+		final long length = expected.getLength();
+		assertEquals(length, actual.getLength());
+		for (long i = 0; i < length; i++) {
+			assertEquals("NA [" + i + "]", expected.isNA(i), actual.isNA(i));
+			if (expected.isNA(i)) {
+				continue;
+			}
+			switch (expected.getStoreType()) {
+			case RStore.LOGICAL:
+				assertEquals("[" + i + "]", expected.getLogi(i), actual.getLogi(i));
+				continue;
+			case RStore.INTEGER:
+			case RStore.FACTOR:
+				assertEquals("[" + i + "]", expected.getInt(i), actual.getInt(i));
+				continue;
+			case RStore.NUMERIC:
+				assertEquals("[" + i + "]", Double.doubleToLongBits(expected.getNum(i)),
+						Double.doubleToLongBits(actual.getNum(i)) );
+				continue;
+			case RStore.COMPLEX:
+				assertEquals("[" + i + "]", Double.doubleToLongBits(expected.getCplxRe(i)),
+						Double.doubleToLongBits(actual.getCplxRe(i)) );
+				assertEquals("[" + i + "]", Double.doubleToLongBits(expected.getCplxIm(i)),
+						Double.doubleToLongBits(actual.getCplxIm(i)) );
+				continue;
+			case RStore.CHARACTER:
+				assertEquals("[" + i + "]", expected.getChar(i), actual.getChar(i));
+				continue;
+			case RStore.RAW:
+				assertEquals("[" + i + "]", expected.getRaw(i), actual.getRaw(i));
+				continue;
+			default:
+				assertEquals("[" + i + "]", expected.get(i), actual.get(i));
+				continue;
+			}
+		}
+		if (expected.getStoreType() == RStore.FACTOR) {
+			final RFactorStore expectedFactor = (RFactorStore) expected;
+			final RFactorStore actualFactor = (RFactorStore) actual;
+			assertEquals(expectedFactor.isOrdered(), actualFactor.isOrdered());
+			assertStoreEquals(expectedFactor.getLevels(), actualFactor.getLevels());
+		}
+	}
+	
+	
+	private RDataAssert() {
+	}
+	
+}
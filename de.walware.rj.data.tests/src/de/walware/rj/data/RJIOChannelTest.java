@@ -0,0 +1,314 @@
+/*=============================================================================#
+ # Copyright (c) 2016 Stephan Wahlbrink (WalWare.de) and others.
+ # All rights reserved. This program and the accompanying materials
+ # are made available under the terms of either (per the licensee's choosing)
+ #   - the Eclipse Public License v1.0
+ #     which accompanies this distribution, and is available at
+ #     http://www.eclipse.org/legal/epl-v10.html, or
+ #   - the GNU Lesser General Public License v2.1 or newer
+ #     which accompanies this distribution, and is available at
+ #     http://www.gnu.org/licenses/lgpl.html
+ # 
+ # Contributors:
+ #     Stephan Wahlbrink - initial API and implementation
+ #=============================================================================*/
+
+package de.walware.rj.data;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+import static de.walware.rj.data.RDataAssert.assertObjectEquals;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.ObjectOutputStream;
+import java.nio.ByteBuffer;
+import java.nio.channels.Channels;
+import java.nio.channels.Pipe;
+import java.util.Random;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+import org.junit.Test;
+
+import de.walware.rj.data.defaultImpl.RObjectFactoryImpl;
+
+
+public class RJIOChannelTest {
+	
+	
+	private static final int MARKER = 0x7e57da7a;
+	
+	
+	private static interface Writer {
+		
+		void write(RJIO io) throws IOException;
+		
+	}
+	
+	private static interface Reader {
+		
+		void read(RJIO io) throws IOException;
+		
+	}
+	
+	
+	private static double[] createDoubles(final int length) {
+		final Random random = new Random(length);
+		final double[] values = new double[length];
+		for (int i = 0; i < length; i++) {
+			values[i] = random.nextGaussian();
+		}
+		return values;
+	}
+	
+	private static int[] createInts(final int length) {
+		final Random random = new Random(length);
+		final int[] values = new int[length];
+		for (int i = 0; i < length; i++) {
+			values[i] = random.nextInt();
+		}
+		return values;
+	}
+	
+	
+	private long channelByteCount;
+	
+	
+	private byte[] write(final Writer writer) throws IOException {
+		final ByteArrayOutputStream buffer = new ByteArrayOutputStream();
+		final ChannelObjectOutputStream out = new ChannelObjectOutputStream(
+				Channels.newChannel(buffer) );
+		final RJIO io = RJIO.get(out);
+		io.flags = 0;
+		writer.write(io);
+		io.writeInt(MARKER);
+		io.disconnect(out);
+		this.channelByteCount = out.getByteCount();
+		out.close();
+		return buffer.toByteArray();
+	}
+	
+	private void read(final byte[] bytes, final boolean channel, final Reader reader)
+			throws IOException {
+		final ByteArrayInputStream source = new ByteArrayInputStream(bytes);
+		final ChannelObjectInputStream in = new ChannelObjectInputStream(source,
+				(channel) ? Channels.newChannel(source) : null );
+		final RJIO io = RJIO.get(in);
+		io.flags = 0;
+		reader.read(io);
+		assertEquals(MARKER, io.readInt());
+		io.disconnect(in);
+		assertEquals(bytes.length, in.getByteCount());
+		in.close();
+	}
+	
+	private void roundTrip(final Writer writer, final Reader reader) throws IOException {
+		final byte[] bytes = write(writer);
+		assertEquals(bytes.length, this.channelByteCount);
+		read(bytes, true, reader);
+		read(bytes, false, reader);
+	}
+	
+	private static long getPlainByteCount(final Writer writer) throws IOException {
+		final ByteArrayOutputStream buffer = new ByteArrayOutputStream();
+		final ObjectOutputStream out = new ObjectOutputStream(buffer);
+		final RJIO io = RJIO.get(out);
+		io.flags = 0;
+		writer.write(io);
+		io.writeInt(MARKER);
+		io.disconnect(out);
+		out.close();
+		return buffer.size();
+	}
+	
+	
+	@Test
+	public void roundTripLargeData() throws IOException {
+		final double[] doubles = createDoubles(100000);
+		final int[] ints = createInts(70001);
+		final byte[] bytes = new byte[50000];
+		new Random(1).nextBytes(bytes);
+		final Writer writer = new Writer() {
+			@Override
+			public void write(final RJIO io) throws IOException {
+				io.writeString("begin");
+				io.writeDoubleData(doubles, doubles.length);
+				io.writeInt(1);
+				io.writeIntData(ints, ints.length);
+				io.writeByteData(bytes, bytes.length);
+				io.writeString("end");
+			}
+		};
+		roundTrip(writer, new Reader() {
+			@Override
+			public void read(final RJIO io) throws IOException {
+				assertEquals("begin", io.readString());
+				assertArrayEquals(doubles, io.readDoubleData(new double[doubles.length], doubles.length), 0.0);
+				assertEquals(1, io.readInt());
+				assertArrayEquals(ints, io.readIntData(new int[ints.length], ints.length));
+				assertArrayEquals(bytes, io.readByteData(new byte[bytes.length], bytes.length));
+				assertEquals("end", io.readString());
+			}
+		});
+		
+		// bulk data is written without the block data headers of the object stream
+		assertTrue(this.channelByteCount < getPlainByteCount(writer));
+		assertTrue(this.channelByteCount < doubles.length * 8 + ints.length * 4 + bytes.length + 1000);
+	}
+	
+	@Test
+	public void roundTripSmallData() throws IOException {
+		final double[] doubles = createDoubles(1000);
+		final int[] ints = createInts(3);
+		roundTrip(new Writer() {
+			@Override
+			public void write(final RJIO io) throws IOException {
+				io.writeDoubleData(doubles, doubles.length);
+				io.writeIntData(ints, ints.length);
+			}
+		}, new Reader() {
+			@Override
+			public void read(final RJIO io) throws IOException {
+				assertArrayEquals(doubles, io.readDoubleData(new double[doubles.length], doubles.length), 0.0);
+				assertArrayEquals(ints, io.readIntData(new int[ints.length], ints.length));
+			}
+		});
+	}
+	
+	@Test
+	public void readInOtherSegments() throws IOException {
+		final double[] doubles = createDoubles(200000);
+		final int[] segments = new int[] { 1, 7, 1000, 3000, 50000, 145992 };
+		final Reader reader = new Reader() {
+			@Override
+			public void read(final RJIO io) throws IOException {
+				int offset = 0;
+				for (final int length : segments) {
+					final double[] part = io.readDoubleData(new double[length], length);
+					for (int i = 0; i < length; i++) {
+						assertEquals(doubles[offset + i], part[i], 0.0);
+					}
+					offset += length;
+				}
+				assertEquals(doubles.length, offset);
+			}
+		};
+		// one bulk block read in parts
+		roundTrip(new Writer() {
+			@Override
+			public void write(final RJIO io) throws IOException {
+				io.writeDoubleData(doubles, doubles.length);
+			}
+		}, reader);
+		// mixed bulk and in-band parts read in other parts
+		roundTrip(new Writer() {
+			@Override
+			public void write(final RJIO io) throws IOException {
+				final int[] writeSegments = new int[] { 5000, 20, 100000, 1, 94979 };
+				int offset = 0;
+				for (final int length : writeSegments) {
+					final double[] part = new double[length];
+					System.arraycopy(doubles, offset, part, 0, length);
+					io.writeDoubleData(part, length);
+					offset += length;
+				}
+			}
+		}, reader);
+	}
+	
+	@Test
+	public void roundTripBufferData() throws IOException {
+		final int length = 40000;
+		final ByteBuffer src = ByteBuffer.allocateDirect(length * 8);
+		for (int i = 0; i < length; i++) {
+			src.putDouble(i * 0.25);
+		}
+		src.flip();
+		roundTrip(new Writer() {
+			@Override
+			public void write(final RJIO io) throws IOException {
+				final ByteBuffer buffer = src.duplicate();
+				io.writeDoubleDataPart(buffer, length);
+				assertEquals(length * 8, buffer.position());
+			}
+		}, new Reader() {
+			@Override
+			public void read(final RJIO io) throws IOException {
+				final ByteBuffer buffer = ByteBuffer.allocateDirect(length * 8);
+				io.readDoubleDataPart(buffer, 10000);
+				io.readDoubleDataPart(buffer, length - 10000);
+				assertEquals(length * 8, buffer.position());
+				buffer.flip();
+				assertEquals(src, buffer);
+			}
+		});
+	}
+	
+	@Test
+	public void roundTripObjects() throws IOException {
+		final RObjectFactoryImpl factory = new RObjectFactoryImpl();
+		final RObject num = factory.createNumVector(createDoubles(100000));
+		final RObject integer = factory.createIntVector(createInts(100000));
+		for (final long directMinLength : new long[] { -1, 0 }) {
+			for (final boolean compress : new boolean[] { false, true }) {
+				final RObjectFactoryImpl readFactory = new RObjectFactoryImpl();
+				readFactory.setDirectStoreMinLength(directMinLength);
+				roundTrip(new Writer() {
+					@Override
+					public void write(final RJIO io) throws IOException {
+						if (compress) {
+							io.setCompression(RJIO.COMPRESSION_DEFLATE, 1000);
+						}
+						factory.writeObject(num, io);
+						factory.writeObject(integer, io);
+					}
+				}, new Reader() {
+					@Override
+					public void read(final RJIO io) throws IOException {
+						assertObjectEquals(num, readFactory.readObject(io));
+						assertObjectEquals(integer, readFactory.readObject(io));
+					}
+				});
+			}
+		}
+	}
+	
+	@Test
+	public void transferByPipe() throws Exception {
+		final double[] doubles = createDoubles(300000);
+		final Pipe pipe = Pipe.open();
+		final ExecutorService executor = Executors.newSingleThreadExecutor();
+		try {
+			final Future<Long> written = executor.submit(new Callable<Long>() {
+				@Override
+				public Long call() throws Exception {
+					final ChannelObjectOutputStream out = new ChannelObjectOutputStream(pipe.sink());
+					final RJIO io = RJIO.get(out);
+					io.writeDoubleData(doubles, doubles.length);
+					io.writeInt(MARKER);
+					io.disconnect(out);
+					out.close();
+					return out.getByteCount();
+				}
+			});
+			final ChannelObjectInputStream in = new ChannelObjectInputStream(
+					Channels.newInputStream(pipe.source()), pipe.source() );
+			final RJIO io = RJIO.get(in);
+			assertArrayEquals(doubles, io.readDoubleData(new double[doubles.length], doubles.length), 0.0);
+			assertEquals(MARKER, io.readInt());
+			io.disconnect(in);
+			assertEquals(written.get().longValue(), in.getByteCount());
+			in.close();
+		}
+		finally {
+			executor.shutdownNow();
+		}
+	}
+	
+}
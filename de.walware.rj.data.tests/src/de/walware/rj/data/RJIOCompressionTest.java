@@ -0,0 +1,216 @@
+/*=============================================================================#
+ # Copyright (c) 2016 Stephan Wahlbrink (WalWare.de) and others.
+ # All rights reserved. This program and the accompanying materials
+ # are made available under the terms of either (per the licensee's choosing)
+ #   - the Eclipse Public License v1.0
+ #     which accompanies this distribution, and is available at
+ #     http://www.eclipse.org/legal/epl-v10.html, or
+ #   - the GNU Lesser General Public License v2.1 or newer
+ #     which accompanies this distribution, and is available at
+ #     http://www.gnu.org/licenses/lgpl.html
+ # 
+ # Contributors:
+ #     Stephan Wahlbrink - initial API and implementation
+ #=============================================================================*/
+
+package de.walware.rj.data;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+import static de.walware.rj.data.RDataAssert.assertObjectEquals;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.ObjectInputStream;
+import java.io.ObjectOutputStream;
+import java.util.Random;
+
+import org.junit.Test;
+
+import de.walware.rj.data.defaultImpl.RObjectFactoryImpl;
+
+
+public class RJIOCompressionTest {
+	
+	
+	private static final int MARKER = 0x7e57da7a;
+	
+	
+	private final RObjectFactoryImpl factory = new RObjectFactoryImpl();
+	
+	
+	private byte[] write(final RObject object, final byte codec, final long minLength)
+			throws IOException {
+		final ByteArrayOutputStream buffer = new ByteArrayOutputStream();
+		final ObjectOutputStream out = new ObjectOutputStream(buffer);
+		final RJIO io = RJIO.get(out);
+		io.flags = 0;
+		io.setCompression(codec, minLength);
+		this.factory.writeObject(object, io);
+		io.writeInt(MARKER);
+		io.disconnect(out);
+		out.close();
+		return buffer.toByteArray();
+	}
+	
+	private RObject read(final byte[] bytes) throws IOException {
+		final ObjectInputStream in = new ObjectInputStream(new ByteArrayInputStream(bytes));
+		final RJIO io = RJIO.get(in);
+		io.flags = 0;
+		final RObject object = this.factory.readObject(io);
+		// the reader must not consume data after the compressed blocks
+		assertEquals(MARKER, io.readInt());
+		io.disconnect(in);
+		return object;
+	}
+	
+	private RObject roundTrip(final RObject object) throws IOException {
+		final RObject read = read(write(object, RJIO.COMPRESSION_DEFLATE, 1000));
+		assertObjectEquals(object, read);
+		return read;
+	}
+	
+	
+	@Test
+	public void roundTripNumeric() throws IOException {
+		final double[] values = new double[100000];
+		for (int i = 0; i < values.length; i++) {
+			values[i] = (i % 100) * 0.5;
+		}
+		final RVector<RNumericStore> vector = this.factory.createNumVector(values);
+		vector.getData().setNA(7);
+		vector.getData().setNum(8, Double.NaN);
+		roundTrip(vector);
+	}
+	
+	@Test
+	public void roundTripNumericRandom() throws IOException {
+		final Random random = new Random(1);
+		final double[] values = new double[50000];
+		for (int i = 0; i < values.length; i++) {
+			values[i] = random.nextGaussian();
+		}
+		roundTrip(this.factory.createNumVector(values));
+	}
+	
+	@Test
+	public void roundTripInteger() throws IOException {
+		final int[] values = new int[100000];
+		for (int i = 0; i < values.length; i++) {
+			values[i] = i / 10;
+		}
+		final RVector<RIntegerStore> vector = this.factory.createIntVector(values);
+		vector.getData().setNA(0);
+		roundTrip(vector);
+	}
+	
+	@Test
+	public void roundTripLogicalAndRaw() throws IOException {
+		final RVector<RLogicalStore> logi = this.factory.createLogiVector(5000);
+		for (int i = 0; i < 5000; i++) {
+			logi.getData().setLogi(i, (i % 3) == 0);
+		}
+		logi.getData().setNA(4);
+		roundTrip(logi);
+		
+		final RVector<RRawStore> raw = this.factory.createRawVector(5000);
+		for (int i = 0; i < 5000; i++) {
+			raw.getData().setRaw(i, (byte) i);
+		}
+		roundTrip(raw);
+	}
+	
+	@Test
+	public void roundTripComplex() throws IOException {
+		final RVector<RComplexStore> vector = this.factory.createCplxVector(5000);
+		for (int i = 0; i < 5000; i++) {
+			vector.getData().setCplx(i, i, -i);
+		}
+		vector.getData().setNA(10);
+		roundTrip(vector);
+	}
+	
+	@Test
+	public void roundTripCharacter() throws IOException {
+		final String[] values = new String[20000];
+		for (int i = 0; i < values.length; i++) {
+			values[i] = "value ä " + (i % 50); //$NON-NLS-1$
+		}
+		final RVector<RCharacterStore> vector = this.factory.createCharVector(values);
+		vector.getData().setNA(3);
+		roundTrip(vector);
+	}
+	
+	@Test
+	public void roundTripFactor() throws IOException {
+		final int[] codes = new int[10000];
+		for (int i = 0; i < codes.length; i++) {
+			codes[i] = 1 + (i % 3);
+		}
+		roundTrip(this.factory.createFactorVector(codes, new String[] { "a", "b", "c" })); //$NON-NLS-1$ //$NON-NLS-2$ //$NON-NLS-3$
+	}
+	
+	@Test
+	public void roundTripDataFrame() throws IOException {
+		final int length = 3000;
+		final double[] num = new double[length];
+		final int[] integers = new int[length];
+		final String[] chars = new String[length];
+		for (int i = 0; i < length; i++) {
+			num[i] = i * 0.25;
+			integers[i] = i;
+			chars[i] = Integer.toString(i % 7);
+		}
+		roundTrip(this.factory.createDataFrame(new RStore<?>[] {
+						this.factory.createNumData(num),
+						this.factory.createIntData(integers),
+						this.factory.createCharData(chars),
+						this.factory.createLogiData(length),
+				},
+				new String[] { "num", "int", "chr", "logi" } )); //$NON-NLS-1$ //$NON-NLS-2$ //$NON-NLS-3$ //$NON-NLS-4$
+	}
+	
+	@Test
+	public void compressLargeData() throws IOException {
+		final RObject vector = this.factory.createNumVector(new double[100000]);
+		final byte[] plain = write(vector, RJIO.COMPRESSION_NONE, 0);
+		final byte[] compressed = write(vector, RJIO.COMPRESSION_DEFLATE, 1000);
+		assertTrue(compressed.length < plain.length / 10);
+		assertObjectEquals(vector, read(compressed));
+	}
+	
+	@Test
+	public void skipSmallData() throws IOException {
+		final RObject vector = this.factory.createNumVector(new double[999]);
+		final byte[] plain = write(vector, RJIO.COMPRESSION_NONE, 0);
+		final byte[] notCompressed = write(vector, RJIO.COMPRESSION_DEFLATE, 1000);
+		assertEquals(plain.length, notCompressed.length);
+		assertObjectEquals(vector, read(notCompressed));
+	}
+	
+	@Test
+	public void resetOnConnect() throws IOException {
+		write(this.factory.createNumVector(1), RJIO.COMPRESSION_DEFLATE, 1);
+		
+		final ObjectOutputStream out = new ObjectOutputStream(new ByteArrayOutputStream());
+		final RJIO io = RJIO.get(out);
+		assertFalse(io.isCompressionRequired(Long.MAX_VALUE));
+		io.disconnect(out);
+	}
+	
+	@Test(expected = IllegalArgumentException.class)
+	public void rejectUnknownCodec() throws IOException {
+		final ObjectOutputStream out = new ObjectOutputStream(new ByteArrayOutputStream());
+		final RJIO io = RJIO.get(out);
+		try {
+			io.setCompression((byte) 0x7f, 0);
+		}
+		finally {
+			io.disconnect(out);
+		}
+	}
+	
+}
@@ -0,0 +1,157 @@
+/*=============================================================================#
+ # Copyright (c) 2016 Stephan Wahlbrink (WalWare.de) and others.
+ # All rights reserved. This program and the accompanying materials
+ # are made available under the terms of either (per the licensee's choosing)
+ #   - the Eclipse Public License v1.0
+ #     which accompanies this distribution, and is available at
+ #     http://www.eclipse.org/legal/epl-v10.html, or
+ #   - the GNU Lesser General Public License v2.1 or newer
+ #     which accompanies this distribution, and is available at
+ #     http://www.gnu.org/licenses/lgpl.html
+ # 
+ # Contributors:
+ #     Stephan Wahlbrink - initial API and implementation
+ #=============================================================================*/
+
+package de.walware.rj.data;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertTrue;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.ObjectInputStream;
+import java.io.ObjectOutputStream;
+
+import org.junit.Test;
+
+
+public class RJIOStringDictTest {
+	
+	
+	private static final int MARKER = 0x7e57da7a;
+	
+	
+	private static String[] createData(final int length, final int distinct) {
+		final String[] values = new String[length];
+		for (int i = 0; i < length; i++) {
+			values[i] = "level-" + (i % distinct); //$NON-NLS-1$
+		}
+		return values;
+	}
+	
+	private static byte[] write(final String[] values, final boolean dict) throws IOException {
+		final ByteArrayOutputStream buffer = new ByteArrayOutputStream();
+		final ObjectOutputStream out = new ObjectOutputStream(buffer);
+		final RJIO io = RJIO.get(out);
+		io.setStringDictEncoding(dict);
+		io.writeStringData(values, values.length);
+		io.writeInt(MARKER);
+		io.disconnect(out);
+		out.close();
+		return buffer.toByteArray();
+	}
+	
+	private static String[] read(final byte[] bytes, final int length) throws IOException {
+		final ObjectInputStream in = new ObjectInputStream(new ByteArrayInputStream(bytes));
+		final RJIO io = RJIO.get(in);
+		final String[] values = new String[length];
+		io.readStringData(values, length);
+		assertEquals(MARKER, io.readInt());
+		io.disconnect(in);
+		return values;
+	}
+	
+	private static String[] readParts(final byte[] bytes, final int length, final int partLength)
+			throws IOException {
+		final ObjectInputStream in = new ObjectInputStream(new ByteArrayInputStream(bytes));
+		final RJIO io = RJIO.get(in);
+		final String[] values = new String[length];
+		final String[] part = new String[partLength];
+		io.beginStringDataParts(length);
+		for (int offset = 0; offset < length; offset += partLength) {
+			final int n = Math.min(partLength, length - offset);
+			io.readStringDataPart(part, n);
+			System.arraycopy(part, 0, values, offset, n);
+		}
+		io.endStringDataParts();
+		assertEquals(MARKER, io.readInt());
+		io.disconnect(in);
+		return values;
+	}
+	
+	
+	@Test
+	public void roundTripByteCodes() throws IOException {
+		final String[] values = createData(10000, 5);
+		final byte[] dict = write(values, true);
+		final byte[] plain = write(values, false);
+		assertTrue(dict.length < plain.length / 4);
+		
+		final String[] read = read(dict, values.length);
+		assertArrayEquals(values, read);
+		// equal elements share the instance
+		assertSame(read[0], read[5]);
+	}
+	
+	@Test
+	public void roundTripIntCodes() throws IOException {
+		final String[] values = createData(10000, 300);
+		final byte[] dict = write(values, true);
+		assertTrue(dict.length < write(values, false).length);
+		assertArrayEquals(values, read(dict, values.length));
+	}
+	
+	@Test
+	public void roundTripNA() throws IOException {
+		final String[] values = createData(2000, 3);
+		values[0] = null;
+		values[1000] = null;
+		values[1999] = "ä"; //$NON-NLS-1$
+		assertArrayEquals(values, read(write(values, true), values.length));
+	}
+	
+	@Test
+	public void writePlainForManyDistinctValues() throws IOException {
+		final String[] values = createData(2000, 1000);
+		final byte[] dict = write(values, true);
+		assertEquals(write(values, false).length, dict.length);
+		assertArrayEquals(values, read(dict, values.length));
+	}
+	
+	@Test
+	public void writePlainForSmallData() throws IOException {
+		for (final int length : new int[] { 0, 1, 5, 1023 }) {
+			final String[] values = createData(length, 1);
+			final byte[] dict = write(values, true);
+			assertEquals(write(values, false).length, dict.length);
+			assertArrayEquals(values, read(dict, length));
+		}
+	}
+	
+	@Test
+	public void disableOnConnect() throws IOException {
+		final String[] values = createData(10000, 5);
+		final ByteArrayOutputStream buffer = new ByteArrayOutputStream();
+		final ObjectOutputStream out = new ObjectOutputStream(buffer);
+		final RJIO io = RJIO.get(out);
+		io.writeStringData(values, values.length);
+		io.writeInt(MARKER);
+		io.disconnect(out);
+		out.close();
+		assertEquals(write(values, false).length, buffer.size());
+	}
+	
+	@Test
+	public void readParts() throws IOException {
+		final String[] values = createData(10000, 300);
+		values[0] = null;
+		assertArrayEquals(values, readParts(write(values, true), values.length, 1000));
+		assertArrayEquals(values, readParts(write(values, true), values.length, 333));
+		assertArrayEquals(values, readParts(write(values, false), values.length, 333));
+	}
+	
+}
@@ -0,0 +1,146 @@
+/*=============================================================================#
+ # Copyright (c) 2016 Stephan Wahlbrink (WalWare.de) and others.
+ # All rights reserved. This program and the accompanying materials
+ # are made available under the terms of either (per the licensee's choosing)
+ #   - the Eclipse Public License v1.0
+ #     which accompanies this distribution, and is available at
+ #     http://www.eclipse.org/legal/epl-v10.html, or
+ #   - the GNU Lesser General Public License v2.1 or newer
+ #     which accompanies this distribution, and is available at
+ #     http://www.gnu.org/licenses/lgpl.html
+ # 
+ # Contributors:
+ #     Stephan Wahlbrink - initial API and implementation
+ #=============================================================================*/
+
+package de.walware.rj.data.defaultImpl;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertTrue;
+
+import org.junit.Test;
+
+import de.walware.rj.data.RObject;
+
+
+public class RCharacterDataHashIndexTest {
+	
+	
+	private static String[] createValues(final int length) {
+		final String[] values = new String[length];
+		for (int i = 0; i < length; i++) {
+			values[i] = (i % 10 == 9) ? null : "v" + (i % 50); // with duplicates //$NON-NLS-1$
+		}
+		return values;
+	}
+	
+	private static RCharacterDataImpl createStore(final String[] values, final boolean hashed) {
+		final RCharacterDataImpl store = new RCharacterDataImpl(values.clone());
+		store.setHashIndexEnabled(hashed);
+		return store;
+	}
+	
+	private static void assertLookup(final RCharacterDataImpl expected, final RCharacterDataImpl actual,
+			final String... values) {
+		final int length = expected.length();
+		for (final String value : values) {
+			for (int fromIdx = -1; fromIdx <= length + 1; fromIdx += 7) {
+				assertEquals(value + " from " + fromIdx, //$NON-NLS-1$
+						expected.indexOf(value, (long) fromIdx), actual.indexOf(value, (long) fromIdx) );
+				assertEquals(value + " from " + fromIdx, //$NON-NLS-1$
+						expected.indexOf(value, fromIdx), actual.indexOf(value, fromIdx) );
+			}
+			assertEquals(value, expected.contains(value), actual.contains(value));
+		}
+	}
+	
+	
+	@Test
+	public void indexOf() {
+		final String[] values = createValues(500);
+		final RCharacterDataImpl linear = createStore(values, false);
+		final RCharacterDataImpl hashed = createStore(values, true);
+		assertTrue(hashed.isHashIndexEnabled());
+		assertEquals(0, hashed.getHashIndexMemorySize());
+		
+		assertLookup(linear, hashed, "v0", "v1", "v8", "v49", "v50", "x"); //$NON-NLS-1$ //$NON-NLS-2$ //$NON-NLS-3$ //$NON-NLS-4$ //$NON-NLS-5$ //$NON-NLS-6$
+		assertTrue(hashed.getHashIndexMemorySize() > 0);
+		assertEquals(0, linear.getHashIndexMemorySize());
+		assertEquals(-1, hashed.indexOf(null, 0L));
+	}
+	
+	@Test
+	public void indexOfCollisions() {
+		// "Aa" and "BB" have the same hash code
+		final String[] values = new String[64];
+		for (int i = 0; i < values.length; i++) {
+			final StringBuilder sb = new StringBuilder();
+			for (int bit = 0; bit < 6; bit++) {
+				sb.append(((i & (1 << bit)) != 0) ? "Aa" : "BB"); //$NON-NLS-1$ //$NON-NLS-2$
+			}
+			values[i] = sb.toString();
+		}
+		final RCharacterDataImpl linear = createStore(values, false);
+		final RCharacterDataImpl hashed = createStore(values, true);
+		assertLookup(linear, hashed, values);
+		assertLookup(linear, hashed, "AaAa", "BBBBBBBBBBBBBB"); //$NON-NLS-1$ //$NON-NLS-2$
+	}
+	
+	@Test
+	public void invalidateIndex() {
+		final String[] values = createValues(100);
+		final RCharacterDataImpl linear = createStore(values, false);
+		final RCharacterDataImpl hashed = createStore(values, true);
+		final String[] lookup = new String[] { "v0", "v1", "v2", "v3", "new" }; //$NON-NLS-1$ //$NON-NLS-2$ //$NON-NLS-3$ //$NON-NLS-4$ //$NON-NLS-5$
+		assertLookup(linear, hashed, lookup);
+		
+		for (final RCharacterDataImpl store : new RCharacterDataImpl[] { linear, hashed }) {
+			store.setChar(0, "new"); //$NON-NLS-1$
+		}
+		assertEquals(0, hashed.getHashIndexMemorySize());
+		assertLookup(linear, hashed, lookup);
+		
+		for (final RCharacterDataImpl store : new RCharacterDataImpl[] { linear, hashed }) {
+			store.setNA(1L);
+		}
+		assertLookup(linear, hashed, lookup);
+		
+		for (final RCharacterDataImpl store : new RCharacterDataImpl[] { linear, hashed }) {
+			store.insertChar(0, "v3"); //$NON-NLS-1$
+		}
+		assertLookup(linear, hashed, lookup);
+		
+		for (final RCharacterDataImpl store : new RCharacterDataImpl[] { linear, hashed }) {
+			store.remove(new int[] { 0, 1 });
+		}
+		assertLookup(linear, hashed, lookup);
+		
+		hashed.setHashIndexEnabled(false);
+		assertEquals(0, hashed.getHashIndexMemorySize());
+		assertLookup(linear, hashed, lookup);
+	}
+	
+	@Test
+	public void findNames() {
+		final RObject[] components = new RObject[100];
+		final String[] names = new String[components.length];
+		for (int i = 0; i < components.length; i++) {
+			components[i] = RNull.INSTANCE;
+			names[i] = "n" + i; //$NON-NLS-1$
+		}
+		components[42] = new RVectorImpl<>(new RNumericDataBImpl(1));
+		final RListImpl list = new RListImpl(components, names);
+		list.setNamesHashIndexEnabled(true);
+		assertSame(components[42], list.get("n42")); //$NON-NLS-1$
+		assertEquals(null, list.get("n100")); //$NON-NLS-1$
+		
+		final RFactorDataImpl factor = new RFactorDataImpl(new int[] { 1, 2 }, false,
+				new String[] { "a", "b", "c" } ); //$NON-NLS-1$ //$NON-NLS-2$ //$NON-NLS-3$
+		factor.setLevelHashIndexEnabled(true);
+		assertTrue(factor.getLevels().contains("c")); //$NON-NLS-1$
+		assertFalse(factor.getLevels().contains("d")); //$NON-NLS-1$
+	}
+	
+}
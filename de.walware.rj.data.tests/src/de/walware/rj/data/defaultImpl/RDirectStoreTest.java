@@ -0,0 +1,166 @@
+/*=============================================================================#
+ # Copyright (c) 2016 Stephan Wahlbrink (WalWare.de) and others.
+ # All rights reserved. This program and the accompanying materials
+ # are made available under the terms of either (per the licensee's choosing)
+ #   - the Eclipse Public License v1.0
+ #     which accompanies this distribution, and is available at
+ #     http://www.eclipse.org/legal/epl-v10.html, or
+ #   - the GNU Lesser General Public License v2.1 or newer
+ #     which accompanies this distribution, and is available at
+ #     http://www.gnu.org/licenses/lgpl.html
+ # 
+ # Contributors:
+ #     Stephan Wahlbrink - initial API and implementation
+ #=============================================================================*/
+
+package de.walware.rj.data.defaultImpl;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+import static de.walware.rj.data.RDataAssert.assertObjectEquals;
+import static de.walware.rj.data.RDataAssert.assertStoreEquals;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.ObjectInputStream;
+import java.io.ObjectOutputStream;
+import java.nio.ByteBuffer;
+
+import org.junit.Test;
+
+import de.walware.rj.data.RJIO;
+import de.walware.rj.data.RObject;
+import de.walware.rj.data.RStore;
+
+
+public class RDirectStoreTest {
+	
+	
+	private static final int LENGTH = 20000;
+	
+	
+	private static byte[] write(final RObject object, final boolean compress) throws IOException {
+		final ByteArrayOutputStream buffer = new ByteArrayOutputStream();
+		final ObjectOutputStream out = new ObjectOutputStream(buffer);
+		final RJIO io = RJIO.get(out);
+		io.flags = 0;
+		if (compress) {
+			io.setCompression(RJIO.COMPRESSION_DEFLATE, 100);
+		}
+		new RObjectFactoryImpl().writeObject(object, io);
+		io.disconnect(out);
+		out.close();
+		return buffer.toByteArray();
+	}
+	
+	private static RObject read(final byte[] bytes, final long directMinLength) throws IOException {
+		final RObjectFactoryImpl factory = new RObjectFactoryImpl();
+		factory.setDirectStoreMinLength(directMinLength);
+		final ObjectInputStream in = new ObjectInputStream(new ByteArrayInputStream(bytes));
+		final RJIO io = RJIO.get(in);
+		io.flags = 0;
+		final RObject object = factory.readObject(io);
+		io.disconnect(in);
+		return object;
+	}
+	
+	/**
+	 * Checks that the store is read into a direct store and written like the array based
+	 * store.
+	 */
+	private static void assertWireCompatible(final RStore<?> arrayStore,
+			final Class<?> directClass) throws IOException {
+		final RObject object = new RObjectFactoryImpl().createVector(arrayStore);
+		for (final boolean compress : new boolean[] { false, true }) {
+			final byte[] bytes = write(object, compress);
+			final RObject direct = read(bytes, 0);
+			assertEquals(directClass, direct.getData().getClass());
+			assertObjectEquals(object, direct);
+			
+			final byte[] directBytes = write(direct, compress);
+			assertEquals(bytes.length, directBytes.length);
+			final RObject array = read(directBytes, -1);
+			assertFalse(directClass == array.getData().getClass());
+			assertObjectEquals(object, array);
+		}
+	}
+	
+	
+	@Test
+	public void numericValues() {
+		final RNumericDataBDirectImpl store = new RNumericDataBDirectImpl(LENGTH);
+		assertEquals(LENGTH, store.getLength());
+		store.setNum(0, 1.5);
+		store.setNum(LENGTH - 1, -2.0);
+		store.setNA(1);
+		assertEquals(1.5, store.getNum(0), 0.0);
+		assertEquals(-2.0, store.getNum(LENGTH - 1L), 0.0);
+		assertTrue(store.isNA(1));
+		assertFalse(store.isNA(0));
+		
+		store.setNum(2, Double.NaN);
+		assertFalse(store.isNA(2));
+	}
+	
+	@Test
+	public void callerSuppliedBuffers() {
+		final ByteBuffer buffer = ByteBuffer.allocate(100 * 4);
+		final RIntegerDataDirectImpl store = new RIntegerDataDirectImpl(new ByteBuffer[] { buffer });
+		assertEquals(100, store.getLength());
+		store.setInt(10, 42);
+		assertEquals(42, buffer.getInt(10 * 4));
+	}
+	
+	@Test
+	public void wireCompatibleNumeric() throws IOException {
+		final double[] values = new double[LENGTH];
+		for (int i = 0; i < LENGTH; i++) {
+			values[i] = i * 0.125;
+		}
+		final RNumericDataBImpl store = new RNumericDataBImpl(values);
+		store.setNA(3);
+		assertWireCompatible(store, RNumericDataBDirectImpl.class);
+	}
+	
+	@Test
+	public void wireCompatibleInteger() throws IOException {
+		final int[] values = new int[LENGTH];
+		for (int i = 0; i < LENGTH; i++) {
+			values[i] = i - 100;
+		}
+		final RIntegerDataImpl store = new RIntegerDataImpl(values);
+		store.setNA(3);
+		assertWireCompatible(store, RIntegerDataDirectImpl.class);
+	}
+	
+	@Test
+	public void wireCompatibleLogical() throws IOException {
+		final RLogicalDataByteImpl store = new RLogicalDataByteImpl(LENGTH);
+		for (int i = 0; i < LENGTH; i++) {
+			store.setLogi(i, (i % 5) == 0);
+		}
+		store.setNA(3);
+		assertWireCompatible(store, RLogicalDataByteDirectImpl.class);
+	}
+	
+	@Test
+	public void wireCompatibleRaw() throws IOException {
+		final RRawDataImpl store = new RRawDataImpl(LENGTH);
+		for (int i = 0; i < LENGTH; i++) {
+			store.setRaw(i, (byte) (i * 7));
+		}
+		assertWireCompatible(store, RRawDataDirectImpl.class);
+	}
+	
+	@Test
+	public void keepArraysBelowMinLength() throws IOException {
+		final RObject object = new RObjectFactoryImpl().createNumVector(new double[100]);
+		final RObject read = read(write(object, false), 101);
+		assertEquals(RNumericDataBImpl.class, read.getData().getClass());
+		assertStoreEquals(object.getData(), read.getData());
+	}
+	
+}
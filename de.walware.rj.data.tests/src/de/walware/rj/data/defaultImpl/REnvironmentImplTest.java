@@ -0,0 +1,108 @@
+/*=============================================================================#
+ # Copyright (c) 2016 Stephan Wahlbrink (WalWare.de) and others.
+ # All rights reserved. This program and the accompanying materials
+ # are made available under the terms of either (per the licensee's choosing)
+ #   - the Eclipse Public License v1.0
+ #     which accompanies this distribution, and is available at
+ #     http://www.eclipse.org/legal/epl-v10.html, or
+ #   - the GNU Lesser General Public License v2.1 or newer
+ #     which accompanies this distribution, and is available at
+ #     http://www.gnu.org/licenses/lgpl.html
+ # 
+ # Contributors:
+ #     Stephan Wahlbrink - initial API and implementation
+ #=============================================================================*/
+
+package de.walware.rj.data.defaultImpl;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertTrue;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.ObjectInputStream;
+import java.io.ObjectOutputStream;
+
+import org.junit.Test;
+
+import de.walware.rj.data.RJIO;
+import de.walware.rj.data.RObject;
+
+
+public class REnvironmentImplTest {
+	
+	
+	private final RObjectFactoryImpl factory = new RObjectFactoryImpl();
+	
+	
+	private REnvironmentImpl createEnvironment(final String... names) throws IOException {
+		final RObject[] components = new RObject[names.length];
+		for (int i = 0; i < names.length; i++) {
+			components[i] = this.factory.createNumVector(new double[] { i });
+		}
+		final REnvironmentImpl envir = new REnvironmentImpl("test", 1, //$NON-NLS-1$
+				components, names, names.length, (byte) 0, RObject.CLASSNAME_ENV );
+		
+		// as loaded by the client
+		final ByteArrayOutputStream buffer = new ByteArrayOutputStream();
+		final ObjectOutputStream out = new ObjectOutputStream(buffer);
+		final RJIO io = RJIO.get(out);
+		io.flags = 0;
+		this.factory.writeObject(envir, io);
+		io.disconnect(out);
+		out.close();
+		final ObjectInputStream in = new ObjectInputStream(new ByteArrayInputStream(buffer.toByteArray()));
+		io.connect(in);
+		io.flags = 0;
+		final REnvironmentImpl loaded = (REnvironmentImpl) this.factory.readObject(io);
+		io.disconnect(in);
+		return loaded;
+	}
+	
+	private static void assertNames(final REnvironmentImpl envir, final String... names) {
+		assertEquals(names.length, envir.getLength());
+		for (int i = 0; i < names.length; i++) {
+			assertEquals(names[i], envir.getName(i));
+			assertSame(envir.get(i), envir.get(names[i]));
+			assertTrue(envir.containsName(names[i]));
+		}
+	}
+	
+	
+	@Test
+	public void applyChanges() throws IOException {
+		final REnvironmentImpl envir = createEnvironment("a", "b", "c", "d"); //$NON-NLS-1$ //$NON-NLS-2$ //$NON-NLS-3$ //$NON-NLS-4$
+		final RObject x = this.factory.createNumVector(new double[] { 10 });
+		final RObject y = this.factory.createNumVector(new double[] { 11 });
+		final RObject d = envir.get("d"); //$NON-NLS-1$
+		
+		envir.applyChanges(
+				new RListImpl(new RObject[] { x, y }, new String[] { "c", "e" }), //$NON-NLS-1$ //$NON-NLS-2$
+				new RCharacterDataImpl(new String[] { "a", "b", "z" }) ); //$NON-NLS-1$ //$NON-NLS-2$ //$NON-NLS-3$
+		
+		assertNames(envir, "c", "d", "e"); //$NON-NLS-1$ //$NON-NLS-2$ //$NON-NLS-3$
+		assertSame(x, envir.get("c")); //$NON-NLS-1$
+		assertSame(d, envir.get("d")); //$NON-NLS-1$
+		assertSame(y, envir.get("e")); //$NON-NLS-1$
+		assertNull(envir.get("a")); //$NON-NLS-1$
+		assertNull(envir.get("b")); //$NON-NLS-1$
+	}
+	
+	@Test
+	public void applyChangesRepeated() throws IOException {
+		final REnvironmentImpl envir = createEnvironment("a", "b"); //$NON-NLS-1$ //$NON-NLS-2$
+		final RObject x = this.factory.createNumVector(new double[] { 10 });
+		
+		envir.applyChanges(null, new RCharacterDataImpl(new String[] { "a" })); //$NON-NLS-1$
+		envir.applyChanges(new RListImpl(new RObject[] { x }, new String[] { "a" }), null); //$NON-NLS-1$
+		assertNames(envir, "b", "a"); //$NON-NLS-1$ //$NON-NLS-2$
+		
+		envir.applyChanges(null, new RCharacterDataImpl(new String[] { "b", "a" })); //$NON-NLS-1$ //$NON-NLS-2$
+		assertNames(envir);
+		assertNull(envir.get("a")); //$NON-NLS-1$
+	}
+	
+}
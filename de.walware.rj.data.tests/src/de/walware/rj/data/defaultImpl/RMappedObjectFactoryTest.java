@@ -0,0 +1,168 @@
+/*=============================================================================#
+ # Copyright (c) 2016 Stephan Wahlbrink (WalWare.de) and others.
+ # All rights reserved. This program and the accompanying materials
+ # are made available under the terms of either (per the licensee's choosing)
+ #   - the Eclipse Public License v1.0
+ #     which accompanies this distribution, and is available at
+ #     http://www.eclipse.org/legal/epl-v10.html, or
+ #   - the GNU Lesser General Public License v2.1 or newer
+ #     which accompanies this distribution, and is available at
+ #     http://www.gnu.org/licenses/lgpl.html
+ # 
+ # Contributors:
+ #     Stephan Wahlbrink - initial API and implementation
+ #=============================================================================*/
+
+package de.walware.rj.data.defaultImpl;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+import static de.walware.rj.data.RDataAssert.assertObjectEquals;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.File;
+import java.io.IOException;
+import java.io.ObjectInputStream;
+import java.io.ObjectOutputStream;
+import java.nio.file.Files;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+import de.walware.rj.data.RJIO;
+import de.walware.rj.data.RList;
+import de.walware.rj.data.RObject;
+
+
+public class RMappedObjectFactoryTest {
+	
+	
+	private static final int LENGTH = 100000;
+	
+	
+	private static byte[] write(final RObject object, final RObjectFactoryImpl factory,
+			final boolean compress) throws IOException {
+		final ByteArrayOutputStream buffer = new ByteArrayOutputStream();
+		final ObjectOutputStream out = new ObjectOutputStream(buffer);
+		final RJIO io = RJIO.get(out);
+		io.flags = 0;
+		if (compress) {
+			io.setCompression(RJIO.COMPRESSION_DEFLATE, 100);
+		}
+		io.setStringDictEncoding(true);
+		factory.writeObject(object, io);
+		io.disconnect(out);
+		out.close();
+		return buffer.toByteArray();
+	}
+	
+	private static RObject read(final byte[] bytes, final RObjectFactoryImpl factory) throws IOException {
+		final ObjectInputStream in = new ObjectInputStream(new ByteArrayInputStream(bytes));
+		final RJIO io = RJIO.get(in);
+		io.flags = 0;
+		final RObject object = factory.readObject(io);
+		io.disconnect(in);
+		return object;
+	}
+	
+	
+	private final RObjectFactoryImpl factory = new RObjectFactoryImpl();
+	
+	private File directory;
+	private RMappedObjectFactory mappedFactory;
+	
+	
+	@Before
+	public void init() throws IOException {
+		this.directory = Files.createTempDirectory("rj-mapped").toFile(); //$NON-NLS-1$
+		this.mappedFactory = new RMappedObjectFactory(this.directory, 1000);
+	}
+	
+	@After
+	public void dispose() {
+		this.directory.delete();
+	}
+	
+	
+	private RList createList(final int length) {
+		final int[] integers = new int[length];
+		final double[] num = new double[length];
+		final String[] chars = new String[length];
+		final RLogicalDataByteImpl logi = new RLogicalDataByteImpl(length);
+		final RRawDataImpl raw = new RRawDataImpl(length);
+		for (int i = 0; i < length; i++) {
+			integers[i] = i;
+			num[i] = i * 0.5;
+			chars[i] = (i % 3 == 0) ? "äbc" : Integer.toString(i); //$NON-NLS-1$
+			logi.setLogi(i, (i % 2) == 0);
+			raw.setRaw(i, (byte) i);
+		}
+		final RObject[] components = new RObject[] {
+				this.factory.createIntVector(integers),
+				this.factory.createNumVector(num),
+				this.factory.createCharVector(chars),
+				this.factory.createVector(logi),
+				this.factory.createVector(raw),
+		};
+		for (int i = 0; i < 4; i++) {
+			components[i].getData().setNA(1);
+			components[i].getData().setNA(length - 1);
+		}
+		return this.factory.createList(components, new String[] { "i", "n", "c", "l", "r" }); //$NON-NLS-1$ //$NON-NLS-2$ //$NON-NLS-3$ //$NON-NLS-4$ //$NON-NLS-5$
+	}
+	
+	
+	@Test
+	public void readMapped() throws IOException {
+		final RList list = createList(LENGTH);
+		
+		final RList mapped = (RList) read(write(list, this.factory, false), this.mappedFactory);
+		assertTrue(mapped.get(0).getData() instanceof RIntegerDataDirectImpl);
+		assertTrue(mapped.get(1).getData() instanceof RNumericDataBDirectImpl);
+		assertTrue(mapped.get(2).getData() instanceof RCharacterDataMappedImpl);
+		assertTrue(mapped.get(3).getData() instanceof RLogicalDataByteDirectImpl);
+		assertTrue(mapped.get(4).getData() instanceof RRawDataDirectImpl);
+		assertObjectEquals(list, mapped);
+		
+		// the temporary files are deleted directly
+		assertEquals(0, this.directory.list().length);
+	}
+	
+	@Test
+	public void readMappedCompressed() throws IOException {
+		final RList list = createList(LENGTH);
+		
+		final RList mapped = (RList) read(write(list, this.factory, true), this.mappedFactory);
+		assertTrue(mapped.get(1).getData() instanceof RNumericDataBDirectImpl);
+		assertTrue(mapped.get(2).getData() instanceof RCharacterDataMappedImpl);
+		assertObjectEquals(list, mapped);
+	}
+	
+	@Test
+	public void readSmall() throws IOException {
+		final RList list = createList(999);
+		
+		final RList read = (RList) read(write(list, this.factory, false), this.mappedFactory);
+		assertTrue(read.get(1).getData() instanceof RNumericDataBImpl);
+		assertTrue(read.get(2).getData() instanceof RCharacterDataImpl);
+		assertObjectEquals(list, read);
+	}
+	
+	@Test
+	public void writeMapped() throws IOException {
+		final RList list = createList(LENGTH);
+		final RList mapped = (RList) read(write(list, this.factory, false), this.mappedFactory);
+		
+		assertObjectEquals(list, read(write(mapped, this.mappedFactory, false), this.factory));
+		assertObjectEquals(list, read(write(mapped, this.mappedFactory, true), this.factory));
+	}
+	
+	@Test(expected = IllegalArgumentException.class)
+	public void checkMinLength() {
+		new RMappedObjectFactory(null, 0);
+	}
+	
+}
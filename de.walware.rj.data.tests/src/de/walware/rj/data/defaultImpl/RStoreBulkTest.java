@@ -0,0 +1,242 @@
+/*=============================================================================#
+ # Copyright (c) 2016 Stephan Wahlbrink (WalWare.de) and others.
+ # All rights reserved. This program and the accompanying materials
+ # are made available under the terms of either (per the licensee's choosing)
+ #   - the Eclipse Public License v1.0
+ #     which accompanies this distribution, and is available at
+ #     http://www.eclipse.org/legal/epl-v10.html, or
+ #   - the GNU Lesser General Public License v2.1 or newer
+ #     which accompanies this distribution, and is available at
+ #     http://www.gnu.org/licenses/lgpl.html
+ # 
+ # Contributors:
+ #     Stephan Wahlbrink - initial API and implementation
+ #=============================================================================*/
+
+package de.walware.rj.data.defaultImpl;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+
+import java.util.Arrays;
+
+import org.junit.Test;
+
+import de.walware.rj.data.RStore;
+
+
+public class RStoreBulkTest {
+	
+	
+	private static final int LENGTH = 300;
+	
+	private static final int[][] RANGES = new int[][] {
+		{ 0, LENGTH }, { 0, 1 }, { 3, 130 }, { 63, 2 }, { 64, 64 }, { 70, 200 }, { LENGTH, 0 },
+	};
+	
+	
+	private static boolean isNAIdx(final int idx) {
+		return (idx % 7 == 1 || idx == 64 || idx == LENGTH - 1);
+	}
+	
+	private static <S extends RStore<?>> S init(final S store) {
+		final String[] levels = new String[] { "a", "b", "c" }; //$NON-NLS-1$ //$NON-NLS-2$ //$NON-NLS-3$
+		for (int idx = 0; idx < LENGTH; idx++) {
+			switch (store.getStoreType()) {
+			case RStore.LOGICAL:
+				store.setLogi(idx, (idx % 3) == 0);
+				break;
+			case RStore.INTEGER:
+				store.setInt(idx, idx * 3 - 100);
+				break;
+			case RStore.NUMERIC:
+				store.setNum(idx, idx * 0.25 - 10);
+				break;
+			case RStore.CHARACTER:
+				store.setChar(idx, Integer.toString(idx));
+				break;
+			case RStore.RAW:
+				store.setRaw(idx, (byte) idx);
+				break;
+			case RStore.FACTOR:
+				store.setChar(idx, levels[idx % 3]);
+				break;
+			default:
+				throw new IllegalArgumentException();
+			}
+			if (store.getStoreType() != RStore.RAW && isNAIdx(idx)) {
+				store.setNA(idx);
+			}
+		}
+		return store;
+	}
+	
+	private static RStore<?>[] createStores() {
+		return new RStore<?>[] {
+				init(new RLogicalDataByteImpl(LENGTH)),
+				init(new RLogicalDataByteFixLongImpl(LENGTH)),
+				init(new RLogicalDataByteDirectImpl(LENGTH)),
+				init(new RLogicalDataIntImpl(new int[LENGTH])),
+				init(new RIntegerDataImpl(LENGTH)),
+				init(new RIntegerDataFixLongImpl(LENGTH)),
+				init(new RIntegerDataDirectImpl(LENGTH)),
+				init(new RNumericDataBImpl(LENGTH)),
+				init(new RNumericDataBFixLongImpl(LENGTH)),
+				init(new RNumericDataBDirectImpl(LENGTH)),
+				init(new RCharacterDataImpl(LENGTH)),
+				init(new RCharacterDataFixLongImpl(LENGTH)),
+				init(new RFactorDataImpl(LENGTH, false, new String[] { "a", "b", "c" })), //$NON-NLS-1$ //$NON-NLS-2$ //$NON-NLS-3$
+				init(new RFactorDataFixLongImpl(new int[][] { new int[LENGTH] }, false, new String[] { "a", "b", "c" })), //$NON-NLS-1$ //$NON-NLS-2$ //$NON-NLS-3$
+				init(new RRawDataImpl(LENGTH)),
+				init(new RRawDataFixLongImpl(LENGTH)),
+				init(new RRawDataDirectImpl(LENGTH)),
+		};
+	}
+	
+	private static String getName(final RStore<?> store) {
+		return store.getClass().getSimpleName();
+	}
+	
+	
+	@Test
+	public void getValues() {
+		for (final RStore<?> store : createStores()) {
+			final String name = getName(store);
+			for (final int[] range : RANGES) {
+				final int idx = range[0];
+				final int length = range[1];
+				switch (store.getStoreType()) {
+				case RStore.LOGICAL: {
+					final boolean[] array = new boolean[length + 2];
+					store.getLogis(idx, array, 1, length);
+					for (int i = 0; i < length; i++) {
+						if (!store.isNA(idx + i)) {
+							assertEquals(name, store.getLogi(idx + i), array[1 + i]);
+						}
+					}
+					break; }
+				case RStore.INTEGER:
+				case RStore.FACTOR: {
+					final int[] array = new int[length + 2];
+					store.getInts(idx, array, 1, length);
+					for (int i = 0; i < length; i++) {
+						if (!store.isNA(idx + i)) {
+							assertEquals(name, store.getInt(idx + i), array[1 + i]);
+						}
+					}
+					break; }
+				case RStore.NUMERIC: {
+					final double[] array = new double[length + 2];
+					store.getNums(idx, array, 1, length);
+					for (int i = 0; i < length; i++) {
+						if (!store.isNA(idx + i)) {
+							assertEquals(name, store.getNum(idx + i), array[1 + i], 0.0);
+						}
+					}
+					break; }
+				case RStore.RAW: {
+					final byte[] array = new byte[length + 2];
+					store.getRaws(idx, array, 1, length);
+					for (int i = 0; i < length; i++) {
+						assertEquals(name, store.getRaw(idx + i), array[1 + i]);
+					}
+					break; }
+				default:
+					break;
+				}
+				if (store.getStoreType() == RStore.CHARACTER || store.getStoreType() == RStore.FACTOR) {
+					final String[] array = new String[length + 2];
+					store.getChars(idx, array, 1, length);
+					for (int i = 0; i < length; i++) {
+						assertEquals(name, store.getChar(idx + i), array[1 + i]);
+					}
+				}
+			}
+		}
+	}
+	
+	@Test
+	public void getNAs() {
+		for (final RStore<?> store : createStores()) {
+			final String name = getName(store);
+			for (final int[] range : RANGES) {
+				final int idx = range[0];
+				final int length = range[1];
+				final long[] bits = new long[(LENGTH + 63) / 64];
+				Arrays.fill(bits, -1L);
+				store.getNAs(idx, bits, length);
+				for (int i = 0; i < length; i++) {
+					assertEquals(name + " [" + (idx + i) + "]", store.isNA(idx + i), //$NON-NLS-1$ //$NON-NLS-2$
+							(bits[i / 64] & (1L << (i % 64))) != 0 );
+				}
+				for (int i = length; i < ((length + 63) / 64) * 64; i++) {
+					assertEquals(name, 0, bits[i / 64] & (1L << (i % 64)));
+				}
+			}
+		}
+	}
+	
+	@Test
+	public void setValues() {
+		for (final RStore<?> store : createStores()) {
+			final String name = getName(store);
+			switch (store.getStoreType()) {
+			case RStore.INTEGER: {
+				final int[] array = new int[] { 0, 1, 2, 3, 4 };
+				store.setInts(63, array, 1, 3);
+				for (int i = 0; i < 3; i++) {
+					assertFalse(name, store.isNA(63 + i));
+					assertEquals(name, array[1 + i], store.getInt(63 + i));
+				}
+				store.fillInt(100, 50, 7);
+				for (int i = 0; i < 50; i++) {
+					assertFalse(name, store.isNA(100 + i));
+					assertEquals(name, 7, store.getInt(100 + i));
+				}
+				break; }
+			case RStore.NUMERIC: {
+				final double[] array = new double[] { 0, 1.5, Double.NaN, 3.5, 4 };
+				store.setNums(63, array, 1, 3);
+				assertEquals(name, 1.5, store.getNum(63), 0.0);
+				assertFalse(name, store.isNA(64));
+				assertTrue(name, Double.isNaN(store.getNum(64)));
+				assertEquals(name, 3.5, store.getNum(65), 0.0);
+				store.fillNum(100, 50, 0.5);
+				for (int i = 0; i < 50; i++) {
+					assertFalse(name, store.isNA(100 + i));
+					assertEquals(name, 0.5, store.getNum(100 + i), 0.0);
+				}
+				break; }
+			default:
+				continue;
+			}
+			
+			store.fillNA(10, 80);
+			for (int i = 9; i <= 90; i++) {
+				assertEquals(name, (i >= 10 && i < 90) || isNAIdx(i), store.isNA(i));
+			}
+			final long[] bits = new long[2];
+			store.getNAs(10, bits, 80);
+			assertEquals(name, -1L, bits[0]);
+			assertEquals(name, (1L << 16) - 1, bits[1]);
+		}
+	}
+	
+	@Test
+	public void checkRange() {
+		for (final RStore<?> store : createStores()) {
+			final String name = getName(store);
+			for (final int[] range : new int[][] { { -1, 2 }, { LENGTH - 1, 2 }, { LENGTH + 1, 0 }, { 0, -1 } }) {
+				try {
+					store.getNAs(range[0], new long[64], range[1]);
+					fail(name + " " + Arrays.toString(range)); //$NON-NLS-1$
+				}
+				catch (final IndexOutOfBoundsException | NegativeArraySizeException e) {
+				}
+			}
+		}
+	}
+	
+}
@@ -0,0 +1,156 @@
+/*=============================================================================#
+ # Copyright (c) 2016 Stephan Wahlbrink (WalWare.de) and others.
+ # All rights reserved. This program and the accompanying materials
+ # are made available under the terms of either (per the licensee's choosing)
+ #   - the Eclipse Public License v1.0
+ #     which accompanies this distribution, and is available at
+ #     http://www.eclipse.org/legal/epl-v10.html, or
+ #   - the GNU Lesser General Public License v2.1 or newer
+ #     which accompanies this distribution, and is available at
+ #     http://www.gnu.org/licenses/lgpl.html
+ # 
+ # Contributors:
+ #     Stephan Wahlbrink - initial API and implementation
+ #=============================================================================*/
+
+package de.walware.rj.data.defaultImpl;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.Externalizable;
+import java.io.IOException;
+import java.io.ObjectInputStream;
+import java.io.ObjectOutputStream;
+
+import org.junit.Test;
+
+import de.walware.rj.data.RStore;
+
+
+public class RStoreNACacheTest {
+	
+	
+	private static final int LENGTH = 200;
+	
+	
+	private static void assertNAs(final RStore<?> store) {
+		final int length = (int) store.getLength();
+		long count = 0;
+		long first = -1;
+		for (int i = 0; i < length; i++) {
+			if (store.isNA(i)) {
+				count++;
+				if (first < 0) {
+					first = i;
+				}
+			}
+		}
+		assertEquals(count, store.countNA());
+		assertEquals(first, store.indexOfNA());
+		for (int fromIdx = 0; fromIdx <= length; fromIdx += 13) {
+			long expected = -1;
+			for (int i = fromIdx; i < length; i++) {
+				if (store.isNA(i)) {
+					expected = i;
+					break;
+				}
+			}
+			assertEquals(expected, store.indexOfNA(fromIdx));
+		}
+		final long[] bits = new long[(length + 63) / 64 + 1];
+		store.getNAs(0, bits, length);
+		for (int i = 0; i < length; i++) {
+			assertEquals(store.isNA(i), (bits[i / 64] & (1L << (i % 64))) != 0);
+		}
+	}
+	
+	private static void readExternal(final Externalizable store, final Externalizable source) throws Exception {
+		final ByteArrayOutputStream buffer = new ByteArrayOutputStream();
+		try (final ObjectOutputStream out = new ObjectOutputStream(buffer)) {
+			source.writeExternal(out);
+		}
+		try (final ObjectInputStream in = new ObjectInputStream(new ByteArrayInputStream(buffer.toByteArray()))) {
+			store.readExternal(in);
+		}
+	}
+	
+	
+	@Test
+	public void numeric() throws Exception {
+		final double[] values = new double[LENGTH];
+		for (int i = 0; i < LENGTH; i++) {
+			values[i] = (i % 5 == 0) ? Double.NaN : i;
+		}
+		final RNumericDataBImpl store = new RNumericDataBImpl(values, new int[] { 3, 64, 130 });
+		assertNAs(store);
+		assertFalse(store.isNA(0)); // NaN
+		
+		store.setNA(2);
+		assertNAs(store);
+		store.setNA(150L);
+		assertNAs(store);
+		store.setNum(3, 1.0);
+		assertNAs(store);
+		store.setNum(64L, Double.NaN);
+		assertNAs(store);
+		store.setNums(120, new double[] { 1, 2, 3 }, 0, 3);
+		assertNAs(store);
+		store.fillNA(100, 30);
+		assertNAs(store);
+		store.fillNum(110, 5, 2.0);
+		assertNAs(store);
+		store.insertNA(0);
+		assertNAs(store);
+		store.insertNum(10, 1.0);
+		assertNAs(store);
+		store.remove(0);
+		assertNAs(store);
+		store.remove(new int[] { 1, 2, 3 });
+		assertNAs(store);
+		
+		readExternal(store, new RNumericDataBImpl(new double[] { 1, 2 }, new int[] { 1 }));
+		assertEquals(2, store.getLength());
+		assertNAs(store);
+	}
+	
+	@Test
+	public void integer() throws Exception {
+		final int[] values = new int[LENGTH];
+		for (int i = 0; i < LENGTH; i++) {
+			values[i] = i;
+		}
+		final RIntegerDataImpl store = new RIntegerDataImpl(values, new int[] { 3, 64, 130 });
+		assertNAs(store);
+		
+		store.setNA(2);
+		assertNAs(store);
+		store.setNA(150L);
+		assertNAs(store);
+		store.setInt(3, 1);
+		assertNAs(store);
+		store.setInt(64L, 2);
+		assertNAs(store);
+		store.setInts(120, new int[] { 1, 2, 3 }, 0, 3);
+		assertNAs(store);
+		store.fillNA(100, 30);
+		assertNAs(store);
+		store.fillInt(110, 5, 2);
+		assertNAs(store);
+		store.insertNA(0);
+		assertNAs(store);
+		store.insertInt(10, 1);
+		assertNAs(store);
+		store.remove(0);
+		assertNAs(store);
+		store.remove(new int[] { 1, 2, 3 });
+		assertNAs(store);
+		
+		readExternal(store, new RIntegerDataImpl(new int[] { 1, 2 }, new int[] { 1 }));
+		assertEquals(2, store.getLength());
+		assertNAs(store);
+	}
+	
+}
@@ -0,0 +1,179 @@
+/*=============================================================================#
+ # Copyright (c) 2016 Stephan Wahlbrink (WalWare.de) and others.
+ # All rights reserved. This program and the accompanying materials
+ # are made available under the terms of either (per the licensee's choosing)
+ #   - the Eclipse Public License v1.0
+ #     which accompanies this distribution, and is available at
+ #     http://www.eclipse.org/legal/epl-v10.html, or
+ #   - the GNU Lesser General Public License v2.1 or newer
+ #     which accompanies this distribution, and is available at
+ #     http://www.gnu.org/licenses/lgpl.html
+ # 
+ # Contributors:
+ #     Stephan Wahlbrink - initial API and implementation
+ #=============================================================================*/
+
+package de.walware.rj.data.defaultImpl;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertTrue;
+
+import static de.walware.rj.data.RDataAssert.assertObjectEquals;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.ObjectInputStream;
+import java.io.ObjectOutputStream;
+import java.util.ArrayList;
+import java.util.List;
+
+import org.junit.Test;
+
+import de.walware.rj.data.RCharacterStore;
+import de.walware.rj.data.RJIO;
+import de.walware.rj.data.RObject;
+import de.walware.rj.data.RStore;
+import de.walware.rj.data.RStoreStreamHandler;
+
+
+public class RStreamObjectFactoryTest {
+	
+	
+	private static class PartRecorder implements RStoreStreamHandler {
+		
+		
+		private final List<long[]> parts = new ArrayList<>();
+		
+		private long length;
+		private int stores;
+		
+		
+		@Override
+		public void beginStore(final byte storeType, final long length) {
+			this.length = length;
+			this.stores++;
+		}
+		
+		@Override
+		public void handleData(final RStore<?> part, final long offset) {
+			this.parts.add(new long[] { offset, part.getLength() });
+		}
+		
+		@Override
+		public void handleFactorLevels(final boolean isOrdered, final RCharacterStore levels) {
+		}
+		
+		@Override
+		public RStore<?> endStore() {
+			return null;
+		}
+		
+	}
+	
+	
+	private final RObjectFactoryImpl factory = new RObjectFactoryImpl();
+	
+	
+	private byte[] write(final RObject object, final boolean compress) throws IOException {
+		final ByteArrayOutputStream buffer = new ByteArrayOutputStream();
+		final ObjectOutputStream out = new ObjectOutputStream(buffer);
+		final RJIO io = RJIO.get(out);
+		io.flags = 0;
+		if (compress) {
+			io.setCompression(RJIO.COMPRESSION_DEFLATE, 100);
+		}
+		io.setStringDictEncoding(true);
+		this.factory.writeObject(object, io);
+		io.disconnect(out);
+		out.close();
+		return buffer.toByteArray();
+	}
+	
+	private static RObject read(final byte[] bytes, final RObjectFactoryImpl factory) throws IOException {
+		final ObjectInputStream in = new ObjectInputStream(new ByteArrayInputStream(bytes));
+		final RJIO io = RJIO.get(in);
+		io.flags = 0;
+		final RObject object = factory.readObject(io);
+		io.disconnect(in);
+		return object;
+	}
+	
+	private RObject createDataFrame(final int length) {
+		final double[] num = new double[length];
+		final int[] integers = new int[length];
+		final String[] chars = new String[length];
+		final int[] codes = new int[length];
+		final RLogicalDataByteImpl logi = new RLogicalDataByteImpl(length);
+		final RRawDataImpl raw = new RRawDataImpl(length);
+		final RComplexDataBImpl cplx = new RComplexDataBImpl(length);
+		for (int i = 0; i < length; i++) {
+			num[i] = i * 0.5;
+			integers[i] = i;
+			chars[i] = (i % 3 == 0) ? "abc" : Integer.toString(i); //$NON-NLS-1$
+			codes[i] = 1 + (i % 2);
+			logi.setLogi(i, (i % 2) == 0);
+			raw.setRaw(i, (byte) i);
+			cplx.setCplx(i, i, 1.0);
+		}
+		final RObject[] columns = new RObject[] {
+				this.factory.createNumVector(num),
+				this.factory.createIntVector(integers),
+				this.factory.createCharVector(chars),
+				this.factory.createFactorVector(codes, new String[] { "x", "y" }), //$NON-NLS-1$ //$NON-NLS-2$
+				this.factory.createVector(logi),
+				this.factory.createVector(raw),
+				this.factory.createVector(cplx),
+		};
+		for (int i = 0; i < 3; i++) {
+			columns[i].getData().setNA(1);
+		}
+		logi.setNA(1);
+		return this.factory.createDataFrame(columns,
+				new String[] { "num", "int", "chr", "fac", "logi", "raw", "cplx" }, null ); //$NON-NLS-1$ //$NON-NLS-2$ //$NON-NLS-3$ //$NON-NLS-4$ //$NON-NLS-5$ //$NON-NLS-6$ //$NON-NLS-7$
+	}
+	
+	
+	@Test
+	public void collectParts() throws IOException {
+		final RObject object = createDataFrame(5000);
+		final byte[] bytes = write(object, false);
+		assertObjectEquals(object, read(bytes, new RStreamObjectFactory(new RStoreCollector(), 777)));
+		assertObjectEquals(object, read(bytes, new RStreamObjectFactory(new RStoreCollector())));
+	}
+	
+	@Test
+	public void collectCompressedParts() throws IOException {
+		final RObject object = createDataFrame(5000);
+		assertObjectEquals(object, read(write(object, true),
+				new RStreamObjectFactory(new RStoreCollector(), 777) ));
+	}
+	
+	@Test
+	public void deliverParts() throws IOException {
+		final PartRecorder recorder = new PartRecorder();
+		final RObject object = read(write(this.factory.createNumVector(new double[2500]), false),
+				new RStreamObjectFactory(recorder, 1000) );
+		
+		assertEquals(1, recorder.stores);
+		assertEquals(2500, recorder.length);
+		assertEquals(3, recorder.parts.size());
+		long offset = 0;
+		for (final long[] part : recorder.parts) {
+			assertEquals(offset, part[0]);
+			assertTrue(part[1] <= 1000);
+			offset += part[1];
+		}
+		assertEquals(2500, offset);
+		// without store of the handler, the structure is kept
+		assertEquals(2500, object.getLength());
+		assertSame(RObjectFactoryImpl.NUM_STRUCT_DUMMY, object.getData());
+	}
+	
+	@Test(expected = IllegalArgumentException.class)
+	public void rejectInvalidPartLength() {
+		new RStreamObjectFactory(new RStoreCollector(), 0);
+	}
+	
+}
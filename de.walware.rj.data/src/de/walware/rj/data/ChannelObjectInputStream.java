@@ -0,0 +1,277 @@
+/*=============================================================================#
+ # Copyright (c) 2016 Stephan Wahlbrink (WalWare.de) and others.
+ # All rights reserved. This program and the accompanying materials
+ # are made available under the terms of either (per the licensee's choosing)
+ #   - the Eclipse Public License v1.0
+ #     which accompanies this distribution, and is available at
+ #     http://www.eclipse.org/legal/epl-v10.html, or
+ #   - the GNU Lesser General Public License v2.1 or newer
+ #     which accompanies this distribution, and is available at
+ #     http://www.gnu.org/licenses/lgpl.html
+ # 
+ # Contributors:
+ #     Stephan Wahlbrink - initial API and implementation
+ #=============================================================================*/
+
+package de.walware.rj.data;
+
+import java.io.EOFException;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.ObjectInputStream;
+import java.io.StreamCorruptedException;
+import java.nio.ByteBuffer;
+import java.nio.channels.ReadableByteChannel;
+
+
+/**
+ * Object input stream reading the frames written by {@link ChannelObjectOutputStream}.
+ * <p>
+ * If RJIO is connected to this stream, bulk data is read directly from the channel into the
+ * buffers of RJIO. The data is read the same way as in-band data, the segmentation of the
+ * reader doesn't have to match the segmentation of the writer.</p>
+ * 
+ * @see ChannelObjectOutputStream
+ */
+public class ChannelObjectInputStream extends ObjectInputStream {
+	
+	
+	private static final class FrameInputStream extends InputStream {
+		
+		
+		private final InputStream in;
+		private final ReadableByteChannel channel;
+		
+		private final byte[] buffer;
+		private int pos;
+		private int end;
+		
+		/** Remaining bytes of the current object frame */
+		private int frameRemaining;
+		/** Remaining bytes of the current bulk frame */
+		private int bulkRemaining;
+		
+		private long count;
+		
+		
+		public FrameInputStream(final InputStream in, final ReadableByteChannel channel) {
+			if (in == null) {
+				throw new NullPointerException("in"); //$NON-NLS-1$
+			}
+			this.in = in;
+			this.channel = channel;
+			this.buffer = new byte[4 + ChannelObjectOutputStream.FRAME_LENGTH];
+		}
+		
+		
+		private boolean fill(final int min, final boolean block) throws IOException {
+			if (this.pos > 0 && this.buffer.length - this.pos < min) {
+				System.arraycopy(this.buffer, this.pos, this.buffer, 0, this.end - this.pos);
+				this.end -= this.pos;
+				this.pos = 0;
+			}
+			while (this.end - this.pos < min) {
+				int n = this.buffer.length - this.end;
+				if (!block) {
+					n = Math.min(n, this.in.available());
+					if (n <= 0) {
+						return false;
+					}
+				}
+				n = this.in.read(this.buffer, this.end, n);
+				if (n < 0) {
+					return false;
+				}
+				this.end += n;
+				this.count += n;
+			}
+			return true;
+		}
+		
+		/**
+		 * Reads the header of the next frame, if the current frame is completely read.
+		 * 
+		 * @param block if it is allowed to block
+		 * @return <code>true</code> if a frame with remaining bytes is current, otherwise
+		 *     <code>false</code> (end of stream or not blocking)
+		 */
+		private boolean nextFrame(final boolean block) throws IOException {
+			while (this.frameRemaining == 0 && this.bulkRemaining == 0) {
+				if (!fill(4, block)) {
+					if (block && this.pos < this.end) {
+						throw new EOFException();
+					}
+					return false;
+				}
+				final byte[] b = this.buffer;
+				final int length = ((b[this.pos] & 0xff) << 24) | ((b[this.pos + 1] & 0xff) << 16)
+						| ((b[this.pos + 2] & 0xff) << 8) | (b[this.pos + 3] & 0xff);
+				this.pos += 4;
+				if (length >= 0) {
+					this.frameRemaining = length;
+				}
+				else {
+					this.bulkRemaining = -length;
+				}
+			}
+			return true;
+		}
+		
+		private void checkObjectFrame() throws IOException {
+			if (this.bulkRemaining > 0) {
+				throw new StreamCorruptedException("Unexpected bulk data (" + this.bulkRemaining + " bytes)."); //$NON-NLS-1$ //$NON-NLS-2$
+			}
+		}
+		
+		@Override
+		public int read() throws IOException {
+			if (!nextFrame(true)) {
+				return -1;
+			}
+			checkObjectFrame();
+			if (this.pos == this.end && !fill(1, true)) {
+				throw new EOFException();
+			}
+			this.frameRemaining--;
+			return (this.buffer[this.pos++] & 0xff);
+		}
+		
+		@Override
+		public int read(final byte[] b, final int off, int len) throws IOException {
+			if (len == 0) {
+				return 0;
+			}
+			if (!nextFrame(true)) {
+				return -1;
+			}
+			checkObjectFrame();
+			if (this.pos == this.end && !fill(1, true)) {
+				throw new EOFException();
+			}
+			len = Math.min(len, Math.min(this.frameRemaining, this.end - this.pos));
+			System.arraycopy(this.buffer, this.pos, b, off, len);
+			this.pos += len;
+			this.frameRemaining -= len;
+			return len;
+		}
+		
+		@Override
+		public int available() throws IOException {
+			if (!nextFrame(false) || this.bulkRemaining > 0) {
+				return 0;
+			}
+			if (this.pos == this.end) {
+				fill(1, false);
+			}
+			return Math.min(this.frameRemaining, this.end - this.pos);
+		}
+		
+		public boolean isBulkNext() throws IOException {
+			return (nextFrame(true) && this.bulkRemaining > 0);
+		}
+		
+		public void readBulk(final ByteBuffer dst) throws IOException {
+			int n = Math.min(dst.remaining(), this.bulkRemaining);
+			this.bulkRemaining -= n;
+			{	final int buffered = Math.min(n, this.end - this.pos);
+				if (buffered > 0) {
+					dst.put(this.buffer, this.pos, buffered);
+					this.pos += buffered;
+					n -= buffered;
+				}
+			}
+			if (n == 0) {
+				return;
+			}
+			this.count += n;
+			if (this.channel != null) {
+				final int limit = dst.limit();
+				dst.limit(dst.position() + n);
+				try {
+					while (dst.hasRemaining()) {
+						if (this.channel.read(dst) < 0) {
+							throw new EOFException();
+						}
+					}
+				}
+				finally {
+					dst.limit(limit);
+				}
+			}
+			else {
+				while (n > 0) {
+					final int read = this.in.read(this.buffer, 0, Math.min(n, this.buffer.length));
+					if (read < 0) {
+						throw new EOFException();
+					}
+					dst.put(this.buffer, 0, read);
+					n -= read;
+				}
+			}
+		}
+		
+		@Override
+		public void close() throws IOException {
+			this.in.close();
+		}
+		
+	}
+	
+	
+	private final FrameInputStream frames;
+	
+	
+	/**
+	 * Creates a new stream reading from the specified source.
+	 * <p>
+	 * The input stream and the channel must read from the same source; the input stream
+	 * must not be buffered. The input stream is used to read the object stream, so timeouts
+	 * configured for it apply; the channel is used to read bulk data. If the channel is
+	 * <code>null</code>, bulk data is read by the input stream too.</p>
+	 * 
+	 * @param in the unbuffered input stream
+	 * @param channel the channel (in blocking mode) or <code>null</code>
+	 * @throws IOException
+	 */
+	public ChannelObjectInputStream(final InputStream in, final ReadableByteChannel channel) throws IOException {
+		this(new FrameInputStream(in, channel));
+	}
+	
+	private ChannelObjectInputStream(final FrameInputStream frames) throws IOException {
+		super(frames);
+		this.frames = frames;
+	}
+	
+	
+	/**
+	 * Returns if the next data is bulk data, blocks until the header of the next frame is
+	 * available.
+	 * 
+	 * @return <code>true</code> if the next data is bulk data, otherwise <code>false</code>
+	 * @throws IOException
+	 */
+	boolean isBulkNext() throws IOException {
+		return (available() == 0 && this.frames.isBulkNext());
+	}
+	
+	/**
+	 * Reads bulk data into the buffer, at most the remaining bytes of the buffer and of
+	 * the current bulk frame.
+	 * 
+	 * @param dst the buffer
+	 * @throws IOException
+	 */
+	void readBulk(final ByteBuffer dst) throws IOException {
+		this.frames.readBulk(dst);
+	}
+	
+	/**
+	 * Returns the number of bytes read from the source.
+	 * 
+	 * @return the number of bytes
+	 */
+	public long getByteCount() {
+		return this.frames.count;
+	}
+	
+}
@@ -0,0 +1,195 @@
+/*=============================================================================#
+ # Copyright (c) 2016 Stephan Wahlbrink (WalWare.de) and others.
+ # All rights reserved. This program and the accompanying materials
+ # are made available under the terms of either (per the licensee's choosing)
+ #   - the Eclipse Public License v1.0
+ #     which accompanies this distribution, and is available at
+ #     http://www.eclipse.org/legal/epl-v10.html, or
+ #   - the GNU Lesser General Public License v2.1 or newer
+ #     which accompanies this distribution, and is available at
+ #     http://www.gnu.org/licenses/lgpl.html
+ # 
+ # Contributors:
+ #     Stephan Wahlbrink - initial API and implementation
+ #=============================================================================*/
+
+package de.walware.rj.data;
+
+import java.io.IOException;
+import java.io.ObjectOutputStream;
+import java.io.OutputStream;
+import java.nio.ByteBuffer;
+import java.nio.channels.GatheringByteChannel;
+import java.nio.channels.WritableByteChannel;
+
+
+/**
+ * Object output stream writing to a byte channel, with direct transfer of large primitive
+ * data written by {@link RJIO}.
+ * <p>
+ * The stream is written in frames: frames with the bytes of the object stream and frames
+ * with bulk data. If RJIO is connected to this stream, int, double and byte data exceeding the
+ * buffer of RJIO is written as bulk frame directly to the channel, bypassing the block data
+ * framing of the object stream and the copying through its buffers. The stream must be read
+ * by {@link ChannelObjectInputStream}.</p>
+ * <p>
+ * The stream is buffered; the channel must be in blocking mode.</p>
+ * 
+ * @see ChannelObjectInputStream
+ */
+public class ChannelObjectOutputStream extends ObjectOutputStream {
+	
+	
+	static final int FRAME_LENGTH = 0x10000;
+	
+	
+	private static final class FrameOutputStream extends OutputStream {
+		
+		
+		private final WritableByteChannel channel;
+		
+		private final ByteBuffer buffer;
+		private final ByteBuffer bulkHeader;
+		private final ByteBuffer[] bulkBuffers;
+		
+		private long count;
+		
+		
+		public FrameOutputStream(final WritableByteChannel channel) {
+			if (channel == null) {
+				throw new NullPointerException("channel"); //$NON-NLS-1$
+			}
+			this.channel = channel;
+			this.buffer = ByteBuffer.allocateDirect(4 + FRAME_LENGTH);
+			this.buffer.position(4);
+			this.bulkHeader = ByteBuffer.allocateDirect(4);
+			this.bulkBuffers = new ByteBuffer[] { this.bulkHeader, null };
+		}
+		
+		
+		@Override
+		public void write(final int b) throws IOException {
+			if (!this.buffer.hasRemaining()) {
+				writeFrame();
+			}
+			this.buffer.put((byte) b);
+		}
+		
+		@Override
+		public void write(final byte[] b, int off, int len) throws IOException {
+			while (len > 0) {
+				if (!this.buffer.hasRemaining()) {
+					writeFrame();
+				}
+				final int n = Math.min(len, this.buffer.remaining());
+				this.buffer.put(b, off, n);
+				off += n;
+				len -= n;
+			}
+		}
+		
+		@Override
+		public void flush() throws IOException {
+			if (this.buffer.position() > 4) {
+				writeFrame();
+			}
+		}
+		
+		private void writeFrame() throws IOException {
+			final ByteBuffer buffer = this.buffer;
+			buffer.putInt(0, buffer.position() - 4);
+			buffer.flip();
+			this.count += buffer.remaining();
+			while (buffer.hasRemaining()) {
+				this.channel.write(buffer);
+			}
+			buffer.clear();
+			buffer.position(4);
+		}
+		
+		public void writeBulk(final ByteBuffer src) throws IOException {
+			final int length = src.remaining();
+			if (length == 0) {
+				return;
+			}
+			flush();
+			final ByteBuffer header = this.bulkHeader;
+			header.clear();
+			header.putInt(-length);
+			header.flip();
+			this.count += 4 + length;
+			if (this.channel instanceof GatheringByteChannel) {
+				final ByteBuffer[] buffers = this.bulkBuffers;
+				buffers[1] = src;
+				try {
+					while (src.hasRemaining()) {
+						((GatheringByteChannel) this.channel).write(buffers);
+					}
+				}
+				finally {
+					buffers[1] = null;
+				}
+			}
+			else {
+				while (header.hasRemaining()) {
+					this.channel.write(header);
+				}
+				while (src.hasRemaining()) {
+					this.channel.write(src);
+				}
+			}
+		}
+		
+		@Override
+		public void close() throws IOException {
+			try {
+				flush();
+			}
+			finally {
+				this.channel.close();
+			}
+		}
+		
+	}
+	
+	
+	private final FrameOutputStream frames;
+	
+	
+	/**
+	 * Creates a new stream writing to the specified channel.
+	 * 
+	 * @param channel the channel (in blocking mode)
+	 * @throws IOException
+	 */
+	public ChannelObjectOutputStream(final WritableByteChannel channel) throws IOException {
+		this(new FrameOutputStream(channel));
+	}
+	
+	private ChannelObjectOutputStream(final FrameOutputStream frames) throws IOException {
+		super(frames);
+		this.frames = frames;
+	}
+	
+	
+	/**
+	 * Writes the remaining bytes of the buffer as bulk data.
+	 * 
+	 * @param src the buffer with the data
+	 * @throws IOException
+	 */
+	void writeBulk(final ByteBuffer src) throws IOException {
+		flush();
+		this.frames.writeBulk(src);
+	}
+	
+	/**
+	 * Returns the number of bytes written to the channel.
+	 * 
+	 * @return the number of bytes
+	 */
+	public long getByteCount() {
+		return this.frames.count;
+	}
+	
+}
@@ -15,9 +15,16 @@
 
 package de.walware.rj.data;
 
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.EOFException;
 import java.io.IOException;
+import java.io.InputStream;
 import java.io.ObjectInput;
 import java.io.ObjectOutput;
+import java.io.OutputStream;
 import java.nio.ByteBuffer;
 import java.nio.CharBuffer;
 import java.nio.DoubleBuffer;
@@ -25,6 +32,10 @@ import java.nio.IntBuffer;
 import java.util.HashMap;
 import java.util.Map;
 import java.util.Map.Entry;
+import java.util.zip.Deflater;
+import java.util.zip.DeflaterOutputStream;
+import java.util.zip.Inflater;
+import java.util.zip.InflaterInputStream;
 
 
 /**
@@ -42,6 +53,124 @@ public final class RJIO {
 		
 	};
 	
+	/** Codec constant for uncompressed data blocks */
+	public static final byte COMPRESSION_NONE = 0;
+	/** Codec constant for data blocks compressed by {@link Deflater} */
+	public static final byte COMPRESSION_DEFLATE = 1;
+	
+	private static final int COMPRESSION_BUFFER_LENGTH = 65536;
+	
+	
+	/**
+	 * Writes the compressed bytes as sequence of chunks (length + bytes); the terminating
+	 * chunk of length 0 is written by {@link RJIO#endCompressedBlock()}.
+	 */
+	private static final class ChunkOutputStream extends OutputStream {
+		
+		private final ObjectOutput out;
+		
+		public ChunkOutputStream(final ObjectOutput out) {
+			this.out = out;
+		}
+		
+		@Override
+		public void write(final int b) throws IOException {
+			this.out.writeInt(1);
+			this.out.writeByte(b);
+		}
+		
+		@Override
+		public void write(final byte[] b, final int off, final int len) throws IOException {
+			if (len > 0) {
+				this.out.writeInt(len);
+				this.out.write(b, off, len);
+			}
+		}
+		
+	}
+	
+	private static final class ChunkInputStream extends InputStream {
+		
+		private final ObjectInput in;
+		
+		private int chunkRemaining;
+		
+		public ChunkInputStream(final ObjectInput in) {
+			this.in = in;
+		}
+		
+		private boolean nextChunk() throws IOException {
+			while (this.chunkRemaining == 0) {
+				final int length = this.in.readInt();
+				if (length <= 0) {
+					this.chunkRemaining = -1;
+					return false;
+				}
+				this.chunkRemaining = length;
+			}
+			return (this.chunkRemaining > 0);
+		}
+		
+		@Override
+		public int read() throws IOException {
+			if (!nextChunk()) {
+				return -1;
+			}
+			this.chunkRemaining--;
+			return (this.in.readByte() & 0xff);
+		}
+		
+		@Override
+		public int read(final byte[] b, final int off, final int len) throws IOException {
+			if (len == 0) {
+				return 0;
+			}
+			if (!nextChunk()) {
+				return -1;
+			}
+			final int n = Math.min(len, this.chunkRemaining);
+			this.in.readFully(b, off, n);
+			this.chunkRemaining -= n;
+			return n;
+		}
+		
+		@Override
+		public void close() throws IOException {
+			while (nextChunk()) {
+				this.in.skipBytes(this.chunkRemaining);
+				this.chunkRemaining = 0;
+			}
+		}
+		
+	}
+	
+	private static final class BlockOutput extends DataOutputStream implements ObjectOutput {
+		
+		public BlockOutput(final OutputStream out) {
+			super(out);
+		}
+		
+		@Override
+		public void writeObject(final Object obj) throws IOException {
+			throw new IOException("Objects are not supported in compressed data blocks.");
+		}
+		
+	}
+	
+	private static final class BlockInput extends DataInputStream implements ObjectInput {
+		
+		public BlockInput(final InputStream in) {
+			super(in);
+		}
+		
+		@Override
+		public Object readObject() throws IOException {
+			throw new IOException("Objects are not supported in compressed data blocks.");
+		}
+		
+	}
+	
+	
 	public static RJIO get(final ObjectOutput out) {
 		final RJIO io = INSTANCES.get();
 		io.connect(out);
@@ -62,6 +191,19 @@ public final class RJIO {
 	private static final int CA_LENGTH = BB_LENGTH * 4;
 	private static final int IB_LENGTH = BB_LENGTH / 4;
 	private static final int DB_LENGTH = BB_LENGTH / 8;
+	/** Length of the buffer for bulk data of channel streams */
+	private static final int BULK_LENGTH = BB_LENGTH * 16;
+	
+	private static final int STRING_DICT_MIN_LENGTH = 1024;
+	private static final int STRING_DICT_MAX_SIZE = 0xffff;
+	private static final int STRING_DATA_PLAIN = 0;
+	/**
+	 * Header of dictionary encoded string data with byte codes; the header is not a valid length
+	 * of a string element, so it is distinguishable from the first element of plain data.
+	 */
+	private static final int STRING_DATA_DICT_BYTE = Integer.MIN_VALUE + 1;
+	/** Header of dictionary encoded string data with int codes */
+	private static final int STRING_DATA_DICT_INT = Integer.MIN_VALUE + 2;
 	
 	private static final int[] EMPTY_INT_ARRAY = new int[0];
 	
@@ -81,6 +223,27 @@ public final class RJIO {
 	
 	private ObjectOutput out;
 	
+	private byte compression;
+	private long compressionMinLength;
+	private ObjectOutput blockParentOut;
+	private ObjectInput blockParentIn;
+	private Deflater deflater;
+	private Inflater inflater;
+	
+	private DeflaterOutputStream deflaterOut;
+	private InflaterInputStream inflaterIn;
+	
+	private ByteBuffer bulkBB;
+	private IntBuffer bulkIB;
+	private DoubleBuffer bulkDB;
+	
+	private boolean stringDictEncoding;
+	private HashMap<String, Integer> stringDict;
+	private int stringPartsEncoding;
+	private String[] stringPartsDict;
+	private boolean stringPartsHeaderRead;
+	private int stringPartsHeader;
+	
 	private int temp;
 	
 	public int flags;
@@ -109,6 +272,8 @@ public final class RJIO {
 	
 	public void connect(final ObjectOutput out) {
 		this.out = out;
+		this.compression = COMPRESSION_NONE;
+		this.stringDictEncoding = false;
 	}
 	
 	public void connect(final ObjectInput in) {
@@ -125,6 +290,124 @@ public final class RJIO {
 	}
 	
 	
+	/**
+	 * Enables the compression of large data blocks for the current output.
+	 * <p>
+	 * The setting is reset when the RJIO is connected to another output. It must be enabled
+	 * only if the reader is known to support the codec.</p>
+	 * 
+	 * @param codec the codec, one of the <code>COMPRESSION_</code> constants
+	 * @param minLength the minimal length of data (number of elements) to compress
+	 */
+	public void setCompression(final byte codec, final long minLength) {
+		switch (codec) {
+		case COMPRESSION_NONE:
+		case COMPRESSION_DEFLATE:
+			this.compression = codec;
+			this.compressionMinLength = minLength;
+			return;
+		default:
+			throw new IllegalArgumentException("codec= " + codec);
+		}
+	}
+	
+	/**
+	 * Returns if data of the specified length should be written in a compressed block.
+	 * 
+	 * @param length the length of the data (number of elements)
+	 * @return <code>true</code> if compression is enabled and the length exceeds the threshold
+	 */
+	public boolean isCompressionRequired(final long length) {
+		return (this.compression != COMPRESSION_NONE && this.blockParentOut == null
+				&& length >= this.compressionMinLength );
+	}
+	
+	/**
+	 * Starts a compressed data block.  All data written until {@link #endCompressedBlock()}
+	 * is compressed using the codec of this RJIO.
+	 * 
+	 * @throws IOException
+	 */
+	public void beginCompressedBlock() throws IOException {
+		if (this.blockParentOut != null) {
+			throw new IllegalStateException();
+		}
+		final ObjectOutput out = this.out;
+		out.writeByte(this.compression);
+		if (this.deflater == null) {
+			this.deflater = new Deflater(Deflater.BEST_SPEED);
+		}
+		this.blockParentOut = out;
+		this.deflaterOut = new DeflaterOutputStream(new ChunkOutputStream(out), this.deflater,
+				COMPRESSION_BUFFER_LENGTH );
+		this.out = new BlockOutput(new BufferedOutputStream(this.deflaterOut, BB_LENGTH));
+	}
+	
+	public void endCompressedBlock() throws IOException {
+		try {
+			this.out.flush();
+			this.deflaterOut.finish();
+		}
+		finally {
+			this.deflater.reset();
+			this.deflaterOut = null;
+			this.out = this.blockParentOut;
+			this.blockParentOut = null;
+		}
+		this.out.writeInt(0);
+	}
+	
+	/**
+	 * Starts the reading of a compressed data block written by {@link #beginCompressedBlock()}.
+	 * 
+	 * @throws IOException
+	 */
+	public void beginCompressedBlockRead() throws IOException {
+		if (this.blockParentIn != null) {
+			throw new IllegalStateException();
+		}
+		final ObjectInput in = this.in;
+		final byte codec = in.readByte();
+		switch (codec) {
+		case COMPRESSION_DEFLATE:
+			if (this.inflater == null) {
+				this.inflater = new Inflater();
+			}
+			this.blockParentIn = in;
+			this.inflaterIn = new InflaterInputStream(new ChunkInputStream(in), this.inflater,
+					COMPRESSION_BUFFER_LENGTH );
+			this.in = new BlockInput(new BufferedInputStream(this.inflaterIn, BB_LENGTH));
+			return;
+		default:
+			throw new IOException("Unsupported compression codec (c = " + codec + ").");
+		}
+	}
+	
+	public void endCompressedBlockRead() throws IOException {
+		try {
+			this.inflaterIn.close();
+		}
+		finally {
+			this.inflater.reset();
+			this.inflaterIn = null;
+			this.in = this.blockParentIn;
+			this.blockParentIn = null;
+		}
+	}
+	
+	/**
+	 * Enables the dictionary encoding of large string data for the current output.
+	 * <p>
+	 * The setting is reset when the RJIO is connected to another output. It must be enabled
+	 * only if the reader is known to support the encoding.</p>
+	 * 
+	 * @param enabled <code>true</code> to enable the encoding
+	 */
+	public void setStringDictEncoding(final boolean enabled) {
+		this.stringDictEncoding = enabled;
+	}
+	
+	
 	private void writeFullyBB(final int bn) throws IOException {
 		switch (this.mode) {
 		case MODE_BBARRAY:
@@ -170,6 +453,150 @@ public final class RJIO {
 	}
 	
 	
+	/**
+	 * Returns the channel stream, if data of the specified length should be written directly
+	 * to the channel.
+	 */
+	private ChannelObjectOutputStream getBulkOut(final int bn) {
+		return (bn > BA_LENGTH && this.out instanceof ChannelObjectOutputStream) ?
+				(ChannelObjectOutputStream) this.out : null;
+	}
+	
+	/**
+	 * Returns the channel stream, if data of the specified length can't be read completely
+	 * from the object stream (the data or a part of it is written directly to the channel).
+	 */
+	private ChannelObjectInputStream getBulkIn(final int bn) throws IOException {
+		return (this.in instanceof ChannelObjectInputStream && this.in.available() < bn) ?
+				(ChannelObjectInputStream) this.in : null;
+	}
+	
+	private ByteBuffer getBulkBB() {
+		if (this.bulkBB == null) {
+			this.bulkBB = ByteBuffer.allocateDirect(BULK_LENGTH);
+			this.bulkIB = this.bulkBB.asIntBuffer();
+			this.bulkDB = this.bulkBB.asDoubleBuffer();
+		}
+		return this.bulkBB;
+	}
+	
+	/**
+	 * Reads data written by the data methods into the buffer, both bulk data and data of the
+	 * object stream.
+	 */
+	private void readChannelData(final ChannelObjectInputStream in, final ByteBuffer dst)
+			throws IOException {
+		while (dst.hasRemaining()) {
+			if (in.isBulkNext()) {
+				in.readBulk(dst);
+			}
+			else {
+				final int n = in.read(this.ba, 0, Math.min(dst.remaining(), BA_LENGTH));
+				if (n < 0) {
+					throw new EOFException();
+				}
+				dst.put(this.ba, 0, n);
+			}
+		}
+	}
+	
+	private void writeBufferData(final ByteBuffer buffer, final int bn) throws IOException {
+		final ByteBuffer src = buffer.duplicate();
+		src.limit(src.position() + bn);
+		final ChannelObjectOutputStream bulkOut = getBulkOut(bn);
+		if (bulkOut != null) {
+			bulkOut.writeBulk(src);
+			buffer.position(buffer.position() + bn);
+			return;
+		}
+		while (src.hasRemaining()) {
+			final int n = Math.min(src.remaining(), BA_LENGTH);
+			src.get(this.ba, 0, n);
+			this.out.write(this.ba, 0, n);
+		}
+		buffer.position(buffer.position() + bn);
+	}
+	
+	private void readBufferData(final ByteBuffer buffer, final int bn) throws IOException {
+		final ByteBuffer dst = buffer.duplicate();
+		final ChannelObjectInputStream bulkIn = getBulkIn(bn);
+		if (bulkIn != null) {
+			dst.limit(dst.position() + bn);
+			readChannelData(bulkIn, dst);
+			buffer.position(buffer.position() + bn);
+			return;
+		}
+		int br = 0;
+		while (br < bn) {
+			final int n = Math.min(bn - br, BA_LENGTH);
+			this.in.readFully(this.ba, 0, n);
+			dst.put(this.ba, 0, n);
+			br += n;
+		}
+		buffer.position(buffer.position() + bn);
+	}
+	
+	/**
+	 * Writes a part of byte data from the buffer (starting at its position) like
+	 * {@link #writeByteData(byte[], int)} writes the complete block.
+	 * 
+	 * @param buffer the buffer with the values
+	 * @param length the number of values to write
+	 */
+	public void writeByteDataPart(final ByteBuffer buffer, final int length) throws IOException {
+		writeBufferData(buffer, length);
+	}
+	
+	/**
+	 * Writes a part of int data from the buffer (big-endian, starting at its position) like
+	 * {@link #writeIntData(int[], int)} writes the complete block.
+	 * 
+	 * @param buffer the buffer with the values
+	 * @param length the number of values to write
+	 */
+	public void writeIntDataPart(final ByteBuffer buffer, final int length) throws IOException {
+		writeBufferData(buffer, (length << 2));
+	}
+	
+	/**
+	 * Writes a part of double data from the buffer (big-endian, starting at its position) like
+	 * {@link #writeDoubleData(double[], int)} writes the complete block.
+	 * 
+	 * @param buffer the buffer with the values
+	 * @param length the number of values to write
+	 */
+	public void writeDoubleDataPart(final ByteBuffer buffer, final int length) throws IOException {
+		writeBufferData(buffer, (length << 3));
+	}
+	
+	/**
+	 * Reads the next part of byte data into the buffer (starting at its position).
+	 * 
+	 * @see #writeByteDataPart(ByteBuffer, int)
+	 */
+	public void readByteDataPart(final ByteBuffer buffer, final int length) throws IOException {
+		readBufferData(buffer, length);
+	}
+	
+	/**
+	 * Reads the next part of int data into the buffer (big-endian, starting at its position).
+	 * 
+	 * @see #writeIntDataPart(ByteBuffer, int)
+	 */
+	public void readIntDataPart(final ByteBuffer buffer, final int length) throws IOException {
+		readBufferData(buffer, (length << 2));
+	}
+	
+	/**
+	 * Reads the next part of double data into the buffer (big-endian, starting at its position).
+	 * 
+	 * @see #writeDoubleDataPart(ByteBuffer, int)
+	 */
+	public void readDoubleDataPart(final ByteBuffer buffer, final int length) throws IOException {
+		readBufferData(buffer, (length << 3));
+	}
+	
+	
 	public void writeDirectly(final byte[] bytes, final int off, final int n) throws IOException {
 		this.out.write(bytes, off, n);
 	}
@@ -218,6 +645,21 @@ public final class RJIO {
 	
 	public void writeIntData(final int[] array, final int length) throws IOException {
 		final ObjectOutput out = this.out;
+		final ChannelObjectOutputStream bulkOut = getBulkOut((length << 2));
+		if (bulkOut != null) {
+			final ByteBuffer bb = getBulkBB();
+			int iw = 0;
+			while (iw < length) {
+				final int icount = Math.min(length - iw, (BULK_LENGTH >>> 2));
+				this.bulkIB.clear();
+				this.bulkIB.put(array, iw, icount);
+				bb.clear();
+				bb.limit((icount << 2));
+				bulkOut.writeBulk(bb);
+				iw += icount;
+			}
+			return;
+		}
 		if (length <= 32) {
 			for (int i = 0; i < length; i++) {
 				out.writeInt(array[i]);
@@ -347,6 +789,21 @@ public final class RJIO {
 	
 	public void writeDoubleData(final double[] array, final int length) throws IOException {
 		final ObjectOutput out = this.out;
+		final ChannelObjectOutputStream bulkOut = getBulkOut((length << 3));
+		if (bulkOut != null) {
+			final ByteBuffer bb = getBulkBB();
+			int dw = 0;
+			while (dw < length) {
+				final int dcount = Math.min(length - dw, (BULK_LENGTH >>> 3));
+				this.bulkDB.clear();
+				this.bulkDB.put(array, dw, dcount);
+				bb.clear();
+				bb.limit((dcount << 3));
+				bulkOut.writeBulk(bb);
+				dw += dcount;
+			}
+			return;
+		}
 		if (length <= 16) {
 			for (int i = 0; i < length; i++) {
 				out.writeLong(Double.doubleToRawLongBits(array[i]));
@@ -376,6 +833,11 @@ public final class RJIO {
 	
 	public void writeByteData(final byte[] array, final int length) throws IOException {
 		final ObjectOutput out = this.out;
+		final ChannelObjectOutputStream bulkOut = getBulkOut(length);
+		if (bulkOut != null) {
+			bulkOut.writeBulk(ByteBuffer.wrap(array, 0, length));
+			return;
+		}
 		out.write(array, 0, length);
 	}
 	
@@ -412,8 +874,96 @@ public final class RJIO {
 		}
 	}
 	
-	@SuppressWarnings("deprecation")
+	/**
+	 * Writes the string array.
+	 * <p>
+	 * If enabled ({@link #setStringDictEncoding(boolean)}), large arrays with a small number of
+	 * distinct values are written dictionary encoded (the distinct values followed by the codes
+	 * of the elements).</p>
+	 */
 	public void writeStringData(final String[] sa, final int length) throws IOException {
+		if (this.stringDictEncoding && length >= STRING_DICT_MIN_LENGTH) {
+			final int dictSize = createStringDict(sa, length);
+			if (dictSize > 0) {
+				try {
+					writeStringDictData(sa, length, dictSize);
+				}
+				finally {
+					this.stringDict.clear();
+				}
+				return;
+			}
+		}
+		writeStringElements(sa, length);
+	}
+	
+	/**
+	 * Writes a part of string data like {@link #writeStringData(String[], int)} writes the
+	 * complete block.  The parts are not dictionary encoded.
+	 */
+	public void writeStringDataPart(final String[] sa, final int length) throws IOException {
+		writeStringElements(sa, length);
+	}
+	
+	private int createStringDict(final String[] sa, final int length) {
+		HashMap<String, Integer> dict = this.stringDict;
+		if (dict == null) {
+			dict = this.stringDict = new HashMap<>();
+		}
+		final int maxSize = Math.min(length >>> 4, STRING_DICT_MAX_SIZE);
+		for (int i = 0; i < length; i++) {
+			final String s = sa[i];
+			if (!dict.containsKey(s)) {
+				if (dict.size() == maxSize) {
+					dict.clear();
+					return 0;
+				}
+				dict.put(s, Integer.valueOf(dict.size()));
+			}
+		}
+		return dict.size();
+	}
+	
+	private void writeStringDictData(final String[] sa, final int length, final int dictSize) throws IOException {
+		final ObjectOutput out = this.out;
+		final HashMap<String, Integer> dict = this.stringDict;
+		final String[] values = new String[dictSize];
+		for (final Entry<String, Integer> entry : dict.entrySet()) {
+			values[entry.getValue().intValue()] = entry.getKey();
+		}
+		if (dictSize <= 256) {
+			out.writeInt(STRING_DATA_DICT_BYTE);
+			out.writeInt(dictSize);
+			writeStringElements(values, dictSize);
+			final byte[] ba = this.ba;
+			int iw = 0;
+			while (iw < length) {
+				final int icount = Math.min(length - iw, BA_LENGTH);
+				for (int j = 0; j < icount; j++) {
+					ba[j] = (byte) dict.get(sa[iw++]).intValue();
+				}
+				out.write(ba, 0, icount);
+			}
+		}
+		else {
+			out.writeInt(STRING_DATA_DICT_INT);
+			out.writeInt(dictSize);
+			writeStringElements(values, dictSize);
+			final IntBuffer ib = this.ib;
+			int iw = 0;
+			while (iw < length) {
+				final int icount = Math.min(length - iw, IB_LENGTH);
+				ib.clear();
+				for (int j = 0; j < icount; j++) {
+					ib.put(dict.get(sa[iw++]).intValue());
+				}
+				writeFullyBB((icount << 2));
+			}
+		}
+	}
+	
+	@SuppressWarnings("deprecation")
+	private void writeStringElements(final String[] sa, final int length) throws IOException {
 		final ObjectOutput out = this.out;
 		ARRAY: for (int i = 0; i < length; i++) {
 			final String s = sa[i];
@@ -476,6 +1026,21 @@ public final class RJIO {
 	
 	public int[] readIntData(final int[] array, final int length) throws IOException {
 		final ObjectInput in = this.in;
+		final ChannelObjectInputStream bulkIn = getBulkIn((length << 2));
+		if (bulkIn != null) {
+			final ByteBuffer bb = getBulkBB();
+			int ir = 0;
+			while (ir < length) {
+				final int icount = Math.min(length - ir, (BULK_LENGTH >>> 2));
+				bb.clear();
+				bb.limit((icount << 2));
+				readChannelData(bulkIn, bb);
+				this.bulkIB.clear();
+				this.bulkIB.get(array, ir, icount);
+				ir += icount;
+			}
+			return array;
+		}
 		if (length <= 256) {
 			switch (length) {
 			case 0:
@@ -735,6 +1300,21 @@ public final class RJIO {
 	
 	public double[] readDoubleData(final double[] array, final int length) throws IOException {
 		final ObjectInput in = this.in;
+		final ChannelObjectInputStream bulkIn = getBulkIn((length << 3));
+		if (bulkIn != null) {
+			final ByteBuffer bb = getBulkBB();
+			int dr = 0;
+			while (dr < length) {
+				final int dcount = Math.min(length - dr, (BULK_LENGTH >>> 3));
+				bb.clear();
+				bb.limit((dcount << 3));
+				readChannelData(bulkIn, bb);
+				this.bulkDB.clear();
+				this.bulkDB.get(array, dr, dcount);
+				dr += dcount;
+			}
+			return array;
+		}
 		if (length <= 32) {
 			switch (length) {
 			case 0:
@@ -874,10 +1454,63 @@ public final class RJIO {
 	}
 	
 	public byte[] readByteData(final byte[] array, final int length) throws IOException {
+		final ChannelObjectInputStream bulkIn = getBulkIn(length);
+		if (bulkIn != null) {
+			readChannelData(bulkIn, ByteBuffer.wrap(array, 0, length));
+			return array;
+		}
 		this.in.readFully(array, 0, length);
 		return array;
 	}
 	
+	/**
+	 * Starts reading string data written by {@link #writeStringData(String[], int)} as one block
+	 * in parts using {@link #readStringDataPart(String[], int)}.
+	 * 
+	 * @param blockLength the length of the complete block written by the writer
+	 */
+	public void beginStringDataParts(final long blockLength) throws IOException {
+		this.stringPartsEncoding = STRING_DATA_PLAIN;
+		if (blockLength > 0) {
+			final int header = this.in.readInt();
+			switch (header) {
+			case STRING_DATA_DICT_BYTE:
+			case STRING_DATA_DICT_INT:
+				this.stringPartsDict = readStringDict();
+				this.stringPartsEncoding = header;
+				break;
+			default:
+				// header of the first element
+				this.stringPartsHeader = header;
+				this.stringPartsHeaderRead = true;
+				break;
+			}
+		}
+	}
+	
+	public void readStringDataPart(final String[] array, final int length) throws IOException {
+		if (this.stringPartsEncoding == STRING_DATA_PLAIN) {
+			if (this.stringPartsHeaderRead && length > 0) {
+				this.stringPartsHeaderRead = false;
+				if (this.stringPartsHeader != Integer.MIN_VALUE) {
+					array[0] = readStringValue(this.stringPartsHeader);
+				}
+				readStringElements(array, 1, length);
+			}
+			else {
+				readStringElements(array, 0, length);
+			}
+		}
+		else {
+			readStringDictCodes(array, length, this.stringPartsEncoding, this.stringPartsDict);
+		}
+	}
+	
+	public void endStringDataParts() {
+		this.stringPartsDict = null;
+		this.stringPartsHeaderRead = false;
+	}
+	
 	public byte[] readByteArray() throws IOException {
 		final int l= this.temp = this.in.readInt();
 		return readByteData(new byte[l], l);
@@ -924,10 +1557,13 @@ public final class RJIO {
 		return new String(ca, 0, cn);
 	}
 	
-	@SuppressWarnings("deprecation")
 	public String readString() throws IOException {
+		return readStringValue(this.in.readInt());
+	}
+	
+	@SuppressWarnings("deprecation")
+	private String readStringValue(final int cn) throws IOException {
 		final ObjectInput in = this.in;
-		final int cn = in.readInt();
 		if (cn >= 0) {
 			if (cn == 0) {
 				return "";
@@ -967,10 +1603,64 @@ public final class RJIO {
 		}
 	}
 	
-	@SuppressWarnings("deprecation")
 	public void readStringData(final String[] array, final int length) throws IOException {
+		if (length == 0) {
+			return;
+		}
+		final int header = this.in.readInt();
+		switch (header) {
+		case STRING_DATA_DICT_BYTE:
+		case STRING_DATA_DICT_INT:
+			readStringDictCodes(array, length, header, readStringDict());
+			return;
+		default:
+			// header of the first element
+			if (header != Integer.MIN_VALUE) {
+				array[0] = readStringValue(header);
+			}
+			readStringElements(array, 1, length);
+			return;
+		}
+	}
+	
+	private String[] readStringDict() throws IOException {
+		final int dictSize = this.in.readInt();
+		final String[] values = new String[dictSize];
+		readStringElements(values, 0, dictSize);
+		return values;
+	}
+	
+	private void readStringDictCodes(final String[] array, final int length, final int encoding,
+			final String[] values) throws IOException {
+		if (encoding == STRING_DATA_DICT_BYTE) {
+			final byte[] ba = this.ba;
+			int ir = 0;
+			while (ir < length) {
+				final int icount = Math.min(length - ir, BA_LENGTH);
+				this.in.readFully(ba, 0, icount);
+				for (int j = 0; j < icount; j++) {
+					array[ir++] = values[ba[j] & 0xff];
+				}
+			}
+		}
+		else {
+			final IntBuffer ib = this.ib;
+			int ir = 0;
+			while (ir < length) {
+				final int icount = Math.min(length - ir, IB_LENGTH);
+				readFullyBB((icount << 2));
+				ib.clear();
+				for (int j = 0; j < icount; j++) {
+					array[ir++] = values[ib.get()];
+				}
+			}
+		}
+	}
+	
+	@SuppressWarnings("deprecation")
+	private void readStringElements(final String[] array, final int start, final int length) throws IOException {
 		final ObjectInput in = this.in;
-		ARRAY: for (int i = 0; i < length; i++) {
+		ARRAY: for (int i = start; i < length; i++) {
 			final int cn = in.readInt();
 			if (cn >= 0) {
 				if (cn == 0) {
@@ -33,6 +33,9 @@ public interface RObjectFactory {
 	/** Flag to eval all promises directly */
 	int F_LOAD_PROMISE = 0x20;
 	
+	/** Flag to create references (pinned until released) to objects beyond the depth */
+	int F_LAZY_REF = 0x40;
+	
 	
 	int O_LENGTHGRADE_MASK = 7; // 3 bits
 	
@@ -44,6 +47,9 @@ public interface RObjectFactory {
 	
 	int O_WITH_NAMES = 1 << 6;
 	
+	/** Flag in the store type, marking store data written in a compressed block of {@link RJIO} */
+	int S_COMPRESSED = 1 << 6;
+	
 	
 //	RArgument createArgument(String name, String defaultSource);
 //	RFunction createFunction(RArgument[] argument);
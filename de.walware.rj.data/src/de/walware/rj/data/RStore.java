@@ -617,6 +617,153 @@ public interface RStore<P> {
 	 */
 	void setRaw(long idx, byte raw);
 	
+	/**
+	 * Copies the logical/boolean values of the specified range into the array.
+	 * <p>
+	 * The bulk methods are equivalent to a loop calling the method for a single value,
+	 * but are usually considerably faster.  The values at indexes with NA are undefined,
+	 * see {@link #getNAs(long, long[], int)}.</p>
+	 * 
+	 * @param idx the index (zero-based) of the first value
+	 * @param array the array
+	 * @param arrayIdx the index in the array for the first value
+	 * @param length the number of values
+	 * @throws IndexOutOfBoundsException if the range is out of range of the store
+	 *     (idx &lt; 0 || idx + length &gt; length()) or of the array.
+	 */
+	void getLogis(long idx, boolean[] array, int arrayIdx, int length);
+	
+	/**
+	 * Copies the integer/int values of the specified range into the array.
+	 * 
+	 * @param idx the index (zero-based) of the first value
+	 * @param array the array
+	 * @param arrayIdx the index in the array for the first value
+	 * @param length the number of values
+	 * @throws IndexOutOfBoundsException if the range is out of range of the store
+	 *     (idx &lt; 0 || idx + length &gt; length()) or of the array.
+	 * @see #getLogis(long, boolean[], int, int)
+	 */
+	void getInts(long idx, int[] array, int arrayIdx, int length);
+	
+	/**
+	 * Sets the integer/int values of the specified range to the values of the array.
+	 * 
+	 * @param idx the index (zero-based) of the first value
+	 * @param array the array
+	 * @param arrayIdx the index in the array for the first value
+	 * @param length the number of values
+	 * @throws OperationNotSupportedException if the store is not modifiable
+	 * @throws IndexOutOfBoundsException if the range is out of range of the store
+	 *     (idx &lt; 0 || idx + length &gt; length()) or of the array.
+	 * @see #setInt(long, int)
+	 */
+	void setInts(long idx, int[] array, int arrayIdx, int length);
+	
+	/**
+	 * Sets all integer/int values of the specified range to the specified value.
+	 * 
+	 * @param idx the index (zero-based) of the first value
+	 * @param length the number of values
+	 * @param integer the integer value to set
+	 * @throws OperationNotSupportedException if the store is not modifiable
+	 * @throws IndexOutOfBoundsException if the range is out of range of the store
+	 *     (idx &lt; 0 || idx + length &gt; length()).
+	 */
+	void fillInt(long idx, long length, int integer);
+	
+	/**
+	 * Copies the numeric/real/double values of the specified range into the array.
+	 * 
+	 * @param idx the index (zero-based) of the first value
+	 * @param array the array
+	 * @param arrayIdx the index in the array for the first value
+	 * @param length the number of values
+	 * @throws IndexOutOfBoundsException if the range is out of range of the store
+	 *     (idx &lt; 0 || idx + length &gt; length()) or of the array.
+	 * @see #getLogis(long, boolean[], int, int)
+	 */
+	void getNums(long idx, double[] array, int arrayIdx, int length);
+	
+	/**
+	 * Sets the numeric/real/double values of the specified range to the values of the array.
+	 * 
+	 * @param idx the index (zero-based) of the first value
+	 * @param array the array
+	 * @param arrayIdx the index in the array for the first value
+	 * @param length the number of values
+	 * @throws OperationNotSupportedException if the store is not modifiable
+	 * @throws IndexOutOfBoundsException if the range is out of range of the store
+	 *     (idx &lt; 0 || idx + length &gt; length()) or of the array.
+	 * @see #setNum(long, double)
+	 */
+	void setNums(long idx, double[] array, int arrayIdx, int length);
+	
+	/**
+	 * Sets all numeric/real/double values of the specified range to the specified value.
+	 * 
+	 * @param idx the index (zero-based) of the first value
+	 * @param length the number of values
+	 * @param numeric the real value to set
+	 * @throws OperationNotSupportedException if the store is not modifiable
+	 * @throws IndexOutOfBoundsException if the range is out of range of the store
+	 *     (idx &lt; 0 || idx + length &gt; length()).
+	 */
+	void fillNum(long idx, long length, double numeric);
+	
+	/**
+	 * Copies the character/String values of the specified range into the array.
+	 * 
+	 * @param idx the index (zero-based) of the first value
+	 * @param array the array
+	 * @param arrayIdx the index in the array for the first value
+	 * @param length the number of values
+	 * @throws IndexOutOfBoundsException if the range is out of range of the store
+	 *     (idx &lt; 0 || idx + length &gt; length()) or of the array.
+	 * @see #getLogis(long, boolean[], int, int)
+	 */
+	void getChars(long idx, String[] array, int arrayIdx, int length);
+	
+	/**
+	 * Copies the raw/byte values of the specified range into the array.
+	 * 
+	 * @param idx the index (zero-based) of the first value
+	 * @param array the array
+	 * @param arrayIdx the index in the array for the first value
+	 * @param length the number of values
+	 * @throws IndexOutOfBoundsException if the range is out of range of the store
+	 *     (idx &lt; 0 || idx + length &gt; length()) or of the array.
+	 * @see #getLogis(long, boolean[], int, int)
+	 */
+	void getRaws(long idx, byte[] array, int arrayIdx, int length);
+	
+	/**
+	 * Sets all values of the specified range to NA.
+	 * 
+	 * @param idx the index (zero-based) of the first value
+	 * @param length the number of values
+	 * @throws OperationNotSupportedException if the store is not modifiable
+	 * @throws IndexOutOfBoundsException if the range is out of range of the store
+	 *     (idx &lt; 0 || idx + length &gt; length()).
+	 */
+	void fillNA(long idx, long length);
+	
+	/**
+	 * Marks the values of the specified range which are NA in the bit array.
+	 * <p>
+	 * The bit for the value at <code>idx + i</code> is <code>bits[i / 64] &amp; (1L &lt;&lt; (i % 64))</code>
+	 * (the layout of {@link java.util.BitSet#valueOf(long[])}); the bits of other values are
+	 * cleared.</p>
+	 * 
+	 * @param idx the index (zero-based) of the first value
+	 * @param bits the bit array, at least <code>(length + 63) / 64</code> long
+	 * @param length the number of values
+	 * @throws IndexOutOfBoundsException if the range is out of range of the store
+	 *     (idx &lt; 0 || idx + length &gt; length()) or of the array.
+	 * @see #isNA(long)
+	 */
+	void getNAs(long idx, long[] bits, int length);
+	
 	/**
 	 * Returns the value at the specified index as Java object. The subtypes of 
 	 * RStore defines more specific array types.
@@ -669,6 +816,14 @@ public interface RStore<P> {
 	 */
 	boolean containsNA();
 	
+	/**
+	 * Returns the number of NA values in the store.
+	 * 
+	 * @return the number of NA values
+	 * @see #isNA(long)
+	 */
+	long countNA();
+	
 	/**
 	 * Returns the index of the first NA value in the store.
 	 * 
@@ -0,0 +1,70 @@
+/*=============================================================================#
+ # Copyright (c) 2016 Stephan Wahlbrink (WalWare.de) and others.
+ # All rights reserved. This program and the accompanying materials
+ # are made available under the terms of either (per the licensee's choosing)
+ #   - the Eclipse Public License v1.0
+ #     which accompanies this distribution, and is available at
+ #     http://www.eclipse.org/legal/epl-v10.html, or
+ #   - the GNU Lesser General Public License v2.1 or newer
+ #     which accompanies this distribution, and is available at
+ #     http://www.gnu.org/licenses/lgpl.html
+ # 
+ # Contributors:
+ #     Stephan Wahlbrink - initial API and implementation
+ #=============================================================================*/
+
+package de.walware.rj.data;
+
+import java.io.IOException;
+
+
+/**
+ * Handler receiving the data of stores in parts while an R object is read.
+ * <p>
+ * The handler is called for each store in the order of the serialized object tree (e.g. the
+ * columns of a data frame from left to right, attributes included).  For each store the methods
+ * are called in the sequence: {@link #beginStore(byte, long) beginStore},
+ * {@link #handleData(RStore, long) handleData} (for each part),
+ * {@link #handleFactorLevels(boolean, RCharacterStore) handleFactorLevels} (factors only),
+ * {@link #endStore() endStore}.</p>
+ * 
+ * @see de.walware.rj.data.defaultImpl.RStreamObjectFactory
+ */
+public interface RStoreStreamHandler {
+	
+	
+	/**
+	 * Called before the data of a store is read.
+	 * 
+	 * @param storeType the store type of the store
+	 * @param length the length of the store
+	 */
+	void beginStore(byte storeType, long length) throws IOException;
+	
+	/**
+	 * Called for each part of the data of the store.
+	 * <p>
+	 * The part is a complete store of the store type; for factors it is an {@link RIntegerStore}
+	 * with the codes.  The part store is not reused and can be kept by the handler.</p>
+	 * 
+	 * @param part the store with the data of the part
+	 * @param offset the index of the first element of the part in the complete store
+	 */
+	void handleData(RStore<?> part, long offset) throws IOException;
+	
+	/**
+	 * Called for factor stores after all codes are handled.
+	 * 
+	 * @param isOrdered if the factor is ordered
+	 * @param levels the levels of the factor
+	 */
+	void handleFactorLevels(boolean isOrdered, RCharacterStore levels) throws IOException;
+	
+	/**
+	 * Called after the data of the store is read.
+	 * 
+	 * @return the store to use in the R object or <code>null</code> to use a store without data
+	 */
+	RStore<?> endStore() throws IOException;
+	
+}
@@ -15,6 +15,10 @@
 
 package de.walware.rj.data.defaultImpl;
 
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.channels.FileChannel.MapMode;
 import java.util.Arrays;
 
 import de.walware.rj.data.RDataUtil;
@@ -56,6 +60,9 @@ public abstract class AbstractRData<P> implements RStore<P> {
 	protected static final String[][] EMPTY_STRING_2dARRAY = new String[0][];
 	
 	protected static final int DEFAULT_LONG_DATA_SEGMENT_LENGTH = 1 << 28;
+	protected static final int DEFAULT_DIRECT_DATA_SEGMENT_LENGTH = 1 << 27;
+	
+	protected static final ByteBuffer[] EMPTY_BUFFER_ARRAY = new ByteBuffer[0];
 	
 	
 	private final static boolean gIsBSupported;
@@ -219,6 +226,80 @@ public abstract class AbstractRData<P> implements RStore<P> {
 	}
 	
 	
+	protected static final ByteBuffer[] newDirectBufferArray(final long length, final int segmentLength,
+			final int valueSize) {
+		if (length == 0) {
+			return EMPTY_BUFFER_ARRAY;
+		}
+		final ByteBuffer[] array = new ByteBuffer[1 + (int) ((length - 1) / segmentLength)];
+		final int last = array.length - 1;
+		for (int i = 0; i < last; i++) {
+			array[i] = ByteBuffer.allocateDirect(segmentLength * valueSize);
+		}
+		{	final int restLength = (int) (length % segmentLength);
+			array[last] = ByteBuffer.allocateDirect(((restLength == 0) ? segmentLength : restLength) * valueSize);
+		}
+		return array;
+	}
+	
+	/**
+	 * Maps the file of the channel in segments of buffers, like created by
+	 * {@link #newDirectBufferArray(long, int, int)}.
+	 * <p>
+	 * The mappings stay valid if the channel is closed.</p>
+	 */
+	protected static final ByteBuffer[] mapBufferArray(final FileChannel channel, final long length,
+			final int segmentLength, final int valueSize, final MapMode mode) throws IOException {
+		if (length == 0) {
+			return EMPTY_BUFFER_ARRAY;
+		}
+		final ByteBuffer[] array = new ByteBuffer[1 + (int) ((length - 1) / segmentLength)];
+		final int last = array.length - 1;
+		final long segmentSize = segmentLength * (long) valueSize;
+		for (int i = 0; i < last; i++) {
+			array[i] = channel.map(mode, i * segmentSize, segmentSize);
+		}
+		{	final int restLength = (int) (length % segmentLength);
+			array[last] = channel.map(mode, last * segmentSize,
+					((restLength == 0) ? segmentLength : restLength) * (long) valueSize );
+		}
+		return array;
+	}
+	
+	protected static final long checkBufferArrayLength(final ByteBuffer[] array, final int segmentLength,
+			final int valueSize) {
+		long length = 0;
+		if (array.length > 0) {
+			final int last = array.length - 1;
+			for (int i = 0; i < last; i++) {
+				if (array[i].capacity() != segmentLength * valueSize) {
+					throw new IllegalArgumentException("Unexpected data segment length (" + (array[i].capacity() / valueSize) + ", but " + segmentLength + " expected)");
+				}
+			}
+			length = last * (long) segmentLength;
+			if (array[last].capacity() > segmentLength * valueSize
+					|| array[last].capacity() % valueSize != 0) {
+				throw new IllegalArgumentException("Unexpected data segment length (" + (array[last].capacity() / valueSize) + ", but max " + segmentLength + " expected)");
+			}
+			length += array[last].capacity() / valueSize;
+		}
+		return length;
+	}
+	
+	/**
+	 * Returns the length of the block with the specified index, in which the data of a store
+	 * with the specified length is serialized by the default implementations (complete data for
+	 * short stores, segments of {@link #DEFAULT_LONG_DATA_SEGMENT_LENGTH} for long stores).
+	 */
+	protected static final long getDataBlockLength(final long length, final long idx) {
+		if (length <= Integer.MAX_VALUE) {
+			return length;
+		}
+		final long blockStart = idx - (idx % DEFAULT_LONG_DATA_SEGMENT_LENGTH);
+		return Math.min(DEFAULT_LONG_DATA_SEGMENT_LENGTH, length - blockStart);
+	}
+	
+	
 	protected static final int[] addIdx(final int[] idxs, final int newIdx) {
 		int i = Arrays.binarySearch(idxs, newIdx);
 		if (i >= 0) {
@@ -598,6 +679,158 @@ public abstract class AbstractRData<P> implements RStore<P> {
 	}
 	
 	
+	protected final void checkRange(final long idx, final long length) {
+		if (idx < 0 || length < 0 || idx > getLength() - length) {
+			throw new IndexOutOfBoundsException("[" + idx + ", " + (idx + length) + ")");
+		}
+	}
+	
+	protected static final void clearBits(final long[] bits, final int length) {
+		Arrays.fill(bits, 0, (length + 63) >>> 6, 0L);
+	}
+	
+	/**
+	 * Copies the bits <code>[idx, idx + length)</code> of the bit array <code>src</code>
+	 * to the bits <code>[0, length)</code> of <code>dest</code>, with the layout like specified
+	 * in {@link #getNAs(long, long[], int)}.
+	 */
+	protected static final void copyBits(final long[] src, final long idx,
+			final long[] dest, final int length) {
+		final int words = (length + 63) >>> 6;
+		final int srcWord = (int) (idx >>> 6);
+		final int shift = (int) (idx & 63);
+		for (int k = 0; k < words; k++) {
+			long word = src[srcWord + k] >>> shift;
+			if (shift != 0 && srcWord + k + 1 < src.length) {
+				word |= src[srcWord + k + 1] << (64 - shift);
+			}
+			dest[k] = word;
+		}
+		if ((length & 63) != 0) {
+			dest[words - 1] &= (1L << length) - 1;
+		}
+	}
+	
+	/**
+	 * Returns the index of the first set bit at or after <code>fromIdx</code>.
+	 * 
+	 * @return the index or <code>-1</code>
+	 */
+	protected static final long indexOfBit(final long[] bits, final long fromIdx) {
+		int k = (int) (fromIdx >>> 6);
+		if (k >= bits.length) {
+			return -1;
+		}
+		long word = bits[k] & (-1L << fromIdx);
+		while (word == 0) {
+			if (++k >= bits.length) {
+				return -1;
+			}
+			word = bits[k];
+		}
+		return ((long) k << 6) + Long.numberOfTrailingZeros(word);
+	}
+	
+	protected static final long countBits(final long[] bits) {
+		long count = 0;
+		for (int k = 0; k < bits.length; k++) {
+			count += Long.bitCount(bits[k]);
+		}
+		return count;
+	}
+	
+	@Override
+	public void getLogis(final long idx, final boolean[] array, final int arrayIdx, final int length) {
+		checkRange(idx, length);
+		for (int i = 0; i < length; i++) {
+			array[arrayIdx + i] = getLogi(idx + i);
+		}
+	}
+	
+	@Override
+	public void getInts(final long idx, final int[] array, final int arrayIdx, final int length) {
+		checkRange(idx, length);
+		for (int i = 0; i < length; i++) {
+			array[arrayIdx + i] = getInt(idx + i);
+		}
+	}
+	
+	@Override
+	public void setInts(final long idx, final int[] array, final int arrayIdx, final int length) {
+		checkRange(idx, length);
+		for (int i = 0; i < length; i++) {
+			setInt(idx + i, array[arrayIdx + i]);
+		}
+	}
+	
+	@Override
+	public void fillInt(final long idx, final long length, final int integer) {
+		checkRange(idx, length);
+		for (long i = 0; i < length; i++) {
+			setInt(idx + i, integer);
+		}
+	}
+	
+	@Override
+	public void getNums(final long idx, final double[] array, final int arrayIdx, final int length) {
+		checkRange(idx, length);
+		for (int i = 0; i < length; i++) {
+			array[arrayIdx + i] = getNum(idx + i);
+		}
+	}
+	
+	@Override
+	public void setNums(final long idx, final double[] array, final int arrayIdx, final int length) {
+		checkRange(idx, length);
+		for (int i = 0; i < length; i++) {
+			setNum(idx + i, array[arrayIdx + i]);
+		}
+	}
+	
+	@Override
+	public void fillNum(final long idx, final long length, final double numeric) {
+		checkRange(idx, length);
+		for (long i = 0; i < length; i++) {
+			setNum(idx + i, numeric);
+		}
+	}
+	
+	@Override
+	public void getChars(final long idx, final String[] array, final int arrayIdx, final int length) {
+		checkRange(idx, length);
+		for (int i = 0; i < length; i++) {
+			array[arrayIdx + i] = getChar(idx + i);
+		}
+	}
+	
+	@Override
+	public void getRaws(final long idx, final byte[] array, final int arrayIdx, final int length) {
+		checkRange(idx, length);
+		for (int i = 0; i < length; i++) {
+			array[arrayIdx + i] = getRaw(idx + i);
+		}
+	}
+	
+	@Override
+	public void fillNA(final long idx, final long length) {
+		checkRange(idx, length);
+		for (long i = 0; i < length; i++) {
+			setNA(idx + i);
+		}
+	}
+	
+	@Override
+	public void getNAs(final long idx, final long[] bits, final int length) {
+		checkRange(idx, length);
+		clearBits(bits, length);
+		for (int i = 0; i < length; i++) {
+			if (isNA(idx + i)) {
+				bits[i >>> 6] |= (1L << i);
+			}
+		}
+	}
+	
+	
 	protected abstract boolean isStructOnly();
 	
 	
@@ -611,6 +844,18 @@ public abstract class AbstractRData<P> implements RStore<P> {
 		return indexOfNA(0);
 	}
 	
+	@Override
+	public long countNA() {
+		final long length= getLength();
+		long count= 0;
+		for (long idx= 0; idx < length; idx++) {
+			if (isNA(idx)) {
+				count++;
+			}
+		}
+		return count;
+	}
+	
 	@Override
 	public long indexOfNA(long fromIdx) {
 		if (fromIdx < 0) {
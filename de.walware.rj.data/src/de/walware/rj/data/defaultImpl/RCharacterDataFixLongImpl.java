@@ -127,6 +127,39 @@ public class RCharacterDataFixLongImpl extends AbstractCharacterData
 	}
 	
 	
+	@Override
+	public void getChars(long idx, final String[] array, final int arrayIdx, final int length) {
+		checkRange(idx, length);
+		for (int i = 0; i < length; ) {
+			final String[] values = this.charValues[(int) (idx / SEGMENT_LENGTH)];
+			final int j = (int) (idx % SEGMENT_LENGTH);
+			final int n = Math.min(length - i, values.length - j);
+			System.arraycopy(values, j, array, arrayIdx + i, n);
+			i += n;
+			idx += n;
+		}
+	}
+	
+	@Override
+	public void getNAs(long idx, final long[] bits, final int length) {
+		checkRange(idx, length);
+		clearBits(bits, length);
+		for (int i = 0; i < length; ) {
+			final String[] values = this.charValues[(int) (idx / SEGMENT_LENGTH)];
+			final int j = (int) (idx % SEGMENT_LENGTH);
+			final int n = Math.min(length - i, values.length - j);
+			for (int k = 0; k < n; k++) {
+				final String v = values[j + k];
+				if (v == null) {
+					bits[(i + k) >>> 6] |= (1L << (i + k));
+				}
+			}
+			i += n;
+			idx += n;
+		}
+	}
+	
+	
 	@Override
 	public String get(final int idx) {
 		if (idx < 0 || idx >= this.length) {
@@ -35,6 +35,10 @@ public class RCharacterDataImpl extends AbstractCharacterData
 	
 	protected String[] charValues;
 	
+	private boolean hashIndexEnabled;
+	/** open addressing table with <code>idx + 1</code> of the first occurrence of the values */
+	private int[] hashIndex;
+	
 	
 	public RCharacterDataImpl() {
 		this.length = 0;
@@ -100,6 +104,7 @@ public class RCharacterDataImpl extends AbstractCharacterData
 //				this.charValues[i] = null;
 //			}
 		}
+		this.hashIndex = null;
 	}
 	
 	@Override
@@ -151,6 +156,7 @@ public class RCharacterDataImpl extends AbstractCharacterData
 //			return;
 //		}
 		this.charValues[idx] = null;
+		this.hashIndex = null;
 	}
 	
 	@Override
@@ -162,6 +168,7 @@ public class RCharacterDataImpl extends AbstractCharacterData
 //			return;
 //		}
 		this.charValues[(int) idx] = null;
+		this.hashIndex = null;
 	}
 	
 	@Override
@@ -194,6 +201,7 @@ public class RCharacterDataImpl extends AbstractCharacterData
 	public void setChar(final int idx, final String value) {
 //		assert (value != null);
 		this.charValues[idx] = value;
+		this.hashIndex = null;
 	}
 	
 	@Override
@@ -203,12 +211,34 @@ public class RCharacterDataImpl extends AbstractCharacterData
 		}
 //		assert (value != null);
 		this.charValues[(int) idx] = value;
+		this.hashIndex = null;
+	}
+	
+	
+	@Override
+	public void getChars(final long idx, final String[] array, final int arrayIdx, final int length) {
+		checkRange(idx, length);
+		System.arraycopy(this.charValues, (int) idx, array, arrayIdx, length);
+	}
+	
+	@Override
+	public void getNAs(final long idx, final long[] bits, final int length) {
+		checkRange(idx, length);
+		clearBits(bits, length);
+		final String[] values = this.charValues;
+		for (int i = 0, j = (int) idx; i < length; i++, j++) {
+			final String v = values[j];
+			if (v == null) {
+				bits[i >>> 6] |= (1L << i);
+			}
+		}
 	}
 	
 	
 	private void prepareInsert(final int[] idxs) {
 		this.charValues = prepareInsert(this.charValues, this.length, idxs);
 		this.length += idxs.length;
+		this.hashIndex = null;
 	}
 	
 	public void insertChar(final int idx, final String value) {
@@ -238,12 +268,14 @@ public class RCharacterDataImpl extends AbstractCharacterData
 	public void remove(final int idx) {
 		this.charValues = remove(this.charValues, this.length, new int[] { idx });
 		this.length--;
+		this.hashIndex = null;
 	}
 	
 	@Override
 	public void remove(final int[] idxs) {
 		this.charValues = remove(this.charValues, this.length, idxs);
 		this.length -= idxs.length;
+		this.hashIndex = null;
 	}
 	
 	
@@ -312,6 +344,12 @@ public class RCharacterDataImpl extends AbstractCharacterData
 		if (fromIdx < 0) {
 			fromIdx= 0;
 		}
+		if (this.hashIndexEnabled) {
+			final int idx= indexOfHashed(character);
+			if (idx < 0 || idx >= fromIdx) {
+				return idx;
+			}
+		}
 		final int l= length();
 		final String[] chars= this.charValues;
 		for (int i= (int) fromIdx; i < l; i++) {
@@ -329,6 +367,12 @@ public class RCharacterDataImpl extends AbstractCharacterData
 		if (fromIdx < 0) {
 			fromIdx= 0;
 		}
+		if (this.hashIndexEnabled) {
+			final int idx= indexOfHashed(character);
+			if (idx < 0 || idx >= fromIdx) {
+				return idx;
+			}
+		}
 		final int l= length();
 		final String[] chars= this.charValues;
 		while (fromIdx < l) {
@@ -340,4 +384,82 @@ public class RCharacterDataImpl extends AbstractCharacterData
 		return -1;
 	}
 	
+	
+	/**
+	 * Sets if a hash index is used to find values by {@link #indexOf(String, long)} and
+	 * {@link #contains(String)}.
+	 * <p>
+	 * The index is created at the first lookup and dropped if the values are changed.
+	 * It is useful for stores which are searched repeatedly, like names and factor levels.</p>
+	 * 
+	 * @param enabled <code>true</code> to enable the index, <code>false</code> to disable it
+	 * @see #getHashIndexMemorySize()
+	 */
+	public void setHashIndexEnabled(final boolean enabled) {
+		this.hashIndexEnabled = enabled;
+		if (!enabled) {
+			this.hashIndex = null;
+		}
+	}
+	
+	public boolean isHashIndexEnabled() {
+		return this.hashIndexEnabled;
+	}
+	
+	/**
+	 * Returns the memory used by the current hash index.
+	 * 
+	 * @return the size in bytes, <code>0</code> if no index exists
+	 */
+	public long getHashIndexMemorySize() {
+		final int[] table = this.hashIndex;
+		return (table != null) ? 16 + (table.length * 4L) : 0;
+	}
+	
+	private static int hash(final String value) {
+		final int h = value.hashCode();
+		return h ^ (h >>> 16);
+	}
+	
+	private int[] getHashIndex() {
+		int[] table = this.hashIndex;
+		if (table == null) {
+			final int l = length();
+			final String[] chars = this.charValues;
+			table = new int[Math.max(Integer.highestOneBit(Math.max(l, 4) - 1) << 2, 16)];
+			final int mask = table.length - 1;
+			ITER: for (int idx = 0; idx < l; idx++) {
+				final String value = chars[idx];
+				if (value == null) {
+					continue ITER;
+				}
+				int slot = hash(value) & mask;
+				int entry;
+				while ((entry = table[slot]) != 0) {
+					if (value.equals(chars[entry - 1])) {
+						continue ITER;
+					}
+					slot = (slot + 1) & mask;
+				}
+				table[slot] = idx + 1;
+			}
+			this.hashIndex = table;
+		}
+		return table;
+	}
+	
+	private int indexOfHashed(final String character) {
+		final int[] table = getHashIndex();
+		final int mask = table.length - 1;
+		int slot = hash(character) & mask;
+		int entry;
+		while ((entry = table[slot]) != 0) {
+			if (character.equals(this.charValues[entry - 1])) {
+				return entry - 1;
+			}
+			slot = (slot + 1) & mask;
+		}
+		return -1;
+	}
+	
 }
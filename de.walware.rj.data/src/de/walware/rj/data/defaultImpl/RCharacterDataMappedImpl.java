@@ -0,0 +1,303 @@
+/*=============================================================================#
+ # Copyright (c) 2016 Stephan Wahlbrink (WalWare.de) and others.
+ # All rights reserved. This program and the accompanying materials
+ # are made available under the terms of either (per the licensee's choosing)
+ #   - the Eclipse Public License v1.0
+ #     which accompanies this distribution, and is available at
+ #     http://www.eclipse.org/legal/epl-v10.html, or
+ #   - the GNU Lesser General Public License v2.1 or newer
+ #     which accompanies this distribution, and is available at
+ #     http://www.gnu.org/licenses/lgpl.html
+ # 
+ # Contributors:
+ #     Stephan Wahlbrink - initial API and implementation
+ #=============================================================================*/
+
+package de.walware.rj.data.defaultImpl;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.CharBuffer;
+import java.nio.LongBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.channels.FileChannel.MapMode;
+import java.util.Arrays;
+
+import de.walware.rj.data.RJIO;
+
+
+/**
+ * Read-only character data store with the values stored outside of the Java heap in
+ * segments of {@link ByteBuffer}s (direct or mapped).
+ * <p>
+ * The chars of all values are stored one after another (UTF-16); an index stores for each
+ * value the offset of its end (<code>-offset-1</code> for NA).</p>
+ */
+public class RCharacterDataMappedImpl extends AbstractCharacterData
+		implements ExternalizableRStore {
+	
+	
+	public static final int SEGMENT_LENGTH = DEFAULT_DIRECT_DATA_SEGMENT_LENGTH;
+	
+	private static final int PART_LENGTH = 1 << 12;
+	
+	
+	private static ByteBuffer[][] readData(final RJIO io, final long length,
+			final FileChannel indexChannel, final FileChannel charChannel) throws IOException {
+		final ByteBuffer[] indexSegments = mapBufferArray(indexChannel, length, SEGMENT_LENGTH, 8,
+				MapMode.READ_WRITE );
+		final ByteBuffer buffer = ByteBuffer.allocate(1 << 16);
+		final String[] values = new String[(int) Math.min(PART_LENGTH, length)];
+		long charCount = 0;
+		for (long blockOffset = 0; blockOffset < length; ) {
+			final long blockLength = getDataBlockLength(length, blockOffset);
+			io.beginStringDataParts(blockLength);
+			try {
+				for (long offset = 0; offset < blockLength; ) {
+					final int n = (int) Math.min(PART_LENGTH, blockLength - offset);
+					Arrays.fill(values, 0, n, null); // NA is not set
+					io.readStringDataPart(values, n);
+					for (int k = 0; k < n; k++) {
+						final long idx = blockOffset + offset + k;
+						final String s = values[k];
+						if (s != null) {
+							final int cn = s.length();
+							for (int ci = 0; ci < cn; ci++) {
+								if (buffer.remaining() < 2) {
+									writeFully(charChannel, buffer);
+								}
+								buffer.putChar(s.charAt(ci));
+							}
+							charCount += cn;
+							indexSegments[(int) (idx / SEGMENT_LENGTH)].putLong(
+									(int) (idx % SEGMENT_LENGTH) * 8, charCount );
+						}
+						else {
+							indexSegments[(int) (idx / SEGMENT_LENGTH)].putLong(
+									(int) (idx % SEGMENT_LENGTH) * 8, -charCount - 1 );
+						}
+					}
+					offset += n;
+				}
+			}
+			finally {
+				io.endStringDataParts();
+			}
+			blockOffset += blockLength;
+		}
+		writeFully(charChannel, buffer);
+		return new ByteBuffer[][] {
+				indexSegments,
+				mapBufferArray(charChannel, charCount, SEGMENT_LENGTH, 2, MapMode.READ_ONLY),
+		};
+	}
+	
+	private static void writeFully(final FileChannel channel, final ByteBuffer buffer) throws IOException {
+		buffer.flip();
+		while (buffer.hasRemaining()) {
+			channel.write(buffer);
+		}
+		buffer.clear();
+	}
+	
+	
+	private final long length;
+	
+	protected final LongBuffer[] endOffsets;
+	protected final CharBuffer[] charValues;
+	
+	
+	/**
+	 * @param indexSegments the buffers (big-endian) with the end offsets of
+	 *     {@link #SEGMENT_LENGTH} values each, except the last one
+	 * @param charSegments the buffers (big-endian) with the chars of the values of
+	 *     {@link #SEGMENT_LENGTH} chars each, except the last one
+	 */
+	public RCharacterDataMappedImpl(final ByteBuffer[] indexSegments, final ByteBuffer[] charSegments) {
+		this.length = checkBufferArrayLength(indexSegments, SEGMENT_LENGTH, 8);
+		checkBufferArrayLength(charSegments, SEGMENT_LENGTH, 2);
+		this.endOffsets = new LongBuffer[indexSegments.length];
+		for (int i = 0; i < indexSegments.length; i++) {
+			this.endOffsets[i] = indexSegments[i].duplicate().asLongBuffer();
+		}
+		this.charValues = new CharBuffer[charSegments.length];
+		for (int i = 0; i < charSegments.length; i++) {
+			this.charValues[i] = charSegments[i].duplicate().asCharBuffer();
+		}
+	}
+	
+	private RCharacterDataMappedImpl(final ByteBuffer[][] segments) {
+		this(segments[0], segments[1]);
+	}
+	
+	
+	/**
+	 * Reads the values into files.
+	 * 
+	 * @param indexChannel channel of an empty file for the index
+	 * @param charChannel channel of an empty file for the chars
+	 */
+	public RCharacterDataMappedImpl(final RJIO io, final long length,
+			final FileChannel indexChannel, final FileChannel charChannel) throws IOException {
+		this(readData(io, length, indexChannel, charChannel));
+	}
+	
+	@Override
+	public void writeExternal(final RJIO io) throws IOException {
+		final String[] values = new String[(int) Math.min(PART_LENGTH, this.length)];
+		for (long offset = 0; offset < this.length; ) {
+			final int n = (int) Math.min(PART_LENGTH, this.length - offset);
+			for (int k = 0; k < n; k++) {
+				values[k] = getChar(offset + k);
+			}
+			io.writeStringDataPart(values, n);
+			offset += n;
+		}
+	}
+	
+	
+	@Override
+	protected final boolean isStructOnly() {
+		return false;
+	}
+	
+	
+	@Override
+	public final long getLength() {
+		return this.length;
+	}
+	
+	private long getEndOffset(final long idx) {
+		return this.endOffsets[(int) (idx / SEGMENT_LENGTH)].get((int) (idx % SEGMENT_LENGTH));
+	}
+	
+	private long getStartOffset(final long idx) {
+		if (idx == 0) {
+			return 0;
+		}
+		final long offset = getEndOffset(idx - 1);
+		return (offset >= 0) ? offset : -offset - 1;
+	}
+	
+	private String getChars(long offset, final int n) {
+		final char[] chars = new char[n];
+		for (int k = 0; k < n; ) {
+			final CharBuffer segment = this.charValues[(int) (offset / SEGMENT_LENGTH)].duplicate();
+			segment.position((int) (offset % SEGMENT_LENGTH));
+			final int count = Math.min(n - k, segment.remaining());
+			segment.get(chars, k, count);
+			k += count;
+			offset += count;
+		}
+		return new String(chars);
+	}
+	
+	@Override
+	public boolean isNA(final int idx) {
+		return (getEndOffset(idx) < 0);
+	}
+	
+	@Override
+	public boolean isNA(final long idx) {
+		return (getEndOffset(idx) < 0);
+	}
+	
+	@Override
+	public void setNA(final int idx) {
+		throw new UnsupportedOperationException();
+	}
+	
+	@Override
+	public void setNA(final long idx) {
+		throw new UnsupportedOperationException();
+	}
+	
+	@Override
+	public boolean isMissing(final int idx) {
+		return (getEndOffset(idx) < 0);
+	}
+	
+	@Override
+	public boolean isMissing(final long idx) {
+		return (getEndOffset(idx) < 0);
+	}
+	
+	@Override
+	public String getChar(final int idx) {
+		return getChar((long) idx);
+	}
+	
+	@Override
+	public String getChar(final long idx) {
+		final long end = getEndOffset(idx);
+		if (end < 0) {
+			return null;
+		}
+		final long start = getStartOffset(idx);
+		return getChars(start, (int) (end - start));
+	}
+	
+	
+	@Override
+	public String get(final int idx) {
+		if (idx < 0 || idx >= this.length) {
+			throw new IndexOutOfBoundsException(Long.toString(idx));
+		}
+		return getChar((long) idx);
+	}
+	
+	@Override
+	public String get(final long idx) {
+		if (idx < 0 || idx >= this.length) {
+			throw new IndexOutOfBoundsException(Long.toString(idx));
+		}
+		return getChar(idx);
+	}
+	
+	@Override
+	public String[] toArray() {
+		final int l = checkToArrayLength();
+		final String[] array = new String[l];
+		for (int idx = 0; idx < l; idx++) {
+			array[idx] = getChar((long) idx);
+		}
+		return array;
+	}
+	
+	
+	@Override
+	public long indexOfNA(long fromIdx) {
+		if (fromIdx < 0) {
+			fromIdx = 0;
+		}
+		for (; fromIdx < this.length; fromIdx++) {
+			if (getEndOffset(fromIdx) < 0) {
+				return fromIdx;
+			}
+		}
+		return -1;
+	}
+	
+	@Override
+	public long indexOf(final String character, long fromIdx) {
+		if (character == null) {
+			return -1;
+		}
+		if (fromIdx < 0) {
+			fromIdx = 0;
+		}
+		final int cn = character.length();
+		long start = (fromIdx < this.length) ? getStartOffset(fromIdx) : 0;
+		for (; fromIdx < this.length; fromIdx++) {
+			final long end = getEndOffset(fromIdx);
+			if (end >= 0) {
+				if (end - start == cn && character.equals(getChars(start, cn))) {
+					return fromIdx;
+				}
+				start = end;
+			}
+		}
+		return -1;
+	}
+	
+}
@@ -188,6 +188,19 @@ public class RDataFrameImpl extends RListImpl
 		return this.rownamesAttribute;
 	}
 	
+	/**
+	 * Sets if a hash index is used to find the rows by name.
+	 * <p>
+	 * The index is supported only for character row names.</p>
+	 * 
+	 * @see RCharacterDataImpl#setHashIndexEnabled(boolean)
+	 */
+	public void setRowNamesHashIndexEnabled(final boolean enabled) {
+		if (this.rownamesAttribute instanceof RCharacterDataImpl) {
+			((RCharacterDataImpl) this.rownamesAttribute).setHashIndexEnabled(enabled);
+		}
+	}
+	
 	public void insertRow(final int idx) {
 		final long length = getLength();
 		for (int i = 0; i < length; i++) {
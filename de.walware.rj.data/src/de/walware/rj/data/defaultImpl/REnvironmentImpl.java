@@ -16,6 +16,8 @@
 package de.walware.rj.data.defaultImpl;
 
 import java.io.IOException;
+import java.util.LinkedHashMap;
+import java.util.Map;
 
 import de.walware.rj.data.RCharacterStore;
 import de.walware.rj.data.REnvironment;
@@ -256,6 +258,49 @@ public class REnvironmentImpl extends AbstractRObject
 	}
 	
 	
+	/**
+	 * Applies changes of the bindings to this environment.
+	 * 
+	 * @param changed the changed and added bindings
+	 * @param removedNames the names of the removed bindings
+	 */
+	public void applyChanges(final RList changed, final RCharacterStore removedNames) {
+		if (this.components == null) {
+			throw new IllegalStateException("no children");
+		}
+		final Map<String, RObject> bindings = new LinkedHashMap<>(
+				(this.length + ((changed != null) ? (int) changed.getLength() : 0)) * 4 / 3 + 1 );
+		for (int i = 0; i < this.length; i++) {
+			bindings.put(this.namesAttribute.getChar(i), this.components[i]);
+		}
+		if (removedNames != null) {
+			final long l = removedNames.getLength();
+			for (long i = 0; i < l; i++) {
+				bindings.remove(removedNames.getChar(i));
+			}
+		}
+		if (changed != null) {
+			final long l = changed.getLength();
+			for (long i = 0; i < l; i++) {
+				bindings.put(changed.getName(i), changed.get(i));
+			}
+		}
+		
+		// rebuild the names instead of updating them per binding
+		final int length = bindings.size();
+		final String[] names = new String[length];
+		final RObject[] components = new RObject[length];
+		int idx = 0;
+		for (final Map.Entry<String, RObject> binding : bindings.entrySet()) {
+			names[idx] = binding.getKey();
+			components[idx] = binding.getValue();
+			idx++;
+		}
+		this.components = components;
+		this.length = length;
+		this.namesAttribute = new RUniqueCharacterDataWithHashImpl(names);
+	}
+	
 	public boolean containsName(final String name) {
 		return (this.namesAttribute.indexOf(name) >= 0);
 	}
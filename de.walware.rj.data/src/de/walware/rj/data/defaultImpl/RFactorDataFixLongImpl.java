@@ -187,6 +187,15 @@ public class RFactorDataFixLongImpl extends AbstractFactorData
 		return this.codeLabels.length();
 	}
 	
+	/**
+	 * Sets if a hash index is used to find the levels by label.
+	 * 
+	 * @see RCharacterDataImpl#setHashIndexEnabled(boolean)
+	 */
+	public void setLevelHashIndexEnabled(final boolean enabled) {
+		this.codeLabels.setHashIndexEnabled(enabled);
+	}
+	
 	@Override
 	public RCharacterStore toCharacterData() {
 		final String[][] data = new2dStringArray(this.length, SEGMENT_LENGTH);
@@ -204,6 +213,39 @@ public class RFactorDataFixLongImpl extends AbstractFactorData
 	}
 	
 	
+	@Override
+	public void getInts(long idx, final int[] array, final int arrayIdx, final int length) {
+		checkRange(idx, length);
+		for (int i = 0; i < length; ) {
+			final int[] values = this.codes[(int) (idx / SEGMENT_LENGTH)];
+			final int j = (int) (idx % SEGMENT_LENGTH);
+			final int n = Math.min(length - i, values.length - j);
+			System.arraycopy(values, j, array, arrayIdx + i, n);
+			i += n;
+			idx += n;
+		}
+	}
+	
+	@Override
+	public void getNAs(long idx, final long[] bits, final int length) {
+		checkRange(idx, length);
+		clearBits(bits, length);
+		for (int i = 0; i < length; ) {
+			final int[] values = this.codes[(int) (idx / SEGMENT_LENGTH)];
+			final int j = (int) (idx % SEGMENT_LENGTH);
+			final int n = Math.min(length - i, values.length - j);
+			for (int k = 0; k < n; k++) {
+				final int v = values[j + k];
+				if (v <= 0) {
+					bits[(i + k) >>> 6] |= (1L << (i + k));
+				}
+			}
+			i += n;
+			idx += n;
+		}
+	}
+	
+	
 	@Override
 	public Integer get(final int idx) {
 		if (idx < 0 || idx >= this.length) {
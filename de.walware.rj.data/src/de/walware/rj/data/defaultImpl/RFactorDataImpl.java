@@ -226,6 +226,26 @@ public class RFactorDataImpl extends AbstractFactorData
 	}
 	
 	
+	@Override
+	public void getInts(final long idx, final int[] array, final int arrayIdx, final int length) {
+		checkRange(idx, length);
+		System.arraycopy(this.codes, (int) idx, array, arrayIdx, length);
+	}
+	
+	@Override
+	public void getNAs(final long idx, final long[] bits, final int length) {
+		checkRange(idx, length);
+		clearBits(bits, length);
+		final int[] values = this.codes;
+		for (int i = 0, j = (int) idx; i < length; i++, j++) {
+			final int v = values[j];
+			if (v <= 0) {
+				bits[i >>> 6] |= (1L << i);
+			}
+		}
+	}
+	
+	
 	private void prepareInsert(final int[] idxs) {
 		this.codes= prepareInsert(this.codes, this.length, idxs);
 		this.length += idxs.length;
@@ -277,6 +297,15 @@ public class RFactorDataImpl extends AbstractFactorData
 		return this.codeLabels.length();
 	}
 	
+	/**
+	 * Sets if a hash index is used to find the levels by label.
+	 * 
+	 * @see RCharacterDataImpl#setHashIndexEnabled(boolean)
+	 */
+	public void setLevelHashIndexEnabled(final boolean enabled) {
+		this.codeLabels.setHashIndexEnabled(enabled);
+	}
+	
 	public void addLevel(final String label) {
 		insertLevel(this.codes.length, label);
 	}
@@ -0,0 +1,268 @@
+/*=============================================================================#
+ # Copyright (c) 2016 Stephan Wahlbrink (WalWare.de) and others.
+ # All rights reserved. This program and the accompanying materials
+ # are made available under the terms of either (per the licensee's choosing)
+ #   - the Eclipse Public License v1.0
+ #     which accompanies this distribution, and is available at
+ #     http://www.eclipse.org/legal/epl-v10.html, or
+ #   - the GNU Lesser General Public License v2.1 or newer
+ #     which accompanies this distribution, and is available at
+ #     http://www.gnu.org/licenses/lgpl.html
+ # 
+ # Contributors:
+ #     Stephan Wahlbrink - initial API and implementation
+ #=============================================================================*/
+
+package de.walware.rj.data.defaultImpl;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.IntBuffer;
+
+import de.walware.rj.data.RJIO;
+
+
+/**
+ * Integer data store with the values stored outside of the Java heap in segments of
+ * {@link ByteBuffer}s (direct or mapped).
+ */
+public class RIntegerDataDirectImpl extends AbstractIntegerData
+		implements ExternalizableRStore {
+	
+	
+	public static final int SEGMENT_LENGTH = DEFAULT_DIRECT_DATA_SEGMENT_LENGTH;
+	
+	
+	private final long length;
+	
+	protected final ByteBuffer[] segments;
+	protected final IntBuffer[] intValues;
+	
+	
+	public RIntegerDataDirectImpl(final long length) {
+		this(newDirectBufferArray(length, SEGMENT_LENGTH, 4));
+	}
+	
+	/**
+	 * @param segments the buffers (big-endian) with the values of {@link #SEGMENT_LENGTH}
+	 *     values each, except the last one
+	 */
+	public RIntegerDataDirectImpl(final ByteBuffer[] segments) {
+		this.length = checkBufferArrayLength(segments, SEGMENT_LENGTH, 4);
+		this.segments = segments;
+		this.intValues = new IntBuffer[segments.length];
+		for (int i = 0; i < segments.length; i++) {
+			this.intValues[i] = segments[i].duplicate().asIntBuffer();
+		}
+	}
+	
+	
+	public RIntegerDataDirectImpl(final RJIO io, final long length) throws IOException {
+		this(io, newDirectBufferArray(length, SEGMENT_LENGTH, 4));
+	}
+	
+	/**
+	 * Reads the values into the specified buffers.
+	 * 
+	 * @param segments the buffers for the values, see {@link #RIntegerDataDirectImpl(ByteBuffer[])}
+	 */
+	public RIntegerDataDirectImpl(final RJIO io, final ByteBuffer[] segments) throws IOException {
+		this(segments);
+		for (int i = 0; i < this.segments.length; i++) {
+			io.readIntDataPart(this.segments[i].duplicate(), this.intValues[i].capacity());
+		}
+	}
+	
+	@Override
+	public void writeExternal(final RJIO io) throws IOException {
+		for (int i = 0; i < this.segments.length; i++) {
+			io.writeIntDataPart(this.segments[i].duplicate(), this.intValues[i].capacity());
+		}
+	}
+	
+	
+	@Override
+	protected final boolean isStructOnly() {
+		return false;
+	}
+	
+	
+	@Override
+	public final long getLength() {
+		return this.length;
+	}
+	
+	@Override
+	public boolean isNA(final int idx) {
+		return (this.intValues[idx / SEGMENT_LENGTH].get(idx % SEGMENT_LENGTH) == NA_integer_INT);
+	}
+	
+	@Override
+	public boolean isNA(final long idx) {
+		return (this.intValues[(int) (idx / SEGMENT_LENGTH)].get((int) (idx % SEGMENT_LENGTH)) == NA_integer_INT);
+	}
+	
+	@Override
+	public void setNA(final int idx) {
+		this.intValues[idx / SEGMENT_LENGTH].put(idx % SEGMENT_LENGTH,
+				NA_integer_INT );
+	}
+	
+	@Override
+	public void setNA(final long idx) {
+		this.intValues[(int) (idx / SEGMENT_LENGTH)].put((int) (idx % SEGMENT_LENGTH),
+				NA_integer_INT );
+	}
+	
+	@Override
+	public boolean isMissing(final int idx) {
+		return (this.intValues[idx / SEGMENT_LENGTH].get(idx % SEGMENT_LENGTH) == NA_integer_INT);
+	}
+	
+	@Override
+	public boolean isMissing(final long idx) {
+		return (this.intValues[(int) (idx / SEGMENT_LENGTH)].get((int) (idx % SEGMENT_LENGTH)) == NA_integer_INT);
+	}
+	
+	@Override
+	public int getInt(final int idx) {
+		return this.intValues[idx / SEGMENT_LENGTH].get(idx % SEGMENT_LENGTH);
+	}
+	
+	@Override
+	public int getInt(final long idx) {
+		return this.intValues[(int) (idx / SEGMENT_LENGTH)].get((int) (idx % SEGMENT_LENGTH));
+	}
+	
+	@Override
+	public void setInt(final int idx, final int value) {
+		this.intValues[idx / SEGMENT_LENGTH].put(idx % SEGMENT_LENGTH,
+				value );
+	}
+	
+	@Override
+	public void setInt(final long idx, final int value) {
+		this.intValues[(int) (idx / SEGMENT_LENGTH)].put((int) (idx % SEGMENT_LENGTH),
+				value );
+	}
+	
+	
+	@Override
+	public void getInts(long idx, final int[] array, final int arrayIdx, final int length) {
+		checkRange(idx, length);
+		for (int i = 0; i < length; ) {
+			final IntBuffer values = this.intValues[(int) (idx / SEGMENT_LENGTH)].duplicate();
+			final int j = (int) (idx % SEGMENT_LENGTH);
+			final int n = Math.min(length - i, values.capacity() - j);
+			values.position(j);
+			values.get(array, arrayIdx + i, n);
+			i += n;
+			idx += n;
+		}
+	}
+	
+	@Override
+	public void setInts(long idx, final int[] array, final int arrayIdx, final int length) {
+		checkRange(idx, length);
+		for (int i = 0; i < length; ) {
+			final IntBuffer values = this.intValues[(int) (idx / SEGMENT_LENGTH)].duplicate();
+			final int j = (int) (idx % SEGMENT_LENGTH);
+			final int n = Math.min(length - i, values.capacity() - j);
+			values.position(j);
+			values.put(array, arrayIdx + i, n);
+			i += n;
+			idx += n;
+		}
+	}
+	
+	@Override
+	public void fillInt(long idx, final long length, final int integer) {
+		checkRange(idx, length);
+		for (long i = 0; i < length; ) {
+			final IntBuffer values = this.intValues[(int) (idx / SEGMENT_LENGTH)];
+			final int j = (int) (idx % SEGMENT_LENGTH);
+			final int n = (int) Math.min(length - i, values.capacity() - j);
+			for (int k = 0; k < n; k++) {
+				values.put(j + k, integer);
+			}
+			i += n;
+			idx += n;
+		}
+	}
+	
+	@Override
+	public void fillNA(long idx, final long length) {
+		checkRange(idx, length);
+		for (long i = 0; i < length; ) {
+			final IntBuffer values = this.intValues[(int) (idx / SEGMENT_LENGTH)];
+			final int j = (int) (idx % SEGMENT_LENGTH);
+			final int n = (int) Math.min(length - i, values.capacity() - j);
+			for (int k = 0; k < n; k++) {
+				values.put(j + k, NA_integer_INT);
+			}
+			i += n;
+			idx += n;
+		}
+	}
+	
+	@Override
+	public void getNAs(long idx, final long[] bits, final int length) {
+		checkRange(idx, length);
+		clearBits(bits, length);
+		for (int i = 0; i < length; ) {
+			final IntBuffer values = this.intValues[(int) (idx / SEGMENT_LENGTH)];
+			final int j = (int) (idx % SEGMENT_LENGTH);
+			final int n = Math.min(length - i, values.capacity() - j);
+			for (int k = 0; k < n; k++) {
+				final int v = values.get(j + k);
+				if (v == NA_integer_INT) {
+					bits[(i + k) >>> 6] |= (1L << (i + k));
+				}
+			}
+			i += n;
+			idx += n;
+		}
+	}
+	
+	
+	@Override
+	public Integer get(final int idx) {
+		if (idx < 0 || idx >= this.length) {
+			throw new IndexOutOfBoundsException(Long.toString(idx));
+		}
+		final int v = this.intValues[idx / SEGMENT_LENGTH].get(idx % SEGMENT_LENGTH);
+		return (v != NA_integer_INT) ?
+			Integer.valueOf(v) :
+			null;
+	}
+	
+	@Override
+	public Integer get(final long idx) {
+		if (idx < 0 || idx >= this.length) {
+			throw new IndexOutOfBoundsException(Long.toString(idx));
+		}
+		final int v = this.intValues[(int) (idx / SEGMENT_LENGTH)].get((int) (idx % SEGMENT_LENGTH));
+		return (v != NA_integer_INT) ?
+			Integer.valueOf(v) :
+			null;
+	}
+	
+	@Override
+	public Integer[] toArray() {
+		final int l = checkToArrayLength();
+		final Integer[] array = new Integer[l];
+		int k = 0;
+		for (int i = 0; i < this.intValues.length; i++) {
+			final IntBuffer ints = this.intValues[i];
+			final int segmentLength = ints.capacity();
+			for (int j = 0; j < segmentLength; j++, k++) {
+				final int v = ints.get(j);
+				if (v != NA_integer_INT) {
+					array[k] = Integer.valueOf(v);
+				}
+			}
+		}
+		return array;
+	}
+	
+}
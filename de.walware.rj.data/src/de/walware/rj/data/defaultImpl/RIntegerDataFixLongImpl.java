@@ -16,6 +16,7 @@
 package de.walware.rj.data.defaultImpl;
 
 import java.io.IOException;
+import java.util.Arrays;
 
 import de.walware.rj.data.RJIO;
 
@@ -127,6 +128,78 @@ public class RIntegerDataFixLongImpl extends AbstractIntegerData
 	}
 	
 	
+	@Override
+	public void getInts(long idx, final int[] array, final int arrayIdx, final int length) {
+		checkRange(idx, length);
+		for (int i = 0; i < length; ) {
+			final int[] values = this.intValues[(int) (idx / SEGMENT_LENGTH)];
+			final int j = (int) (idx % SEGMENT_LENGTH);
+			final int n = Math.min(length - i, values.length - j);
+			System.arraycopy(values, j, array, arrayIdx + i, n);
+			i += n;
+			idx += n;
+		}
+	}
+	
+	@Override
+	public void setInts(long idx, final int[] array, final int arrayIdx, final int length) {
+		checkRange(idx, length);
+		for (int i = 0; i < length; ) {
+			final int[] values = this.intValues[(int) (idx / SEGMENT_LENGTH)];
+			final int j = (int) (idx % SEGMENT_LENGTH);
+			final int n = Math.min(length - i, values.length - j);
+			System.arraycopy(array, arrayIdx + i, values, j, n);
+			i += n;
+			idx += n;
+		}
+	}
+	
+	@Override
+	public void fillInt(long idx, final long length, final int integer) {
+		checkRange(idx, length);
+		for (long i = 0; i < length; ) {
+			final int[] values = this.intValues[(int) (idx / SEGMENT_LENGTH)];
+			final int j = (int) (idx % SEGMENT_LENGTH);
+			final int n = (int) Math.min(length - i, values.length - j);
+			Arrays.fill(values, j, j + n, integer);
+			i += n;
+			idx += n;
+		}
+	}
+	
+	@Override
+	public void fillNA(long idx, final long length) {
+		checkRange(idx, length);
+		for (long i = 0; i < length; ) {
+			final int[] values = this.intValues[(int) (idx / SEGMENT_LENGTH)];
+			final int j = (int) (idx % SEGMENT_LENGTH);
+			final int n = (int) Math.min(length - i, values.length - j);
+			Arrays.fill(values, j, j + n, NA_integer_INT);
+			i += n;
+			idx += n;
+		}
+	}
+	
+	@Override
+	public void getNAs(long idx, final long[] bits, final int length) {
+		checkRange(idx, length);
+		clearBits(bits, length);
+		for (int i = 0; i < length; ) {
+			final int[] values = this.intValues[(int) (idx / SEGMENT_LENGTH)];
+			final int j = (int) (idx % SEGMENT_LENGTH);
+			final int n = Math.min(length - i, values.length - j);
+			for (int k = 0; k < n; k++) {
+				final int v = values[j + k];
+				if (v == NA_integer_INT) {
+					bits[(i + k) >>> 6] |= (1L << (i + k));
+				}
+			}
+			i += n;
+			idx += n;
+		}
+	}
+	
+	
 	@Override
 	public Integer get(final int idx) {
 		if (idx < 0 || idx >= this.length) {
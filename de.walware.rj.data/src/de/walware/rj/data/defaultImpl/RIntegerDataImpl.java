@@ -19,6 +19,7 @@ import java.io.Externalizable;
 import java.io.IOException;
 import java.io.ObjectInput;
 import java.io.ObjectOutput;
+import java.util.Arrays;
 
 import de.walware.rj.data.RJIO;
 
@@ -34,6 +35,8 @@ public class RIntegerDataImpl extends AbstractIntegerData
 	
 	protected int[] intValues;
 	
+	private long[] naBits;
+	
 	
 	public RIntegerDataImpl() {
 		this.length = 0;
@@ -83,6 +86,7 @@ public class RIntegerDataImpl extends AbstractIntegerData
 		for (int i = 0; i < this.length; i++) {
 			this.intValues[i] = in.readInt();
 		}
+		this.naBits = null;
 	}
 	
 	@Override
@@ -125,6 +129,7 @@ public class RIntegerDataImpl extends AbstractIntegerData
 	@Override
 	public void setNA(final int idx) {
 		this.intValues[idx] = NA_integer_INT;
+		this.naBits = null;
 	}
 	
 	@Override
@@ -133,6 +138,7 @@ public class RIntegerDataImpl extends AbstractIntegerData
 			throw new IndexOutOfBoundsException(Long.toString(idx));
 		}
 		this.intValues[(int) idx] = NA_integer_INT;
+		this.naBits = null;
 	}
 	
 	@Override
@@ -165,6 +171,7 @@ public class RIntegerDataImpl extends AbstractIntegerData
 	public void setInt(final int idx, final int value) {
 //		assert (value != NA_integer_INT);
 		this.intValues[idx] = value;
+		this.naBits = null;
 	}
 	
 	@Override
@@ -174,12 +181,71 @@ public class RIntegerDataImpl extends AbstractIntegerData
 			throw new IndexOutOfBoundsException(Long.toString(idx));
 		}
 		this.intValues[(int) idx] = value;
+		this.naBits = null;
+	}
+	
+	
+	@Override
+	public void getInts(final long idx, final int[] array, final int arrayIdx, final int length) {
+		checkRange(idx, length);
+		System.arraycopy(this.intValues, (int) idx, array, arrayIdx, length);
+	}
+	
+	@Override
+	public void setInts(final long idx, final int[] array, final int arrayIdx, final int length) {
+		checkRange(idx, length);
+		System.arraycopy(array, arrayIdx, this.intValues, (int) idx, length);
+		this.naBits = null;
+	}
+	
+	@Override
+	public void fillInt(final long idx, final long length, final int integer) {
+		checkRange(idx, length);
+		Arrays.fill(this.intValues, (int) idx, (int) (idx + length),
+				integer );
+		this.naBits = null;
+	}
+	
+	@Override
+	public void fillNA(final long idx, final long length) {
+		checkRange(idx, length);
+		Arrays.fill(this.intValues, (int) idx, (int) (idx + length),
+				NA_integer_INT );
+		this.naBits = null;
+	}
+	
+	@Override
+	public void getNAs(final long idx, final long[] bits, final int length) {
+		checkRange(idx, length);
+		copyBits(getNABits(), idx, bits, length);
+	}
+	
+	/**
+	 * Returns the bit array with the NA flags of all values, which is created lazily
+	 * and reset if the values are changed.
+	 */
+	private long[] getNABits() {
+		long[] bits = this.naBits;
+		if (bits == null) {
+			final int l = this.length;
+			final int[] values = this.intValues;
+			bits = new long[(l + 63) >>> 6];
+			for (int i = 0; i < l; i++) {
+				final int v = values[i];
+				if (v == NA_integer_INT) {
+					bits[i >>> 6] |= (1L << i);
+				}
+			}
+			this.naBits = bits;
+		}
+		return bits;
 	}
 	
 	
 	private void prepareInsert(final int[] idxs) {
 		this.intValues = prepareInsert(this.intValues, this.length, idxs);
 		this.length += idxs.length;
+		this.naBits = null;
 	}
 	
 	public void insertInt(final int idx, final int value) {
@@ -209,12 +275,14 @@ public class RIntegerDataImpl extends AbstractIntegerData
 	public void remove(final int idx) {
 		this.intValues = remove(this.intValues, this.length, new int[] { idx });
 		this.length --;
+		this.naBits = null;
 	}
 	
 	@Override
 	public void remove(final int[] idxs) {
 		this.intValues = remove(this.intValues, this.length, idxs);
 		this.length -= idxs.length;
+		this.naBits = null;
 	}
 	
 	
@@ -260,14 +328,12 @@ public class RIntegerDataImpl extends AbstractIntegerData
 		if (fromIdx < 0) {
 			fromIdx= 0;
 		}
-		final int l= length();
-		final int[] ints= this.intValues;
-		for (int i= (int) fromIdx; i < l; i++) {
-			if (ints[i] == NA_integer_INT) {
-				return i;
-			}
-		}
-		return -1;
+		return indexOfBit(getNABits(), fromIdx);
+	}
+	
+	@Override
+	public long countNA() {
+		return countBits(getNABits());
 	}
 	
 	@Override
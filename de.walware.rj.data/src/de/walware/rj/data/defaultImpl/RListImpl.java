@@ -158,6 +158,17 @@ public class RListImpl extends AbstractRObject
 		return this.namesAttribute;
 	}
 	
+	/**
+	 * Sets if a hash index is used to find the components by name.
+	 * 
+	 * @see RCharacterDataImpl#setHashIndexEnabled(boolean)
+	 */
+	public void setNamesHashIndexEnabled(final boolean enabled) {
+		if (this.namesAttribute != null) {
+			this.namesAttribute.setHashIndexEnabled(enabled);
+		}
+	}
+	
 	@Override
 	public final String getName(final int idx) {
 		if (this.namesAttribute != null) {
@@ -0,0 +1,248 @@
+/*=============================================================================#
+ # Copyright (c) 2016 Stephan Wahlbrink (WalWare.de) and others.
+ # All rights reserved. This program and the accompanying materials
+ # are made available under the terms of either (per the licensee's choosing)
+ #   - the Eclipse Public License v1.0
+ #     which accompanies this distribution, and is available at
+ #     http://www.eclipse.org/legal/epl-v10.html, or
+ #   - the GNU Lesser General Public License v2.1 or newer
+ #     which accompanies this distribution, and is available at
+ #     http://www.gnu.org/licenses/lgpl.html
+ # 
+ # Contributors:
+ #     Stephan Wahlbrink - initial API and implementation
+ #=============================================================================*/
+
+package de.walware.rj.data.defaultImpl;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+
+import de.walware.rj.data.RJIO;
+
+
+/**
+ * Logical data store with the values (one byte per value) stored outside of the Java heap
+ * in segments of {@link ByteBuffer}s (direct or mapped).
+ */
+public class RLogicalDataByteDirectImpl extends AbstractLogicalData
+		implements ExternalizableRStore {
+	
+	
+	public static final int SEGMENT_LENGTH = DEFAULT_DIRECT_DATA_SEGMENT_LENGTH;
+	
+	
+	private final long length;
+	
+	protected final ByteBuffer[] boolValues;
+	
+	
+	public RLogicalDataByteDirectImpl(final long length) {
+		this(newDirectBufferArray(length, SEGMENT_LENGTH, 1));
+	}
+	
+	/**
+	 * @param segments the buffers with the values of {@link #SEGMENT_LENGTH} values each,
+	 *     except the last one
+	 */
+	public RLogicalDataByteDirectImpl(final ByteBuffer[] segments) {
+		this.length = checkBufferArrayLength(segments, SEGMENT_LENGTH, 1);
+		this.boolValues = segments;
+	}
+	
+	
+	public RLogicalDataByteDirectImpl(final RJIO io, final long length) throws IOException {
+		this(io, newDirectBufferArray(length, SEGMENT_LENGTH, 1));
+	}
+	
+	/**
+	 * Reads the values into the specified buffers.
+	 * 
+	 * @param segments the buffers for the values, see {@link #RLogicalDataByteDirectImpl(ByteBuffer[])}
+	 */
+	public RLogicalDataByteDirectImpl(final RJIO io, final ByteBuffer[] segments) throws IOException {
+		this(segments);
+		for (int i = 0; i < this.boolValues.length; i++) {
+			io.readByteDataPart(this.boolValues[i].duplicate(), this.boolValues[i].capacity());
+		}
+	}
+	
+	@Override
+	public void writeExternal(final RJIO io) throws IOException {
+		for (int i = 0; i < this.boolValues.length; i++) {
+			io.writeByteDataPart(this.boolValues[i].duplicate(), this.boolValues[i].capacity());
+		}
+	}
+	
+	
+	@Override
+	protected final boolean isStructOnly() {
+		return false;
+	}
+	
+	
+	@Override
+	public final long getLength() {
+		return this.length;
+	}
+	
+	@Override
+	public boolean isNA(final int idx) {
+		return (this.boolValues[idx / SEGMENT_LENGTH].get(idx % SEGMENT_LENGTH) == NA_logical_BYTE);
+	}
+	
+	@Override
+	public boolean isNA(final long idx) {
+		return (this.boolValues[(int) (idx / SEGMENT_LENGTH)].get((int) (idx % SEGMENT_LENGTH)) == NA_logical_BYTE);
+	}
+	
+	@Override
+	public boolean isMissing(final int idx) {
+		return (this.boolValues[idx / SEGMENT_LENGTH].get(idx % SEGMENT_LENGTH) == NA_logical_BYTE);
+	}
+	
+	@Override
+	public boolean isMissing(final long idx) {
+		return (this.boolValues[(int) (idx / SEGMENT_LENGTH)].get((int) (idx % SEGMENT_LENGTH)) == NA_logical_BYTE);
+	}
+	
+	@Override
+	public void setNA(final int idx) {
+		this.boolValues[idx / SEGMENT_LENGTH].put(idx % SEGMENT_LENGTH,
+				NA_logical_BYTE );
+	}
+	
+	@Override
+	public void setNA(final long idx) {
+		this.boolValues[(int) (idx / SEGMENT_LENGTH)].put((int) (idx % SEGMENT_LENGTH),
+				NA_logical_BYTE );
+	}
+	
+	@Override
+	public boolean getLogi(final int idx) {
+		return (this.boolValues[idx / SEGMENT_LENGTH].get(idx % SEGMENT_LENGTH) == TRUE_BYTE);
+	}
+	
+	@Override
+	public boolean getLogi(final long idx) {
+		return (this.boolValues[(int) (idx / SEGMENT_LENGTH)].get((int) (idx % SEGMENT_LENGTH)) == TRUE_BYTE);
+	}
+	
+	@Override
+	public void setLogi(final int idx, final boolean value) {
+		this.boolValues[idx / SEGMENT_LENGTH].put(idx % SEGMENT_LENGTH,
+				(value) ? TRUE_BYTE : FALSE_BYTE );
+	}
+	
+	@Override
+	public void setLogi(final long idx, final boolean value) {
+		this.boolValues[(int) (idx / SEGMENT_LENGTH)].put((int) (idx % SEGMENT_LENGTH),
+				(value) ? TRUE_BYTE : FALSE_BYTE );
+	}
+	
+	
+	@Override
+	public void getLogis(long idx, final boolean[] array, final int arrayIdx, final int length) {
+		checkRange(idx, length);
+		for (int i = 0; i < length; ) {
+			final ByteBuffer values = this.boolValues[(int) (idx / SEGMENT_LENGTH)];
+			final int j = (int) (idx % SEGMENT_LENGTH);
+			final int n = Math.min(length - i, values.capacity() - j);
+			for (int k = 0; k < n; k++) {
+				array[arrayIdx + i + k] = (values.get(j + k) == TRUE_BYTE);
+			}
+			i += n;
+			idx += n;
+		}
+	}
+	
+	@Override
+	public void fillNA(long idx, final long length) {
+		checkRange(idx, length);
+		for (long i = 0; i < length; ) {
+			final ByteBuffer values = this.boolValues[(int) (idx / SEGMENT_LENGTH)];
+			final int j = (int) (idx % SEGMENT_LENGTH);
+			final int n = (int) Math.min(length - i, values.capacity() - j);
+			for (int k = 0; k < n; k++) {
+				values.put(j + k, NA_logical_BYTE);
+			}
+			i += n;
+			idx += n;
+		}
+	}
+	
+	@Override
+	public void getNAs(long idx, final long[] bits, final int length) {
+		checkRange(idx, length);
+		clearBits(bits, length);
+		for (int i = 0; i < length; ) {
+			final ByteBuffer values = this.boolValues[(int) (idx / SEGMENT_LENGTH)];
+			final int j = (int) (idx % SEGMENT_LENGTH);
+			final int n = Math.min(length - i, values.capacity() - j);
+			for (int k = 0; k < n; k++) {
+				final byte v = values.get(j + k);
+				if (v == NA_logical_BYTE) {
+					bits[(i + k) >>> 6] |= (1L << (i + k));
+				}
+			}
+			i += n;
+			idx += n;
+		}
+	}
+	
+	
+	@Override
+	public Boolean get(final int idx) {
+		if (idx < 0 || idx >= this.length) {
+			throw new IndexOutOfBoundsException(Long.toString(idx));
+		}
+		switch(this.boolValues[idx / SEGMENT_LENGTH].get(idx % SEGMENT_LENGTH)) {
+		case TRUE_BYTE:
+			return Boolean.TRUE;
+		case FALSE_BYTE:
+			return Boolean.FALSE;
+		default:
+			return null;
+		}
+	}
+	
+	@Override
+	public Boolean get(final long idx) {
+		if (idx < 0 || idx >= this.length) {
+			throw new IndexOutOfBoundsException(Long.toString(idx));
+		}
+		switch(this.boolValues[(int) (idx / SEGMENT_LENGTH)].get((int) (idx % SEGMENT_LENGTH))) {
+		case TRUE_BYTE:
+			return Boolean.TRUE;
+		case FALSE_BYTE:
+			return Boolean.FALSE;
+		default:
+			return null;
+		}
+	}
+	
+	@Override
+	public Boolean[] toArray() {
+		final int l = checkToArrayLength();
+		final Boolean[] array = new Boolean[l];
+		int k = 0;
+		for (int i = 0; i < this.boolValues.length; i++) {
+			final ByteBuffer bools = this.boolValues[i];
+			final int segmentLength = bools.capacity();
+			for (int j = 0; j < segmentLength; j++, k++) {
+				switch(bools.get(j)) {
+				case TRUE_BYTE:
+					array[k] = Boolean.TRUE;
+					continue;
+				case FALSE_BYTE:
+					array[k] = Boolean.FALSE;
+					continue;
+				default:
+					continue;
+				}
+			}
+		}
+		return array;
+	}
+	
+}
@@ -16,6 +16,7 @@
 package de.walware.rj.data.defaultImpl;
 
 import java.io.IOException;
+import java.util.Arrays;
 
 import de.walware.rj.data.RJIO;
 
@@ -133,6 +134,54 @@ public class RLogicalDataByteFixLongImpl extends AbstractLogicalData
 	}
 	
 	
+	@Override
+	public void getLogis(long idx, final boolean[] array, final int arrayIdx, final int length) {
+		checkRange(idx, length);
+		for (int i = 0; i < length; ) {
+			final byte[] values = this.boolValues[(int) (idx / SEGMENT_LENGTH)];
+			final int j = (int) (idx % SEGMENT_LENGTH);
+			final int n = Math.min(length - i, values.length - j);
+			for (int k = 0; k < n; k++) {
+				array[arrayIdx + i + k] = (values[j + k] == TRUE_BYTE);
+			}
+			i += n;
+			idx += n;
+		}
+	}
+	
+	@Override
+	public void fillNA(long idx, final long length) {
+		checkRange(idx, length);
+		for (long i = 0; i < length; ) {
+			final byte[] values = this.boolValues[(int) (idx / SEGMENT_LENGTH)];
+			final int j = (int) (idx % SEGMENT_LENGTH);
+			final int n = (int) Math.min(length - i, values.length - j);
+			Arrays.fill(values, j, j + n, NA_logical_BYTE);
+			i += n;
+			idx += n;
+		}
+	}
+	
+	@Override
+	public void getNAs(long idx, final long[] bits, final int length) {
+		checkRange(idx, length);
+		clearBits(bits, length);
+		for (int i = 0; i < length; ) {
+			final byte[] values = this.boolValues[(int) (idx / SEGMENT_LENGTH)];
+			final int j = (int) (idx % SEGMENT_LENGTH);
+			final int n = Math.min(length - i, values.length - j);
+			for (int k = 0; k < n; k++) {
+				final byte v = values[j + k];
+				if (v == NA_logical_BYTE) {
+					bits[(i + k) >>> 6] |= (1L << (i + k));
+				}
+			}
+			i += n;
+			idx += n;
+		}
+	}
+	
+	
 	@Override
 	public Boolean get(final int idx) {
 		if (idx < 0 || idx >= this.length) {
@@ -19,6 +19,7 @@ import java.io.Externalizable;
 import java.io.IOException;
 import java.io.ObjectInput;
 import java.io.ObjectOutput;
+import java.util.Arrays;
 
 import de.walware.rj.data.RJIO;
 
@@ -202,6 +203,36 @@ public class RLogicalDataByteImpl extends AbstractLogicalData
 	}
 	
 	
+	@Override
+	public void getLogis(final long idx, final boolean[] array, final int arrayIdx, final int length) {
+		checkRange(idx, length);
+		final byte[] values = this.boolValues;
+		for (int i = 0, j = (int) idx; i < length; i++, j++) {
+			array[arrayIdx + i] = (values[j] == TRUE_BYTE);
+		}
+	}
+	
+	@Override
+	public void fillNA(final long idx, final long length) {
+		checkRange(idx, length);
+		Arrays.fill(this.boolValues, (int) idx, (int) (idx + length),
+				NA_logical_BYTE );
+	}
+	
+	@Override
+	public void getNAs(final long idx, final long[] bits, final int length) {
+		checkRange(idx, length);
+		clearBits(bits, length);
+		final byte[] values = this.boolValues;
+		for (int i = 0, j = (int) idx; i < length; i++, j++) {
+			final byte v = values[j];
+			if (v == NA_logical_BYTE) {
+				bits[i >>> 6] |= (1L << i);
+			}
+		}
+	}
+	
+	
 	private void prepareInsert(final int[] idxs) {
 		this.boolValues = prepareInsert(this.boolValues, this.length, idxs);
 		this.length += idxs.length;
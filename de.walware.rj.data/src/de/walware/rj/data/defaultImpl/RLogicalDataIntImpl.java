@@ -16,6 +16,7 @@
 package de.walware.rj.data.defaultImpl;
 
 import java.io.IOException;
+import java.util.Arrays;
 
 import de.walware.rj.data.RJIO;
 
@@ -182,6 +183,36 @@ public class RLogicalDataIntImpl extends AbstractLogicalData
 	}
 	
 	
+	@Override
+	public void getLogis(final long idx, final boolean[] array, final int arrayIdx, final int length) {
+		checkRange(idx, length);
+		final int[] values = this.boolValues;
+		for (int i = 0, j = (int) idx; i < length; i++, j++) {
+			array[arrayIdx + i] = (values[j] != FALSE_INT);
+		}
+	}
+	
+	@Override
+	public void fillNA(final long idx, final long length) {
+		checkRange(idx, length);
+		Arrays.fill(this.boolValues, (int) idx, (int) (idx + length),
+				NA_logical_INT );
+	}
+	
+	@Override
+	public void getNAs(final long idx, final long[] bits, final int length) {
+		checkRange(idx, length);
+		clearBits(bits, length);
+		final int[] values = this.boolValues;
+		for (int i = 0, j = (int) idx; i < length; i++, j++) {
+			final int v = values[j];
+			if (v == NA_logical_INT) {
+				bits[i >>> 6] |= (1L << i);
+			}
+		}
+	}
+	
+	
 	private void prepareInsert(final int[] idxs) {
 		this.boolValues = prepareInsert(this.boolValues, this.length, idxs);
 		this.length += idxs.length;
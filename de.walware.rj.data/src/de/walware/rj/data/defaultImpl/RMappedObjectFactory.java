@@ -0,0 +1,149 @@
+/*=============================================================================#
+ # Copyright (c) 2016 Stephan Wahlbrink (WalWare.de) and others.
+ # All rights reserved. This program and the accompanying materials
+ # are made available under the terms of either (per the licensee's choosing)
+ #   - the Eclipse Public License v1.0
+ #     which accompanies this distribution, and is available at
+ #     http://www.eclipse.org/legal/epl-v10.html, or
+ #   - the GNU Lesser General Public License v2.1 or newer
+ #     which accompanies this distribution, and is available at
+ #     http://www.gnu.org/licenses/lgpl.html
+ # 
+ # Contributors:
+ #     Stephan Wahlbrink - initial API and implementation
+ #=============================================================================*/
+
+package de.walware.rj.data.defaultImpl;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.channels.FileChannel.MapMode;
+
+import de.walware.rj.data.RJIO;
+import de.walware.rj.data.RStore;
+
+
+/**
+ * Factory creating the stores of large logical, integer, numeric, raw and character data
+ * backed by memory-mapped temporary files instead of the Java heap when reading data.
+ * <p>
+ * The data is written to the files while it is read, so the size of the data is limited
+ * by the disk space instead of the heap size.  The temporary files are deleted directly
+ * after they are opened if supported by the OS (otherwise on exit of the VM); the disk space
+ * is released when the stores are garbage collected.</p>
+ * <p>
+ * To use the factory for the data of a R service call, register it with a unique id in the
+ * RjsComConfig and specify the id as factory id of the call.</p>
+ */
+public class RMappedObjectFactory extends RObjectFactoryImpl {
+	
+	
+	public static final long DEFAULT_MIN_LENGTH = 1 << 24;
+	
+	
+	private final File directory;
+	
+	private final long minLength;
+	
+	
+	public RMappedObjectFactory() {
+		this(null, DEFAULT_MIN_LENGTH);
+	}
+	
+	/**
+	 * @param directory the directory for the temporary files or <code>null</code> for
+	 *     the default temporary-file directory
+	 * @param minLength the minimal length of data for which mapped stores are created
+	 */
+	public RMappedObjectFactory(final File directory, final long minLength) {
+		if (minLength < 1) {
+			throw new IllegalArgumentException("minLength"); //$NON-NLS-1$
+		}
+		this.directory = directory;
+		this.minLength = minLength;
+	}
+	
+	
+	public File getDirectory() {
+		return this.directory;
+	}
+	
+	public long getMinLength() {
+		return this.minLength;
+	}
+	
+	
+	/**
+	 * Creates and opens a new temporary file.
+	 * 
+	 * @return the channel of the file
+	 */
+	protected FileChannel openTempFile() throws IOException {
+		final File file = File.createTempFile("rj-data-", ".tmp", this.directory); //$NON-NLS-1$ //$NON-NLS-2$
+		final RandomAccessFile raf;
+		try {
+			raf = new RandomAccessFile(file, "rw"); //$NON-NLS-1$
+		}
+		catch (final IOException e) {
+			file.delete();
+			throw e;
+		}
+		if (!file.delete()) {
+			file.deleteOnExit();
+		}
+		return raf.getChannel();
+	}
+	
+	private ByteBuffer[] mapTempFile(final long length, final int segmentLength,
+			final int valueSize) throws IOException {
+		final FileChannel channel = openTempFile();
+		try {
+			return AbstractRData.mapBufferArray(channel, length, segmentLength, valueSize, MapMode.READ_WRITE);
+		}
+		finally {
+			channel.close();
+		}
+	}
+	
+	@Override
+	protected RStore<?> readStoreData(final RJIO io, final byte storeType, final long length) throws IOException {
+		if (length >= this.minLength) {
+			switch (storeType) {
+			case RStore.LOGICAL:
+				return new RLogicalDataByteDirectImpl(io,
+						mapTempFile(length, RLogicalDataByteDirectImpl.SEGMENT_LENGTH, 1) );
+			case RStore.INTEGER:
+				return new RIntegerDataDirectImpl(io,
+						mapTempFile(length, RIntegerDataDirectImpl.SEGMENT_LENGTH, 4) );
+			case RStore.NUMERIC:
+				return new RNumericDataBDirectImpl(io,
+						mapTempFile(length, RNumericDataBDirectImpl.SEGMENT_LENGTH, 8) );
+			case RStore.RAW:
+				return new RRawDataDirectImpl(io,
+						mapTempFile(length, RRawDataDirectImpl.SEGMENT_LENGTH, 1) );
+			case RStore.CHARACTER: {
+				final FileChannel indexChannel = openTempFile();
+				try {
+					final FileChannel charChannel = openTempFile();
+					try {
+						return new RCharacterDataMappedImpl(io, length, indexChannel, charChannel);
+					}
+					finally {
+						charChannel.close();
+					}
+				}
+				finally {
+					indexChannel.close();
+				}
+			}
+			default:
+				break;
+			}
+		}
+		return super.readStoreData(io, storeType, length);
+	}
+	
+}
@@ -0,0 +1,295 @@
+/*=============================================================================#
+ # Copyright (c) 2016 Stephan Wahlbrink (WalWare.de) and others.
+ # All rights reserved. This program and the accompanying materials
+ # are made available under the terms of either (per the licensee's choosing)
+ #   - the Eclipse Public License v1.0
+ #     which accompanies this distribution, and is available at
+ #     http://www.eclipse.org/legal/epl-v10.html, or
+ #   - the GNU Lesser General Public License v2.1 or newer
+ #     which accompanies this distribution, and is available at
+ #     http://www.gnu.org/licenses/lgpl.html
+ # 
+ # Contributors:
+ #     Stephan Wahlbrink - initial API and implementation
+ #=============================================================================*/
+
+package de.walware.rj.data.defaultImpl;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.DoubleBuffer;
+
+import de.walware.rj.data.RJIO;
+
+
+/**
+ * Numeric data store with the values stored outside of the Java heap in segments of
+ * {@link ByteBuffer}s (direct or mapped).
+ */
+public class RNumericDataBDirectImpl extends AbstractNumericData
+		implements ExternalizableRStore {
+	
+	
+	public static final int SEGMENT_LENGTH = DEFAULT_DIRECT_DATA_SEGMENT_LENGTH;
+	
+	
+	private final long length;
+	
+	protected final ByteBuffer[] segments;
+	protected final DoubleBuffer[] realValues;
+	
+	
+	public RNumericDataBDirectImpl(final long length) {
+		this(newDirectBufferArray(length, SEGMENT_LENGTH, 8));
+	}
+	
+	/**
+	 * @param segments the buffers (big-endian) with the values of {@link #SEGMENT_LENGTH}
+	 *     values each, except the last one
+	 */
+	public RNumericDataBDirectImpl(final ByteBuffer[] segments) {
+		this.length = checkBufferArrayLength(segments, SEGMENT_LENGTH, 8);
+		this.segments = segments;
+		this.realValues = new DoubleBuffer[segments.length];
+		for (int i = 0; i < segments.length; i++) {
+			this.realValues[i] = segments[i].duplicate().asDoubleBuffer();
+		}
+	}
+	
+	
+	public RNumericDataBDirectImpl(final RJIO io, final long length) throws IOException {
+		this(io, newDirectBufferArray(length, SEGMENT_LENGTH, 8));
+	}
+	
+	/**
+	 * Reads the values into the specified buffers.
+	 * 
+	 * @param segments the buffers for the values, see {@link #RNumericDataBDirectImpl(ByteBuffer[])}
+	 */
+	public RNumericDataBDirectImpl(final RJIO io, final ByteBuffer[] segments) throws IOException {
+		this(segments);
+		for (int i = 0; i < this.segments.length; i++) {
+			io.readDoubleDataPart(this.segments[i].duplicate(), this.realValues[i].capacity());
+		}
+	}
+	
+	@Override
+	public void writeExternal(final RJIO io) throws IOException {
+		for (int i = 0; i < this.segments.length; i++) {
+			io.writeDoubleDataPart(this.segments[i].duplicate(), this.realValues[i].capacity());
+		}
+	}
+	
+	
+	@Override
+	protected final boolean isStructOnly() {
+		return false;
+	}
+	
+	
+	@Override
+	public final long getLength() {
+		return this.length;
+	}
+	
+	@Override
+	public boolean isNA(final int idx) {
+		final double v = this.realValues[idx / SEGMENT_LENGTH].get(idx % SEGMENT_LENGTH);
+		return (Double.isNaN(v)
+				&& (int) Double.doubleToRawLongBits(v) == NA_numeric_INT_MATCH);
+	}
+	
+	@Override
+	public boolean isNA(final long idx) {
+		final double v = this.realValues[(int) (idx / SEGMENT_LENGTH)].get((int) (idx % SEGMENT_LENGTH));
+		return (Double.isNaN(v)
+				&& (int) Double.doubleToRawLongBits(v) == NA_numeric_INT_MATCH);
+	}
+	
+	@Override
+	public void setNA(final int idx) {
+		this.realValues[idx / SEGMENT_LENGTH].put(idx % SEGMENT_LENGTH,
+				NA_numeric_DOUBLE );
+	}
+	
+	@Override
+	public void setNA(final long idx) {
+		this.realValues[(int) (idx / SEGMENT_LENGTH)].put((int) (idx % SEGMENT_LENGTH),
+				NA_numeric_DOUBLE );
+	}
+	
+	@Override
+	public boolean isNaN(final int idx) {
+		final double v = this.realValues[idx / SEGMENT_LENGTH].get(idx % SEGMENT_LENGTH);
+		return (Double.isNaN(v)
+				&& (int) Double.doubleToRawLongBits(v) != NA_numeric_INT_MATCH);
+	}
+	
+	@Override
+	public boolean isNaN(final long idx) {
+		final double v = this.realValues[(int) (idx / SEGMENT_LENGTH)].get((int) (idx % SEGMENT_LENGTH));
+		return (Double.isNaN(v)
+				&& (int) Double.doubleToRawLongBits(v) != NA_numeric_INT_MATCH);
+	}
+	
+	@Override
+	public boolean isMissing(final int idx) {
+		return (Double.isNaN(
+				this.realValues[idx / SEGMENT_LENGTH].get(idx % SEGMENT_LENGTH) ));
+	}
+	
+	@Override
+	public boolean isMissing(final long idx) {
+		return (Double.isNaN(
+				this.realValues[(int) (idx / SEGMENT_LENGTH)].get((int) (idx % SEGMENT_LENGTH)) ));
+	}
+	
+	@Override
+	public double getNum(final int idx) {
+		return this.realValues[idx / SEGMENT_LENGTH].get(idx % SEGMENT_LENGTH);
+	}
+	
+	@Override
+	public double getNum(final long idx) {
+		return this.realValues[(int) (idx / SEGMENT_LENGTH)].get((int) (idx % SEGMENT_LENGTH));
+	}
+	
+	@Override
+	public void setNum(final int idx, final double value) {
+		this.realValues[idx / SEGMENT_LENGTH].put(idx % SEGMENT_LENGTH,
+				(Double.isNaN(value)) ? NaN_numeric_DOUBLE : value );
+	}
+	
+	@Override
+	public void setNum(final long idx, final double value) {
+		this.realValues[(int) (idx / SEGMENT_LENGTH)].put((int) (idx % SEGMENT_LENGTH),
+				(Double.isNaN(value)) ? NaN_numeric_DOUBLE : value );
+	}
+	
+	
+	@Override
+	public void getNums(long idx, final double[] array, final int arrayIdx, final int length) {
+		checkRange(idx, length);
+		for (int i = 0; i < length; ) {
+			final DoubleBuffer values = this.realValues[(int) (idx / SEGMENT_LENGTH)].duplicate();
+			final int j = (int) (idx % SEGMENT_LENGTH);
+			final int n = Math.min(length - i, values.capacity() - j);
+			values.position(j);
+			values.get(array, arrayIdx + i, n);
+			i += n;
+			idx += n;
+		}
+	}
+	
+	@Override
+	public void setNums(long idx, final double[] array, final int arrayIdx, final int length) {
+		checkRange(idx, length);
+		for (int i = 0; i < length; ) {
+			final DoubleBuffer values = this.realValues[(int) (idx / SEGMENT_LENGTH)];
+			final int j = (int) (idx % SEGMENT_LENGTH);
+			final int n = Math.min(length - i, values.capacity() - j);
+			for (int k = 0; k < n; k++) {
+				final double v = array[arrayIdx + i + k];
+				values.put(j + k, (Double.isNaN(v)) ? NaN_numeric_DOUBLE : v);
+			}
+			i += n;
+			idx += n;
+		}
+	}
+	
+	@Override
+	public void fillNum(long idx, final long length, final double numeric) {
+		checkRange(idx, length);
+		final double value = (Double.isNaN(numeric)) ? NaN_numeric_DOUBLE : numeric;
+		for (long i = 0; i < length; ) {
+			final DoubleBuffer values = this.realValues[(int) (idx / SEGMENT_LENGTH)];
+			final int j = (int) (idx % SEGMENT_LENGTH);
+			final int n = (int) Math.min(length - i, values.capacity() - j);
+			for (int k = 0; k < n; k++) {
+				values.put(j + k, value);
+			}
+			i += n;
+			idx += n;
+		}
+	}
+	
+	@Override
+	public void fillNA(long idx, final long length) {
+		checkRange(idx, length);
+		for (long i = 0; i < length; ) {
+			final DoubleBuffer values = this.realValues[(int) (idx / SEGMENT_LENGTH)];
+			final int j = (int) (idx % SEGMENT_LENGTH);
+			final int n = (int) Math.min(length - i, values.capacity() - j);
+			for (int k = 0; k < n; k++) {
+				values.put(j + k, NA_numeric_DOUBLE);
+			}
+			i += n;
+			idx += n;
+		}
+	}
+	
+	@Override
+	public void getNAs(long idx, final long[] bits, final int length) {
+		checkRange(idx, length);
+		clearBits(bits, length);
+		for (int i = 0; i < length; ) {
+			final DoubleBuffer values = this.realValues[(int) (idx / SEGMENT_LENGTH)];
+			final int j = (int) (idx % SEGMENT_LENGTH);
+			final int n = Math.min(length - i, values.capacity() - j);
+			for (int k = 0; k < n; k++) {
+				final double v = values.get(j + k);
+				if (Double.isNaN(v) && (int) Double.doubleToRawLongBits(v) == NA_numeric_INT_MATCH) {
+					bits[(i + k) >>> 6] |= (1L << (i + k));
+				}
+			}
+			i += n;
+			idx += n;
+		}
+	}
+	
+	
+	@Override
+	public Double get(final int idx) {
+		if (idx < 0 || idx >= this.length) {
+			throw new IndexOutOfBoundsException(Long.toString(idx));
+		}
+		final double v = this.realValues[idx / SEGMENT_LENGTH].get(idx % SEGMENT_LENGTH);
+		return (!Double.isNaN(v)
+				|| (int) Double.doubleToRawLongBits(v) != NA_numeric_INT_MATCH) ?
+			Double.valueOf(v) :
+			null;
+	}
+	
+	@Override
+	public Double get(final long idx) {
+		if (idx < 0 || idx >= this.length) {
+			throw new IndexOutOfBoundsException(Long.toString(idx));
+		}
+		final double v = this.realValues[(int) (idx / SEGMENT_LENGTH)].get((int) (idx % SEGMENT_LENGTH));
+		return (!Double.isNaN(v)
+				|| (int) Double.doubleToRawLongBits(v) != NA_numeric_INT_MATCH) ?
+			Double.valueOf(v) :
+			null;
+	}
+	
+	
+	@Override
+	public Double[] toArray() {
+		final int l = checkToArrayLength();
+		final Double[] array = new Double[l];
+		int k = 0;
+		for (int i = 0; i < this.realValues.length; i++) {
+			final DoubleBuffer reals = this.realValues[i];
+			final int segmentLength = reals.capacity();
+			for (int j = 0; j < segmentLength; j++, k++) {
+				final double v = reals.get(j);
+				if (!Double.isNaN(v)
+						|| (int) Double.doubleToRawLongBits(v) != NA_numeric_INT_MATCH) {
+					array[k] = Double.valueOf(v);
+				}
+			}
+		}
+		return array;
+	}
+	
+}
@@ -16,6 +16,7 @@
 package de.walware.rj.data.defaultImpl;
 
 import java.io.IOException;
+import java.util.Arrays;
 
 import de.walware.rj.data.RJIO;
 
@@ -145,6 +146,82 @@ public class RNumericDataBFixLongImpl extends AbstractNumericData
 	}
 	
 	
+	@Override
+	public void getNums(long idx, final double[] array, final int arrayIdx, final int length) {
+		checkRange(idx, length);
+		for (int i = 0; i < length; ) {
+			final double[] values = this.realValues[(int) (idx / SEGMENT_LENGTH)];
+			final int j = (int) (idx % SEGMENT_LENGTH);
+			final int n = Math.min(length - i, values.length - j);
+			System.arraycopy(values, j, array, arrayIdx + i, n);
+			i += n;
+			idx += n;
+		}
+	}
+	
+	@Override
+	public void setNums(long idx, final double[] array, final int arrayIdx, final int length) {
+		checkRange(idx, length);
+		for (int i = 0; i < length; ) {
+			final double[] values = this.realValues[(int) (idx / SEGMENT_LENGTH)];
+			final int j = (int) (idx % SEGMENT_LENGTH);
+			final int n = Math.min(length - i, values.length - j);
+			for (int k = 0; k < n; k++) {
+				final double v = array[arrayIdx + i + k];
+				values[j + k] = (Double.isNaN(v)) ? NaN_numeric_DOUBLE : v;
+			}
+			i += n;
+			idx += n;
+		}
+	}
+	
+	@Override
+	public void fillNum(long idx, final long length, final double numeric) {
+		checkRange(idx, length);
+		final double value = (Double.isNaN(numeric)) ? NaN_numeric_DOUBLE : numeric;
+		for (long i = 0; i < length; ) {
+			final double[] values = this.realValues[(int) (idx / SEGMENT_LENGTH)];
+			final int j = (int) (idx % SEGMENT_LENGTH);
+			final int n = (int) Math.min(length - i, values.length - j);
+			Arrays.fill(values, j, j + n, value);
+			i += n;
+			idx += n;
+		}
+	}
+	
+	@Override
+	public void fillNA(long idx, final long length) {
+		checkRange(idx, length);
+		for (long i = 0; i < length; ) {
+			final double[] values = this.realValues[(int) (idx / SEGMENT_LENGTH)];
+			final int j = (int) (idx % SEGMENT_LENGTH);
+			final int n = (int) Math.min(length - i, values.length - j);
+			Arrays.fill(values, j, j + n, NA_numeric_DOUBLE);
+			i += n;
+			idx += n;
+		}
+	}
+	
+	@Override
+	public void getNAs(long idx, final long[] bits, final int length) {
+		checkRange(idx, length);
+		clearBits(bits, length);
+		for (int i = 0; i < length; ) {
+			final double[] values = this.realValues[(int) (idx / SEGMENT_LENGTH)];
+			final int j = (int) (idx % SEGMENT_LENGTH);
+			final int n = Math.min(length - i, values.length - j);
+			for (int k = 0; k < n; k++) {
+				final double v = values[j + k];
+				if (Double.isNaN(v) && (int) Double.doubleToRawLongBits(v) == NA_numeric_INT_MATCH) {
+					bits[(i + k) >>> 6] |= (1L << (i + k));
+				}
+			}
+			i += n;
+			idx += n;
+		}
+	}
+	
+	
 	@Override
 	public Double get(final int idx) {
 		if (idx < 0 || idx >= this.length) {
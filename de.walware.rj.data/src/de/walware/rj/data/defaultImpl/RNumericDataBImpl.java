@@ -19,6 +19,7 @@ import java.io.Externalizable;
 import java.io.IOException;
 import java.io.ObjectInput;
 import java.io.ObjectOutput;
+import java.util.Arrays;
 
 import de.walware.rj.data.RJIO;
 
@@ -34,6 +35,8 @@ public class RNumericDataBImpl extends AbstractNumericData
 	
 	protected double[] realValues;
 	
+	private long[] naBits;
+	
 	
 	public RNumericDataBImpl() {
 		this.length = 0;
@@ -78,6 +81,7 @@ public class RNumericDataBImpl extends AbstractNumericData
 		for (int i = 0; i < this.length; i++) {
 			this.realValues[i] = Double.longBitsToDouble(in.readLong());
 		}
+		this.naBits = null;
 	}
 	
 	@Override
@@ -124,6 +128,7 @@ public class RNumericDataBImpl extends AbstractNumericData
 	@Override
 	public void setNA(final int idx) {
 		this.realValues[idx] = NA_numeric_DOUBLE;
+		this.naBits = null;
 	}
 	
 	@Override
@@ -132,6 +137,7 @@ public class RNumericDataBImpl extends AbstractNumericData
 			throw new IndexOutOfBoundsException(Long.toString(idx));
 		}
 		this.realValues[(int) idx] = NA_numeric_DOUBLE;
+		this.naBits = null;
 	}
 	
 	@Override
@@ -180,6 +186,7 @@ public class RNumericDataBImpl extends AbstractNumericData
 	@Override
 	public void setNum(final int idx, final double value) {
 		this.realValues[idx] = (Double.isNaN(value)) ? NaN_numeric_DOUBLE : value;
+		this.naBits = null;
 	}
 	
 	@Override
@@ -188,12 +195,75 @@ public class RNumericDataBImpl extends AbstractNumericData
 			throw new IndexOutOfBoundsException(Long.toString(idx));
 		}
 		this.realValues[(int) idx] = (Double.isNaN(value)) ? NaN_numeric_DOUBLE : value;
+		this.naBits = null;
+	}
+	
+	
+	@Override
+	public void getNums(final long idx, final double[] array, final int arrayIdx, final int length) {
+		checkRange(idx, length);
+		System.arraycopy(this.realValues, (int) idx, array, arrayIdx, length);
+	}
+	
+	@Override
+	public void setNums(final long idx, final double[] array, final int arrayIdx, final int length) {
+		checkRange(idx, length);
+		final double[] values = this.realValues;
+		for (int i = 0, j = (int) idx; i < length; i++, j++) {
+			final double v = array[arrayIdx + i];
+			values[j] = (Double.isNaN(v)) ? NaN_numeric_DOUBLE : v;
+		}
+		this.naBits = null;
+	}
+	
+	@Override
+	public void fillNum(final long idx, final long length, final double numeric) {
+		checkRange(idx, length);
+		Arrays.fill(this.realValues, (int) idx, (int) (idx + length),
+				(Double.isNaN(numeric)) ? NaN_numeric_DOUBLE : numeric );
+		this.naBits = null;
+	}
+	
+	@Override
+	public void fillNA(final long idx, final long length) {
+		checkRange(idx, length);
+		Arrays.fill(this.realValues, (int) idx, (int) (idx + length),
+				NA_numeric_DOUBLE );
+		this.naBits = null;
+	}
+	
+	@Override
+	public void getNAs(final long idx, final long[] bits, final int length) {
+		checkRange(idx, length);
+		copyBits(getNABits(), idx, bits, length);
+	}
+	
+	/**
+	 * Returns the bit array with the NA flags of all values, which is created lazily
+	 * and reset if the values are changed.
+	 */
+	private long[] getNABits() {
+		long[] bits = this.naBits;
+		if (bits == null) {
+			final int l = this.length;
+			final double[] values = this.realValues;
+			bits = new long[(l + 63) >>> 6];
+			for (int i = 0; i < l; i++) {
+				final double v = values[i];
+				if (Double.isNaN(v) && (int) Double.doubleToRawLongBits(v) == NA_numeric_INT_MATCH) {
+					bits[i >>> 6] |= (1L << i);
+				}
+			}
+			this.naBits = bits;
+		}
+		return bits;
 	}
 	
 	
 	private void prepareInsert(final int[] idxs) {
 		this.realValues = prepareInsert(this.realValues, this.length, idxs);
 		this.length += idxs.length;
+		this.naBits = null;
 	}
 	
 	public void insertNum(final int idx, final double value) {
@@ -222,12 +292,14 @@ public class RNumericDataBImpl extends AbstractNumericData
 	public void remove(final int idx) {
 		this.realValues = remove(this.realValues, this.length, new int[] { idx });
 		this.length--;
+		this.naBits = null;
 	}
 	
 	@Override
 	public void remove(final int[] idxs) {
 		this.realValues = remove(this.realValues, this.length, idxs);
 		this.length -= idxs.length;
+		this.naBits = null;
 	}
 	
 	
@@ -268,4 +340,21 @@ public class RNumericDataBImpl extends AbstractNumericData
 		return array;
 	}
 	
+	
+	@Override
+	public long indexOfNA(long fromIdx) {
+		if (fromIdx >= Integer.MAX_VALUE) {
+			return -1;
+		}
+		if (fromIdx < 0) {
+			fromIdx= 0;
+		}
+		return indexOfBit(getNABits(), fromIdx);
+	}
+	
+	@Override
+	public long countNA() {
+		return countBits(getNABits());
+	}
+	
 }
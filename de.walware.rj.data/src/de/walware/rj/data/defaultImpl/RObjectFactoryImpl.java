@@ -52,11 +52,31 @@ public class RObjectFactoryImpl implements RObjectFactory {
 	
 	private final long storeLengthFixLong = AbstractRData.DEFAULT_LONG_DATA_SEGMENT_LENGTH;
 	
+	private long storeLengthDirect = Long.MAX_VALUE;
+	
 	
 	public RObjectFactoryImpl() {
 	}
 	
 	
+	/**
+	 * Sets the minimal length of numeric, integer, logical and raw data, for which the factory
+	 * creates stores with the values stored outside of the Java heap when reading data.
+	 * <p>
+	 * The setting should be done before the factory is used; by default the direct stores are
+	 * disabled.</p>
+	 * 
+	 * @param length the minimal length or <code>-1</code> to disable direct stores
+	 */
+	public void setDirectStoreMinLength(final long length) {
+		this.storeLengthDirect = (length >= 0) ? length : Long.MAX_VALUE;
+	}
+	
+	public long getDirectStoreMinLength() {
+		return (this.storeLengthDirect != Long.MAX_VALUE) ? this.storeLengthDirect : -1;
+	}
+	
+	
 	/*-- Vector --*/
 	
 	/**
@@ -602,46 +622,16 @@ public class RObjectFactoryImpl implements RObjectFactory {
 	public RStore<?> readStore(final RJIO io, final long length) throws IOException {
 		if ((io.flags & F_ONLY_STRUCT) == 0) {
 			final byte storeType = io.readByte();
-			if (length <= Integer.MAX_VALUE) {
-				switch (storeType) {
-				case RStore.LOGICAL:
-					return new RLogicalDataByteImpl(io, (int) length);
-				case RStore.INTEGER:
-					return new RIntegerDataImpl(io, (int) length);
-				case RStore.NUMERIC:
-					return new RNumericDataBImpl(io, (int) length);
-				case RStore.COMPLEX:
-					return new RComplexDataBImpl(io, (int) length);
-				case RStore.CHARACTER:
-					return new RCharacterDataImpl(io, (int) length);
-				case RStore.RAW:
-					return new RRawDataImpl(io, (int) length);
-				case RStore.FACTOR:
-					return new RFactorDataImpl(io, (int) length);
-				default:
-					throw new IOException("store type = " + storeType);
+			if ((storeType & S_COMPRESSED) != 0) {
+				io.beginCompressedBlockRead();
+				try {
+					return readStoreData(io, (byte) (storeType & ~S_COMPRESSED), length);
 				}
-			}
-			else {
-				switch (storeType) {
-				case RStore.LOGICAL:
-					return new RLogicalDataByteFixLongImpl(io, length);
-				case RStore.INTEGER:
-					return new RIntegerDataFixLongImpl(io, length);
-				case RStore.NUMERIC:
-					return new RNumericDataBFixLongImpl(io, length);
-				case RStore.COMPLEX:
-					return new RComplexDataBFixLongImpl(io, length);
-				case RStore.CHARACTER:
-					return new RCharacterDataFixLongImpl(io, length);
-				case RStore.RAW:
-					return new RRawDataFixLongImpl(io, length);
-				case RStore.FACTOR:
-					return new RFactorDataFixLongImpl(io, length);
-				default:
-					throw new IOException("store type = " + storeType);
+				finally {
+					io.endCompressedBlockRead();
 				}
 			}
+			return readStoreData(io, storeType, length);
 		}
 		else {
 			final byte storeType = io.readByte();
@@ -666,9 +656,77 @@ public class RObjectFactoryImpl implements RObjectFactory {
 		}
 	}
 	
+	protected RStore<?> readStoreData(final RJIO io, final byte storeType, final long length) throws IOException {
+		if (length >= this.storeLengthDirect) {
+			switch (storeType) {
+			case RStore.LOGICAL:
+				return new RLogicalDataByteDirectImpl(io, length);
+			case RStore.INTEGER:
+				return new RIntegerDataDirectImpl(io, length);
+			case RStore.NUMERIC:
+				return new RNumericDataBDirectImpl(io, length);
+			case RStore.RAW:
+				return new RRawDataDirectImpl(io, length);
+			default:
+				break;
+			}
+		}
+		if (length <= Integer.MAX_VALUE) {
+			switch (storeType) {
+			case RStore.LOGICAL:
+				return new RLogicalDataByteImpl(io, (int) length);
+			case RStore.INTEGER:
+				return new RIntegerDataImpl(io, (int) length);
+			case RStore.NUMERIC:
+				return new RNumericDataBImpl(io, (int) length);
+			case RStore.COMPLEX:
+				return new RComplexDataBImpl(io, (int) length);
+			case RStore.CHARACTER:
+				return new RCharacterDataImpl(io, (int) length);
+			case RStore.RAW:
+				return new RRawDataImpl(io, (int) length);
+			case RStore.FACTOR:
+				return new RFactorDataImpl(io, (int) length);
+			default:
+				throw new IOException("store type = " + storeType);
+			}
+		}
+		else {
+			switch (storeType) {
+			case RStore.LOGICAL:
+				return new RLogicalDataByteFixLongImpl(io, length);
+			case RStore.INTEGER:
+				return new RIntegerDataFixLongImpl(io, length);
+			case RStore.NUMERIC:
+				return new RNumericDataBFixLongImpl(io, length);
+			case RStore.COMPLEX:
+				return new RComplexDataBFixLongImpl(io, length);
+			case RStore.CHARACTER:
+				return new RCharacterDataFixLongImpl(io, length);
+			case RStore.RAW:
+				return new RRawDataFixLongImpl(io, length);
+			case RStore.FACTOR:
+				return new RFactorDataFixLongImpl(io, length);
+			default:
+				throw new IOException("store type = " + storeType);
+			}
+		}
+	}
+	
 	@Override
 	public void writeStore(final RStore<?> data, final RJIO io) throws IOException {
 		if ((io.flags & F_ONLY_STRUCT) == 0) {
+			if (io.isCompressionRequired(data.getLength())) {
+				io.writeByte(data.getStoreType() | S_COMPRESSED);
+				io.beginCompressedBlock();
+				try {
+					((ExternalizableRStore) data).writeExternal(io);
+				}
+				finally {
+					io.endCompressedBlock();
+				}
+				return;
+			}
 			io.writeByte(data.getStoreType());
 			((ExternalizableRStore) data).writeExternal(io);
 		}
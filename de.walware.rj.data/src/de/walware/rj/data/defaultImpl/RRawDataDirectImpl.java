@@ -0,0 +1,192 @@
+/*=============================================================================#
+ # Copyright (c) 2016 Stephan Wahlbrink (WalWare.de) and others.
+ # All rights reserved. This program and the accompanying materials
+ # are made available under the terms of either (per the licensee's choosing)
+ #   - the Eclipse Public License v1.0
+ #     which accompanies this distribution, and is available at
+ #     http://www.eclipse.org/legal/epl-v10.html, or
+ #   - the GNU Lesser General Public License v2.1 or newer
+ #     which accompanies this distribution, and is available at
+ #     http://www.gnu.org/licenses/lgpl.html
+ # 
+ # Contributors:
+ #     Stephan Wahlbrink - initial API and implementation
+ #=============================================================================*/
+
+package de.walware.rj.data.defaultImpl;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+
+import de.walware.rj.data.RJIO;
+import de.walware.rj.data.RStore;
+
+
+/**
+ * Raw data store with the values stored outside of the Java heap in segments of
+ * {@link ByteBuffer}s (direct or mapped).
+ */
+public class RRawDataDirectImpl extends AbstractRawData
+		implements ExternalizableRStore {
+	
+	
+	public static final int SEGMENT_LENGTH = DEFAULT_DIRECT_DATA_SEGMENT_LENGTH;
+	
+	
+	private final long length;
+	
+	protected final ByteBuffer[] byteValues;
+	
+	
+	public RRawDataDirectImpl(final long length) {
+		this(newDirectBufferArray(length, SEGMENT_LENGTH, 1));
+	}
+	
+	/**
+	 * @param segments the buffers with the values of {@link #SEGMENT_LENGTH} values each,
+	 *     except the last one
+	 */
+	public RRawDataDirectImpl(final ByteBuffer[] segments) {
+		this.length = checkBufferArrayLength(segments, SEGMENT_LENGTH, 1);
+		this.byteValues = segments;
+	}
+	
+	
+	public RRawDataDirectImpl(final RJIO io, final long length) throws IOException {
+		this(io, newDirectBufferArray(length, SEGMENT_LENGTH, 1));
+	}
+	
+	/**
+	 * Reads the values into the specified buffers.
+	 * 
+	 * @param segments the buffers for the values, see {@link #RRawDataDirectImpl(ByteBuffer[])}
+	 */
+	public RRawDataDirectImpl(final RJIO io, final ByteBuffer[] segments) throws IOException {
+		this(segments);
+		for (int i = 0; i < this.byteValues.length; i++) {
+			io.readByteDataPart(this.byteValues[i].duplicate(), this.byteValues[i].capacity());
+		}
+	}
+	
+	@Override
+	public void writeExternal(final RJIO io) throws IOException {
+		for (int i = 0; i < this.byteValues.length; i++) {
+			io.writeByteDataPart(this.byteValues[i].duplicate(), this.byteValues[i].capacity());
+		}
+	}
+	
+	
+	@Override
+	protected final boolean isStructOnly() {
+		return false;
+	}
+	
+	
+	@Override
+	public final long getLength() {
+		return this.length;
+	}
+	
+	@Override
+	public byte getRaw(final int idx) {
+		return this.byteValues[idx / SEGMENT_LENGTH].get(idx % SEGMENT_LENGTH);
+	}
+	
+	@Override
+	public byte getRaw(final long idx) {
+		return this.byteValues[(int) (idx / SEGMENT_LENGTH)].get((int) (idx % SEGMENT_LENGTH));
+	}
+	
+	@Override
+	public void setRaw(final int idx, final byte value) {
+		this.byteValues[idx / SEGMENT_LENGTH].put(idx % SEGMENT_LENGTH,
+				value );
+	}
+	
+	@Override
+	public void setRaw(final long idx, final byte value) {
+		this.byteValues[(int) (idx / SEGMENT_LENGTH)].put((int) (idx % SEGMENT_LENGTH),
+				value );
+	}
+	
+	
+	@Override
+	public void getRaws(long idx, final byte[] array, final int arrayIdx, final int length) {
+		checkRange(idx, length);
+		for (int i = 0; i < length; ) {
+			final ByteBuffer values = this.byteValues[(int) (idx / SEGMENT_LENGTH)].duplicate();
+			final int j = (int) (idx % SEGMENT_LENGTH);
+			final int n = Math.min(length - i, values.capacity() - j);
+			values.position(j);
+			values.get(array, arrayIdx + i, n);
+			i += n;
+			idx += n;
+		}
+	}
+	
+	
+	@Override
+	public Byte get(final int idx) {
+		if (idx < 0 || idx >= this.length) {
+			throw new IndexOutOfBoundsException(Long.toString(idx));
+		}
+		return Byte.valueOf(this.byteValues[idx / SEGMENT_LENGTH].get(idx % SEGMENT_LENGTH));
+	}
+	
+	@Override
+	public Byte get(final long idx) {
+		if (idx < 0 || idx >= this.length) {
+			throw new IndexOutOfBoundsException(Long.toString(idx));
+		}
+		return Byte.valueOf(this.byteValues[(int) (idx / SEGMENT_LENGTH)].get((int) (idx % SEGMENT_LENGTH)));
+	}
+	
+	@Override
+	public Byte[] toArray() {
+		final int l = checkToArrayLength();
+		final Byte[] array = new Byte[l];
+		int k = 0;
+		for (int i = 0; i < this.byteValues.length; i++) {
+			final ByteBuffer raws = this.byteValues[i];
+			final int segmentLength = raws.capacity();
+			for (int j = 0; j < segmentLength; j++, k++) {
+				array[k] = Byte.valueOf(raws.get(j));
+			}
+		}
+		return array;
+	}
+	
+	
+	@Override
+	public long indexOf(final int integer, long fromIdx) {
+		if ((integer & 0xffffff00) != 0) {
+			return -1;
+		}
+		if (fromIdx < 0) {
+			fromIdx = 0;
+		}
+		final byte raw = (byte) (integer & 0xff);
+		int i = (int) (fromIdx / SEGMENT_LENGTH);
+		int j = (int) (fromIdx % SEGMENT_LENGTH);
+		while (i < this.byteValues.length) {
+			final ByteBuffer raws = this.byteValues[i];
+			final int segmentLength = raws.capacity();
+			while (j < segmentLength) {
+				if (raws.get(j) == raw) {
+					return (i * (long) SEGMENT_LENGTH) + j;
+				}
+				j++;
+			}
+			i++;
+			j = 0;
+		}
+		return -1;
+	}
+	
+	
+	@Override
+	public boolean allEqual(final RStore<?> other) {
+		throw new UnsupportedOperationException("Not yet implemented");
+	}
+	
+}
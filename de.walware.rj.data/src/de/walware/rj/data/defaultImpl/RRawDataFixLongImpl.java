@@ -94,6 +94,20 @@ public class RRawDataFixLongImpl extends AbstractRawData
 	}
 	
 	
+	@Override
+	public void getRaws(long idx, final byte[] array, final int arrayIdx, final int length) {
+		checkRange(idx, length);
+		for (int i = 0; i < length; ) {
+			final byte[] values = this.byteValues[(int) (idx / SEGMENT_LENGTH)];
+			final int j = (int) (idx % SEGMENT_LENGTH);
+			final int n = Math.min(length - i, values.length - j);
+			System.arraycopy(values, j, array, arrayIdx + i, n);
+			i += n;
+			idx += n;
+		}
+	}
+	
+	
 	@Override
 	public Byte get(final int idx) {
 		if (idx < 0 || idx >= this.length) {
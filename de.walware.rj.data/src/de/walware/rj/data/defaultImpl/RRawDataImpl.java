@@ -118,6 +118,13 @@ public class RRawDataImpl extends AbstractRawData
 	}
 	
 	
+	@Override
+	public void getRaws(final long idx, final byte[] array, final int arrayIdx, final int length) {
+		checkRange(idx, length);
+		System.arraycopy(this.byteValues, (int) idx, array, arrayIdx, length);
+	}
+	
+	
 	private void prepareInsert(final int[] idxs) {
 		this.byteValues = prepareInsert(this.byteValues, this.length, idxs);
 		this.length += idxs.length;
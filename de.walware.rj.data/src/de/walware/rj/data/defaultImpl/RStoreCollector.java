@@ -0,0 +1,198 @@
+/*=============================================================================#
+ # Copyright (c) 2016 Stephan Wahlbrink (WalWare.de) and others.
+ # All rights reserved. This program and the accompanying materials
+ # are made available under the terms of either (per the licensee's choosing)
+ #   - the Eclipse Public License v1.0
+ #     which accompanies this distribution, and is available at
+ #     http://www.eclipse.org/legal/epl-v10.html, or
+ #   - the GNU Lesser General Public License v2.1 or newer
+ #     which accompanies this distribution, and is available at
+ #     http://www.gnu.org/licenses/lgpl.html
+ # 
+ # Contributors:
+ #     Stephan Wahlbrink - initial API and implementation
+ #=============================================================================*/
+
+package de.walware.rj.data.defaultImpl;
+
+import java.io.IOException;
+
+import de.walware.rj.data.RCharacterStore;
+import de.walware.rj.data.RStore;
+import de.walware.rj.data.RStoreStreamHandler;
+
+
+/**
+ * Stream handler collecting the parts to complete stores, so the {@link RStreamObjectFactory}
+ * creates the same R objects as the {@link RObjectFactoryImpl}.
+ * <p>
+ * The class can be extended to inspect the parts in addition.</p>
+ */
+public class RStoreCollector implements RStoreStreamHandler {
+	
+	
+	private byte storeType;
+	private long length;
+	private int segmentLength;
+	
+	private byte[][] byteValues;
+	private int[][] intValues;
+	private double[][] realValues;
+	private double[][] imaginaryValues;
+	private String[][] charValues;
+	
+	private boolean isOrdered;
+	private String[] levelLabels;
+	
+	
+	public RStoreCollector() {
+	}
+	
+	
+	@Override
+	public void beginStore(final byte storeType, final long length) throws IOException {
+		this.storeType = storeType;
+		this.length = length;
+		this.segmentLength = (length <= Integer.MAX_VALUE) ?
+				(int) length : AbstractRData.DEFAULT_LONG_DATA_SEGMENT_LENGTH;
+		switch (storeType) {
+		case RStore.LOGICAL:
+		case RStore.RAW:
+			this.byteValues = AbstractRData.new2dByteArray(length, this.segmentLength);
+			return;
+		case RStore.INTEGER:
+		case RStore.FACTOR:
+			this.intValues = AbstractRData.new2dIntArray(length, this.segmentLength);
+			return;
+		case RStore.NUMERIC:
+			this.realValues = AbstractRData.new2dDoubleArray(length, this.segmentLength);
+			return;
+		case RStore.COMPLEX:
+			this.realValues = AbstractRData.new2dDoubleArray(length, this.segmentLength);
+			this.imaginaryValues = AbstractRData.new2dDoubleArray(length, this.segmentLength);
+			return;
+		case RStore.CHARACTER:
+			this.charValues = AbstractRData.new2dStringArray(length, this.segmentLength);
+			return;
+		default:
+			throw new IOException("store type = " + storeType);
+		}
+	}
+	
+	@Override
+	public void handleData(final RStore<?> part, final long offset) throws IOException {
+		final int n = (int) part.getLength();
+		long idx = offset;
+		switch (this.storeType) {
+		case RStore.LOGICAL:
+			for (int i = 0; i < n; i++, idx++) {
+				this.byteValues[(int) (idx / this.segmentLength)][(int) (idx % this.segmentLength)] =
+						(part.isNA(i)) ? AbstractRData.NA_logical_BYTE :
+								((part.getLogi(i)) ? AbstractRData.TRUE_BYTE : AbstractRData.FALSE_BYTE);
+			}
+			return;
+		case RStore.RAW:
+			for (int i = 0; i < n; i++, idx++) {
+				this.byteValues[(int) (idx / this.segmentLength)][(int) (idx % this.segmentLength)] =
+						part.getRaw(i);
+			}
+			return;
+		case RStore.INTEGER:
+		case RStore.FACTOR:
+			for (int i = 0; i < n; i++, idx++) {
+				this.intValues[(int) (idx / this.segmentLength)][(int) (idx % this.segmentLength)] =
+						part.getInt(i);
+			}
+			return;
+		case RStore.NUMERIC:
+			for (int i = 0; i < n; i++, idx++) {
+				this.realValues[(int) (idx / this.segmentLength)][(int) (idx % this.segmentLength)] =
+						part.getNum(i);
+			}
+			return;
+		case RStore.COMPLEX:
+			for (int i = 0; i < n; i++, idx++) {
+				final int segment = (int) (idx / this.segmentLength);
+				final int segmentIdx = (int) (idx % this.segmentLength);
+				this.realValues[segment][segmentIdx] = part.getCplxRe(i);
+				this.imaginaryValues[segment][segmentIdx] = part.getCplxIm(i);
+			}
+			return;
+		case RStore.CHARACTER:
+			for (int i = 0; i < n; i++, idx++) {
+				this.charValues[(int) (idx / this.segmentLength)][(int) (idx % this.segmentLength)] =
+						part.getChar(i);
+			}
+			return;
+		default:
+			throw new IOException("store type = " + this.storeType);
+		}
+	}
+	
+	@Override
+	public void handleFactorLevels(final boolean isOrdered, final RCharacterStore levels) throws IOException {
+		this.isOrdered = isOrdered;
+		this.levelLabels = new String[(int) levels.getLength()];
+		for (int i = 0; i < this.levelLabels.length; i++) {
+			this.levelLabels[i] = levels.getChar(i);
+		}
+	}
+	
+	@Override
+	public RStore<?> endStore() throws IOException {
+		try {
+			if (this.length <= Integer.MAX_VALUE) {
+				final int l = (int) this.length;
+				switch (this.storeType) {
+				case RStore.LOGICAL:
+					return new RLogicalDataByteImpl((l > 0) ? this.byteValues[0] : new byte[0]);
+				case RStore.RAW:
+					return new RRawDataImpl((l > 0) ? this.byteValues[0] : new byte[0]);
+				case RStore.INTEGER:
+					return new RIntegerDataImpl((l > 0) ? this.intValues[0] : new int[0]);
+				case RStore.FACTOR:
+					return new RFactorDataImpl((l > 0) ? this.intValues[0] : new int[0],
+							this.isOrdered, this.levelLabels );
+				case RStore.NUMERIC:
+					return new RNumericDataBImpl((l > 0) ? this.realValues[0] : new double[0]);
+				case RStore.COMPLEX:
+					return new RComplexDataBImpl((l > 0) ? this.realValues[0] : new double[0],
+							(l > 0) ? this.imaginaryValues[0] : new double[0], null );
+				case RStore.CHARACTER:
+					return new RCharacterDataImpl((l > 0) ? this.charValues[0] : new String[0]);
+				default:
+					throw new IOException("store type = " + this.storeType);
+				}
+			}
+			else {
+				switch (this.storeType) {
+				case RStore.LOGICAL:
+					return new RLogicalDataByteFixLongImpl(this.byteValues);
+				case RStore.RAW:
+					return new RRawDataFixLongImpl(this.byteValues);
+				case RStore.INTEGER:
+					return new RIntegerDataFixLongImpl(this.intValues);
+				case RStore.FACTOR:
+					return new RFactorDataFixLongImpl(this.intValues, this.isOrdered, this.levelLabels);
+				case RStore.NUMERIC:
+					return new RNumericDataBFixLongImpl(this.realValues);
+				case RStore.COMPLEX:
+					return new RComplexDataBFixLongImpl(this.realValues, this.imaginaryValues);
+				case RStore.CHARACTER:
+					return new RCharacterDataFixLongImpl(this.charValues);
+				default:
+					throw new IOException("store type = " + this.storeType);
+				}
+			}
+		}
+		finally {
+			this.byteValues = null;
+			this.intValues = null;
+			this.realValues = null;
+			this.imaginaryValues = null;
+			this.charValues = null;
+			this.levelLabels = null;
+		}
+	}
+	
+}
@@ -0,0 +1,193 @@
+/*=============================================================================#
+ # Copyright (c) 2016 Stephan Wahlbrink (WalWare.de) and others.
+ # All rights reserved. This program and the accompanying materials
+ # are made available under the terms of either (per the licensee's choosing)
+ #   - the Eclipse Public License v1.0
+ #     which accompanies this distribution, and is available at
+ #     http://www.eclipse.org/legal/epl-v10.html, or
+ #   - the GNU Lesser General Public License v2.1 or newer
+ #     which accompanies this distribution, and is available at
+ #     http://www.gnu.org/licenses/lgpl.html
+ # 
+ # Contributors:
+ #     Stephan Wahlbrink - initial API and implementation
+ #=============================================================================*/
+
+package de.walware.rj.data.defaultImpl;
+
+import java.io.IOException;
+
+import de.walware.rj.data.RJIO;
+import de.walware.rj.data.RStore;
+import de.walware.rj.data.RStoreStreamHandler;
+
+
+/**
+ * Factory reading the data of stores in parts and passing them to a {@link RStoreStreamHandler}
+ * as they arrive, instead of materializing the complete stores.
+ * <p>
+ * The structure of the R objects is created as usual; the stores in the object tree are the
+ * stores returned by {@link RStoreStreamHandler#endStore()}.  Use {@link RStoreCollector} as
+ * handler to get the complete stores.</p>
+ * <p>
+ * The factory is stateful and must be used only for one read at a time.  To use it for
+ * the data of a R service call, register it with a unique id in the RjsComConfig and
+ * specify the id as factory id of the call.</p>
+ */
+public class RStreamObjectFactory extends RObjectFactoryImpl {
+	
+	
+	public static final int DEFAULT_PART_LENGTH = 1 << 16;
+	
+	
+	private final RStoreStreamHandler handler;
+	
+	private final int partLength;
+	
+	
+	public RStreamObjectFactory(final RStoreStreamHandler handler) {
+		this(handler, DEFAULT_PART_LENGTH);
+	}
+	
+	public RStreamObjectFactory(final RStoreStreamHandler handler, final int partLength) {
+		if (handler == null) {
+			throw new NullPointerException("handler"); //$NON-NLS-1$
+		}
+		if (partLength <= 0) {
+			throw new IllegalArgumentException("partLength"); //$NON-NLS-1$
+		}
+		this.handler = handler;
+		this.partLength = partLength;
+	}
+	
+	
+	public RStoreStreamHandler getHandler() {
+		return this.handler;
+	}
+	
+	
+	@Override
+	protected RStore<?> readStoreData(final RJIO io, final byte storeType, final long length) throws IOException {
+		this.handler.beginStore(storeType, length);
+		RStore<?> struct;
+		switch (storeType) {
+		case RStore.LOGICAL:
+			readByteParts(io, storeType, length);
+			struct = LOGI_STRUCT_DUMMY;
+			break;
+		case RStore.INTEGER:
+			readIntParts(io, length);
+			struct = INT_STRUCT_DUMMY;
+			break;
+		case RStore.NUMERIC:
+			readDoubleParts(io, length);
+			struct = NUM_STRUCT_DUMMY;
+			break;
+		case RStore.COMPLEX:
+			readComplexParts(io, length);
+			struct = CPLX_STRUCT_DUMMY;
+			break;
+		case RStore.CHARACTER:
+			readStringParts(io, length);
+			struct = CHR_STRUCT_DUMMY;
+			break;
+		case RStore.RAW:
+			readByteParts(io, storeType, length);
+			struct = RAW_STRUCT_DUMMY;
+			break;
+		case RStore.FACTOR: {
+			final boolean isOrdered = io.readBoolean();
+			readIntParts(io, length);
+			final int levelCount = io.readInt();
+			this.handler.handleFactorLevels(isOrdered, new RUniqueCharacterDataImpl(io, levelCount));
+			struct = new RFactorDataStruct(isOrdered, levelCount);
+			break; }
+		default:
+			throw new IOException("store type = " + storeType);
+		}
+		final RStore<?> store = this.handler.endStore();
+		return (store != null) ? store : struct;
+	}
+	
+	/**
+	 * Returns the length of the blocks, the data of a store of the specified length is
+	 * written in.
+	 */
+	private static long getBlockLength(final long length) {
+		return (length <= Integer.MAX_VALUE) ? length : AbstractRData.DEFAULT_LONG_DATA_SEGMENT_LENGTH;
+	}
+	
+	private void readByteParts(final RJIO io, final byte storeType, final long length) throws IOException {
+		final long blockLength = getBlockLength(length);
+		for (long blockOffset = 0; blockOffset < length; blockOffset += blockLength) {
+			final long l = Math.min(blockLength, length - blockOffset);
+			for (long offset = 0; offset < l; ) {
+				final int n = (int) Math.min(this.partLength, l - offset);
+				final byte[] values = io.readByteData(new byte[n], n);
+				this.handler.handleData((storeType == RStore.LOGICAL) ?
+								new RLogicalDataByteImpl(values) : new RRawDataImpl(values),
+						blockOffset + offset );
+				offset += n;
+			}
+		}
+	}
+	
+	private void readIntParts(final RJIO io, final long length) throws IOException {
+		final long blockLength = getBlockLength(length);
+		for (long blockOffset = 0; blockOffset < length; blockOffset += blockLength) {
+			final long l = Math.min(blockLength, length - blockOffset);
+			for (long offset = 0; offset < l; ) {
+				final int n = (int) Math.min(this.partLength, l - offset);
+				this.handler.handleData(new RIntegerDataImpl(io.readIntData(new int[n], n)),
+						blockOffset + offset );
+				offset += n;
+			}
+		}
+	}
+	
+	private void readDoubleParts(final RJIO io, final long length) throws IOException {
+		final long blockLength = getBlockLength(length);
+		for (long blockOffset = 0; blockOffset < length; blockOffset += blockLength) {
+			final long l = Math.min(blockLength, length - blockOffset);
+			for (long offset = 0; offset < l; ) {
+				final int n = (int) Math.min(this.partLength, l - offset);
+				this.handler.handleData(new RNumericDataBImpl(io.readDoubleData(new double[n], n)),
+						blockOffset + offset );
+				offset += n;
+			}
+		}
+	}
+	
+	private void readComplexParts(final RJIO io, final long length) throws IOException {
+		// real and imaginary parts are written one after the other, so the parts are the blocks
+		final long blockLength = getBlockLength(length);
+		for (long blockOffset = 0; blockOffset < length; blockOffset += blockLength) {
+			final int l = (int) Math.min(blockLength, length - blockOffset);
+			final double[] realValues = io.readDoubleData(new double[l], l);
+			final double[] imaginaryValues = io.readDoubleData(new double[l], l);
+			this.handler.handleData(new RComplexDataBImpl(realValues, imaginaryValues, null),
+					blockOffset );
+		}
+	}
+	
+	private void readStringParts(final RJIO io, final long length) throws IOException {
+		final long blockLength = getBlockLength(length);
+		for (long blockOffset = 0; blockOffset < length; blockOffset += blockLength) {
+			final long l = Math.min(blockLength, length - blockOffset);
+			io.beginStringDataParts(l);
+			try {
+				for (long offset = 0; offset < l; ) {
+					final int n = (int) Math.min(this.partLength, l - offset);
+					final String[] values = new String[n];
+					io.readStringDataPart(values, n);
+					this.handler.handleData(new RCharacterDataImpl(values), blockOffset + offset);
+					offset += n;
+				}
+			}
+			finally {
+				io.endStringDataParts();
+			}
+		}
+	}
+	
+}
@@ -0,0 +1,182 @@
+/*=============================================================================#
+ # Copyright (c) 2016 Stephan Wahlbrink (WalWare.de) and others.
+ # All rights reserved. This program and the accompanying materials
+ # are made available under the terms of the GNU Lesser General Public License
+ # v2.1 which accompanies this distribution, and is available at
+ # http://www.gnu.org/licenses/lgpl.html
+ # 
+ # Contributors:
+ #     Stephan Wahlbrink - initial API and implementation
+ #=============================================================================*/
+
+package de.walware.rj.server.jri;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import org.junit.After;
+import org.junit.Test;
+
+import de.walware.rj.server.ConsoleWriteCmdItem;
+
+
+public class JRIServerIOStreamsTest {
+	
+	
+	/** The server (singleton) providing the lock */
+	private static final JRIServer SERVER= new JRIServer();
+	
+	private static class TestIOStreams extends JRIServerIOStreams {
+		
+		private final List<ConsoleWriteCmdItem> items= new ArrayList<>();
+		
+		public TestIOStreams() {
+			super(SERVER);
+		}
+		
+		@Override
+		void domexAppend2C(final ConsoleWriteCmdItem item) {
+			this.items.add(item);
+		}
+		
+	}
+	
+	
+	private TestIOStreams createStreams(final boolean coalesce, final long window, final long maxRate) {
+		System.setProperty(JRIServerIOStreams.COALESCE_PROPERTY_ID, Boolean.toString(coalesce));
+		System.setProperty(JRIServerIOStreams.COALESCE_WINDOW_PROPERTY_ID, Long.toString(window));
+		System.setProperty(JRIServerIOStreams.MAX_RATE_PROPERTY_ID, Long.toString(maxRate));
+		return new TestIOStreams();
+	}
+	
+	@After
+	public void clearProperties() {
+		System.clearProperty(JRIServerIOStreams.COALESCE_PROPERTY_ID);
+		System.clearProperty(JRIServerIOStreams.COALESCE_WINDOW_PROPERTY_ID);
+		System.clearProperty(JRIServerIOStreams.MAX_RATE_PROPERTY_ID);
+	}
+	
+	
+	@Test
+	public void bufferOutput() {
+		final TestIOStreams streams= createStreams(false, 0, 0);
+		assertFalse(streams.domexHasOut());
+		
+		assertTrue(streams.domexAppendOut(ConsoleWriteCmdItem.R_OUTPUT, "a")); //$NON-NLS-1$
+		assertFalse(streams.domexAppendOut(ConsoleWriteCmdItem.R_OUTPUT, "b")); //$NON-NLS-1$
+		assertTrue(streams.domexHasOut());
+		assertTrue(streams.domexIsOutDue());
+		assertEquals(0, streams.domexGetOutDelayNanos());
+		assertEquals(0, streams.items.size());
+		
+		streams.domexSendOut();
+		assertFalse(streams.domexHasOut());
+		assertEquals(1, streams.items.size());
+		assertEquals("ab", streams.items.get(0).getDataText()); //$NON-NLS-1$
+	}
+	
+	@Test
+	public void sendOnStreamChange() {
+		final TestIOStreams streams= createStreams(true, 10000, 0);
+		streams.domexAppendOut(ConsoleWriteCmdItem.R_OUTPUT, "out"); //$NON-NLS-1$
+		streams.domexAppendOut(ConsoleWriteCmdItem.R_ERROR, "err"); //$NON-NLS-1$
+		
+		assertEquals(1, streams.items.size());
+		assertEquals(ConsoleWriteCmdItem.R_OUTPUT, streams.items.get(0).getOp());
+		assertEquals("out", streams.items.get(0).getDataText()); //$NON-NLS-1$
+		
+		streams.domexFlushOut();
+		assertEquals(2, streams.items.size());
+		assertEquals(ConsoleWriteCmdItem.R_ERROR, streams.items.get(1).getOp());
+	}
+	
+	@Test
+	public void sendLargeTextDirectly() {
+		final TestIOStreams streams= createStreams(false, 0, 0);
+		final String text= new String(new char[0x2000]);
+		streams.domexAppendOut(ConsoleWriteCmdItem.R_OUTPUT, "a"); //$NON-NLS-1$
+		assertFalse(streams.domexAppendOut(ConsoleWriteCmdItem.R_OUTPUT, text));
+		
+		assertFalse(streams.domexHasOut());
+		assertEquals(2, streams.items.size());
+		assertEquals("a", streams.items.get(0).getDataText()); //$NON-NLS-1$
+		assertEquals(text, streams.items.get(1).getDataText());
+	}
+	
+	@Test
+	public void coalesceInWindow() {
+		final TestIOStreams streams= createStreams(true, 10000, 0);
+		for (int i= 0; i < 100; i++) {
+			streams.domexAppendOut(ConsoleWriteCmdItem.R_OUTPUT, "line\n"); //$NON-NLS-1$
+		}
+		
+		assertTrue(streams.domexHasOut());
+		assertFalse(streams.domexIsOutDue());
+		final long delay= streams.domexGetOutDelayNanos();
+		assertTrue(delay > 0 && delay <= 10000 * 1000000L);
+		assertEquals(0, streams.items.size());
+		
+		streams.domexSendOut();
+		assertEquals(1, streams.items.size());
+		assertEquals(500, streams.items.get(0).getDataText().length());
+	}
+	
+	@Test
+	public void coalesceWindowElapsed() throws InterruptedException {
+		final TestIOStreams streams= createStreams(true, 1, 0);
+		streams.domexAppendOut(ConsoleWriteCmdItem.R_OUTPUT, "a"); //$NON-NLS-1$
+		Thread.sleep(5);
+		
+		assertTrue(streams.domexIsOutDue());
+		assertEquals(0, streams.domexGetOutDelayNanos());
+	}
+	
+	@Test
+	public void coalesceUntilBufferFull() {
+		final TestIOStreams streams= createStreams(true, 10000, 0);
+		final String text= new String(new char[0x1000]);
+		for (int i= 0; i < 16; i++) {
+			streams.domexAppendOut(ConsoleWriteCmdItem.R_OUTPUT, text);
+		}
+		assertEquals(0, streams.items.size());
+		
+		streams.domexAppendOut(ConsoleWriteCmdItem.R_OUTPUT, text);
+		assertEquals(1, streams.items.size());
+		assertEquals(0x10000, streams.items.get(0).getDataText().length());
+	}
+	
+	@Test
+	public void limitRate() {
+		final TestIOStreams streams= createStreams(false, 0, 10);
+		for (int i= 0; i < 4; i++) {
+			streams.domexAppendOut(ConsoleWriteCmdItem.R_OUTPUT, "12345678"); //$NON-NLS-1$
+			streams.domexSendOut();
+		}
+		assertEquals(2, streams.items.size());
+		
+		streams.domexFlushOut();
+		assertEquals(3, streams.items.size());
+		assertEquals("\n[output truncated, 16 characters suppressed]\n", //$NON-NLS-1$
+				streams.items.get(2).getDataText() );
+		
+		streams.domexFlushOut();
+		assertEquals(3, streams.items.size());
+	}
+	
+	@Test
+	public void unlimitedRate() {
+		final TestIOStreams streams= createStreams(false, 0, 0);
+		for (int i= 0; i < 1000; i++) {
+			streams.domexAppendOut(ConsoleWriteCmdItem.R_OUTPUT, "12345678"); //$NON-NLS-1$
+			streams.domexSendOut();
+		}
+		streams.domexFlushOut();
+		
+		assertEquals(1000, streams.items.size());
+	}
+	
+}
@@ -40,6 +40,8 @@ import java.util.HashMap;
 import java.util.List;
 import java.util.Map;
 import java.util.Map.Entry;
+import java.util.Timer;
+import java.util.TimerTask;
 import java.util.concurrent.CancellationException;
 import java.util.concurrent.TimeUnit;
 import java.util.concurrent.locks.Condition;
@@ -54,6 +56,7 @@ import org.rosuda.JRI.Rengine;
 import de.walware.rj.RjException;
 import de.walware.rj.RjInitFailedException;
 import de.walware.rj.data.RDataUtil;
+import de.walware.rj.data.RJIO;
 import de.walware.rj.data.RList;
 import de.walware.rj.data.RObject;
 import de.walware.rj.data.RObjectFactory;
@@ -96,7 +99,9 @@ import de.walware.rj.server.srvImpl.AbstractServerControl;
 import de.walware.rj.server.srvImpl.ConsoleEngineImpl;
 import de.walware.rj.server.srvImpl.DefaultServerImpl;
 import de.walware.rj.server.srvImpl.InternalEngine;
+import de.walware.rj.server.srvImpl.MeteredLock;
 import de.walware.rj.server.srvImpl.RJClassLoader;
+import de.walware.rj.server.srvImpl.ServerMetrics;
 import de.walware.rj.server.srvext.Client;
 import de.walware.rj.server.srvext.ExtServer;
 import de.walware.rj.server.srvext.ServerRuntimePlugin;
@@ -278,7 +283,9 @@ public final class JRIServer extends RJ
 	private final RConfig rConfig;
 	private long rMemSize;
 	
-	final ReentrantLock mainExchangeLock = new ReentrantLock();
+	private final ServerMetrics metrics = ServerMetrics.getDefault();
+	
+	final ReentrantLock mainExchangeLock = new MeteredLock(this.metrics);
 	private final Condition mainExchangeClient = this.mainExchangeLock.newCondition();
 	private final Condition mainExchangeR = this.mainExchangeLock.newCondition();
 	private final ReentrantLock mainInterruptLock = new ReentrantLock();
@@ -327,6 +334,9 @@ public final class JRIServer extends RJ
 	private RObjectFactory rObjectFactory;
 	
 	private JRIServerGraphics graphics;
+	private Timer graphicsFlushTimer;
+	private boolean graphicsFlushScheduled;
+	private boolean graphicsFlushRequested;
 	
 	private int rniListsMaxLength = 10000;
 	private int rniEnvsMaxLength = 10000;
@@ -334,6 +344,8 @@ public final class JRIServer extends RJ
 	
 	private JRIServerDbg dbg;
 	
+	private JRIServerEnvDiff envDiff;
+	
 	
 	public JRIServer() {
 		this.rConfig = new RConfig();
@@ -446,6 +458,7 @@ public final class JRIServer extends RJ
 		if (this.client0 != null) {
 			final Client client = this.client0;
 			DefaultServerImpl.removeClient(this.client0ExpRef);
+			this.control.disposeClientRef(this.client0Engine);
 			this.client0 = null;
 			this.client0Engine = null;
 			this.client0PrevExpRef = this.client0ExpRef;
@@ -549,7 +562,7 @@ public final class JRIServer extends RJ
 				LOGGER.log(Level.INFO, "R engine started successfully. New Client-State: 'Connected'.");
 				
 				connectClient0(client, consoleEngine, export);
-				return export;
+				return this.control.createClientRef(consoleEngine, export);
 			}
 			catch (final Throwable e) {
 				this.serverState = S_STOPPED;
@@ -592,6 +605,22 @@ public final class JRIServer extends RJ
 				this.rniEnvsMaxLength = ((Integer) max).intValue();
 			}
 		}
+		{	final Object codec = properties.get(RjsComConfig.RJ_COM_DATA_COMPRESSION_PROPERTY_ID);
+			if (codec != null || init) {
+				final Object minLength = properties.get(RjsComConfig.RJ_COM_DATA_COMPRESSION_MIN_LENGTH_PROPERTY_ID);
+				this.mainLoopS2CLastCommands[slot].setDataCompression(
+						(RjsComConfig.RJ_COM_DATA_COMPRESSION_DEFLATE.equals(codec)) ?
+								RJIO.COMPRESSION_DEFLATE : RJIO.COMPRESSION_NONE,
+						(minLength instanceof Integer) ?
+								((Integer) minLength).intValue() : MainCmdS2CList.DEFAULT_DATA_COMPRESSION_MIN_LENGTH );
+			}
+		}
+		{	final Object stringDict = properties.get(RjsComConfig.RJ_COM_DATA_STRING_DICT_PROPERTY_ID);
+			if (stringDict != null || init) {
+				this.mainLoopS2CLastCommands[slot].setStringDictEncoding(
+						Boolean.TRUE.equals(stringDict) );
+			}
+		}
 		if (init) {
 			final Object id = properties.get(RjsComConfig.RJ_COM_S2C_ID_PROPERTY_ID);
 			if (id instanceof Integer) {
@@ -618,6 +647,7 @@ public final class JRIServer extends RJ
 			this.rni= new JRIServerRni(this.rEngine);
 			
 			this.dbg= new JRIServerDbg(this, this.rni, this.utils);
+			this.envDiff= new JRIServerEnvDiff(this.rni, this.rObjectFactory);
 			
 			loadPlatformData();
 			
@@ -765,7 +795,7 @@ public final class JRIServer extends RJ
 		this.clientLocks[client.slot].writeLock().lock();
 		try {
 			if (this.client0 == client) {
-				return this.client0ExpRef;
+				return this.control.createClientRef(this.client0Engine, this.client0ExpRef);
 			}
 			final ConsoleEngine consoleEngine = new ConsoleEngineImpl(this.publicServer, this, client);
 			final ConsoleEngine export = (ConsoleEngine) this.control.exportObject(consoleEngine);
@@ -826,7 +856,7 @@ public final class JRIServer extends RJ
 					setProperties(client.slot, properties, true);
 					
 					connectClient0(client, consoleEngine, export);
-					return export;
+					return this.control.createClientRef(consoleEngine, export);
 				default:
 					throw new IllegalStateException("R engine is not running.");
 				}
@@ -902,10 +932,12 @@ public final class JRIServer extends RJ
 			
 			case RjsComObject.T_MAIN_LIST:
 				final MainCmdC2SList mainC2SCmdList = (MainCmdC2SList) command;
-				if (client.slot > 0 && mainC2SCmdList != null) {
+				final long start = System.nanoTime();
+				if (mainC2SCmdList != null) {
 					MainCmdItem item = mainC2SCmdList.getItems();
 					while (item != null) {
 						item.slot = client.slot;
+						item.queuedNanos = start;
 						item = item.next;
 					}
 				}
@@ -917,6 +949,9 @@ public final class JRIServer extends RJ
 				}
 				finally {
 					this.mainExchangeLock.unlock();
+					if (this.metrics.isEnabled()) {
+						this.metrics.recordExchange(System.nanoTime() - start);
+					}
 				}
 				
 			case RjsComObject.T_CTRL:
@@ -1086,19 +1121,27 @@ public final class JRIServer extends RJ
 		if (slot == 0) {
 			this.mainLoopClient0State = CLIENT_OK_WAIT;
 		}
-		while (this.mainLoopS2CNextCommandsFirst[slot] == null
+		while ((this.mainLoopS2CNextCommandsFirst[slot] == null
+						|| (this.mainLoopS2CNextCommandsLast[slot] != null
+								&& this.mainLoopS2CNextCommandsLast[slot].hasBatchNext() )) // complete batch
 //					&& (this.mainLoopState != ENGINE_STOPPED)
 				&& (this.mainLoopState == ENGINE_RUN_IN_R
 						|| this.mainLoopC2SCommandFirst != null
 						|| this.hotModeRequested)
 				&& ((slot > 0)
 						|| ( (this.mainLoopClient0State == CLIENT_OK_WAIT)
-							&& (!this.ioStreams.domexHasOut())
+							&& (!this.ioStreams.domexIsOutDue())
 							&& (this.mainLoopBusyAtClient == this.mainLoopBusyAtServer) )
 				)) {
 			this.mainLoopClientListen++;
 			try {
-				this.mainExchangeClient.await(); // run in R
+				final long outDelay = (slot == 0) ? this.ioStreams.domexGetOutDelayNanos() : 0;
+				if (outDelay > 0) {
+					this.mainExchangeClient.awaitNanos(outDelay); // coalesce output
+				}
+				else {
+					this.mainExchangeClient.await(); // run in R
+				}
 			}
 			catch (final InterruptedException e) {}
 			finally {
@@ -1262,28 +1305,35 @@ public final class JRIServer extends RJ
 				rProcessJEvents(this.rEngine);
 				continue;
 			}
-			switch (item.getCmdType()) {
+			final byte cmdType = item.getCmdType();
+			final long queuedNanos = item.queuedNanos;
+			final long start = System.nanoTime();
+			switch (cmdType) {
 			
 			case MainCmdItem.T_MAIN_CTRL_ITEM:
 				item = internalExecCtrl((MainCtrlCmdItem) item);
-				continue;
+				break;
 			case MainCmdItem.T_DATA_ITEM:
 				item = internalEvalData((DataCmdItem) item);
-				continue;
+				break;
 			case MainCmdItem.T_GRAPHICS_OP_ITEM:
 				item = internalExecGraOp((GraOpCmdItem) item);
-				continue;
+				break;
 			case MainCmdItem.T_DBG_ITEM:
 				item = internalEvalDbg((DbgCmdItem) item);
-				continue;
+				break;
 			case MainCmdItem.T_SRV_ITEM:
 				item = internalExecSrv(item);
-				continue;
+				break;
 				
 			default:
 				continue;
 			
 			}
+			if (this.metrics.isEnabled()) {
+				this.metrics.recordCommand(cmdType,
+						(queuedNanos != 0) ? start - queuedNanos : -1, System.nanoTime() - start );
+			}
 		}
 	}
 	
@@ -1296,6 +1346,19 @@ public final class JRIServer extends RJ
 		}
 	}
 	
+	/**
+	 * Wakes up the waiting client if it has to send or to schedule the console output.
+	 * 
+	 * @param outStarted if the output buffer was empty before
+	 */
+	void domexSignalOut(final boolean outStarted) {
+		if (this.mainLoopClientListen > 0
+				&& (outStarted || this.mainLoopS2CNextCommandsFirst[0] != null
+						|| this.ioStreams.domexIsOutDue() )) {
+			this.mainExchangeClient.signalAll();
+		}
+	}
+	
 	void domexAppend2S(final MainCmdItem first) {
 		this.rni.rniInterrupted= false; // TODO remove, call always checkInterrupted before operations
 		if (this.mainLoopC2SCommandFirst == null) {
@@ -1437,7 +1500,7 @@ public final class JRIServer extends RJ
 				final long[] foundP= rniFind(cmd.getDataText(), envirP, (cmd.getCmdOption() & 0x1000) != 0);
 				if (foundP != null) {
 					cmd.setAnswer((foundP[1] != 0) ?
-									this.rni.createDataObject(foundP[1], cmd.getCmdOption() & 0xfff) :
+									this.rni.createDataObject(foundP[1], cmd.getCmdOption() & (0xfff & ~RObjectFactory.F_LAZY_REF)) :
 									RMissing.INSTANCE,
 							this.rni.createEnvObject(foundP[0],
 									null, null, this.rEngine.rniGetLength(foundP[0]),
@@ -1449,13 +1512,40 @@ public final class JRIServer extends RJ
 				break;
 			
 			case DataCmdItem.EVAL_NAMESPACE_DATA_OP:
-				cmd.setAnswer(this.rni.getNamespaceEnv(cmd.getDataText(), cmd.getCmdOption()), null);
+				cmd.setAnswer(this.rni.getNamespaceEnv(cmd.getDataText(), cmd.getCmdOption() & ~RObjectFactory.F_LAZY_REF), null);
 				break;
 			
 			case DataCmdItem.EVAL_NAMESPACE_EXPORTS_DATA_OP:
-				cmd.setAnswer(this.rni.getNamespaceExportsEnv(cmd.getDataText(), cmd.getCmdOption()), null);
+				cmd.setAnswer(this.rni.getNamespaceExportsEnv(cmd.getDataText(), cmd.getCmdOption() & ~RObjectFactory.F_LAZY_REF), null);
 				break;
 			
+			case DataCmdItem.EVAL_ENVIR_DIFF_DATA_OP:
+				this.envDiff.evalDiff(cmd, envirP, cmd.getDepth(), this.rniEnvsMaxLength);
+				break;
+			
+			case DataCmdItem.RELEASE_DATA_OP: {
+				final String text = cmd.getDataText();
+				if (text.isEmpty()) {
+					this.rni.releaseLazyReferences(cmd.slot);
+				}
+				else {
+					final String[] items = text.split(","); //$NON-NLS-1$
+					final long[] handles = new long[items.length];
+					try {
+						for (int i = 0; i < items.length; i++) {
+							handles[i] = Long.parseLong(items[i]);
+						}
+					}
+					catch (final NumberFormatException e) {
+						throw new RjsException(CODE_DATA_COMMON, "Invalid reference handle.");
+					}
+					for (int i = 0; i < handles.length; i++) {
+						this.rni.releaseLazyReference(cmd.slot, handles[i]);
+					}
+				}
+				cmd.setAnswer(RjsStatus.OK_STATUS);
+				break; }
+			
 			default:
 				final long objP;
 				switch (operation.source) {
@@ -1491,7 +1581,19 @@ public final class JRIServer extends RJ
 				}
 				
 				if (operation.returnData) {
-					cmd.setAnswer(this.rni.createDataObject(objP, cmd.getCmdOption()), null);
+					if ((cmd.getCmdOption() & RObjectFactory.F_LAZY_REF) != 0) {
+						this.rni.beginLazyReferences(cmd.slot);
+						try {
+							final RObject data = this.rni.createDataObject(objP, cmd.getCmdOption());
+							cmd.setAnswer(data, null, this.rni.endLazyReferences());
+						}
+						finally {
+							this.rni.exitLazyReferences();
+						}
+					}
+					else {
+						cmd.setAnswer(this.rni.createDataObject(objP, cmd.getCmdOption()), null);
+					}
 				}
 				else {
 					cmd.setAnswer(RjsStatus.OK_STATUS);
@@ -1828,6 +1930,8 @@ public final class JRIServer extends RJ
 			}
 			CMD_OP: switch (cmd.getOp()) {
 			case SrvCmdItem.OP_CLEAR_SESSION:
+				this.rni.releaseLazyReferences((byte) 0);
+				this.envDiff.clear();
 				this.rni.evalExpr(this.rni.resolveExpression("rj:::tmp.clear()"),
 						this.rni.rniSafeGlobalExecEnvP, CODE_SRV_EVAL_DATA );
 				break CMD_OP;
@@ -1878,6 +1982,10 @@ public final class JRIServer extends RJ
 			this.dbg.clearContext();
 		}
 		
+		if (this.graphics != null) {
+			this.graphics.flushDisplayLists();
+		}
+		
 		this.mainLoopPrompt= new ConsoleReadCmdItem((addToHistory == 1) ? V_TRUE : V_FALSE, prompt);
 		final MainCmdItem cmd= internalMainFromR(this.mainLoopPrompt);
 		this.mainLoopPrompt= null;
@@ -1894,11 +2002,9 @@ public final class JRIServer extends RJ
 		
 		this.mainExchangeLock.lock();
 		try {
-			this.ioStreams.domexAppendOut(streamId, text);
+			final boolean outStarted= this.ioStreams.domexAppendOut(streamId, text);
 			
-			if (this.mainLoopClientListen > 0) {
-				this.mainExchangeClient.signalAll();
-			}
+			domexSignalOut(outStarted);
 			return;
 		}
 		finally {
@@ -2051,6 +2157,19 @@ public final class JRIServer extends RJ
 	
 	@Override
 	public void rProcessJEvents(final Rengine re) {
+		final boolean flushDisplayLists;
+		this.mainExchangeLock.lock();
+		try {
+			flushDisplayLists = this.graphicsFlushRequested;
+			this.graphicsFlushRequested = false;
+		}
+		finally {
+			this.mainExchangeLock.unlock();
+		}
+		if (flushDisplayLists && this.graphics != null) {
+			this.graphics.flushDisplayLists();
+		}
+		
 		while (true) {
 			this.mainExchangeLock.lock();
 			try {
@@ -2195,4 +2314,35 @@ public final class JRIServer extends RJ
 		return internalMainFromR(cmd);
 	}
 	
+	@Override
+	public void scheduleFlushDisplayLists(final long delayMillis) {
+		this.mainExchangeLock.lock();
+		try {
+			if (this.graphicsFlushScheduled) {
+				return;
+			}
+			if (this.graphicsFlushTimer == null) {
+				this.graphicsFlushTimer = new Timer("RJ-GraphicFlush", true); //$NON-NLS-1$
+			}
+			this.graphicsFlushTimer.schedule(new TimerTask() {
+				@Override
+				public void run() {
+					JRIServer.this.mainExchangeLock.lock();
+					try {
+						JRIServer.this.graphicsFlushScheduled = false;
+						JRIServer.this.graphicsFlushRequested = true;
+						JRIServer.this.rEngine.rniSetProcessJEvents(1);
+					}
+					finally {
+						JRIServer.this.mainExchangeLock.unlock();
+					}
+				}
+			}, delayMillis );
+			this.graphicsFlushScheduled = true;
+		}
+		finally {
+			this.mainExchangeLock.unlock();
+		}
+	}
+	
 }
@@ -0,0 +1,214 @@
+/*=============================================================================#
+ # Copyright (c) 2016 Stephan Wahlbrink (WalWare.de) and others.
+ # All rights reserved. This program and the accompanying materials
+ # are made available under the terms of the GNU Lesser General Public License
+ # v2.1 which accompanies this distribution, and is available at
+ # http://www.gnu.org/licenses/lgpl.html
+ # 
+ # Contributors:
+ #     Stephan Wahlbrink - initial API and implementation
+ #=============================================================================*/
+
+package de.walware.rj.server.jri;
+
+import static de.walware.rj.server.jri.JRIServerErrors.CODE_DATA_COMMON;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.ObjectOutputStream;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+import org.rosuda.JRI.Rengine;
+
+import de.walware.rj.data.RJIO;
+import de.walware.rj.data.RObject;
+import de.walware.rj.data.RObjectFactory;
+import de.walware.rj.data.defaultImpl.RNull;
+import de.walware.rj.server.DataCmdItem;
+import de.walware.rj.server.RjsException;
+
+
+/**
+ * Snapshots of environments for {@link DataCmdItem#EVAL_ENVIR_DIFF_DATA}.
+ * <p>
+ * A snapshot stores a hash of the serialized R object of each binding, so changes are also
+ * detected if an R object is modified in place.</p>
+ */
+final class JRIServerEnvDiff {
+	
+	
+	private static final int MAX_SNAPSHOTS = 16;
+	
+	
+	private static final class Snapshot {
+		
+		
+		/** preserved while the snapshot exists, so the pointer can't be reused for another env */
+		private final long envP;
+		private final int flags;
+		private final int depth;
+		
+		private final Map<String, Long> hashes;
+		
+		
+		public Snapshot(final long envP, final int flags, final int depth,
+				final Map<String, Long> hashes) {
+			this.envP = envP;
+			this.flags = flags;
+			this.depth = depth;
+			this.hashes = hashes;
+		}
+		
+	}
+	
+	private static final class HashOutputStream extends ByteArrayOutputStream {
+		
+		
+		public HashOutputStream() {
+			super(1024);
+		}
+		
+		
+		/** FNV-1a 64 bit */
+		public long hash() {
+			long hash = 0xcbf29ce484222325L;
+			for (int i = 0; i < this.count; i++) {
+				hash ^= (this.buf[i] & 0xff);
+				hash *= 0x100000001b3L;
+			}
+			return hash;
+		}
+		
+	}
+	
+	
+	private final JRIServerRni rni;
+	private final Rengine rEngine;
+	private final RObjectFactory rObjectFactory;
+	
+	private final Map<Long, Snapshot> snapshots = new LinkedHashMap<>();
+	private long versionCounter;
+	
+	private final HashOutputStream hashBuffer = new HashOutputStream();
+	private final RJIO hashIO = new RJIO();
+	
+	
+	public JRIServerEnvDiff(final JRIServerRni rni, final RObjectFactory rObjectFactory) {
+		this.rni = rni;
+		this.rEngine = rni.getREngine();
+		this.rObjectFactory = rObjectFactory;
+	}
+	
+	
+	/**
+	 * Creates the answer for the command.
+	 * 
+	 * @param cmd the command
+	 * @param envP the pointer to the environment
+	 * @param depth the depth of the command
+	 * @param maxEnvLength the maximal number of bindings to load
+	 */
+	public void evalDiff(final DataCmdItem cmd, final long envP, final int depth,
+			final int maxEnvLength) throws RjsException {
+		final int flags = (cmd.getCmdOption() & ~RObjectFactory.F_LAZY_REF);
+		final long version;
+		try {
+			version = Long.parseLong(cmd.getDataText());
+		}
+		catch (final NumberFormatException e) {
+			throw new RjsException(CODE_DATA_COMMON, "Invalid snapshot version.");
+		}
+		
+		Snapshot previous = (version != 0) ? this.snapshots.remove(Long.valueOf(version)) : null;
+		if (previous != null) {
+			this.rEngine.rniRelease(previous.envP);
+			if (previous.envP != envP || previous.flags != flags || previous.depth != depth) {
+				previous = null;
+			}
+		}
+		
+		final long namesStrP = this.rni.protect(this.rEngine.rniListEnv(envP, true));
+		final String[] names = this.rEngine.rniGetStringArray(namesStrP);
+		if (names == null) {
+			throw new RjsException(CODE_DATA_COMMON, "Failed to list the environment.");
+		}
+		if (envP == this.rni.Autoload_EnvP || this.rni.isInternEnv(envP)
+				|| names.length > maxEnvLength) {
+			cmd.setAnswer(this.rni.createEnvObject(envP, null, null, names.length, true), null);
+			return;
+		}
+		
+		final RObject[] itemObjects = this.rni.createEnvItemObjects(envP, namesStrP, names.length,
+				flags );
+		final Map<String, Long> hashes = new HashMap<>(names.length + names.length / 3 + 1);
+		final List<String> changedNames = new ArrayList<>();
+		final List<RObject> changedObjects = new ArrayList<>();
+		try {
+			final ObjectOutputStream out = new ObjectOutputStream(this.hashBuffer);
+			this.hashIO.connect(out);
+			this.hashIO.flags = (flags & 0xff);
+			for (int i = 0; i < names.length; i++) {
+				this.hashBuffer.reset();
+				this.rObjectFactory.writeObject(itemObjects[i], this.hashIO);
+				out.flush();
+				final Long hash = Long.valueOf(this.hashBuffer.hash());
+				hashes.put(names[i], hash);
+				if (previous == null || !hash.equals(previous.hashes.remove(names[i]))) {
+					changedNames.add(names[i]);
+					changedObjects.add(itemObjects[i]);
+				}
+			}
+			this.hashIO.disconnect(out);
+		}
+		catch (final IOException e) {
+			throw new RjsException(CODE_DATA_COMMON, "Failed to compute the snapshot.", e);
+		}
+		finally {
+			this.hashBuffer.reset();
+		}
+		
+		final long newVersion = ++this.versionCounter;
+		this.rEngine.rniPreserve(envP);
+		this.snapshots.put(Long.valueOf(newVersion), new Snapshot(envP, flags, depth, hashes));
+		if (this.snapshots.size() > MAX_SNAPSHOTS) {
+			final Iterator<Snapshot> iter = this.snapshots.values().iterator();
+			this.rEngine.rniRelease(iter.next().envP);
+			iter.remove();
+		}
+		
+		final RObject removed;
+		if (previous != null) {
+			final String[] removedNames = previous.hashes.keySet().toArray(
+					new String[previous.hashes.size()] );
+			final RObject[] removedObjects = new RObject[removedNames.length];
+			for (int i = 0; i < removedObjects.length; i++) {
+				removedObjects[i] = RNull.INSTANCE;
+			}
+			removed = new JRIListImpl(removedObjects, RObject.CLASSNAME_LIST, removedNames);
+		}
+		else {
+			removed = null;
+		}
+		cmd.setAnswer(this.rni.createEnvObject(envP,
+						changedObjects.toArray(new RObject[changedObjects.size()]),
+						changedNames.toArray(new String[changedNames.size()]),
+						changedNames.size(), true ),
+				removed, Long.toString(newVersion) );
+	}
+	
+	/**
+	 * Removes all snapshots.
+	 */
+	public void clear() {
+		for (final Snapshot snapshot : this.snapshots.values()) {
+			this.rEngine.rniRelease(snapshot.envP);
+		}
+		this.snapshots.clear();
+	}
+	
+}
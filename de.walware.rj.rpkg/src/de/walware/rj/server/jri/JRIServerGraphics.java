@@ -78,6 +78,7 @@ public final class JRIServerGraphics extends RjsGraphicManager {
 			return checkReturnCode(11);
 		}
 		final int code = this.rEngine.rniGDResize(devId);
+		graphic.flush();
 		return checkReturnCode(code);
 	}
 	
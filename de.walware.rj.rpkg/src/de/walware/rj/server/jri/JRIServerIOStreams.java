@@ -41,6 +41,40 @@ class JRIServerIOStreams {
 	
 	private static final int CHAR_BUFFER_SIZE= 0x2000;
 	
+	/**
+	 * Java property to enable the coalescing of console output.
+	 * <p>
+	 * If enabled, the output is sent to the client not until the output buffer is full
+	 * ({@link #COALESCE_SIZE_PROPERTY_ID}) or the time window ({@link #COALESCE_WINDOW_PROPERTY_ID})
+	 * is elapsed.</p>
+	 */
+	static final String COALESCE_PROPERTY_ID= "de.walware.rj.console.coalesce"; //$NON-NLS-1$
+	/** Time window in milliseconds, default 20 ms */
+	static final String COALESCE_WINDOW_PROPERTY_ID= "de.walware.rj.console.coalesce.window"; //$NON-NLS-1$
+	/** Size of the output buffer in characters, default 64k */
+	static final String COALESCE_SIZE_PROPERTY_ID= "de.walware.rj.console.coalesce.size"; //$NON-NLS-1$
+	/**
+	 * Maximal rate of output in characters per second, further output is suppressed and
+	 * replaced by a summary; default 1M if coalescing is enabled, otherwise 0 (unlimited).
+	 */
+	static final String MAX_RATE_PROPERTY_ID= "de.walware.rj.console.maxRate"; //$NON-NLS-1$
+	
+	private static final long RATE_INTERVAL_NANOS= 1000000000L;
+	
+	
+	private static long getLongProperty(final String key, final long defaultValue) {
+		final String value= System.getProperty(key);
+		if (value != null && !value.isEmpty()) {
+			try {
+				return Long.parseLong(value);
+			}
+			catch (final NumberFormatException e) {
+				LOGGER.log(Level.WARNING, "Invalid value of Java property '" + key + "': " + value); //$NON-NLS-1$
+			}
+		}
+		return defaultValue;
+	}
+	
 	
 	static interface StreamHandler {
 		
@@ -146,6 +180,7 @@ class JRIServerIOStreams {
 							break DECODE;
 						}
 					}
+					JRIServerIOStreams.this.server.domexSignalOut(domexMarkOut());
 				}
 				finally {
 					JRIServerIOStreams.this.server.mainExchangeLock.unlock();
@@ -217,14 +252,41 @@ class JRIServerIOStreams {
 	
 	private byte currentStreamId;
 	
-	private final CharBuffer outputBuffer= CharBuffer.allocate(CHAR_BUFFER_SIZE);
+	private final CharBuffer outputBuffer;
 	
 	private StreamHandler currentHandler;
 	
+	private final boolean coalesce;
+	private final long coalesceWindowNanos;
+	
+	/** time the first char of the current output buffer was added, <code>0</code> if empty */
+	private long outputStartNanos;
+	
+	private final long maxRate;
+	private long rateIntervalStartNanos;
+	private long rateIntervalCount;
+	
+	private long suppressedCount;
+	private byte suppressedStreamId;
+	
 	
 	public JRIServerIOStreams(final JRIServer server) {
 		this.server= server;
 		this.mexCondition= this.server.mainExchangeLock.newCondition();
+		
+		this.coalesce= Boolean.parseBoolean(System.getProperty(COALESCE_PROPERTY_ID));
+		if (this.coalesce) {
+			this.coalesceWindowNanos= Math.max(getLongProperty(COALESCE_WINDOW_PROPERTY_ID, 20), 0) * 1000000L;
+			this.outputBuffer= CharBuffer.allocate((int) Math.min(Math.max(
+					getLongProperty(COALESCE_SIZE_PROPERTY_ID, 0x10000), CHAR_BUFFER_SIZE ),
+					0x1000000 ));
+			this.maxRate= Math.max(getLongProperty(MAX_RATE_PROPERTY_ID, 0x100000), 0);
+		}
+		else {
+			this.coalesceWindowNanos= 0;
+			this.outputBuffer= CharBuffer.allocate(CHAR_BUFFER_SIZE);
+			this.maxRate= Math.max(getLongProperty(MAX_RATE_PROPERTY_ID, 0), 0);
+		}
 	}
 	
 	
@@ -264,26 +326,45 @@ class JRIServerIOStreams {
 		}
 	}
 	
-	void domexAppendOut(final byte streamId, final String text) {
+	/**
+	 * Appends the output text.
+	 * 
+	 * @return <code>true</code> if the output buffer was empty before
+	 */
+	boolean domexAppendOut(final byte streamId, final String text) {
 		if (this.currentStreamId != streamId) {
 			domexFlushOut();
 			this.currentStreamId= streamId;
 		}
 		else {
-			if (this.outputBuffer.position() + text.length() > CHAR_BUFFER_SIZE) {
+			if (this.outputBuffer.position() + text.length() > this.outputBuffer.capacity()) {
 				domexSendOut();
 			}
 		}
 		
-		if (text.length() >= CHAR_BUFFER_SIZE) {
-			this.server.domexAppend2C(new ConsoleWriteCmdItem(streamId, text));
-			return;
+		if (text.length() >= this.outputBuffer.capacity()) {
+			domexSend(streamId, text);
+			return false;
 		}
 		
 		{	final int pos= this.outputBuffer.position();
 			text.getChars(0, text.length(), this.outputBuffer.array(), pos);
 			this.outputBuffer.position(pos + text.length());
 		}
+		return domexMarkOut();
+	}
+	
+	/**
+	 * Marks the start of the output in the buffer.
+	 * 
+	 * @return <code>true</code> if the output buffer was empty before
+	 */
+	private boolean domexMarkOut() {
+		if (this.outputStartNanos == 0 && this.outputBuffer.position() > 0) {
+			this.outputStartNanos= System.nanoTime();
+			return true;
+		}
+		return false;
 	}
 	
 	void domexBeginStream(final StreamHandler handler) {
@@ -298,15 +379,74 @@ class JRIServerIOStreams {
 		return (this.outputBuffer.position() > 0);
 	}
 	
+	/**
+	 * Returns if the buffered output should be sent to the client now.
+	 * 
+	 * @return <code>true</code> if there is output and it is not delayed for coalescing
+	 */
+	boolean domexIsOutDue() {
+		return (this.outputBuffer.position() > 0
+				&& (!this.coalesce
+						|| System.nanoTime() - this.outputStartNanos >= this.coalesceWindowNanos ));
+	}
+	
+	/**
+	 * Returns the time until the buffered output is due.
+	 * 
+	 * @return the time in nanoseconds, or <code>0</code> if no output is delayed
+	 */
+	long domexGetOutDelayNanos() {
+		if (this.coalesce && this.outputBuffer.position() > 0) {
+			final long delay= this.coalesceWindowNanos - (System.nanoTime() - this.outputStartNanos);
+			return (delay > 0) ? delay : 0;
+		}
+		return 0;
+	}
+	
 	void domexSendOut() {
 		if (this.outputBuffer.position() > 0) {
 			this.outputBuffer.flip();
-			this.server.domexAppend2C(new ConsoleWriteCmdItem(this.currentStreamId,
-					this.outputBuffer.toString() ));
+			domexSend(this.currentStreamId, this.outputBuffer.toString());
 			this.outputBuffer.clear();
+			this.outputStartNanos= 0;
 		}
 	}
 	
+	private void domexSend(final byte streamId, final String text) {
+		if (this.maxRate > 0) {
+			final long now= System.nanoTime();
+			if (now - this.rateIntervalStartNanos >= RATE_INTERVAL_NANOS) {
+				this.rateIntervalStartNanos= now;
+				this.rateIntervalCount= 0;
+				domexSendSuppressed();
+			}
+			if (this.rateIntervalCount >= this.maxRate) {
+				this.suppressedCount+= text.length();
+				this.suppressedStreamId= streamId;
+				return;
+			}
+			this.rateIntervalCount+= text.length();
+		}
+		domexAppend2C(new ConsoleWriteCmdItem(streamId, text));
+	}
+	
+	private void domexSendSuppressed() {
+		if (this.suppressedCount > 0) {
+			domexAppend2C(new ConsoleWriteCmdItem(this.suppressedStreamId,
+					"\n[output truncated, " + this.suppressedCount + " characters suppressed]\n" )); //$NON-NLS-1$ //$NON-NLS-2$
+			this.suppressedCount= 0;
+		}
+	}
+	
+	/**
+	 * Appends the output item to the commands sent to the client.
+	 * 
+	 * @param item the console item
+	 */
+	void domexAppend2C(final ConsoleWriteCmdItem item) {
+		this.server.domexAppend2C(item);
+	}
+	
 	void domexFlushOut() {
 		if (this.currentHandler != null) {
 			try {
@@ -322,6 +462,7 @@ class JRIServerIOStreams {
 		if (this.outputBuffer.position() > 0) {
 			domexSendOut();
 		}
+		domexSendSuppressed();
 	}
 	
 }
@@ -11,6 +11,7 @@
 
 package de.walware.rj.server.jri;
 
+import static de.walware.rj.data.RObjectFactory.F_LAZY_REF;
 import static de.walware.rj.data.RObjectFactory.F_ONLY_STRUCT;
 import static de.walware.rj.server.jri.JRIServerErrors.CODE_DATA_ASSIGN_DATA;
 import static de.walware.rj.server.jri.JRIServerErrors.CODE_DATA_COMMON;
@@ -18,7 +19,10 @@ import static de.walware.rj.server.jri.JRIServerErrors.CODE_DATA_EVAL_DATA;
 import static de.walware.rj.server.jri.JRIServerErrors.LOGGER;
 
 import java.lang.reflect.Field;
+import java.util.ArrayList;
+import java.util.HashMap;
 import java.util.List;
+import java.util.Map;
 import java.util.concurrent.CancellationException;
 import java.util.logging.Level;
 
@@ -190,6 +194,11 @@ final class JRIServerRni {
 	
 	private boolean rniTempEvalAssigned;
 	
+	/** Pinned references for {@link RObjectFactory#F_LAZY_REF} by client slot, handle to reference count */
+	private final Map<Byte, Map<Long, int[]>> lazyRefs = new HashMap<>();
+	private Map<Long, int[]> lazyRefsCurrent;
+	private final List<Long> lazyRefsCreated = new ArrayList<>();
+	
 	boolean rniInterrupted;
 	
 	
@@ -808,6 +817,9 @@ final class JRIServerRni {
 		if (this.maxDepth > 0) {
 			return createDataObject(objP, flags, EVAL_MODE_FORCE);
 		}
+		else if ((flags & F_LAZY_REF) != 0) {
+			return createLazyReference(objP, flags);
+		}
 		else {
 			final RObject rObject = createDataObject(objP, (flags | F_ONLY_STRUCT), EVAL_MODE_FORCE);
 			return new RReferenceImpl(objP, rObject.getRObjectType(), rObject.getRClassName());
@@ -826,7 +838,7 @@ final class JRIServerRni {
 	 */ 
 	public RObject createDataObject(long objP, final int flags, final byte mode) {
 		if (mode == EVAL_MODE_DEFAULT && (this.currentDepth >= this.maxDepth)) {
-			return null;
+			return ((flags & F_LAZY_REF) != 0) ? createLazyReference(objP, flags) : null;
 		}
 		this.currentDepth++;
 		try {
@@ -1108,7 +1120,8 @@ final class JRIServerRni {
 					return new RDataFrameImpl(itemObjects, className1, getNames(objP), rowNames);
 				}
 				if (((flags & F_ONLY_STRUCT) != 0 && length > this.maxListsLength)
-						|| this.currentDepth >= this.maxDepth ) {
+						|| (this.currentDepth >= this.maxDepth
+								&& ((flags & F_LAZY_REF) == 0 || length > this.maxListsLength) )) {
 					return new JRIListLongImpl(length, className1);
 				}
 				{	final RObject[] itemObjects = new RObject[itemP.length];
@@ -1147,6 +1160,9 @@ final class JRIServerRni {
 			}
 			case REXP.ENVSXP: {
 				if (this.currentDepth > 1 && (flags & RObjectFactory.F_LOAD_ENVIR) == 0) {
+					if ((flags & F_LAZY_REF) != 0) {
+						return createLazyReference(objP, flags);
+					}
 					return new RReferenceImpl(objP, RObject.TYPE_ENV, "environment");
 				}
 				final long namesStrP= protect(this.rEngine.rniListEnv(objP, true));
@@ -1251,6 +1267,195 @@ final class JRIServerRni {
 		}
 	}
 	
+	/**
+	 * Returns a reference to the R object for lazy loading ({@link RObjectFactory#F_LAZY_REF}).
+	 * The R object is pinned until the reference is released.
+	 * 
+	 * @param objP a valid pointer to an object in R
+	 * @param flags to configure the data to create
+	 * @return the reference or the object itself, if it is not referenceable
+	 */
+	private RObject createLazyReference(long objP, final int flags) {
+		int rType = this.rEngine.rniExpType(objP);
+		if (rType == REXP.PROMSXP) {
+			objP = this.rEngine.rniGetPromise(objP, 
+					((flags & RObjectFactory.F_LOAD_PROMISE) != 0) ? 2 : 1);
+			if (objP == 0) {
+				return RPromise.INSTANCE;
+			}
+			rType = this.rEngine.rniExpType(objP);
+		}
+		final byte type;
+		final String className1;
+		switch (rType) {
+		case REXP.NILSXP:
+			return RNull.INSTANCE;
+		case REXP.ENVSXP:
+			type = RObject.TYPE_ENV;
+			className1 = RObject.CLASSNAME_ENV;
+			break;
+		case REXP.SYMSXP:
+			if (objP == this.MissingArg_P) {
+				return RMissing.INSTANCE;
+			}
+			//$FALL-THROUGH$
+		default: {
+			// only the object itself, children are omitted at the max depth
+			final int savedDepth = this.currentDepth;
+			this.currentDepth = this.maxDepth;
+			try {
+				final RObject rObject = createDataObject(objP,
+						((flags | F_ONLY_STRUCT) & ~F_LAZY_REF), EVAL_MODE_FORCE );
+				type = rObject.getRObjectType();
+				className1 = rObject.getRClassName();
+			}
+			finally {
+				this.currentDepth = savedDepth;
+			}
+			break; }
+		}
+		
+		if (this.lazyRefsCurrent == null) {
+			throw new IllegalStateException("lazy references not started"); //$NON-NLS-1$
+		}
+		final Long key = Long.valueOf(objP);
+		final int[] count = this.lazyRefsCurrent.get(key);
+		if (count != null) {
+			count[0]++;
+		}
+		else {
+			this.rEngine.rniPreserve(objP);
+			this.lazyRefsCurrent.put(key, new int[] { 1 });
+		}
+		this.lazyRefsCreated.add(key);
+		return new RReferenceImpl(objP, type, className1);
+	}
+	
+	/**
+	 * Starts to record the references created for lazy loading.
+	 * <p>
+	 * The references are owned by the client of the specified slot; each client can release
+	 * only its own references.</p>
+	 * 
+	 * @param slot the slot of the client
+	 */
+	public void beginLazyReferences(final byte slot) {
+		final Byte key = Byte.valueOf(slot);
+		Map<Long, int[]> refs = this.lazyRefs.get(key);
+		if (refs == null) {
+			refs = new HashMap<>();
+			this.lazyRefs.put(key, refs);
+		}
+		this.lazyRefsCurrent = refs;
+		this.lazyRefsCreated.clear();
+	}
+	
+	/**
+	 * Returns the handles of the references created for lazy loading since
+	 * {@link #beginLazyReferences(byte)}.
+	 * 
+	 * @return the handles separated by comma
+	 */
+	public String endLazyReferences() {
+		final StringBuilder sb = new StringBuilder(this.lazyRefsCreated.size() * 12);
+		for (int i = 0; i < this.lazyRefsCreated.size(); i++) {
+			if (i > 0) {
+				sb.append(',');
+			}
+			sb.append(this.lazyRefsCreated.get(i).longValue());
+		}
+		this.lazyRefsCreated.clear();
+		this.lazyRefsCurrent = null;
+		return sb.toString();
+	}
+	
+	/**
+	 * Stops the recording of references created for lazy loading. The references created
+	 * since {@link #beginLazyReferences(byte)} and not returned by {@link #endLazyReferences()},
+	 * e.g. because of an error, are released.
+	 */
+	public void exitLazyReferences() {
+		if (this.lazyRefsCurrent != null) {
+			for (int i = 0; i < this.lazyRefsCreated.size(); i++) {
+				releaseLazyReference(this.lazyRefsCurrent, this.lazyRefsCreated.get(i));
+			}
+			this.lazyRefsCreated.clear();
+			this.lazyRefsCurrent = null;
+		}
+	}
+	
+	private void releaseLazyReference(final Map<Long, int[]> refs, final Long key) {
+		final int[] count = refs.get(key);
+		if (count != null && --count[0] <= 0) {
+			refs.remove(key);
+			this.rEngine.rniRelease(key.longValue());
+		}
+	}
+	
+	/**
+	 * Releases a reference created for lazy loading. Unknown handles, including handles of
+	 * other clients, are ignored.
+	 * 
+	 * @param slot the slot of the client
+	 * @param handle the handle of the reference
+	 */
+	public void releaseLazyReference(final byte slot, final long handle) {
+		final Map<Long, int[]> refs = this.lazyRefs.get(Byte.valueOf(slot));
+		if (refs != null) {
+			releaseLazyReference(refs, Long.valueOf(handle));
+		}
+	}
+	
+	/**
+	 * Releases all references created for lazy loading by the client of the specified slot.
+	 * 
+	 * @param slot the slot of the client
+	 */
+	public void releaseLazyReferences(final byte slot) {
+		final Map<Long, int[]> refs = this.lazyRefs.remove(Byte.valueOf(slot));
+		if (refs != null) {
+			for (final Long key : refs.keySet()) {
+				this.rEngine.rniRelease(key.longValue());
+			}
+		}
+	}
+	
+	/**
+	 * Returns {@link RObject RJ/R objects} for the bindings of an environment like for the
+	 * environment itself (R to Java).
+	 * 
+	 * @param envP a valid pointer to an environment in R
+	 * @param namesStrP pointer to the names of the bindings ({@link Rengine#rniListEnv(long, boolean)})
+	 * @param length the number of the bindings
+	 * @param flags to configure the data to create
+	 * @return new created R objects
+	 */
+	public RObject[] createEnvItemObjects(final long envP, final long namesStrP, final int length,
+			final int flags) {
+		this.currentDepth++;
+		try {
+			final RObject[] itemObjects = new RObject[length];
+			for (int i = 0; i < length; i++) {
+				if (this.rniInterrupted) {
+					throw new CancellationException();
+				}
+				final long nameSymP= this.rEngine.rniInstallSymbolByStr(namesStrP, i);
+				final long itemP= this.rEngine.rniGetVarBySym(nameSymP, envP, Rengine.FLAG_UNBOUND_P);
+				if (itemP != 0) {
+					protect(itemP);
+					itemObjects[i] = createDataObject(itemP, flags, EVAL_MODE_DEFAULT);
+				}
+				else {
+					itemObjects[i] = RMissing.INSTANCE;
+				}
+			}
+			return itemObjects;
+		}
+		finally {
+			this.currentDepth--;
+		}
+	}
+	
 	private RObject createS4Obj(final long objP, final int rType, final int flags) {
 		final long classP = this.rEngine.rniGetAttrBySym(objP, this.classSymP);
 		String className = null;
@@ -0,0 +1,216 @@
+/*=============================================================================#
+ # Copyright (c) 2016 Stephan Wahlbrink (WalWare.de) and others.
+ # All rights reserved. This program and the accompanying materials
+ # are made available under the terms of either (per the licensee's choosing)
+ #   - the Eclipse Public License v1.0
+ #     which accompanies this distribution, and is available at
+ #     http://www.eclipse.org/legal/epl-v10.html, or
+ #   - the GNU Lesser General Public License v2.1 or newer
+ #     which accompanies this distribution, and is available at
+ #     http://www.gnu.org/licenses/lgpl.html
+ # 
+ # Contributors:
+ #     Stephan Wahlbrink - initial API and implementation
+ #=============================================================================*/
+
+package de.walware.rj.server;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.File;
+import java.io.IOException;
+import java.io.ObjectInputStream;
+import java.io.ObjectOutputStream;
+import java.io.Serializable;
+import java.nio.file.Files;
+import java.rmi.Remote;
+import java.util.Arrays;
+import java.util.Random;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+
+public class BinChunkExchangeTest {
+	
+	
+	private static class TestRef implements Remote, Serializable {
+		
+		private static final long serialVersionUID = 1L;
+		
+	}
+	
+	
+	private static byte[] write(final Object obj) throws IOException {
+		final ByteArrayOutputStream buffer = new ByteArrayOutputStream();
+		try (final ObjectOutputStream out = new ObjectOutputStream(buffer)) {
+			out.writeObject(obj);
+		}
+		return buffer.toByteArray();
+	}
+	
+	private static BinChunkExchange read(final byte[] bytes) throws Exception {
+		try (final ObjectInputStream in = new ObjectInputStream(new ByteArrayInputStream(bytes))) {
+			return (BinChunkExchange) in.readObject();
+		}
+	}
+	
+	/**
+	 * Transfers the request to the server (executing the operation) and the answer back.
+	 */
+	private static BinChunkExchange exchange(final BinChunkExchange request) throws Exception {
+		return read(write(read(write(request))));
+	}
+	
+	
+	private final TestRef ref = new TestRef();
+	
+	private File file;
+	
+	
+	@Before
+	public void createFile() throws IOException {
+		this.file = File.createTempFile("rj-chunk", ".bin"); //$NON-NLS-1$ //$NON-NLS-2$
+		Files.delete(this.file.toPath());
+	}
+	
+	@After
+	public void deleteFile() throws IOException {
+		Files.deleteIfExists(this.file.toPath());
+	}
+	
+	
+	private BinChunkExchange writeChunk(final byte[] content, final int offset, final int length) throws Exception {
+		final byte[] bytes = Arrays.copyOfRange(content, offset, offset + length);
+		final BinChunkExchange answer = exchange(new BinChunkExchange(this.file.getPath(), this.ref,
+				offset, bytes, length ));
+		assertTrue(answer.isOK());
+		return answer;
+	}
+	
+	private static byte[] createContent(final int length) {
+		final byte[] content = new byte[length];
+		new Random(17).nextBytes(content);
+		return content;
+	}
+	
+	
+	@Test
+	public void writeOutOfOrder() throws Exception {
+		final byte[] content = createContent(10000);
+		writeChunk(content, 8000, 2000);
+		writeChunk(content, 0, 4000);
+		writeChunk(content, 4000, 4000);
+		
+		assertArrayEquals(content, Files.readAllBytes(this.file.toPath()));
+	}
+	
+	@Test
+	public void writeRepeated() throws Exception {
+		final byte[] content = createContent(5000);
+		writeChunk(content, 0, 3000);
+		writeChunk(content, 2000, 3000);
+		final BinChunkExchange answer = writeChunk(content, 0, 3000);
+		assertEquals(5000, answer.getFileLength());
+		
+		assertArrayEquals(content, Files.readAllBytes(this.file.toPath()));
+	}
+	
+	@Test
+	public void read() throws Exception {
+		final byte[] content = createContent(10000);
+		Files.write(this.file.toPath(), content);
+		
+		BinChunkExchange answer = exchange(new BinChunkExchange(BinChunkExchange.OP_READ,
+				this.file.getPath(), this.ref, 4000, 4000 ));
+		assertTrue(answer.isOK());
+		assertEquals(4000, answer.getLength());
+		assertEquals(10000, answer.getFileLength());
+		assertArrayEquals(Arrays.copyOfRange(content, 4000, 8000), answer.getBytes());
+		
+		// last chunk is shorter
+		answer = exchange(new BinChunkExchange(BinChunkExchange.OP_READ,
+				this.file.getPath(), this.ref, 8000, 4000 ));
+		assertTrue(answer.isOK());
+		assertEquals(2000, answer.getLength());
+		assertArrayEquals(Arrays.copyOfRange(content, 8000, 10000), answer.getBytes());
+		
+		answer = exchange(new BinChunkExchange(BinChunkExchange.OP_READ,
+				this.file.getPath(), this.ref, 12000, 4000 ));
+		assertFalse(answer.isOK());
+		assertNull(answer.getBytes());
+	}
+	
+	@Test
+	public void checksum() throws Exception {
+		final byte[] content = createContent(10000);
+		Files.write(this.file.toPath(), content);
+		
+		BinChunkExchange answer = exchange(new BinChunkExchange(BinChunkExchange.OP_CHECKSUM,
+				this.file.getPath(), this.ref, 4000, 4000 ));
+		assertTrue(answer.isOK());
+		assertEquals(BinChunkExchange.computeChecksum(content, 4000, 4000), answer.getChecksum());
+		
+		// incomplete chunk
+		answer = exchange(new BinChunkExchange(BinChunkExchange.OP_CHECKSUM,
+				this.file.getPath(), this.ref, 8000, 4000 ));
+		assertTrue(answer.isOK());
+		assertEquals(-1, answer.getChecksum());
+		assertEquals(10000, answer.getFileLength());
+	}
+	
+	@Test
+	public void truncate() throws Exception {
+		final byte[] content = createContent(10000);
+		Files.write(this.file.toPath(), content);
+		
+		BinChunkExchange answer = exchange(new BinChunkExchange(BinChunkExchange.OP_TRUNCATE,
+				this.file.getPath(), this.ref, 6000, 0 ));
+		assertTrue(answer.isOK());
+		assertEquals(6000, answer.getFileLength());
+		assertArrayEquals(Arrays.copyOf(content, 6000), Files.readAllBytes(this.file.toPath()));
+		
+		// file is not extended
+		answer = exchange(new BinChunkExchange(BinChunkExchange.OP_TRUNCATE,
+				this.file.getPath(), this.ref, 8000, 0 ));
+		assertTrue(answer.isOK());
+		assertEquals(6000, answer.getFileLength());
+	}
+	
+	@Test
+	public void info() throws Exception {
+		BinChunkExchange answer = exchange(new BinChunkExchange(BinChunkExchange.OP_INFO,
+				this.file.getPath(), this.ref, 0, 0 ));
+		assertFalse(answer.isOK());
+		assertEquals(BinChunkExchange.FILE_NOT_FOUND_ERROR, answer.getStatus().getCode());
+		
+		Files.write(this.file.toPath(), createContent(1234));
+		answer = exchange(new BinChunkExchange(BinChunkExchange.OP_INFO,
+				this.file.getPath(), this.ref, 0, 0 ));
+		assertTrue(answer.isOK());
+		assertEquals(1234, answer.getFileLength());
+	}
+	
+	@Test
+	public void detectCorruptChunk() throws Exception {
+		final byte[] content = createContent(1000);
+		final byte[] request = write(new BinChunkExchange(this.file.getPath(), this.ref,
+				0, content, content.length ));
+		// corrupt the last byte of the chunk data
+		final int idx = request.length - 2;
+		request[idx] ^= 0x01;
+		
+		final BinChunkExchange answer = read(write(read(request)));
+		assertFalse(answer.isOK());
+		assertEquals(BinChunkExchange.CHECKSUM_ERROR, answer.getStatus().getCode());
+		assertFalse(this.file.exists());
+	}
+	
+}
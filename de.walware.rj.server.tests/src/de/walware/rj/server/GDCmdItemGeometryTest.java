@@ -0,0 +1,146 @@
+/*=============================================================================#
+ # Copyright (c) 2016 Stephan Wahlbrink (WalWare.de) and others.
+ # All rights reserved. This program and the accompanying materials
+ # are made available under the terms of either (per the licensee's choosing)
+ #   - the Eclipse Public License v1.0
+ #     which accompanies this distribution, and is available at
+ #     http://www.eclipse.org/legal/epl-v10.html, or
+ #   - the GNU Lesser General Public License v2.1 or newer
+ #     which accompanies this distribution, and is available at
+ #     http://www.gnu.org/licenses/lgpl.html
+ # 
+ # Contributors:
+ #     Stephan Wahlbrink - initial API and implementation
+ #=============================================================================*/
+
+package de.walware.rj.server;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.ObjectInputStream;
+import java.io.ObjectOutputStream;
+import java.util.Random;
+
+import org.junit.Test;
+
+import de.walware.rj.data.RJIO;
+
+
+public class GDCmdItemGeometryTest {
+	
+	
+	private static final int MARKER = 0x7e57da7a;
+	
+	
+	private static byte[] writeCoords(final double[] x, final double[] y) throws IOException {
+		final ByteArrayOutputStream buffer = new ByteArrayOutputStream();
+		final ObjectOutputStream out = new ObjectOutputStream(buffer);
+		final RJIO io = RJIO.get(out);
+		GDCmdItem.writeCompactCoords(x, y, io);
+		io.writeInt(MARKER);
+		io.disconnect(out);
+		out.close();
+		return buffer.toByteArray();
+	}
+	
+	private static double[][] readCoords(final byte[] bytes) throws IOException {
+		final ObjectInputStream in = new ObjectInputStream(new ByteArrayInputStream(bytes));
+		final RJIO io = RJIO.get(in);
+		final double[][] coords = GDCmdItem.readCompactCoords(io);
+		assertEquals(MARKER, io.readInt());
+		io.disconnect(in);
+		return coords;
+	}
+	
+	private static byte[] writeCmd(final GDCmdItem item) throws IOException {
+		final ByteArrayOutputStream buffer = new ByteArrayOutputStream();
+		final ObjectOutputStream out = new ObjectOutputStream(buffer);
+		final RJIO io = RJIO.get(out);
+		item.writeExternal(io);
+		io.disconnect(out);
+		out.close();
+		return buffer.toByteArray();
+	}
+	
+	private static double[] createCurve(final int length, final double scale) {
+		final double[] values = new double[length];
+		for (int i = 0; i < length; i++) {
+			values[i] = 200 + scale * Math.sin(i / 50.0);
+		}
+		return values;
+	}
+	
+	
+	@Test
+	public void roundTripExact() throws IOException {
+		final double[] x = new double[] { 0, 1.5, -1.5, 1000.015625, 1 << 20, -(1 << 20) };
+		final double[] y = new double[] { 0.25, 0.25, 0.25, -0.5, 3, 3 };
+		final double[][] read = readCoords(writeCoords(x, y));
+		assertArrayEquals(x, read[0], 0.0);
+		assertArrayEquals(y, read[1], 0.0);
+	}
+	
+	@Test
+	public void roundTripQuantized() throws IOException {
+		final Random random = new Random(1);
+		final double[] x = new double[5000];
+		final double[] y = new double[5000];
+		for (int i = 0; i < x.length; i++) {
+			x[i] = random.nextDouble() * 1000;
+			y[i] = random.nextDouble() * -1000;
+		}
+		final double[][] read = readCoords(writeCoords(x, y));
+		assertArrayEquals(x, read[0], 1.0 / 128);
+		assertArrayEquals(y, read[1], 1.0 / 128);
+	}
+	
+	@Test
+	public void roundTripEmpty() throws IOException {
+		final double[][] read = readCoords(writeCoords(new double[0], new double[0]));
+		assertEquals(0, read[0].length);
+		assertEquals(0, read[1].length);
+	}
+	
+	@Test
+	public void fallbackForNonFinite() throws IOException {
+		final double[] x = new double[] { 1.1, Double.NaN, 3.3 };
+		final double[] y = new double[] { 1.1, 2.2, Double.POSITIVE_INFINITY };
+		final double[][] read = readCoords(writeCoords(x, y));
+		assertArrayEquals(x, read[0], 0.0);
+		assertArrayEquals(y, read[1], 0.0);
+		
+		final double[] large = new double[] { 1e300, 1.1, 2.2 };
+		assertArrayEquals(large, readCoords(writeCoords(large, x))[0], 0.0);
+	}
+	
+	@Test
+	public void compactSmallerThanDoubles() throws IOException {
+		final double[] x = createCurve(10000, 100);
+		final double[] y = createCurve(10000, 50);
+		final int compact = writeCmd(new GDCmdItem.DrawPolyline(1, x, y, true, (byte) 0)).length;
+		final int doubles = writeCmd(new GDCmdItem.DrawPolyline(1, x, y, false, (byte) 0)).length;
+		assertTrue(compact < doubles / 4);
+	}
+	
+	@Test
+	public void writeCompactCmd() throws IOException {
+		final double[] x = createCurve(100, 10);
+		final double[] y = createCurve(100, 20);
+		final byte[] bytes = writeCmd(new GDCmdItem.DrawPolygon(3, x, y, true, (byte) 0));
+		
+		final ObjectInputStream in = new ObjectInputStream(new ByteArrayInputStream(bytes));
+		final RJIO io = RJIO.get(in);
+		assertEquals(3, io.readInt());
+		assertEquals(GDCmdItem.DRAW_POLYGON | GDCmdItem.GEOMETRY_COMPACT, io.readByte());
+		final double[][] read = GDCmdItem.readCompactCoords(io);
+		io.disconnect(in);
+		assertArrayEquals(x, read[0], 1.0 / 128);
+		assertArrayEquals(y, read[1], 1.0 / 128);
+	}
+	
+}
@@ -0,0 +1,133 @@
+/*=============================================================================#
+ # Copyright (c) 2016 Stephan Wahlbrink (WalWare.de) and others.
+ # All rights reserved. This program and the accompanying materials
+ # are made available under the terms of either (per the licensee's choosing)
+ #   - the Eclipse Public License v1.0
+ #     which accompanies this distribution, and is available at
+ #     http://www.eclipse.org/legal/epl-v10.html, or
+ #   - the GNU Lesser General Public License v2.1 or newer
+ #     which accompanies this distribution, and is available at
+ #     http://www.gnu.org/licenses/lgpl.html
+ # 
+ # Contributors:
+ #     Stephan Wahlbrink - initial API and implementation
+ #=============================================================================*/
+
+package de.walware.rj.server;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.ObjectInputStream;
+import java.io.ObjectOutputStream;
+
+import org.junit.Test;
+
+import de.walware.rj.data.defaultImpl.RNumericDataBImpl;
+import de.walware.rj.data.defaultImpl.RVectorImpl;
+
+
+public class MainCmdBatchTest {
+	
+	
+	private static Object transfer(final Object obj) throws IOException, ClassNotFoundException {
+		final ByteArrayOutputStream buffer = new ByteArrayOutputStream();
+		try (final ObjectOutputStream out = new ObjectOutputStream(buffer)) {
+			out.writeObject(obj);
+		}
+		try (final ObjectInputStream in = new ObjectInputStream(new ByteArrayInputStream(buffer.toByteArray()))) {
+			return in.readObject();
+		}
+	}
+	
+	private static DataCmdItem[] createBatch(final int count) {
+		final DataCmdItem[] items = new DataCmdItem[count];
+		for (int i = 0; i < count; i++) {
+			items[i] = new DataCmdItem(DataCmdItem.EVAL_EXPR_DATA, 0, (byte) -1,
+					"x" + i, null, null, null, null ); //$NON-NLS-1$
+			items[i].requestId = i + 1;
+			if (i > 0) {
+				items[i - 1].setBatchNext();
+				items[i - 1].next = items[i];
+			}
+		}
+		return items;
+	}
+	
+	
+	@Test
+	public void setBatchNext() {
+		final DataCmdItem[] items = createBatch(3);
+		assertTrue(items[0].hasBatchNext());
+		assertTrue(items[1].hasBatchNext());
+		assertFalse(items[2].hasBatchNext());
+		assertEquals(0, items[0].getCmdOption());
+	}
+	
+	@Test
+	public void keepBatchNextInAnswer() {
+		final DataCmdItem[] items = createBatch(3);
+		items[0].setAnswer(new RVectorImpl<>(new RNumericDataBImpl(new double[] { 1.0 })), null);
+		items[1].setAnswer(new RjsStatus(RjsStatus.ERROR, 0, "failed")); //$NON-NLS-1$
+		items[2].setAnswer(RjsStatus.CANCEL_STATUS);
+		
+		assertTrue(items[0].hasBatchNext());
+		assertTrue(items[0].isOK());
+		assertTrue(items[1].hasBatchNext());
+		assertFalse(items[1].isOK());
+		assertFalse(items[2].hasBatchNext());
+		assertEquals(RjsStatus.CANCEL, items[2].getStatus().getSeverity());
+	}
+	
+	@Test
+	public void transferRequests() throws Exception {
+		final DataCmdItem[] items = createBatch(3);
+		final MainCmdC2SList list = new MainCmdC2SList();
+		list.setObjects(items[0]);
+		
+		MainCmdItem item = ((MainCmdC2SList) transfer(list)).getItems();
+		for (int i = 0; i < items.length; i++) {
+			assertEquals(items[i].getDataText(), item.getDataText());
+			assertEquals(items[i].requestId, item.requestId);
+			assertEquals(items[i].hasBatchNext(), item.hasBatchNext());
+			item = item.next;
+		}
+		assertNull(item);
+	}
+	
+	@Test
+	public void transferAnswers() throws Exception {
+		final DataCmdItem[] items = createBatch(3);
+		for (int i = 0; i < items.length; i++) {
+			items[i].setAnswer((i == 1) ?
+					new RjsStatus(RjsStatus.ERROR, 0, "failed") : //$NON-NLS-1$
+					RjsStatus.OK_STATUS );
+		}
+		// console output interleaved with the answers
+		final ConsoleWriteCmdItem output = new ConsoleWriteCmdItem(ConsoleWriteCmdItem.R_OUTPUT,
+				"output" ); //$NON-NLS-1$
+		items[0].next = output;
+		output.next = items[1];
+		final MainCmdS2CList list = new MainCmdS2CList(items[0], false);
+		
+		MainCmdItem item = ((MainCmdS2CList) transfer(list)).getItems();
+		assertTrue(item.hasBatchNext());
+		assertTrue(item.isOK());
+		item = item.next;
+		assertEquals(MainCmdItem.T_CONSOLE_WRITE_ITEM, item.getCmdType());
+		assertFalse(item.hasBatchNext());
+		item = item.next;
+		assertTrue(item.hasBatchNext());
+		assertFalse(item.isOK());
+		item = item.next;
+		assertFalse(item.hasBatchNext());
+		assertTrue(item.isOK());
+		assertNull(item.next);
+	}
+	
+}
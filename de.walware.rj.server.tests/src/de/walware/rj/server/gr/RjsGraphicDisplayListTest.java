@@ -0,0 +1,159 @@
+/*=============================================================================#
+ # Copyright (c) 2016 Stephan Wahlbrink (WalWare.de) and others.
+ # All rights reserved. This program and the accompanying materials
+ # are made available under the terms of either (per the licensee's choosing)
+ #   - the Eclipse Public License v1.0
+ #     which accompanies this distribution, and is available at
+ #     http://www.eclipse.org/legal/epl-v10.html, or
+ #   - the GNU Lesser General Public License v2.1 or newer
+ #     which accompanies this distribution, and is available at
+ #     http://www.gnu.org/licenses/lgpl.html
+ # 
+ # Contributors:
+ #     Stephan Wahlbrink - initial API and implementation
+ #=============================================================================*/
+
+package de.walware.rj.server.gr;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.ObjectInputStream;
+import java.io.ObjectOutputStream;
+
+import org.junit.Test;
+
+import de.walware.rj.data.RJIO;
+import de.walware.rj.server.GDCmdItem;
+
+
+public class RjsGraphicDisplayListTest {
+	
+	
+	/**
+	 * Writes the command and returns the data of the commands in the list.
+	 */
+	static byte[] readCmd(final GDCmdItem.DisplayList cmd, final int devId, final int count)
+			throws IOException {
+		final ByteArrayOutputStream buffer = new ByteArrayOutputStream();
+		final ObjectOutputStream out = new ObjectOutputStream(buffer);
+		RJIO io = RJIO.get(out);
+		cmd.writeExternal(io);
+		io.disconnect(out);
+		out.close();
+		
+		final ObjectInputStream in = new ObjectInputStream(new ByteArrayInputStream(
+				buffer.toByteArray() ));
+		io = RJIO.get(in);
+		assertEquals(devId, io.readInt());
+		assertEquals(GDCmdItem.DISPLAY_LIST, io.readByte());
+		assertEquals(count, io.readInt());
+		final byte[] data = io.readByteArray();
+		io.disconnect(in);
+		return data;
+	}
+	
+	
+	@Test
+	public void roundTrip() throws IOException {
+		final RjsGraphicDisplayList list = new RjsGraphicDisplayList();
+		assertTrue(list.isEmpty());
+		list.addSetColor(0xff0000);
+		list.addSetLine(1, 2.5f, (byte) 1, (byte) 2, 10f);
+		list.addSetFont("Serif", 2, 12f, 1.2f); //$NON-NLS-1$
+		list.addDrawLine(1, 2, 3, 4);
+		list.addDrawPolyline(new double[] { 1, 2, 3 }, new double[] { 4, 5, 6 }, false);
+		list.addDrawPolygon(new double[] { 1, 2, 3 }, new double[] { 4, 5, 6.5 }, true);
+		list.addDrawText("text ä", 10, 20, 90, 0.5); //$NON-NLS-1$
+		assertTrue(list.getSize() > 0);
+		
+		final byte[] data = readCmd(list.createCmd(2, (byte) 0), 2, 7);
+		assertTrue(list.isEmpty());
+		
+		final ObjectInputStream in = new ObjectInputStream(new ByteArrayInputStream(data));
+		final RJIO io = RJIO.get(in);
+		assertEquals(GDCmdItem.SET_COLOR, io.readByte());
+		assertEquals(0xff0000, io.readInt());
+		assertEquals(GDCmdItem.SET_LINE, io.readByte());
+		assertEquals(1, io.readInt());
+		assertEquals(2.5f, io.readFloat(), 0.0);
+		assertEquals(1, io.readByte());
+		assertEquals(2, io.readByte());
+		assertEquals(10f, io.readFloat(), 0.0);
+		assertEquals(GDCmdItem.SET_FONT, io.readByte());
+		assertEquals("Serif", io.readString()); //$NON-NLS-1$
+		assertEquals(2, io.readInt());
+		assertEquals(12f, io.readFloat(), 0.0);
+		assertEquals(1.2f, io.readFloat(), 0.0);
+		assertEquals(GDCmdItem.DRAW_LINE, io.readByte());
+		assertEquals(1.0, io.readDouble(), 0.0);
+		assertEquals(2.0, io.readDouble(), 0.0);
+		assertEquals(3.0, io.readDouble(), 0.0);
+		assertEquals(4.0, io.readDouble(), 0.0);
+		assertEquals(GDCmdItem.DRAW_POLYLINE, io.readByte());
+		assertEquals(3, io.readInt());
+		assertArrayEquals(new double[] { 1, 2, 3 }, io.readDoubleData(new double[3], 3), 0.0);
+		assertArrayEquals(new double[] { 4, 5, 6 }, io.readDoubleData(new double[3], 3), 0.0);
+		assertEquals(GDCmdItem.DRAW_POLYGON | GDCmdItem.GEOMETRY_COMPACT, io.readByte());
+		final double[][] coords = GDCmdItem.readCompactCoords(io);
+		assertArrayEquals(new double[] { 1, 2, 3 }, coords[0], 0.0);
+		assertArrayEquals(new double[] { 4, 5, 6.5 }, coords[1], 0.0);
+		assertEquals(GDCmdItem.DRAW_TEXT, io.readByte());
+		assertEquals("text ä", io.readString()); //$NON-NLS-1$
+		assertEquals(10.0, io.readDouble(), 0.0);
+		assertEquals(20.0, io.readDouble(), 0.0);
+		assertEquals(90.0, io.readDouble(), 0.0);
+		assertEquals(0.5, io.readDouble(), 0.0);
+		assertEquals(-1, in.read());
+		io.disconnect(in);
+	}
+	
+	@Test
+	public void reuseAfterCreateCmd() throws IOException {
+		final RjsGraphicDisplayList list = new RjsGraphicDisplayList();
+		list.addSetFill(1);
+		readCmd(list.createCmd(1, (byte) 0), 1, 1);
+		list.addSetFill(2);
+		list.addSetFill(3);
+		
+		final byte[] data = readCmd(list.createCmd(1, (byte) 0), 1, 2);
+		final ObjectInputStream in = new ObjectInputStream(new ByteArrayInputStream(data));
+		final RJIO io = RJIO.get(in);
+		assertEquals(GDCmdItem.SET_FILL, io.readByte());
+		assertEquals(2, io.readInt());
+		assertEquals(GDCmdItem.SET_FILL, io.readByte());
+		assertEquals(3, io.readInt());
+		io.disconnect(in);
+	}
+	
+	@Test
+	public void createCompleteCmd() throws IOException {
+		final RjsGraphicDisplayList list = new RjsGraphicDisplayList();
+		list.addDrawCircle(1, 2, 3);
+		// only commands followed by another command are known to be complete
+		assertNull(list.createCompleteCmd(1, (byte) 0));
+		assertTrue(list.isEmpty());
+		
+		list.addDrawCircle(1, 2, 3);
+		list.addDrawCircle(4, 5, 6);
+		list.addDrawCircle(7, 8, 9);
+		final byte[] data = readCmd(list.createCompleteCmd(1, (byte) 0), 1, 2);
+		assertTrue(list.isEmpty());
+		final ObjectInputStream in = new ObjectInputStream(new ByteArrayInputStream(data));
+		final RJIO io = RJIO.get(in);
+		for (int i = 0; i < 2; i++) {
+			assertEquals(GDCmdItem.DRAW_CIRCLE, io.readByte());
+			assertEquals(1 + 3 * i, io.readDouble(), 0.0);
+			assertEquals(2 + 3 * i, io.readDouble(), 0.0);
+			assertEquals(3 + 3 * i, io.readDouble(), 0.0);
+		}
+		assertEquals(-1, in.read());
+		io.disconnect(in);
+	}
+	
+}
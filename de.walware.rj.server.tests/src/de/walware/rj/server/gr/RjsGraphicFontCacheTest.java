@@ -0,0 +1,140 @@
+/*=============================================================================#
+ # Copyright (c) 2016 Stephan Wahlbrink (WalWare.de) and others.
+ # All rights reserved. This program and the accompanying materials
+ # are made available under the terms of either (per the licensee's choosing)
+ #   - the Eclipse Public License v1.0
+ #     which accompanies this distribution, and is available at
+ #     http://www.eclipse.org/legal/epl-v10.html, or
+ #   - the GNU Lesser General Public License v2.1 or newer
+ #     which accompanies this distribution, and is available at
+ #     http://www.gnu.org/licenses/lgpl.html
+ # 
+ # Contributors:
+ #     Stephan Wahlbrink - initial API and implementation
+ #=============================================================================*/
+
+package de.walware.rj.server.gr;
+
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNotNull;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertTrue;
+
+import org.junit.Test;
+
+
+public class RjsGraphicFontCacheTest {
+	
+	
+	private final RjsGraphicFontCache cache = new RjsGraphicFontCache();
+	
+	
+	@Test
+	public void cachePerFont() {
+		final double[] width = new double[] { 10 };
+		this.cache.setFont("sans", 1, 12f); //$NON-NLS-1$
+		this.cache.putStrWidth("abc", width); //$NON-NLS-1$
+		assertSame(width, this.cache.getStrWidth("abc")); //$NON-NLS-1$
+		
+		this.cache.setFont("sans", 1, 14f); //$NON-NLS-1$
+		assertNull(this.cache.getStrWidth("abc")); //$NON-NLS-1$
+		this.cache.setFont("sans", 2, 12f); //$NON-NLS-1$
+		assertNull(this.cache.getStrWidth("abc")); //$NON-NLS-1$
+		this.cache.setFont("serif", 1, 12f); //$NON-NLS-1$
+		assertNull(this.cache.getStrWidth("abc")); //$NON-NLS-1$
+		
+		this.cache.setFont("sans", 1, 12f); //$NON-NLS-1$
+		assertSame(width, this.cache.getStrWidth("abc")); //$NON-NLS-1$
+	}
+	
+	@Test
+	public void cacheMetrics() {
+		final double[] metric = new double[] { 1, 2, 3 };
+		this.cache.setFont(null, 1, 12f);
+		this.cache.putMetric('M', metric);
+		assertSame(metric, this.cache.getMetric('M'));
+		assertNull(this.cache.getMetric('m'));
+		
+		this.cache.setFont("", 1, 12f); //$NON-NLS-1$
+		assertSame(metric, this.cache.getMetric('M'));
+	}
+	
+	@Test
+	public void cacheWithoutFont() {
+		final double[] width = new double[] { 10 };
+		this.cache.putStrWidth("abc", width); //$NON-NLS-1$
+		assertSame(width, this.cache.getStrWidth("abc")); //$NON-NLS-1$
+	}
+	
+	@Test
+	public void evictLeastRecentlyUsedStrWidth() {
+		this.cache.setFont("sans", 1, 12f); //$NON-NLS-1$
+		for (int i = 0; i < 512; i++) {
+			this.cache.putStrWidth(Integer.toString(i), new double[] { i });
+		}
+		assertNotNull(this.cache.getStrWidth("0")); //$NON-NLS-1$
+		
+		this.cache.putStrWidth("new", new double[] { 1 }); //$NON-NLS-1$
+		assertNotNull(this.cache.getStrWidth("0")); //$NON-NLS-1$
+		assertNull(this.cache.getStrWidth("1")); //$NON-NLS-1$
+		assertNotNull(this.cache.getStrWidth("2")); //$NON-NLS-1$
+		assertNotNull(this.cache.getStrWidth("new")); //$NON-NLS-1$
+	}
+	
+	@Test
+	public void evictLeastRecentlyUsedMetric() {
+		this.cache.setFont("sans", 1, 12f); //$NON-NLS-1$
+		for (int i = 0; i < 513; i++) {
+			this.cache.putMetric(i, new double[] { i, i, i });
+		}
+		assertNull(this.cache.getMetric(0));
+		assertNotNull(this.cache.getMetric(1));
+		assertNotNull(this.cache.getMetric(512));
+	}
+	
+	@Test
+	public void evictLeastRecentlyUsedFont() {
+		for (int i = 0; i < 16; i++) {
+			this.cache.setFont("sans", 1, i); //$NON-NLS-1$
+			this.cache.putStrWidth("abc", new double[] { i }); //$NON-NLS-1$
+		}
+		this.cache.setFont("sans", 1, 0); //$NON-NLS-1$
+		assertNotNull(this.cache.getStrWidth("abc")); //$NON-NLS-1$
+		
+		this.cache.setFont("serif", 1, 0); //$NON-NLS-1$
+		this.cache.putStrWidth("abc", new double[] { 1 }); //$NON-NLS-1$
+		
+		this.cache.setFont("sans", 1, 0); //$NON-NLS-1$
+		assertNotNull(this.cache.getStrWidth("abc")); //$NON-NLS-1$
+		this.cache.setFont("sans", 1, 2); //$NON-NLS-1$
+		assertNotNull(this.cache.getStrWidth("abc")); //$NON-NLS-1$
+		this.cache.setFont("sans", 1, 1); //$NON-NLS-1$
+		assertNull(this.cache.getStrWidth("abc")); //$NON-NLS-1$
+	}
+	
+	@Test
+	public void markMetricTableLoadedPerFont() {
+		this.cache.setFont("sans", 1, 12f); //$NON-NLS-1$
+		assertFalse(this.cache.isMetricTableLoaded());
+		this.cache.setMetricTableLoaded();
+		assertTrue(this.cache.isMetricTableLoaded());
+		
+		this.cache.setFont("sans", 1, 14f); //$NON-NLS-1$
+		assertFalse(this.cache.isMetricTableLoaded());
+		this.cache.setFont("sans", 1, 12f); //$NON-NLS-1$
+		assertTrue(this.cache.isMetricTableLoaded());
+	}
+	
+	@Test
+	public void clear() {
+		this.cache.setFont("sans", 1, 12f); //$NON-NLS-1$
+		this.cache.putStrWidth("abc", new double[] { 10 }); //$NON-NLS-1$
+		this.cache.setMetricTableLoaded();
+		this.cache.clear();
+		
+		assertNull(this.cache.getStrWidth("abc")); //$NON-NLS-1$
+		assertFalse(this.cache.isMetricTableLoaded());
+	}
+	
+}
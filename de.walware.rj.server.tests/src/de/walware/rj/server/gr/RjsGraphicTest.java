@@ -0,0 +1,174 @@
+/*=============================================================================#
+ # Copyright (c) 2016 Stephan Wahlbrink (WalWare.de) and others.
+ # All rights reserved. This program and the accompanying materials
+ # are made available under the terms of either (per the licensee's choosing)
+ #   - the Eclipse Public License v1.0
+ #     which accompanies this distribution, and is available at
+ #     http://www.eclipse.org/legal/epl-v10.html, or
+ #   - the GNU Lesser General Public License v2.1 or newer
+ #     which accompanies this distribution, and is available at
+ #     http://www.gnu.org/licenses/lgpl.html
+ # 
+ # Contributors:
+ #     Stephan Wahlbrink - initial API and implementation
+ #=============================================================================*/
+
+package de.walware.rj.server.gr;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+
+import org.junit.After;
+import org.junit.Test;
+
+import de.walware.rj.server.GDCmdItem;
+import de.walware.rj.server.MainCmdItem;
+import de.walware.rj.server.RJ;
+import de.walware.rj.server.RjsComConfig;
+
+
+public class RjsGraphicTest {
+	
+	
+	private static class TestRJ extends RJ {
+		
+		
+		private final RjsGraphicManager graphicManager = new RjsGraphicManager(this);
+		
+		private final List<MainCmdItem> cmds = new ArrayList<>();
+		
+		private int scheduleCount;
+		private long scheduleDelay;
+		
+		
+		public TestRJ(final boolean displayList) {
+			setClientProperties((byte) 0, Collections.singletonMap(
+					RjsComConfig.RJ_GD_DISPLAY_LIST_PROPERTY_ID, Boolean.valueOf(displayList) ));
+		}
+		
+		
+		@Override
+		public RjsGraphicManager getGraphicManager() {
+			return this.graphicManager;
+		}
+		
+		@Override
+		public MainCmdItem sendMainCmd(final MainCmdItem cmd) {
+			this.cmds.add(cmd);
+			return null;
+		}
+		
+		@Override
+		public void scheduleFlushDisplayLists(final long delayMillis) {
+			this.scheduleCount++;
+			this.scheduleDelay = delayMillis;
+		}
+		
+	}
+	
+	
+	private TestRJ rj;
+	
+	
+	private RjsGraphic createGraphic(final boolean displayList) {
+		this.rj = new TestRJ(displayList);
+		final RjsGraphic graphic = new RjsGraphic();
+		graphic.initPage(1, RjsGraphic.STATE_OPENED, 100, 100, 0xffffff, true);
+		assertEquals(1, this.rj.cmds.size());
+		this.rj.cmds.clear();
+		return graphic;
+	}
+	
+	private void assertDisplayListSent(final int count) throws Exception {
+		assertEquals(1, this.rj.cmds.size());
+		RjsGraphicDisplayListTest.readCmd((GDCmdItem.DisplayList) this.rj.cmds.get(0), 1, count);
+		this.rj.cmds.clear();
+	}
+	
+	@After
+	public void dispose() {
+		if (this.rj != null) {
+			this.rj.onRExit();
+		}
+	}
+	
+	
+	@Test
+	public void coalesceUntilFlush() throws Exception {
+		final RjsGraphic graphic = createGraphic(true);
+		graphic.setColor(1);
+		graphic.drawLine(0, 0, 1, 1);
+		graphic.drawCircle(1, 1, 1);
+		assertEquals(0, this.rj.cmds.size());
+		// flush requested if R doesn't draw any longer
+		assertEquals(1, this.rj.scheduleCount);
+		assertTrue(this.rj.scheduleDelay > 0 && this.rj.scheduleDelay <= 1000);
+		
+		this.rj.getGraphicManager().flushDisplayLists();
+		assertDisplayListSent(3);
+		
+		this.rj.getGraphicManager().flushDisplayLists();
+		assertEquals(0, this.rj.cmds.size());
+		
+		graphic.drawLine(0, 0, 1, 1);
+		assertEquals(2, this.rj.scheduleCount);
+	}
+	
+	@Test
+	public void flushAfterDelay() throws Exception {
+		final RjsGraphic graphic = createGraphic(true);
+		graphic.setColor(1);
+		final long start = System.nanoTime();
+		graphic.drawLine(0, 0, 1, 1);
+		if (System.nanoTime() - start < this.rj.scheduleDelay * 1000000L) {
+			assertEquals(0, this.rj.cmds.size());
+		}
+		
+		Thread.sleep(this.rj.scheduleDelay + 10);
+		graphic.drawLine(1, 1, 2, 2);
+		assertDisplayListSent(3);
+		assertEquals(1, this.rj.scheduleCount);
+	}
+	
+	@Test
+	public void flushLargeList() throws Exception {
+		final RjsGraphic graphic = createGraphic(true);
+		final double[] x = new double[RjsGraphicDisplayList.MAX_SIZE / 16 + 1];
+		graphic.drawPolyline(x, x);
+		assertDisplayListSent(1);
+	}
+	
+	@Test
+	public void flushBeforeOtherCmds() throws Exception {
+		final RjsGraphic graphic = createGraphic(true);
+		graphic.setFill(1);
+		graphic.drawRect(0, 0, 1, 1);
+		graphic.newPageSize();
+		assertEquals(2, this.rj.cmds.size());
+		assertTrue(this.rj.cmds.get(0) instanceof GDCmdItem.DisplayList);
+		assertTrue(this.rj.cmds.get(1) instanceof GDCmdItem.CGetSize);
+		this.rj.cmds.clear();
+		
+		graphic.drawRect(0, 0, 1, 1);
+		graphic.close();
+		assertEquals(2, this.rj.cmds.size());
+		assertTrue(this.rj.cmds.get(0) instanceof GDCmdItem.DisplayList);
+		assertTrue(this.rj.cmds.get(1) instanceof GDCmdItem.CCloseDevice);
+	}
+	
+	@Test
+	public void sendDirectlyWithoutDisplayList() {
+		final RjsGraphic graphic = createGraphic(false);
+		graphic.setColor(1);
+		graphic.drawLine(0, 0, 1, 1);
+		assertEquals(2, this.rj.cmds.size());
+		assertTrue(this.rj.cmds.get(0) instanceof GDCmdItem.SetColor);
+		assertTrue(this.rj.cmds.get(1) instanceof GDCmdItem.DrawLine);
+		assertEquals(0, this.rj.scheduleCount);
+	}
+	
+}
@@ -0,0 +1,146 @@
+/*=============================================================================#
+ # Copyright (c) 2016 Stephan Wahlbrink (WalWare.de) and others.
+ # All rights reserved. This program and the accompanying materials
+ # are made available under the terms of either (per the licensee's choosing)
+ #   - the Eclipse Public License v1.0
+ #     which accompanies this distribution, and is available at
+ #     http://www.eclipse.org/legal/epl-v10.html, or
+ #   - the GNU Lesser General Public License v2.1 or newer
+ #     which accompanies this distribution, and is available at
+ #     http://www.gnu.org/licenses/lgpl.html
+ # 
+ # Contributors:
+ #     Stephan Wahlbrink - initial API and implementation
+ #=============================================================================*/
+
+package de.walware.rj.server.srvImpl;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.ObjectInputStream;
+import java.io.ObjectOutputStream;
+import java.util.Map;
+
+import org.junit.Test;
+
+import de.walware.rj.server.ConsoleWriteCmdItem;
+import de.walware.rj.server.MainCmdC2SList;
+import de.walware.rj.server.MainCmdS2CList;
+
+
+public class ServerMetricsTest {
+	
+	
+	private static Object transfer(final Object obj) throws IOException, ClassNotFoundException {
+		final ByteArrayOutputStream buffer = new ByteArrayOutputStream();
+		try (final ObjectOutputStream out = new ObjectOutputStream(buffer)) {
+			out.writeObject(obj);
+		}
+		try (final ObjectInputStream in = new ObjectInputStream(new ByteArrayInputStream(buffer.toByteArray()))) {
+			return in.readObject();
+		}
+	}
+	
+	
+	@Test
+	public void recordHistogram() {
+		final LatencyHistogram histogram = new LatencyHistogram();
+		assertEquals(0, histogram.getCount());
+		assertEquals(0, histogram.getMeanNanos());
+		assertEquals(0, histogram.getPercentileNanos(50));
+		
+		for (int i = 0; i < 100; i++) {
+			histogram.record(1000);
+		}
+		histogram.record(1000000);
+		histogram.record(-1);
+		assertEquals(102, histogram.getCount());
+		assertEquals(1000000, histogram.getMaxNanos());
+		assertEquals((100 * 1000 + 1000000) / 102, histogram.getMeanNanos());
+		assertEquals(1023, histogram.getPercentileNanos(50));
+		assertEquals(1023, histogram.getPercentileNanos(98));
+		assertEquals(1000000, histogram.getPercentileNanos(100));
+		
+		histogram.reset();
+		assertEquals(0, histogram.getCount());
+		assertEquals(0, histogram.getMaxNanos());
+	}
+	
+	@Test
+	public void byteCountUnsupported() {
+		final ServerMetrics metrics = new ServerMetrics(true);
+		metrics.recordRead(1000);
+		assertEquals(-1, metrics.getBytesIn());
+		assertEquals(-1, metrics.getBytesOut());
+		final Map<String, Long> snapshot = metrics.getSnapshot();
+		assertFalse(snapshot.containsKey("bytes.in")); //$NON-NLS-1$
+		assertEquals(Long.valueOf(1), snapshot.get("read.count")); //$NON-NLS-1$
+	}
+	
+	@Test
+	public void byteCount() {
+		final ServerMetrics metrics = new ServerMetrics(true);
+		metrics.setByteCountSupported();
+		assertEquals(0, metrics.getBytesIn());
+		metrics.recordBytes(10, 20);
+		metrics.recordBytes(1, 2);
+		assertEquals(11, metrics.getBytesIn());
+		assertEquals(22, metrics.getBytesOut());
+		assertEquals(Long.valueOf(22), metrics.getSnapshot().get("bytes.out")); //$NON-NLS-1$
+		
+		metrics.reset();
+		assertEquals(0, metrics.getBytesIn());
+	}
+	
+	@Test
+	public void recordCommandLists() throws Exception {
+		final ServerMetrics metrics = ServerMetrics.getDefault();
+		final boolean enabled = metrics.isEnabled();
+		try {
+			metrics.setEnabled(true);
+			metrics.reset();
+			
+			final MainCmdC2SList c2sList = new MainCmdC2SList();
+			c2sList.setObjects(new ConsoleWriteCmdItem(ConsoleWriteCmdItem.R_OUTPUT, "x")); //$NON-NLS-1$
+			transfer(c2sList);
+			transfer(new MainCmdS2CList(new ConsoleWriteCmdItem(ConsoleWriteCmdItem.R_OUTPUT, "x"), false)); //$NON-NLS-1$
+			Map<String, Long> snapshot = metrics.getSnapshot();
+			assertEquals(Long.valueOf(1), snapshot.get("read.count")); //$NON-NLS-1$
+			assertEquals(Long.valueOf(1), snapshot.get("write.count")); //$NON-NLS-1$
+			
+			metrics.setEnabled(false);
+			transfer(c2sList);
+			snapshot = metrics.getSnapshot();
+			assertEquals(Long.valueOf(1), snapshot.get("read.count")); //$NON-NLS-1$
+		}
+		finally {
+			metrics.setEnabled(enabled);
+			metrics.reset();
+		}
+	}
+	
+	@Test
+	public void recordLock() throws InterruptedException {
+		final ServerMetrics metrics = new ServerMetrics(true);
+		final MeteredLock lock = new MeteredLock(metrics);
+		lock.lock();
+		lock.lock();
+		lock.unlock();
+		assertTrue(lock.isHeldByCurrentThread());
+		lock.unlock();
+		assertEquals(1, metrics.getLockWaitTimes().getCount());
+		assertEquals(1, metrics.getLockHoldTimes().getCount());
+		
+		metrics.setEnabled(false);
+		lock.lock();
+		lock.unlock();
+		assertEquals(1, metrics.getLockWaitTimes().getCount());
+		assertEquals(1, metrics.getLockHoldTimes().getCount());
+	}
+	
+}
@@ -0,0 +1,295 @@
+/*=============================================================================#
+ # Copyright (c) 2016 Stephan Wahlbrink (WalWare.de) and others.
+ # All rights reserved. This program and the accompanying materials
+ # are made available under the terms of either (per the licensee's choosing)
+ #   - the Eclipse Public License v1.0
+ #     which accompanies this distribution, and is available at
+ #     http://www.eclipse.org/legal/epl-v10.html, or
+ #   - the GNU Lesser General Public License v2.1 or newer
+ #     which accompanies this distribution, and is available at
+ #     http://www.gnu.org/licenses/lgpl.html
+ # 
+ # Contributors:
+ #     Stephan Wahlbrink - initial API and implementation
+ #=============================================================================*/
+
+package de.walware.rj.server.srvImpl;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNotNull;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+
+import java.io.Externalizable;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.ObjectInput;
+import java.io.ObjectOutput;
+import java.net.InetAddress;
+import java.net.InetSocketAddress;
+import java.net.Socket;
+import java.rmi.RemoteException;
+import java.rmi.server.UnicastRemoteObject;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.Random;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+import de.walware.rj.data.RJIO;
+import de.walware.rj.server.ConsoleEngine;
+import de.walware.rj.server.RjsComObject;
+import de.walware.rj.server.RjsPing;
+import de.walware.rj.server.Server;
+import de.walware.rj.server.SocketConsoleEngine;
+
+
+public class SocketTransportServerTest {
+	
+	
+	public static final class DataCom implements RjsComObject, Externalizable {
+		
+		
+		private double[] values;
+		
+		
+		public DataCom() {
+		}
+		
+		public DataCom(final double[] values) {
+			this.values = values;
+		}
+		
+		
+		@Override
+		public int getComType() {
+			return T_MAIN_LIST;
+		}
+		
+		@Override
+		public void writeExternal(final ObjectOutput out) throws IOException {
+			final RJIO io = RJIO.get(out);
+			io.writeInt(this.values.length);
+			io.writeDoubleData(this.values, this.values.length);
+			io.disconnect(out);
+		}
+		
+		@Override
+		public void readExternal(final ObjectInput in) throws IOException {
+			final RJIO io = RJIO.get(in);
+			final int length = io.readInt();
+			this.values = io.readDoubleData(new double[length], length);
+			io.disconnect(in);
+		}
+		
+	}
+	
+	private static class TestEngine implements ConsoleEngine {
+		
+		
+		final AtomicInteger mainLoopCalls = new AtomicInteger();
+		final AtomicInteger asyncCalls = new AtomicInteger();
+		
+		
+		@Override
+		public RjsComObject runMainLoop(final RjsComObject com) throws RemoteException {
+			this.mainLoopCalls.incrementAndGet();
+			return com;
+		}
+		
+		@Override
+		public RjsComObject runAsync(final RjsComObject com) throws RemoteException {
+			this.asyncCalls.incrementAndGet();
+			if (com instanceof DataCom) {
+				throw new RemoteException("Test failure."); //$NON-NLS-1$
+			}
+			return com;
+		}
+		
+		@Override
+		public Server getPublic() throws RemoteException {
+			return null;
+		}
+		
+		@Override
+		public Map<String, Object> getPlatformData() throws RemoteException {
+			return null;
+		}
+		
+		@Override
+		public void setProperties(final Map<String, ? extends Object> properties) throws RemoteException {
+		}
+		
+		@Override
+		public void disconnect() throws RemoteException {
+		}
+		
+		@Override
+		public boolean isClosed() throws RemoteException {
+			return false;
+		}
+		
+	}
+	
+	
+	private static double[] createValues(final int length) {
+		final Random random = new Random(length);
+		final double[] values = new double[length];
+		for (int i = 0; i < length; i++) {
+			values[i] = random.nextGaussian();
+		}
+		return values;
+	}
+	
+	private static long measureRoundTrips(final ConsoleEngine engine, final RjsComObject com,
+			final int count) throws RemoteException {
+		final long start = System.nanoTime();
+		for (int i = 0; i < count; i++) {
+			assertNotNull(engine.runMainLoop(com));
+		}
+		return (System.nanoTime() - start) / count;
+	}
+	
+	
+	private TestEngine engine;
+	private ConsoleEngine rmiRef;
+	
+	private SocketTransportServer server;
+	private SocketConsoleEngine socketRef;
+	
+	
+	@Before
+	public void startServer() throws Exception {
+		this.engine = new TestEngine();
+		this.rmiRef = (ConsoleEngine) UnicastRemoteObject.exportObject(this.engine, 0);
+		this.server = new SocketTransportServer(InetAddress.getLoopbackAddress(), 0,
+				InetAddress.getLoopbackAddress().getHostAddress() );
+		this.socketRef = (SocketConsoleEngine) this.server.createClientRef(this.engine, this.rmiRef);
+	}
+	
+	@After
+	public void stopServer() throws Exception {
+		this.socketRef.close();
+		this.server.close();
+		UnicastRemoteObject.unexportObject(this.engine, true);
+	}
+	
+	
+	@Test
+	public void exchange() throws RemoteException {
+		final double[] values = createValues(300000);
+		final DataCom answer = (DataCom) this.socketRef.runMainLoop(new DataCom(values));
+		assertArrayEquals(values, answer.values, 0.0);
+		assertEquals(1, this.engine.mainLoopCalls.get());
+		
+		assertTrue(this.socketRef.runAsync(RjsPing.INSTANCE) instanceof RjsPing);
+		assertEquals(1, this.engine.asyncCalls.get());
+		
+		// RMI reference gets the same data
+		final DataCom rmiAnswer = (DataCom) this.rmiRef.runMainLoop(new DataCom(values));
+		assertArrayEquals(values, rmiAnswer.values, 0.0);
+	}
+	
+	@Test
+	public void passServerException() throws RemoteException {
+		try {
+			this.socketRef.runAsync(new DataCom(new double[1]));
+			fail();
+		}
+		catch (final RemoteException e) {
+			assertEquals("Test failure.", e.getMessage());
+		}
+		// connection is still usable
+		assertTrue(this.socketRef.runAsync(RjsPing.INSTANCE) instanceof RjsPing);
+	}
+	
+	@Test
+	public void refuseInvalidKey() {
+		final SocketConsoleEngine invalidRef = new SocketConsoleEngine(this.rmiRef,
+				InetAddress.getLoopbackAddress().getHostAddress(), this.server.getPort(), "invalid" );
+		try {
+			invalidRef.runMainLoop(RjsPing.INSTANCE);
+			fail();
+		}
+		catch (final RemoteException e) {
+		}
+		assertEquals(0, this.engine.mainLoopCalls.get());
+	}
+	
+	@Test
+	public void refuseRemovedEngine() throws RemoteException {
+		assertTrue(this.socketRef.runMainLoop(RjsPing.INSTANCE) instanceof RjsPing);
+		this.server.remove(this.engine);
+		try {
+			this.socketRef.runMainLoop(RjsPing.INSTANCE);
+			fail();
+		}
+		catch (final RemoteException e) {
+		}
+		assertEquals(1, this.engine.mainLoopCalls.get());
+	}
+	
+	@Test
+	public void limitConnections() throws Exception {
+		final InetSocketAddress address = new InetSocketAddress(
+				InetAddress.getLoopbackAddress(), this.server.getPort() );
+		final List<Socket> sockets = new ArrayList<>();
+		try {
+			// connections without handshake occupy the handler threads
+			for (int i = 0; i < SocketTransportServer.MAX_CONNECTIONS; i++) {
+				final Socket socket = new Socket();
+				socket.connect(address, 5000);
+				sockets.add(socket);
+			}
+			// wait until the server accepted the connections
+			for (final Socket socket : sockets) {
+				socket.setSoTimeout(5000);
+				final InputStream in = socket.getInputStream();
+				// stream header of the server
+				for (int i = 0; i < 4; i++) {
+					assertTrue(in.read() >= 0);
+				}
+			}
+			
+			final Socket refused = new Socket();
+			sockets.add(refused);
+			refused.connect(address, 5000);
+			refused.setSoTimeout(5000);
+			assertEquals(-1, refused.getInputStream().read());
+		}
+		finally {
+			for (final Socket socket : sockets) {
+				socket.close();
+			}
+		}
+		
+		// threads are released
+		Thread.sleep(200);
+		assertTrue(this.socketRef.runMainLoop(RjsPing.INSTANCE) instanceof RjsPing);
+	}
+	
+	@Test
+	public void compareLatency() throws RemoteException {
+		final RjsComObject small = RjsPing.INSTANCE;
+		final RjsComObject large = new DataCom(createValues(200000));
+		// warm up
+		measureRoundTrips(this.rmiRef, small, 2000);
+		measureRoundTrips(this.socketRef, small, 2000);
+		measureRoundTrips(this.rmiRef, large, 20);
+		measureRoundTrips(this.socketRef, large, 20);
+		
+		final long rmiSmall = measureRoundTrips(this.rmiRef, small, 5000);
+		final long socketSmall = measureRoundTrips(this.socketRef, small, 5000);
+		final long rmiLarge = measureRoundTrips(this.rmiRef, large, 50);
+		final long socketLarge = measureRoundTrips(this.socketRef, large, 50);
+		System.out.println(String.format("runMainLoop round trip over loopback (mean): " +
+				"ping: RMI %1$d us, socket %2$d us; 1.6 MB data: RMI %3$d us, socket %4$d us",
+				rmiSmall / 1000, socketSmall / 1000, rmiLarge / 1000, socketLarge / 1000 ));
+	}
+	
+}
@@ -0,0 +1,415 @@
+/*=============================================================================#
+ # Copyright (c) 2016 Stephan Wahlbrink (WalWare.de) and others.
+ # All rights reserved. This program and the accompanying materials
+ # are made available under the terms of either (per the licensee's choosing)
+ #   - the Eclipse Public License v1.0
+ #     which accompanies this distribution, and is available at
+ #     http://www.eclipse.org/legal/epl-v10.html, or
+ #   - the GNU Lesser General Public License v2.1 or newer
+ #     which accompanies this distribution, and is available at
+ #     http://www.gnu.org/licenses/lgpl.html
+ # 
+ # Contributors:
+ #     Stephan Wahlbrink - initial API and implementation
+ #=============================================================================*/
+
+package de.walware.rj.server;
+
+import java.io.Externalizable;
+import java.io.File;
+import java.io.IOException;
+import java.io.ObjectInput;
+import java.io.ObjectOutput;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.NoSuchFileException;
+import java.nio.file.StandardOpenOption;
+import java.rmi.Remote;
+import java.util.zip.CRC32;
+
+import de.walware.rj.RjException;
+
+
+/**
+ * Communication exchange object for a chunk of a file.
+ * <p>
+ * In contrast to {@link BinExchange}, which transfers the complete file in one exchange, a
+ * file can be transferred by several chunks with offsets, each secured by a checksum (CRC-32).
+ * The chunks are independent, so they can be transferred in parallel and be repeated, for
+ * example to resume a transfer after a broken connection.</p>
+ * <p>
+ * The file operations are executed when the server reads the exchange object.</p>
+ */
+public class BinChunkExchange implements RjsComObject, Externalizable {
+	
+	
+	private static final long serialVersionUID = 7265180245366592211L;
+	
+	
+	/**
+	 * Returns the length of the file
+	 */
+	public static final byte OP_INFO =              1;
+	/**
+	 * Returns the checksum of the chunk of the file
+	 */
+	public static final byte OP_CHECKSUM =          2;
+	/**
+	 * Reads the chunk of the file
+	 */
+	public static final byte OP_READ =              3;
+	/**
+	 * Writes the chunk to the file, the file is created if required
+	 */
+	public static final byte OP_WRITE =             4;
+	/**
+	 * Truncates the file to the length specified as offset, the file is created if required
+	 */
+	public static final byte OP_TRUNCATE =          5;
+	
+	/**
+	 * Status code if the checksum of a chunk does not match
+	 */
+	public static final int CHECKSUM_ERROR =        0x11;
+	/**
+	 * Status code if the file does not exist
+	 */
+	public static final int FILE_NOT_FOUND_ERROR =  0x12;
+	
+	public static final int MAX_CHUNK_LENGTH =      0x4000000;
+	
+	private final static int C2S =                  0x00010000;
+	private final static int S2C =                  0x00020000;
+	
+	
+	/**
+	 * Computes the checksum for a chunk.
+	 * 
+	 * @return the CRC-32 checksum
+	 */
+	public static long computeChecksum(final byte[] bytes, final int offset, final int length) {
+		final CRC32 crc = new CRC32();
+		crc.update(bytes, offset, length);
+		return crc.getValue();
+	}
+	
+	
+	private int direction;
+	private byte op;
+	private Remote ref;
+	
+	private String remoteFilePath;
+	private RjsStatus status;
+	
+	private long offset;
+	private int length;
+	private byte[] bytes;
+	private long checksum = -1;
+	private long fileLength = -1;
+	
+	
+	/**
+	 * Constructor for clients to request an operation without data.
+	 * 
+	 * @param op the operation, one of <code>OP_</code> constants
+	 * @param path remote file path
+	 * @param offset the offset of the chunk in the file
+	 * @param length the length of the chunk
+	 */
+	public BinChunkExchange(final byte op, final String path, final Remote ref,
+			final long offset, final int length) {
+		if (path == null || ref == null) {
+			throw new NullPointerException();
+		}
+		if (path.length() == 0) {
+			throw new IllegalArgumentException("Illegal path argument.");
+		}
+		if (offset < 0 || length < 0 || length > MAX_CHUNK_LENGTH) {
+			throw new IllegalArgumentException("Illegal chunk: offset= " + offset + ", length= " + length + ".");
+		}
+		
+		this.direction = C2S;
+		this.op = op;
+		this.ref = ref;
+		this.remoteFilePath = path;
+		this.offset = offset;
+		this.length = length;
+	}
+	
+	/**
+	 * Constructor for clients to write a chunk ({@link #OP_WRITE}).
+	 * 
+	 * @param path remote file path
+	 * @param offset the offset of the chunk in the file
+	 * @param bytes the content of the chunk
+	 * @param length the length of the chunk
+	 */
+	public BinChunkExchange(final String path, final Remote ref,
+			final long offset, final byte[] bytes, final int length) {
+		this(OP_WRITE, path, ref, offset, length);
+		if (bytes == null) {
+			throw new NullPointerException();
+		}
+		this.bytes = bytes;
+		this.checksum = computeChecksum(bytes, 0, length);
+	}
+	
+	/**
+	 * Constructor for automatic deserialization
+	 */
+	public BinChunkExchange() {
+	}
+	
+	
+	@Override
+	public int getComType() {
+		return T_FILE_EXCHANGE;
+	}
+	
+	public boolean isOK() {
+		return (this.status == null || this.status.getSeverity() == RjsStatus.OK);
+	}
+	
+	public RjsStatus getStatus() {
+		return this.status;
+	}
+	
+	public String getFilePath() {
+		return this.remoteFilePath;
+	}
+	
+	public long getOffset() {
+		return this.offset;
+	}
+	
+	/**
+	 * Returns the length of the chunk; for {@link #OP_READ} the length of the data read.
+	 */
+	public int getLength() {
+		return this.length;
+	}
+	
+	/**
+	 * Returns the data read by {@link #OP_READ}.
+	 */
+	public byte[] getBytes() {
+		return this.bytes;
+	}
+	
+	/**
+	 * Returns the checksum of the chunk, or <code>-1</code> if the file doesn't contain the
+	 * complete chunk ({@link #OP_CHECKSUM}).
+	 */
+	public long getChecksum() {
+		return this.checksum;
+	}
+	
+	/**
+	 * Returns the length of the file.
+	 */
+	public long getFileLength() {
+		return this.fileLength;
+	}
+	
+	
+	@Override
+	public void readExternal(final ObjectInput in) throws IOException, ClassNotFoundException {
+		final int readDirection = in.readInt();
+		this.op = in.readByte();
+		this.remoteFilePath = in.readUTF();
+		
+		switch (readDirection) {
+		
+		case C2S: {
+			this.ref = (Remote) in.readObject();
+			this.offset = in.readLong();
+			this.length = in.readInt();
+			if (this.offset < 0 || this.length < 0 || this.length > MAX_CHUNK_LENGTH) {
+				throw new IOException("Illegal chunk.");
+			}
+			if (this.op == OP_WRITE) {
+				this.checksum = in.readLong();
+				this.bytes = new byte[this.length];
+				in.readFully(this.bytes);
+			}
+			this.direction = S2C;
+			try {
+				final File file = (BinExchange.gSPathResolver != null) ? BinExchange.gSPathResolver.resolve(this.ref, this.remoteFilePath) : new File(this.remoteFilePath);
+				this.status = execute(file);
+			}
+			catch (final RjException e) {
+				this.status = new RjsStatus(RjsStatus.ERROR, 0, e.getMessage());
+			}
+			catch (final NoSuchFileException e) {
+				this.status = new RjsStatus(RjsStatus.ERROR, FILE_NOT_FOUND_ERROR,
+						"Failed to find file '" + this.remoteFilePath + "'.");
+			}
+			catch (final IOException e) {
+				this.status = new RjsStatus(RjsStatus.ERROR, 0,
+						"Failed to access file '" + this.remoteFilePath + "': " + e.getMessage());
+			}
+			if (this.op != OP_READ || this.status.getSeverity() != RjsStatus.OK) {
+				this.bytes = null;
+			}
+			return; }
+		
+		case S2C: {
+			this.status = new RjsStatus(in);
+			this.direction = 0;
+			if (this.status.getSeverity() == RjsStatus.OK) {
+				this.offset = in.readLong();
+				this.fileLength = in.readLong();
+				this.checksum = in.readLong();
+				if (this.op == OP_READ) {
+					this.length = in.readInt();
+					if (this.length < 0 || this.length > MAX_CHUNK_LENGTH) {
+						throw new IOException("Illegal chunk.");
+					}
+					this.bytes = new byte[this.length];
+					in.readFully(this.bytes);
+					if (computeChecksum(this.bytes, 0, this.length) != this.checksum) {
+						this.status = new RjsStatus(RjsStatus.ERROR, CHECKSUM_ERROR,
+								"Checksum of chunk does not match.");
+						this.bytes = null;
+					}
+				}
+			}
+			return; }
+		
+		default:
+			throw new IllegalStateException();
+		}
+	}
+	
+	private RjsStatus execute(final File file) throws IOException {
+		switch (this.op) {
+		
+		case OP_INFO:
+			if (!file.exists()) {
+				throw new NoSuchFileException(file.getPath());
+			}
+			this.fileLength = file.length();
+			return RjsStatus.OK_STATUS;
+		
+		case OP_CHECKSUM:
+			try (final FileChannel channel = FileChannel.open(file.toPath(), StandardOpenOption.READ)) {
+				this.fileLength = channel.size();
+				if (this.offset + this.length > this.fileLength) {
+					this.checksum = -1;
+					return RjsStatus.OK_STATUS;
+				}
+				final byte[] bytes = new byte[this.length];
+				readFully(channel, bytes, this.length);
+				this.checksum = computeChecksum(bytes, 0, this.length);
+				return RjsStatus.OK_STATUS;
+			}
+		
+		case OP_READ:
+			try (final FileChannel channel = FileChannel.open(file.toPath(), StandardOpenOption.READ)) {
+				this.fileLength = channel.size();
+				if (this.offset > this.fileLength) {
+					return new RjsStatus(RjsStatus.ERROR, 0, "Illegal offset of chunk.");
+				}
+				this.length = (int) Math.min(this.length, this.fileLength - this.offset);
+				this.bytes = new byte[this.length];
+				readFully(channel, this.bytes, this.length);
+				this.checksum = computeChecksum(this.bytes, 0, this.length);
+				return RjsStatus.OK_STATUS;
+			}
+		
+		case OP_WRITE:
+			if (computeChecksum(this.bytes, 0, this.length) != this.checksum) {
+				return new RjsStatus(RjsStatus.ERROR, CHECKSUM_ERROR, "Checksum of chunk does not match.");
+			}
+			try (final FileChannel channel = FileChannel.open(file.toPath(),
+					StandardOpenOption.WRITE, StandardOpenOption.CREATE )) {
+				final ByteBuffer buffer = ByteBuffer.wrap(this.bytes, 0, this.length);
+				long position = this.offset;
+				while (buffer.hasRemaining()) {
+					position += channel.write(buffer, position);
+				}
+				this.fileLength = channel.size();
+				return RjsStatus.OK_STATUS;
+			}
+		
+		case OP_TRUNCATE:
+			try (final FileChannel channel = FileChannel.open(file.toPath(),
+					StandardOpenOption.WRITE, StandardOpenOption.CREATE )) {
+				if (channel.size() > this.offset) {
+					channel.truncate(this.offset);
+				}
+				this.fileLength = channel.size();
+				return RjsStatus.OK_STATUS;
+			}
+		
+		default:
+			return new RjsStatus(RjsStatus.ERROR, 0, "Unsupported operation: " + this.op + ".");
+		}
+	}
+	
+	private void readFully(final FileChannel channel, final byte[] bytes, final int length) throws IOException {
+		final ByteBuffer buffer = ByteBuffer.wrap(bytes, 0, length);
+		long position = this.offset;
+		while (buffer.hasRemaining()) {
+			final int n = channel.read(buffer, position);
+			if (n == -1) {
+				throw new IOException("Unexcepted end of file content.");
+			}
+			position += n;
+		}
+	}
+	
+	@Override
+	public void writeExternal(final ObjectOutput out) throws IOException {
+		out.writeInt(this.direction);
+		out.writeByte(this.op);
+		out.writeUTF(this.remoteFilePath);
+		
+		switch (this.direction) {
+		
+		case C2S: {
+			out.writeObject(this.ref);
+			out.writeLong(this.offset);
+			out.writeInt(this.length);
+			if (this.op == OP_WRITE) {
+				out.writeLong(this.checksum);
+				out.write(this.bytes, 0, this.length);
+			}
+			return; }
+		
+		case S2C: {
+			this.status.writeExternal(out);
+			if (this.status.getSeverity() == RjsStatus.OK) {
+				out.writeLong(this.offset);
+				out.writeLong(this.fileLength);
+				out.writeLong(this.checksum);
+				if (this.op == OP_READ) {
+					out.writeInt(this.length);
+					out.write(this.bytes, 0, this.length);
+				}
+			}
+			return; }
+		
+		default:
+			throw new IllegalStateException();
+		}
+	}
+	
+	
+	@Override
+	public String toString() {
+		final StringBuilder sb = new StringBuilder(128);
+		sb.append("BinChunkExchange ");
+		sb.append("op= ").append(this.op);
+		sb.append("\n\tpath= ").append(this.remoteFilePath);
+		sb.append("\n\toffset= ").append(this.offset);
+		sb.append("\n\tlength= ").append(this.length);
+		if (this.status != null) {
+			sb.append("\n<STATUS>\n");
+			sb.append(this.status.toString());
+			sb.append("\n</STATUS>");
+		}
+		return sb.toString();
+	}
+	
+}
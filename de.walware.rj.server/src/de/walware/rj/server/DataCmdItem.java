@@ -101,8 +101,38 @@ public final class DataCmdItem extends MainCmdItem {
 	public static final Operation EVAL_NAMESPACE_EXPORTS_DATA= new Operation("EVAL_NAMESPACE_EXPORTS_DATA", EVAL_NAMESPACE_EXPORTS_DATA_OP, //$NON-NLS-1$
 			Operation.EXPR, Operation.NONE, false);
 	
+	/**
+	 * Operation returning the bindings of the environment (rho) changed since the snapshot
+	 * specified by its version (source expression, <code>0</code> for none).
+	 * <p>
+	 * The answer contains the environment with the changed and added bindings as data, the
+	 * version of the new snapshot as text and, if it is based on the specified snapshot, a list
+	 * with the names of the removed bindings as rho. If the answer is not based on the
+	 * snapshot, the environment contains all bindings.</p>
+	 * <p>
+	 * To detect the changes, the server still creates and serializes the R objects of all
+	 * bindings of the environment; only the size of the answer is reduced.</p>
+	 */
+	public static final int EVAL_ENVIR_DIFF_DATA_OP= 11;
+	public static final Operation EVAL_ENVIR_DIFF_DATA= new Operation("EVAL_ENVIR_DIFF_DATA", EVAL_ENVIR_DIFF_DATA_OP, //$NON-NLS-1$
+			Operation.EXPR, Operation.NONE, true);
+	
+	/**
+	 * Operation releasing references pinned at the server for lazy loading
+	 * ({@link de.walware.rj.data.RObjectFactory#F_LAZY_REF}).
+	 * <p>
+	 * The handles of the references pinned by a data operation with this flag are returned
+	 * as text of its answer, separated by comma.</p>
+	 * <p>
+	 * The source expression contains the handles of the references separated by comma; an
+	 * empty expression releases all pinned references.</p>
+	 */
+	public static final int RELEASE_DATA_OP= 12;
+	public static final Operation RELEASE_DATA= new Operation("RELEASE_DATA", RELEASE_DATA_OP, //$NON-NLS-1$
+			Operation.POINTER, Operation.NONE, false);
+	
 	
-	private static final Operation[] OPERATIONS= new Operation[11];
+	private static final Operation[] OPERATIONS= new Operation[13];
 	
 	private static final void addOp(final Operation operation) {
 		if (OPERATIONS[operation.op] != null) {
@@ -129,9 +159,12 @@ public final class DataCmdItem extends MainCmdItem {
 		addOp(FIND_DATA);
 		addOp(EVAL_NAMESPACE_DATA);
 		addOp(EVAL_NAMESPACE_EXPORTS_DATA);
+		addOp(EVAL_ENVIR_DIFF_DATA);
+		addOp(RELEASE_DATA);
 	}
 	
 	
+	private static final int OV_WITHTEXT=                  0x01000000;
 	private static final int OV_WITHDATA=                  0x02000000;
 	private static final int OV_WITHRHO=                   0x04000000;
 	private static final int OV_WITHSTATUS=                0x08000000;
@@ -260,6 +293,9 @@ public final class DataCmdItem extends MainCmdItem {
 				in.flags= RObjectFactory.F_ONLY_STRUCT;
 				this.rho= getFactory(this.factoryId).readObject(in);
 			}
+			if ((this.options & OV_WITHTEXT) != 0) {
+				this.sourceExpr= in.readString();
+			}
 		}
 	}
 	
@@ -299,6 +335,9 @@ public final class DataCmdItem extends MainCmdItem {
 				out.flags= RObjectFactory.F_ONLY_STRUCT;
 				gDefaultFactory.writeObject(this.rho, out);
 			}
+			if ((this.options & OV_WITHTEXT) != 0) {
+				out.writeString(this.sourceExpr);
+			}
 		}
 	}
 	
@@ -345,6 +384,14 @@ public final class DataCmdItem extends MainCmdItem {
 		this.rho= rho;
 	}
 	
+	public void setAnswer(final RObject rdata, final RObject rho, final String text) {
+		setAnswer(rdata, rho);
+		if (text != null) {
+			this.options |= OV_WITHTEXT;
+			this.sourceExpr= text;
+		}
+	}
+	
 	
 	@Override
 	public byte getOp() {
@@ -44,6 +44,11 @@ public abstract class GDCmdItem extends MainCmdItem {
 	
 	public static final byte CAPTURE =                      0x1c;
 	
+	/**
+	 * Command with a sequence of set and draw commands, see {@link DisplayList}.
+	 */
+	public static final byte DISPLAY_LIST =                 0x1e;
+	
 	public static final byte C_NEW_PAGE =                   0x21;
 	public static final byte C_CLOSE_DEVICE =               0x22;
 	public static final byte C_GET_SIZE =                   0x23;
@@ -52,12 +57,169 @@ public abstract class GDCmdItem extends MainCmdItem {
 	public static final byte C_SET_MODE =                   0x26;
 	public static final byte C_GET_FONTMETRIC =             0x27;
 	public static final byte C_GET_STRINGWIDTH =            0x28;
+	/**
+	 * Command requesting the font metrics of several characters, the answer contains three values
+	 * (ascent, descent and width) for each character or <code>NaN</code> if not available.
+	 */
+	public static final byte C_GET_FONTMETRIC_TABLE =       0x29;
 	
 	public static final byte U_LOCATOR =                    0x31;
 	
+	/**
+	 * Flag for the draw commands {@link #DRAW_POLYLINE}, {@link #DRAW_POLYGON} and
+	 * {@link #DRAW_PATH} indicating that the coordinates are written by
+	 * {@link #writeCompactCoords(double[], double[], RJIO)}.
+	 */
+	public static final byte GEOMETRY_COMPACT =             0x40;
+	
 	
 	private static final double[] NO_DATA = new double[0];
 	
+	private static final byte COORDS_DOUBLE =               0x00;
+	private static final byte COORDS_FIXED_DELTA =          0x01;
+	
+	/** Scale of the fixed-point values (1/64 device unit) */
+	private static final double FIXED_SCALE = 64.0;
+	private static final double FIXED_MAX = (1L << 52);
+	
+	
+	/**
+	 * Writes the coordinates in the compact encoding.
+	 * <p>
+	 * The coordinates are quantized to fixed-point values with a precision of 1/64 device unit;
+	 * the differences to the previous point are written as zigzag encoded variable length
+	 * integers. If a coordinate is not finite or out of range, the coordinates are written as
+	 * doubles.</p>
+	 * 
+	 * @param x the x coordinates
+	 * @param y the y coordinates
+	 * @param io the output
+	 */
+	public static void writeCompactCoords(final double[] x, final double[] y,
+			final RJIO io) throws IOException {
+		final int length = x.length;
+		io.writeInt(length);
+		final byte[] data = encodeFixedDelta(x, y, length);
+		if (data != null) {
+			io.writeByte(COORDS_FIXED_DELTA);
+			io.writeInt(data.length);
+			io.writeByteData(data, data.length);
+		}
+		else {
+			io.writeByte(COORDS_DOUBLE);
+			io.writeDoubleData(x, length);
+			io.writeDoubleData(y, length);
+		}
+	}
+	
+	/**
+	 * Reads coordinates written by {@link #writeCompactCoords(double[], double[], RJIO)}.
+	 * 
+	 * @param io the input
+	 * @return an array with the x and the y coordinates
+	 */
+	public static double[][] readCompactCoords(final RJIO io) throws IOException {
+		final int length = io.readInt();
+		final double[] x = new double[length];
+		final double[] y = new double[length];
+		switch (io.readByte()) {
+		case COORDS_FIXED_DELTA:
+			decodeFixedDelta(io.readByteArray(), x, y, length);
+			break;
+		case COORDS_DOUBLE:
+			io.readDoubleData(x, length);
+			io.readDoubleData(y, length);
+			break;
+		default:
+			throw new IOException("Unsupported coordinate encoding.");
+		}
+		return new double[][] { x, y };
+	}
+	
+	private static byte[] encodeFixedDelta(final double[] x, final double[] y, final int length) {
+		int size = 0;
+		long prevX = 0;
+		long prevY = 0;
+		for (int i = 0; i < length; i++) {
+			final double vx = x[i] * FIXED_SCALE;
+			final double vy = y[i] * FIXED_SCALE;
+			if (!(Math.abs(vx) <= FIXED_MAX && Math.abs(vy) <= FIXED_MAX)) { // incl. NaN
+				return null;
+			}
+			final long qx = Math.round(vx);
+			final long qy = Math.round(vy);
+			size += getVarLongSize(qx - prevX) + getVarLongSize(qy - prevY);
+			prevX = qx;
+			prevY = qy;
+		}
+		final byte[] data = new byte[size];
+		int pos = 0;
+		prevX = 0;
+		prevY = 0;
+		for (int i = 0; i < length; i++) {
+			final long qx = Math.round(x[i] * FIXED_SCALE);
+			final long qy = Math.round(y[i] * FIXED_SCALE);
+			pos = putVarLong(data, pos, qx - prevX);
+			pos = putVarLong(data, pos, qy - prevY);
+			prevX = qx;
+			prevY = qy;
+		}
+		return data;
+	}
+	
+	private static void decodeFixedDelta(final byte[] data,
+			final double[] x, final double[] y, final int length) throws IOException {
+		int pos = 0;
+		long prevX = 0;
+		long prevY = 0;
+		try {
+			for (int i = 0; i < length; i++) {
+				long value = 0;
+				int shift = 0;
+				byte b;
+				do {
+					b = data[pos++];
+					value |= (long) (b & 0x7f) << shift;
+					shift += 7;
+				} while (b < 0);
+				prevX += (value >>> 1) ^ -(value & 1);
+				x[i] = prevX / FIXED_SCALE;
+				
+				value = 0;
+				shift = 0;
+				do {
+					b = data[pos++];
+					value |= (long) (b & 0x7f) << shift;
+					shift += 7;
+				} while (b < 0);
+				prevY += (value >>> 1) ^ -(value & 1);
+				y[i] = prevY / FIXED_SCALE;
+			}
+		}
+		catch (final ArrayIndexOutOfBoundsException e) {
+			throw new IOException("Invalid coordinate data.");
+		}
+	}
+	
+	private static int getVarLongSize(final long delta) {
+		long value = (delta << 1) ^ (delta >> 63);
+		int size = 1;
+		while ((value >>>= 7) != 0) {
+			size++;
+		}
+		return size;
+	}
+	
+	private static int putVarLong(final byte[] data, int pos, final long delta) {
+		long value = (delta << 1) ^ (delta >> 63);
+		while ((value & ~0x7fL) != 0) {
+			data[pos++] = (byte) ((value & 0x7f) | 0x80);
+			value >>>= 7;
+		}
+		data[pos++] = (byte) value;
+		return pos;
+	}
+	
 	
 	public static final class Answer extends GDCmdItem {
 		
@@ -483,6 +645,52 @@ public abstract class GDCmdItem extends MainCmdItem {
 		
 	}
 	
+	public static final class CGetFontMetricTable extends GDCmdItem {
+		
+		
+		private final int[] c;
+		
+		
+		public CGetFontMetricTable(final int devId, final int[] c, final byte slot) {
+			this.options = OV_WAITFORCLIENT;
+			this.devId = devId;
+			this.c = c;
+			
+			this.slot = slot;
+		}
+		
+		@Override
+		public void writeExternal(final RJIO io) throws IOException {
+			io.writeInt((OV_WAITFORCLIENT | this.devId));
+			io.writeByte(C_GET_FONTMETRIC_TABLE);
+			io.writeByte(this.requestId);
+			io.writeIntArray(this.c, this.c.length);
+		}
+		
+		
+		@Override
+		public void setAnswer(final RjsStatus status) {
+			this.options = (this.options & OM_CLEARFORANSWER) | (status.getSeverity() << OS_STATUS);
+		}
+		
+		
+		@Override
+		public String toString() {
+			final StringBuffer sb = new StringBuffer();
+			sb.append("GDCmdItem (options=0x");
+			sb.append(Integer.toHexString(this.options));
+			sb.append(", device=");
+			sb.append(this.devId);
+			sb.append(", commandId=");
+			sb.append(C_GET_FONTMETRIC_TABLE);
+			sb.append(")\n<GD-DATA>\n");
+			sb.append(Arrays.toString(this.c));
+			sb.append("\n</GD-DATA>");
+			return sb.toString();
+		}
+		
+	}
+	
 	public static final class CGetStrWidth extends GDCmdItem {
 		
 		
@@ -854,14 +1062,21 @@ public abstract class GDCmdItem extends MainCmdItem {
 		
 		private final double x[];
 		private final double y[];
+		private final boolean compact;
 		
 		
 		public DrawPolyline(final int devId, final double x[], final double y[],
 				final byte slot) {
+			this(devId, x, y, false, slot);
+		}
+		
+		public DrawPolyline(final int devId, final double x[], final double y[],
+				final boolean compact, final byte slot) {
 			this.options = 0;
 			this.devId = devId;
 			this.x = x;
 			this.y = y;
+			this.compact = compact;
 			
 			this.slot = slot;
 		}
@@ -869,6 +1084,11 @@ public abstract class GDCmdItem extends MainCmdItem {
 		@Override
 		public void writeExternal(final RJIO io) throws IOException {
 			io.writeInt(this.devId);
+			if (this.compact) {
+				io.writeByte(DRAW_POLYLINE | GEOMETRY_COMPACT);
+				writeCompactCoords(this.x, this.y, io);
+				return;
+			}
 			io.writeByte(DRAW_POLYLINE);
 			final int length = this.x.length;
 			io.writeInt(length);
@@ -898,14 +1118,21 @@ public abstract class GDCmdItem extends MainCmdItem {
 		
 		private final double x[];
 		private final double y[];
+		private final boolean compact;
 		
 		
 		public DrawPolygon(final int devId, final double x[], final double y[],
 				final byte slot) {
+			this(devId, x, y, false, slot);
+		}
+		
+		public DrawPolygon(final int devId, final double x[], final double y[],
+				final boolean compact, final byte slot) {
 			this.options = 0;
 			this.devId = devId;
 			this.x = x;
 			this.y = y;
+			this.compact = compact;
 			
 			this.slot = slot;
 		}
@@ -913,6 +1140,11 @@ public abstract class GDCmdItem extends MainCmdItem {
 		@Override
 		public void writeExternal(final RJIO io) throws IOException {
 			io.writeInt(this.devId);
+			if (this.compact) {
+				io.writeByte(DRAW_POLYGON | GEOMETRY_COMPACT);
+				writeCompactCoords(this.x, this.y, io);
+				return;
+			}
 			io.writeByte(DRAW_POLYGON);
 			final int length = this.x.length;
 			io.writeInt(length);
@@ -944,16 +1176,23 @@ public abstract class GDCmdItem extends MainCmdItem {
 		private final double x[];
 		private final double y[];
 		private final int mode;
+		private final boolean compact;
 		
 		
 		public DrawPath(final int devId, final int[] n, final double x[], final double y[],
 				final int mode, final byte slot) {
+			this(devId, n, x, y, mode, false, slot);
+		}
+		
+		public DrawPath(final int devId, final int[] n, final double x[], final double y[],
+				final int mode, final boolean compact, final byte slot) {
 			this.options = 0;
 			this.devId = devId;
 			this.n = n;
 			this.x = x;
 			this.y = y;
 			this.mode = mode;
+			this.compact = compact;
 			
 			this.slot = slot;
 		}
@@ -961,6 +1200,13 @@ public abstract class GDCmdItem extends MainCmdItem {
 		@Override
 		public void writeExternal(final RJIO io) throws IOException {
 			io.writeInt(this.devId);
+			if (this.compact) {
+				io.writeByte(DRAW_PATH | GEOMETRY_COMPACT);
+				io.writeIntArray(this.n, this.n.length);
+				writeCompactCoords(this.x, this.y, io);
+				io.writeInt(this.mode);
+				return;
+			}
 			io.writeByte(DRAW_PATH);
 			io.writeIntArray(this.n, this.n.length);
 			final int length = this.x.length;
@@ -1152,6 +1398,64 @@ public abstract class GDCmdItem extends MainCmdItem {
 		
 	}
 	
+	/**
+	 * Sequence of set and draw commands of a device sent as one command.
+	 * <p>
+	 * The data contains the commands without device id, each command starts with its type
+	 * byte followed by the same data as the single command. The data is written by an
+	 * {@link java.io.ObjectOutputStream}.</p>
+	 */
+	public static final class DisplayList extends GDCmdItem {
+		
+		
+		private final int count;
+		private final byte[] data;
+		private final int length;
+		
+		
+		public DisplayList(final int devId,
+				final int count, final byte[] data, final int length,
+				final byte slot) {
+			this.options = 0;
+			this.devId = devId;
+			
+			this.count = count;
+			this.data = data;
+			this.length = length;
+			
+			this.slot = slot;
+		}
+		
+		@Override
+		public void writeExternal(final RJIO io) throws IOException {
+			io.writeInt(this.devId);
+			io.writeByte(DISPLAY_LIST);
+			io.writeInt(this.count);
+			io.writeInt(this.length);
+			io.writeByteData(this.data, this.length);
+		}
+		
+		
+		@Override
+		public String toString() {
+			final StringBuffer sb = new StringBuffer();
+			sb.append("GDCmdItem (options=0x");
+			sb.append(Integer.toHexString(this.options));
+			sb.append(", device=");
+			sb.append(this.devId);
+			sb.append(", commandId=");
+			sb.append(DISPLAY_LIST);
+			sb.append(")\n<GD-DATA>\n");
+			sb.append("count= ");
+			sb.append(this.count);
+			sb.append(", length= ");
+			sb.append(this.length);
+			sb.append("\n</GD-DATA>");
+			return sb.toString();
+		}
+		
+	}
+	
 	public static final class Capture extends GDCmdItem {
 		
 		
@@ -21,6 +21,7 @@ import java.io.ObjectInput;
 import java.io.ObjectOutput;
 
 import de.walware.rj.data.RJIO;
+import de.walware.rj.server.srvImpl.ServerMetrics;
 
 
 /**
@@ -73,6 +74,19 @@ public final class MainCmdC2SList implements RjsComObject, Externalizable {
 	
 	@Override
 	public void readExternal(final ObjectInput in) throws IOException, ClassNotFoundException {
+		// server side only
+		final ServerMetrics metrics = ServerMetrics.getDefault();
+		if (metrics.isEnabled()) {
+			final long start = System.nanoTime();
+			readItems(in);
+			metrics.recordRead(System.nanoTime() - start);
+		}
+		else {
+			readItems(in);
+		}
+	}
+	
+	private void readItems(final ObjectInput in) throws IOException, ClassNotFoundException {
 		final RJIO io = RJIO.get(in);
 		final int check = io.readCheck1();
 		
@@ -90,6 +90,12 @@ public abstract class MainCmdItem implements RJIOExternalizable {
 	
 	protected static final int OM_WITH =                    0x0f000000;
 	
+	/**
+	 * Flag of items of a batch, indicating that the next item belongs to the same batch
+	 */
+	public static final int OV_BATCHNEXT =                  0x10000000;
+	protected static final int OM_BATCHNEXT =               OV_BATCHNEXT;
+	
 	public static final int OV_ANSWER =                     0x40000000;
 	protected static final int OM_ANSWER =                  OV_ANSWER;
 	public static final int OV_WAITFORCLIENT =              0x80000000;
@@ -108,6 +114,11 @@ public abstract class MainCmdItem implements RJIOExternalizable {
 	public int requestId;
 	public byte slot;
 	
+	/**
+	 * Inside server only: time ({@link System#nanoTime()}) the item was queued
+	 */
+	public long queuedNanos;
+	
 	
 	public abstract byte getCmdType();
 	
@@ -117,6 +128,19 @@ public abstract class MainCmdItem implements RJIOExternalizable {
 		return ((this.options & OM_WAITFORCLIENT) != 0);
 	}
 	
+	public final boolean hasBatchNext() {
+		return ((this.options & OM_BATCHNEXT) != 0);
+	}
+	
+	/**
+	 * Marks the item as item of a batch, followed by the next item of the batch.
+	 * <p>
+	 * The server tries to send the answers of all items of a batch together.</p>
+	 */
+	public final void setBatchNext() {
+		this.options |= OV_BATCHNEXT;
+	}
+	
 	public final boolean isAnswer() {
 		return ((this.options & OM_ANSWER) != 0);
 	}
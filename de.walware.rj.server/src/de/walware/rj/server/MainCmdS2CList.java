@@ -21,6 +21,7 @@ import java.io.ObjectInput;
 import java.io.ObjectOutput;
 
 import de.walware.rj.data.RJIO;
+import de.walware.rj.server.srvImpl.ServerMetrics;
 
 
 /**
@@ -31,9 +32,15 @@ public final class MainCmdS2CList implements RjsComObject, Externalizable {
 	
 	static final AutoIdMap<ComHandler> gComHandlers = new AutoIdMap<>();
 	
+	public static final int DEFAULT_DATA_COMPRESSION_MIN_LENGTH = 4096;
+	
 	
 	private int id;
 	
+	private byte dataCompression;
+	private int dataCompressionMinLength;
+	private boolean stringDictEncoding;
+	
 	private boolean isBusy;
 	
 	private MainCmdItem first;
@@ -54,11 +61,30 @@ public final class MainCmdS2CList implements RjsComObject, Externalizable {
 	
 	@Override
 	public void writeExternal(final ObjectOutput out) throws IOException {
+		// server side only
+		final ServerMetrics metrics = ServerMetrics.getDefault();
+		if (metrics.isEnabled()) {
+			final long start = System.nanoTime();
+			writeItems(out);
+			metrics.recordWrite(System.nanoTime() - start);
+		}
+		else {
+			writeItems(out);
+		}
+	}
+	
+	private void writeItems(final ObjectOutput out) throws IOException {
 		out.writeShort(this.id);
 		
 		out.writeBoolean(this.isBusy);
 		
 		final RJIO io = RJIO.get(out);
+		if (this.dataCompression != RJIO.COMPRESSION_NONE) {
+			io.setCompression(this.dataCompression, this.dataCompressionMinLength);
+		}
+		if (this.stringDictEncoding) {
+			io.setStringDictEncoding(true);
+		}
 		final int check = io.writeCheck1();
 		
 		MainCmdItem item = this.first;
@@ -182,6 +208,26 @@ public final class MainCmdS2CList implements RjsComObject, Externalizable {
 		this.id = (short) id;
 	}
 	
+	/**
+	 * Sets the compression of large data stores (server side only).
+	 * 
+	 * @param codec the codec, one of the <code>RJIO.COMPRESSION_</code> constants
+	 * @param minLength the minimal length of data stores to compress
+	 */
+	public void setDataCompression(final byte codec, final int minLength) {
+		this.dataCompression = codec;
+		this.dataCompressionMinLength = minLength;
+	}
+	
+	/**
+	 * Sets if large string data stores are sent dictionary encoded (server side only).
+	 * 
+	 * @param enabled <code>true</code> if supported by the client
+	 */
+	public void setStringDictEncoding(final boolean enabled) {
+		this.stringDictEncoding = enabled;
+	}
+	
 	public void setBusy(final boolean isBusy) {
 		this.isBusy = isBusy;
 	}
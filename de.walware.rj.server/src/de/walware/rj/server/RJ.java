@@ -118,4 +118,15 @@ public class RJ {
 		throw new UnsupportedOperationException();
 	}
 	
+	/**
+	 * Requests to flush the display lists of the graphics after the specified delay.
+	 * <p>
+	 * The lists are flushed in the R thread by {@link RjsGraphicManager#flushDisplayLists()}
+	 * as soon as possible after the delay.</p>
+	 * 
+	 * @param delayMillis the delay in milliseconds
+	 */
+	public void scheduleFlushDisplayLists(final long delayMillis) {
+	}
+	
 }
@@ -42,6 +42,52 @@ public class RjsComConfig {
 	public static final String RJ_DATA_STRUCTS_LISTS_MAX_LENGTH_PROPERTY_ID = "rj.data.structs.lists.max_length";
 	public static final String RJ_DATA_STRUCTS_ENVS_MAX_LENGTH_PROPERTY_ID = "rj.data.structs.envs.max_length";
 	
+	/**
+	 * Property to request the compression of large data stores sent from server to client.
+	 * Value: the codec, {@link #RJ_COM_DATA_COMPRESSION_DEFLATE} or {@link #RJ_COM_DATA_COMPRESSION_NONE}
+	 */
+	public static final String RJ_COM_DATA_COMPRESSION_PROPERTY_ID = "rj.com.data.compression";
+	/**
+	 * Property for the minimal length (number of elements) of data stores to compress.
+	 * Value: Integer
+	 */
+	public static final String RJ_COM_DATA_COMPRESSION_MIN_LENGTH_PROPERTY_ID = "rj.com.data.compression.min_length";
+	
+	public static final String RJ_COM_DATA_COMPRESSION_NONE = "none";
+	public static final String RJ_COM_DATA_COMPRESSION_DEFLATE = "deflate";
+	
+	/**
+	 * Property to signal that the client supports dictionary encoded string data sent from
+	 * server to client.
+	 * Value: Boolean
+	 */
+	public static final String RJ_COM_DATA_STRING_DICT_PROPERTY_ID = "rj.com.data.string_dict";
+	
+	/**
+	 * Property for the encoding of the coordinates of polylines, polygons and paths sent from
+	 * server to client.
+	 * Value: the encoding, {@link #RJ_GD_GEOMETRY_COMPACT} (default) or {@link #RJ_GD_GEOMETRY_DOUBLE}
+	 */
+	public static final String RJ_GD_GEOMETRY_ENCODING_PROPERTY_ID = "rj.gd.geometry.encoding";
+	
+	public static final String RJ_GD_GEOMETRY_DOUBLE = "double";
+	/** Fixed-point deltas with sub-pixel precision, see {@link GDCmdItem#GEOMETRY_COMPACT} */
+	public static final String RJ_GD_GEOMETRY_COMPACT = "compact";
+	
+	/**
+	 * Property to request that the set and draw commands of a graphic are sent in display
+	 * lists, see {@link GDCmdItem#DISPLAY_LIST}.
+	 * Value: Boolean
+	 */
+	public static final String RJ_GD_DISPLAY_LIST_PROPERTY_ID = "rj.gd.display_list";
+	
+	/**
+	 * Property to signal that the client supports loading the font metrics of common characters
+	 * at once, see {@link GDCmdItem#C_GET_FONTMETRIC_TABLE}.
+	 * Value: Boolean
+	 */
+	public static final String RJ_GD_FONT_METRIC_TABLE_PROPERTY_ID = "rj.gd.font_metric_table";
+	
 	
 	private static final Map<String, Object> PROPERTIES = new ConcurrentHashMap<>();
 	
@@ -0,0 +1,305 @@
+/*=============================================================================#
+ # Copyright (c) 2016 Stephan Wahlbrink (WalWare.de) and others.
+ # All rights reserved. This program and the accompanying materials
+ # are made available under the terms of either (per the licensee's choosing)
+ #   - the Eclipse Public License v1.0
+ #     which accompanies this distribution, and is available at
+ #     http://www.eclipse.org/legal/epl-v10.html, or
+ #   - the GNU Lesser General Public License v2.1 or newer
+ #     which accompanies this distribution, and is available at
+ #     http://www.gnu.org/licenses/lgpl.html
+ # 
+ # Contributors:
+ #     Stephan Wahlbrink - initial API and implementation
+ #=============================================================================*/
+
+package de.walware.rj.server;
+
+import java.io.IOException;
+import java.io.ObjectInputStream;
+import java.io.Serializable;
+import java.net.InetSocketAddress;
+import java.net.Socket;
+import java.nio.channels.SocketChannel;
+import java.rmi.ConnectException;
+import java.rmi.RemoteException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+
+import de.walware.rj.data.ChannelObjectInputStream;
+import de.walware.rj.data.ChannelObjectOutputStream;
+
+
+/**
+ * Reference to a console engine using a persistent socket connection instead of RMI calls
+ * for the exchange of {@link RjsComObject}s by {@link #runMainLoop(RjsComObject)} and
+ * {@link #runAsync(RjsComObject)}.
+ * <p>
+ * The reference is created by the server if the socket transport is enabled and passed
+ * by value to the client. All other methods are delegated to the RMI reference.</p>
+ * <p>
+ * The client can disable the socket transport by setting the property
+ * {@link #RJ_COM_TRANSPORT_PROPERTY_ID} in {@link RjsComConfig} to
+ * {@link #TRANSPORT_RMI}.</p>
+ * <p>
+ * References are equal if they delegate to the same RMI reference; the server validates
+ * the reference of a client by its RMI reference, see {@link #getRMIRef()}.</p>
+ */
+public final class SocketConsoleEngine implements ConsoleEngine, Serializable {
+	
+	
+	private static final long serialVersionUID = -2617213553466880521L;
+	
+	/**
+	 * Client property selecting the transport for the exchange with the server.
+	 * Value: {@link #TRANSPORT_SOCKET} (default if supported by the server) or {@link #TRANSPORT_RMI}
+	 */
+	public static final String RJ_COM_TRANSPORT_PROPERTY_ID = "rj.com.transport"; //$NON-NLS-1$
+	
+	public static final String TRANSPORT_RMI = "rmi"; //$NON-NLS-1$
+	public static final String TRANSPORT_SOCKET = "socket"; //$NON-NLS-1$
+	
+	public static final int MAGIC = 0x524a5301;
+	
+	public static final byte OP_RUN_MAIN_LOOP = 1;
+	public static final byte OP_RUN_ASYNC = 2;
+	
+	public static final byte REPLY_OK = 0;
+	public static final byte REPLY_EXCEPTION = 1;
+	
+	private static final int CONNECT_TIMEOUT = 30000;
+	
+	/**
+	 * Time in milliseconds after which the server closes a connection without requests.
+	 * The client does not reuse connections idle for more than the half of it.
+	 */
+	public static final int IDLE_TIMEOUT = 300000;
+	
+	private static final int MAX_IDLE_CONNECTIONS = 2;
+	
+	
+	private static final class Connection {
+		
+		
+		private final SocketChannel channel;
+		private final ChannelObjectOutputStream out;
+		private final ChannelObjectInputStream in;
+		
+		private long idleSince;
+		
+		
+		public Connection(final String host, final int port, final String key) throws IOException {
+			this.channel = SocketChannel.open();
+			try {
+				final Socket socket = this.channel.socket();
+				socket.setTcpNoDelay(true);
+				socket.setKeepAlive(true);
+				socket.connect(new InetSocketAddress(host, port), CONNECT_TIMEOUT);
+				this.out = new ChannelObjectOutputStream(this.channel);
+				this.out.writeInt(MAGIC);
+				this.out.writeUTF(key);
+				this.out.flush();
+				this.in = new ChannelObjectInputStream(socket.getInputStream(), this.channel);
+				if (this.in.readByte() != REPLY_OK) {
+					throw new IOException("Connection refused by server.");
+				}
+			}
+			catch (final IOException e) {
+				close();
+				throw e;
+			}
+		}
+		
+		
+		public RjsComObject run(final byte op, final RjsComObject com) throws IOException, RemoteException {
+			this.out.writeByte(op);
+			this.out.writeObject(com);
+			this.out.reset();
+			this.out.flush();
+			try {
+				switch (this.in.readByte()) {
+				case REPLY_OK:
+					return (RjsComObject) this.in.readObject();
+				case REPLY_EXCEPTION:
+					final Exception e = (Exception) this.in.readObject();
+					if (e instanceof RemoteException) {
+						throw (RemoteException) e;
+					}
+					throw new RemoteException("Server exception.", e);
+				default:
+					throw new IOException("Invalid reply.");
+				}
+			}
+			catch (final ClassNotFoundException e) {
+				throw new IOException(e);
+			}
+		}
+		
+		public void close() {
+			try {
+				this.channel.close();
+			}
+			catch (final IOException e) {}
+		}
+		
+	}
+	
+	
+	private final ConsoleEngine rmiRef;
+	
+	private final String host;
+	private final int port;
+	private final String key;
+	
+	private transient List<Connection> idleConnections;
+	
+	
+	public SocketConsoleEngine(final ConsoleEngine rmiRef,
+			final String host, final int port, final String key) {
+		if (rmiRef == null) {
+			throw new NullPointerException("rmiRef"); //$NON-NLS-1$
+		}
+		this.rmiRef = rmiRef;
+		this.host = host;
+		this.port = port;
+		this.key = key;
+		this.idleConnections = new ArrayList<>(MAX_IDLE_CONNECTIONS);
+	}
+	
+	private void readObject(final ObjectInputStream in) throws IOException, ClassNotFoundException {
+		in.defaultReadObject();
+		this.idleConnections = new ArrayList<>(MAX_IDLE_CONNECTIONS);
+	}
+	
+	
+	public ConsoleEngine getRMIRef() {
+		return this.rmiRef;
+	}
+	
+	private boolean isSocketEnabled() {
+		return !TRANSPORT_RMI.equals(RjsComConfig.getProperty(RJ_COM_TRANSPORT_PROPERTY_ID));
+	}
+	
+	private RjsComObject run(final byte op, final RjsComObject com) throws RemoteException {
+		// concurrent calls (e.g. ping while waiting in the main loop) use own connections
+		Connection connection = null;
+		synchronized (this.idleConnections) {
+			while (!this.idleConnections.isEmpty()) {
+				connection = this.idleConnections.remove(this.idleConnections.size() - 1);
+				if (System.nanoTime() - connection.idleSince < IDLE_TIMEOUT * 500000L) {
+					break;
+				}
+				// probably closed by the server soon
+				connection.close();
+				connection = null;
+			}
+		}
+		if (connection == null) {
+			try {
+				connection = new Connection(this.host, this.port, this.key);
+			}
+			catch (final IOException e) {
+				throw new ConnectException("Failed to connect to server.", e);
+			}
+		}
+		final RjsComObject answer;
+		try {
+			answer = connection.run(op, com);
+		}
+		catch (final RemoteException e) {
+			releaseConnection(connection);
+			throw e;
+		}
+		catch (final IOException e) {
+			connection.close();
+			throw new RemoteException("Failed to exchange data with server.", e);
+		}
+		releaseConnection(connection);
+		return answer;
+	}
+	
+	private void releaseConnection(final Connection connection) {
+		connection.idleSince = System.nanoTime();
+		synchronized (this.idleConnections) {
+			if (this.idleConnections.size() < MAX_IDLE_CONNECTIONS) {
+				this.idleConnections.add(connection);
+				return;
+			}
+		}
+		connection.close();
+	}
+	
+	/**
+	 * Closes the idle socket connections.
+	 */
+	public void close() {
+		synchronized (this.idleConnections) {
+			for (final Connection connection : this.idleConnections) {
+				connection.close();
+			}
+			this.idleConnections.clear();
+		}
+	}
+	
+	
+	@Override
+	public Server getPublic() throws RemoteException {
+		return this.rmiRef.getPublic();
+	}
+	
+	@Override
+	public Map<String, Object> getPlatformData() throws RemoteException {
+		return this.rmiRef.getPlatformData();
+	}
+	
+	@Override
+	public void setProperties(final Map<String, ? extends Object> properties) throws RemoteException {
+		this.rmiRef.setProperties(properties);
+	}
+	
+	@Override
+	public void disconnect() throws RemoteException {
+		try {
+			this.rmiRef.disconnect();
+		}
+		finally {
+			close();
+		}
+	}
+	
+	@Override
+	public RjsComObject runMainLoop(final RjsComObject com) throws RemoteException {
+		if (!isSocketEnabled()) {
+			return this.rmiRef.runMainLoop(com);
+		}
+		return run(OP_RUN_MAIN_LOOP, com);
+	}
+	
+	@Override
+	public RjsComObject runAsync(final RjsComObject com) throws RemoteException {
+		if (!isSocketEnabled()) {
+			return this.rmiRef.runAsync(com);
+		}
+		return run(OP_RUN_ASYNC, com);
+	}
+	
+	@Override
+	public boolean isClosed() throws RemoteException {
+		return this.rmiRef.isClosed();
+	}
+	
+	
+	@Override
+	public int hashCode() {
+		return this.rmiRef.hashCode();
+	}
+	
+	@Override
+	public boolean equals(final Object obj) {
+		return (this == obj
+				|| (obj instanceof SocketConsoleEngine
+						&& this.rmiRef.equals(((SocketConsoleEngine) obj).rmiRef) ));
+	}
+	
+}
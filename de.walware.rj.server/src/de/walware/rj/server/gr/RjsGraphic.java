@@ -15,18 +15,40 @@
 
 package de.walware.rj.server.gr;
 
+import java.io.IOException;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+
 import de.walware.rj.server.GDCmdItem;
 import de.walware.rj.server.MainCmdItem;
 import de.walware.rj.server.RJ;
+import de.walware.rj.server.RjsComConfig;
 
 
 public final class RjsGraphic {
 	
 	
+	private static final Logger LOGGER = Logger.getLogger("de.walware.rj.server.gr"); //$NON-NLS-1$
+	
 	public static final int STATE_CLOSED = -1;
 	public static final int STATE_OPENED = 1;
 	public static final int STATE_PAGED = 2;
 	
+	/** Max time in nanoseconds the commands are buffered in the display list */
+	private static final long DISPLAY_LIST_NANOS = 100000000L;
+	
+	/** Characters of the font metric table, loaded at once if supported by the client */
+	private static final int[] METRIC_TABLE_CHARS;
+	private static final int METRIC_TABLE_FIRST = 0x20;
+	private static final int METRIC_TABLE_LAST = 0x7e;
+	
+	static {
+		METRIC_TABLE_CHARS = new int[METRIC_TABLE_LAST - METRIC_TABLE_FIRST + 1];
+		for (int i = 0; i < METRIC_TABLE_CHARS.length; i++) {
+			METRIC_TABLE_CHARS[i] = METRIC_TABLE_FIRST + i;
+		}
+	}
+	
 	
 	private final RJ rj;
 	private final RjsGraphicManager manager;
@@ -36,10 +58,13 @@ public final class RjsGraphic {
 	private int devId;
 	int state;
 	
-	private int cachedStrWidthChar;
-	private double[] cachedStrWidthCharResult;
-	private String cachedStrWidthStr;
-	private double[] cachedStrWidthStrResult;
+	private boolean compactGeometry;
+	
+	private RjsGraphicDisplayList displayList;
+	private boolean displayListFlushScheduled;
+	
+	private final RjsGraphicFontCache fontCache = new RjsGraphicFontCache();
+	private boolean fontMetricTable;
 	
 	
 	public RjsGraphic() {
@@ -64,20 +89,36 @@ public final class RjsGraphic {
 	
 	public void initPage(final int devId, final int state, final double width, final double height,
 			final int canvasColor, final boolean isActive) {
+		flush();
+		
 		if (this.devId != devId || this.state < STATE_OPENED) {
 			this.devId = devId;
 			this.manager.registerGraphic(this);
 		}
 		this.state = state;
 		
-		this.cachedStrWidthChar = -1;
-		this.cachedStrWidthStr = null;
+		this.fontCache.clear();
+		this.fontMetricTable = Boolean.TRUE.equals(this.rj.getClientProperty(
+				this.slot, RjsComConfig.RJ_GD_FONT_METRIC_TABLE_PROPERTY_ID ));
+		
+		this.compactGeometry = RjsComConfig.RJ_GD_GEOMETRY_COMPACT.equals(this.rj.getClientProperty(
+				this.slot, RjsComConfig.RJ_GD_GEOMETRY_ENCODING_PROPERTY_ID ));
+		if (Boolean.TRUE.equals(this.rj.getClientProperty(
+				this.slot, RjsComConfig.RJ_GD_DISPLAY_LIST_PROPERTY_ID ))) {
+			if (this.displayList == null) {
+				this.displayList = new RjsGraphicDisplayList();
+			}
+		}
+		else {
+			this.displayList = null;
+		}
 		
 		this.rj.sendMainCmd(new GDCmdItem.CInit(
 				this.devId, width, height, canvasColor, isActive, this.slot ));
 	}
 	
 	public void close() {
+		flush();
 		this.state = STATE_CLOSED;
 		this.manager.unregisterGraphic(this);
 		this.rj.sendMainCmd(new GDCmdItem.CCloseDevice(
@@ -86,6 +127,7 @@ public final class RjsGraphic {
 	
 	public void setMode(final int mode) {
 		if (this.state > 0) {
+			flush();
 			this.rj.sendMainCmd(new GDCmdItem.CSetMode(
 					this.devId, mode, this.slot ));
 		}
@@ -93,12 +135,14 @@ public final class RjsGraphic {
 	
 	public void activate() {
 		if (this.state > 0) {
+			flush();
 			this.manager.activate(this);
 		}
 	}
 	
 	public void deactivate() {
 		if (this.state > 0) {
+			flush();
 			this.manager.deactivate(this);
 		}
 	}
@@ -112,6 +156,7 @@ public final class RjsGraphic {
 	}
 	
 	public double[] newPageSize() {
+		flush();
 		final MainCmdItem answer = this.rj.sendMainCmd(new GDCmdItem.CGetSize(
 				this.devId, this.slot ));
 		return (answer instanceof GDCmdItem && answer.isOK() ) ?
@@ -120,52 +165,162 @@ public final class RjsGraphic {
 	
 	
 	public void setColor(final int color) {
+		final RjsGraphicDisplayList list = this.displayList;
+		if (list != null) {
+			try {
+				list.addSetColor(color);
+				checkDisplayList(list);
+				return;
+			}
+			catch (final IOException e) {
+				handleDisplayListError(list, e);
+			}
+		}
 		this.rj.sendMainCmd(new GDCmdItem.SetColor(
 				this.devId, color, this.slot ));
 	}
 	
 	public void setFill(final int color) {
+		final RjsGraphicDisplayList list = this.displayList;
+		if (list != null) {
+			try {
+				list.addSetFill(color);
+				checkDisplayList(list);
+				return;
+			}
+			catch (final IOException e) {
+				handleDisplayListError(list, e);
+			}
+		}
 		this.rj.sendMainCmd(new GDCmdItem.SetFill(
 				this.devId, color, this.slot ));
 	}
 	
 	public void setLine(final int lty, final float lwd,
 			final byte cap, final byte join, final float joinMiterLimit) {
+		final RjsGraphicDisplayList list = this.displayList;
+		if (list != null) {
+			try {
+				list.addSetLine(lty, lwd, cap, join, joinMiterLimit);
+				checkDisplayList(list);
+				return;
+			}
+			catch (final IOException e) {
+				handleDisplayListError(list, e);
+			}
+		}
 		this.rj.sendMainCmd(new GDCmdItem.SetLine(
 				this.devId, lty, lwd, cap, join, joinMiterLimit, this.slot ));
 	}
 	
 	public void setClip(final double x0, final double x1, final double y0, final double y1) {
+		final RjsGraphicDisplayList list = this.displayList;
+		if (list != null) {
+			try {
+				list.addSetClip(x0, y0, x1, y1);
+				checkDisplayList(list);
+				return;
+			}
+			catch (final IOException e) {
+				handleDisplayListError(list, e);
+			}
+		}
 		this.rj.sendMainCmd(new GDCmdItem.SetClip(
 				this.devId, x0, y0, x1, y1, this.slot ));
 	}
 	
 	public void drawLine(final double x0, final double y0, final double x1, final double y1) {
+		final RjsGraphicDisplayList list = this.displayList;
+		if (list != null) {
+			try {
+				list.addDrawLine(x0, y0, x1, y1);
+				checkDisplayList(list);
+				return;
+			}
+			catch (final IOException e) {
+				handleDisplayListError(list, e);
+			}
+		}
 		this.rj.sendMainCmd(new GDCmdItem.DrawLine(
 				this.devId, x0, y0, x1, y1, this.slot ));
 	}
 	
 	public void drawRect(final double x0, final double y0, final double x1, final double y1) {
+		final RjsGraphicDisplayList list = this.displayList;
+		if (list != null) {
+			try {
+				list.addDrawRect(x0, y0, x1, y1);
+				checkDisplayList(list);
+				return;
+			}
+			catch (final IOException e) {
+				handleDisplayListError(list, e);
+			}
+		}
 		this.rj.sendMainCmd(new GDCmdItem.DrawRect(
 				this.devId, x0, y0, x1, y1, this.slot ));
 	}
 	
 	public void drawPolyline(final double[] x, final double[] y) {
+		final RjsGraphicDisplayList list = this.displayList;
+		if (list != null) {
+			try {
+				list.addDrawPolyline(x, y, this.compactGeometry);
+				checkDisplayList(list);
+				return;
+			}
+			catch (final IOException e) {
+				handleDisplayListError(list, e);
+			}
+		}
 		this.rj.sendMainCmd(new GDCmdItem.DrawPolyline(
-				this.devId, x, y, this.slot ));
+				this.devId, x, y, this.compactGeometry, this.slot ));
 	}
 	
 	public void drawPolygon(final double[] x, final double[] y) {
+		final RjsGraphicDisplayList list = this.displayList;
+		if (list != null) {
+			try {
+				list.addDrawPolygon(x, y, this.compactGeometry);
+				checkDisplayList(list);
+				return;
+			}
+			catch (final IOException e) {
+				handleDisplayListError(list, e);
+			}
+		}
 		this.rj.sendMainCmd(new GDCmdItem.DrawPolygon(
-				this.devId, x, y, this.slot ));
+				this.devId, x, y, this.compactGeometry, this.slot ));
 	}
 	
 	public void drawPath(final int[] n, final double[] x, final double[] y, final int mode) {
+		final RjsGraphicDisplayList list = this.displayList;
+		if (list != null) {
+			try {
+				list.addDrawPath(n, x, y, mode, this.compactGeometry);
+				checkDisplayList(list);
+				return;
+			}
+			catch (final IOException e) {
+				handleDisplayListError(list, e);
+			}
+		}
 		this.rj.sendMainCmd(new GDCmdItem.DrawPath(
-				this.devId, n, x, y, mode, this.slot ));
+				this.devId, n, x, y, mode, this.compactGeometry, this.slot ));
 	}
 	
 	public void drawCircle(final double x, final double y, final double r) {
+		final RjsGraphicDisplayList list = this.displayList;
+		if (list != null) {
+			try {
+				list.addDrawCircle(x, y, r);
+				checkDisplayList(list);
+				return;
+			}
+			catch (final IOException e) {
+				handleDisplayListError(list, e);
+			}
+		}
 		this.rj.sendMainCmd(new GDCmdItem.DrawCircle(
 				this.devId, x, y, r, this.slot ));
 	}
@@ -173,47 +328,92 @@ public final class RjsGraphic {
 	
 	public void setFont(final String family, final int face, final float pointSize,
 			final float lineheight) {
+		this.fontCache.setFont(family, face, pointSize);
+		
+		final RjsGraphicDisplayList list = this.displayList;
+		if (list != null) {
+			try {
+				list.addSetFont(family, face, pointSize, lineheight);
+				checkDisplayList(list);
+				return;
+			}
+			catch (final IOException e) {
+				handleDisplayListError(list, e);
+			}
+		}
 		this.rj.sendMainCmd(new GDCmdItem.SetFont(
 				this.devId, family, face, pointSize, lineheight, this.slot ));
-		
-		this.cachedStrWidthChar = -1;
-		this.cachedStrWidthStr = null;
 	}
 	
 	public double[] getStrWidth(final String str) {
-		if (str.length() == 1) {
-			final int ch = str.charAt(0);
-			if (ch == this.cachedStrWidthChar) {
-				return this.cachedStrWidthCharResult;
-			}
+		double[] result = this.fontCache.getStrWidth(str);
+		if (result == null) {
+			flush();
 			final MainCmdItem answer = this.rj.sendMainCmd(new GDCmdItem.CGetStrWidth(
 					this.devId, str, this.slot ));
-			this.cachedStrWidthCharResult = (answer instanceof GDCmdItem && answer.isOK() ) ?
-					((GDCmdItem) answer).getDoubleData() : null;
-			this.cachedStrWidthChar = ch;
-			return this.cachedStrWidthCharResult;
-		}
-		else {
-			if (str.equals(this.cachedStrWidthStr)) {
-				return this.cachedStrWidthStrResult;
+			if (answer instanceof GDCmdItem && answer.isOK()) {
+				result = ((GDCmdItem) answer).getDoubleData();
+				if (result != null) {
+					this.fontCache.putStrWidth(str, result);
+				}
 			}
-			final MainCmdItem answer = this.rj.sendMainCmd(new GDCmdItem.CGetStrWidth(
-					this.devId, str, this.slot ));
-			this.cachedStrWidthStrResult = (answer instanceof GDCmdItem && answer.isOK() ) ?
-					((GDCmdItem) answer).getDoubleData() : null;
-			this.cachedStrWidthStr = str;
-			return this.cachedStrWidthStrResult;
 		}
+		return result;
 	}
 	
 	public double[] getMetricInfo(final int ch) {
-		final MainCmdItem answer = this.rj.sendMainCmd(new GDCmdItem.CGetFontMetric(
-				this.devId, ch, this.slot ));
-		return (answer instanceof GDCmdItem && answer.isOK() ) ?
-				((GDCmdItem) answer).getDoubleData() : null;
+		double[] result = this.fontCache.getMetric(ch);
+		if (result == null) {
+			flush();
+			if (this.fontMetricTable && ch >= METRIC_TABLE_FIRST && ch <= METRIC_TABLE_LAST
+					&& !this.fontCache.isMetricTableLoaded() ) {
+				loadMetricTable();
+				result = this.fontCache.getMetric(ch);
+				if (result != null) {
+					return result;
+				}
+			}
+			final MainCmdItem answer = this.rj.sendMainCmd(new GDCmdItem.CGetFontMetric(
+					this.devId, ch, this.slot ));
+			if (answer instanceof GDCmdItem && answer.isOK()) {
+				result = ((GDCmdItem) answer).getDoubleData();
+				if (result != null) {
+					this.fontCache.putMetric(ch, result);
+				}
+			}
+		}
+		return result;
+	}
+	
+	private void loadMetricTable() {
+		this.fontCache.setMetricTableLoaded();
+		final MainCmdItem answer = this.rj.sendMainCmd(new GDCmdItem.CGetFontMetricTable(
+				this.devId, METRIC_TABLE_CHARS, this.slot ));
+		final double[] data;
+		if (answer instanceof GDCmdItem && answer.isOK()
+				&& (data = ((GDCmdItem) answer).getDoubleData()) != null) {
+			final int n = Math.min(METRIC_TABLE_CHARS.length, data.length / 3);
+			for (int i = 0, j = 0; i < n; i++, j += 3) {
+				if (!Double.isNaN(data[j])) {
+					this.fontCache.putMetric(METRIC_TABLE_CHARS[i],
+							new double[] { data[j], data[j + 1], data[j + 2] } );
+				}
+			}
+		}
 	}
 	
 	public void drawText(final String str, final double x, final double y, final double rDeg, final double hAdj) {
+		final RjsGraphicDisplayList list = this.displayList;
+		if (list != null) {
+			try {
+				list.addDrawText(str, x, y, rDeg, hAdj);
+				checkDisplayList(list);
+				return;
+			}
+			catch (final IOException e) {
+				handleDisplayListError(list, e);
+			}
+		}
 		this.rj.sendMainCmd(new GDCmdItem.DrawText(
 				this.devId, str, x, y, rDeg, hAdj, this.slot ));
 	}
@@ -222,11 +422,28 @@ public final class RjsGraphic {
 	public void drawRaster(final byte[] imgData, final boolean imgAlpha, final int imgW, final int imgH,
 			final double x, final double y, final double w, final double h,
 			final double rDeg, final boolean interpolate) {
+		final RjsGraphicDisplayList list = this.displayList;
+		if (list != null) {
+			if (imgData.length < RjsGraphicDisplayList.MAX_SIZE / 2) {
+				try {
+					list.addDrawRaster(imgData, imgAlpha, imgW, imgH, x, y, w, h, rDeg, interpolate);
+					checkDisplayList(list);
+					return;
+				}
+				catch (final IOException e) {
+					handleDisplayListError(list, e);
+				}
+			}
+			else { // no copy of large images
+				flush();
+			}
+		}
 		this.rj.sendMainCmd(new GDCmdItem.DrawRaster(this.devId, imgData, imgAlpha, imgW, imgH, x, y, w, h,
 				rDeg, interpolate, this.slot ));
 	}
 	
 	public byte[] capture(final int[] dim) {
+		flush();
 		final MainCmdItem answer = this.rj.sendMainCmd(new GDCmdItem.Capture(this.devId,
 				dim[0], dim[1], this.slot ));
 		return (answer instanceof GDCmdItem && answer.isOK() ) ?
@@ -235,10 +452,51 @@ public final class RjsGraphic {
 	
 	
 	public double[] execLocator() {
+		flush();
 		final MainCmdItem answer = this.rj.sendMainCmd(new GDCmdItem.Locator(
 				this.devId, this.slot ));
 		return (answer instanceof GDCmdItem && answer.isOK() ) ?
 				((GDCmdItem) answer).getDoubleData() : null;
 	}
 	
+	
+	/**
+	 * Sends the commands buffered in the display list.
+	 */
+	public void flush() {
+		this.displayListFlushScheduled = false;
+		final RjsGraphicDisplayList list = this.displayList;
+		if (list != null && !list.isEmpty()) {
+			try {
+				this.rj.sendMainCmd(list.createCmd(this.devId, this.slot));
+			}
+			catch (final IOException e) {
+				handleDisplayListError(list, e);
+			}
+		}
+	}
+	
+	private void checkDisplayList(final RjsGraphicDisplayList list) {
+		if (list.getSize() >= RjsGraphicDisplayList.MAX_SIZE
+				|| System.nanoTime() - list.getStartNanos() >= DISPLAY_LIST_NANOS) {
+			flush();
+		}
+		else if (!this.displayListFlushScheduled) {
+			// flush also if R doesn't draw any longer
+			this.displayListFlushScheduled = true;
+			this.rj.scheduleFlushDisplayLists(DISPLAY_LIST_NANOS / 1000000L);
+		}
+	}
+	
+	private void handleDisplayListError(final RjsGraphicDisplayList list, final IOException e) {
+		LOGGER.log(Level.SEVERE, "An error occurred when writing the graphic display list.", e);
+		// continue without display list
+		this.displayList = null;
+		this.displayListFlushScheduled = false;
+		final GDCmdItem.DisplayList cmd = list.createCompleteCmd(this.devId, this.slot);
+		if (cmd != null) {
+			this.rj.sendMainCmd(cmd);
+		}
+	}
+	
 }
@@ -0,0 +1,290 @@
+/*=============================================================================#
+ # Copyright (c) 2016 Stephan Wahlbrink (WalWare.de) and others.
+ # All rights reserved. This program and the accompanying materials
+ # are made available under the terms of either (per the licensee's choosing)
+ #   - the Eclipse Public License v1.0
+ #     which accompanies this distribution, and is available at
+ #     http://www.eclipse.org/legal/epl-v10.html, or
+ #   - the GNU Lesser General Public License v2.1 or newer
+ #     which accompanies this distribution, and is available at
+ #     http://www.gnu.org/licenses/lgpl.html
+ # 
+ # Contributors:
+ #     Stephan Wahlbrink - initial API and implementation
+ #=============================================================================*/
+
+package de.walware.rj.server.gr;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.ObjectOutputStream;
+
+import de.walware.rj.data.RJIO;
+import de.walware.rj.server.GDCmdItem;
+
+
+/**
+ * Buffer for the set and draw commands of a graphic, sent as one
+ * {@link GDCmdItem.DisplayList}.
+ * <p>
+ * The commands are written in the same format as the single commands (without device id).
+ * The stream is flushed before each command, so the commands written completely can still be
+ * sent if writing a command fails.</p>
+ */
+final class RjsGraphicDisplayList {
+	
+	
+	/** Size in bytes the list should be sent */
+	static final int MAX_SIZE = 0x40000;
+	
+	
+	private static final class Buffer extends ByteArrayOutputStream {
+		
+		public Buffer() {
+			super(0x4000);
+		}
+		
+		public byte[] getData() {
+			return this.buf;
+		}
+		
+	}
+	
+	
+	private Buffer buffer = new Buffer();
+	private final RJIO io = new RJIO();
+	private ObjectOutputStream out;
+	
+	private int count;
+	private long startNanos;
+	
+	/** Size and count of the commands written completely, see {@link #createCompleteCmd(int, byte)} */
+	private int completeSize;
+	private int completeCount;
+	
+	
+	public RjsGraphicDisplayList() {
+	}
+	
+	
+	public boolean isEmpty() {
+		return (this.count == 0);
+	}
+	
+	public int getSize() {
+		return this.buffer.size();
+	}
+	
+	/**
+	 * Returns the time when the first command of the list was added.
+	 * 
+	 * @return the time in nanoseconds, see {@link System#nanoTime()}
+	 */
+	public long getStartNanos() {
+		return this.startNanos;
+	}
+	
+	
+	private RJIO begin(final byte type) throws IOException {
+		if (this.count == 0) {
+			this.out = new ObjectOutputStream(this.buffer);
+			this.io.connect(this.out);
+			this.startNanos = System.nanoTime();
+		}
+		else {
+			this.out.flush();
+		}
+		this.completeSize = this.buffer.size();
+		this.completeCount = this.count++;
+		this.io.writeByte(type);
+		return this.io;
+	}
+	
+	/**
+	 * Creates the command with all commands of the list and clears the list.
+	 * 
+	 * @param devId the device id
+	 * @param slot the client slot
+	 * @return the command
+	 */
+	public GDCmdItem.DisplayList createCmd(final int devId, final byte slot) throws IOException {
+		final Buffer buffer = this.buffer;
+		try {
+			this.io.disconnect(this.out);
+			this.out.close();
+			// the data is sent asynchronously, so it is not reused
+			return new GDCmdItem.DisplayList(devId,
+					this.count, buffer.getData(), buffer.size(), slot );
+		}
+		finally {
+			clear();
+		}
+	}
+	
+	/**
+	 * Creates the command with the commands of the list written completely before an error
+	 * occurred, and clears the list.
+	 * 
+	 * @param devId the device id
+	 * @param slot the client slot
+	 * @return the command or <code>null</code> if there is no complete command
+	 */
+	public GDCmdItem.DisplayList createCompleteCmd(final int devId, final byte slot) {
+		final Buffer buffer = this.buffer;
+		try {
+			return (this.completeCount > 0) ?
+					new GDCmdItem.DisplayList(devId,
+							this.completeCount, buffer.getData(), this.completeSize, slot ) :
+					null;
+		}
+		finally {
+			clear();
+		}
+	}
+	
+	private void clear() {
+		this.out = null;
+		this.count = 0;
+		this.completeSize = 0;
+		this.completeCount = 0;
+		this.buffer = new Buffer();
+	}
+	
+	
+	public void addSetClip(final double x0, final double y0, final double x1, final double y1)
+			throws IOException {
+		final RJIO io = begin(GDCmdItem.SET_CLIP);
+		io.writeDouble(x0);
+		io.writeDouble(y0);
+		io.writeDouble(x1);
+		io.writeDouble(y1);
+	}
+	
+	public void addSetColor(final int color) throws IOException {
+		final RJIO io = begin(GDCmdItem.SET_COLOR);
+		io.writeInt(color);
+	}
+	
+	public void addSetFill(final int color) throws IOException {
+		final RJIO io = begin(GDCmdItem.SET_FILL);
+		io.writeInt(color);
+	}
+	
+	public void addSetLine(final int lty, final float lwd,
+			final byte cap, final byte join, final float joinMiterLimit) throws IOException {
+		final RJIO io = begin(GDCmdItem.SET_LINE);
+		io.writeInt(lty);
+		io.writeFloat(lwd);
+		io.writeByte(cap);
+		io.writeByte(join);
+		io.writeFloat(joinMiterLimit);
+	}
+	
+	public void addSetFont(final String family, final int face, final float pointSize,
+			final float lineheight) throws IOException {
+		final RJIO io = begin(GDCmdItem.SET_FONT);
+		io.writeString(family);
+		io.writeInt(face);
+		io.writeFloat(pointSize);
+		io.writeFloat(lineheight);
+	}
+	
+	public void addDrawLine(final double x0, final double y0, final double x1, final double y1)
+			throws IOException {
+		final RJIO io = begin(GDCmdItem.DRAW_LINE);
+		io.writeDouble(x0);
+		io.writeDouble(y0);
+		io.writeDouble(x1);
+		io.writeDouble(y1);
+	}
+	
+	public void addDrawRect(final double x0, final double y0, final double x1, final double y1)
+			throws IOException {
+		final RJIO io = begin(GDCmdItem.DRAW_RECTANGLE);
+		io.writeDouble(x0);
+		io.writeDouble(y0);
+		io.writeDouble(x1);
+		io.writeDouble(y1);
+	}
+	
+	public void addDrawPolyline(final double[] x, final double[] y, final boolean compact)
+			throws IOException {
+		if (compact) {
+			final RJIO io = begin((byte) (GDCmdItem.DRAW_POLYLINE | GDCmdItem.GEOMETRY_COMPACT));
+			GDCmdItem.writeCompactCoords(x, y, io);
+			return;
+		}
+		final RJIO io = begin(GDCmdItem.DRAW_POLYLINE);
+		final int length = x.length;
+		io.writeInt(length);
+		io.writeDoubleData(x, length);
+		io.writeDoubleData(y, length);
+	}
+	
+	public void addDrawPolygon(final double[] x, final double[] y, final boolean compact)
+			throws IOException {
+		if (compact) {
+			final RJIO io = begin((byte) (GDCmdItem.DRAW_POLYGON | GDCmdItem.GEOMETRY_COMPACT));
+			GDCmdItem.writeCompactCoords(x, y, io);
+			return;
+		}
+		final RJIO io = begin(GDCmdItem.DRAW_POLYGON);
+		final int length = x.length;
+		io.writeInt(length);
+		io.writeDoubleData(x, length);
+		io.writeDoubleData(y, length);
+	}
+	
+	public void addDrawPath(final int[] n, final double[] x, final double[] y, final int mode,
+			final boolean compact) throws IOException {
+		if (compact) {
+			final RJIO io = begin((byte) (GDCmdItem.DRAW_PATH | GDCmdItem.GEOMETRY_COMPACT));
+			io.writeIntArray(n, n.length);
+			GDCmdItem.writeCompactCoords(x, y, io);
+			io.writeInt(mode);
+			return;
+		}
+		final RJIO io = begin(GDCmdItem.DRAW_PATH);
+		io.writeIntArray(n, n.length);
+		final int length = x.length;
+		io.writeInt(length);
+		io.writeDoubleData(x, length);
+		io.writeDoubleData(y, length);
+		io.writeInt(mode);
+	}
+	
+	public void addDrawCircle(final double x, final double y, final double r) throws IOException {
+		final RJIO io = begin(GDCmdItem.DRAW_CIRCLE);
+		io.writeDouble(x);
+		io.writeDouble(y);
+		io.writeDouble(r);
+	}
+	
+	public void addDrawText(final String text, final double x, final double y,
+			final double rDeg, final double hAdj) throws IOException {
+		final RJIO io = begin(GDCmdItem.DRAW_TEXT);
+		io.writeString(text);
+		io.writeDouble(x);
+		io.writeDouble(y);
+		io.writeDouble(rDeg);
+		io.writeDouble(hAdj);
+	}
+	
+	public void addDrawRaster(final byte[] imgData, final boolean imgAlpha, final int imgW, final int imgH,
+			final double x, final double y, final double w, final double h,
+			final double rDeg, final boolean interpolate) throws IOException {
+		final RJIO io = begin(GDCmdItem.DRAW_RASTER);
+		io.writeInt(imgData.length);
+		io.writeByteData(imgData, imgData.length);
+		io.writeBoolean(imgAlpha);
+		io.writeInt(imgW);
+		io.writeInt(imgH);
+		io.writeDouble(x);
+		io.writeDouble(y);
+		io.writeDouble(w);
+		io.writeDouble(h);
+		io.writeDouble(rDeg);
+		io.writeBoolean(interpolate);
+	}
+	
+}
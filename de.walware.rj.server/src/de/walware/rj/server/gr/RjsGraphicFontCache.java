@@ -0,0 +1,167 @@
+/*=============================================================================#
+ # Copyright (c) 2016 Stephan Wahlbrink (WalWare.de) and others.
+ # All rights reserved. This program and the accompanying materials
+ # are made available under the terms of either (per the licensee's choosing)
+ #   - the Eclipse Public License v1.0
+ #     which accompanies this distribution, and is available at
+ #     http://www.eclipse.org/legal/epl-v10.html, or
+ #   - the GNU Lesser General Public License v2.1 or newer
+ #     which accompanies this distribution, and is available at
+ #     http://www.gnu.org/licenses/lgpl.html
+ # 
+ # Contributors:
+ #     Stephan Wahlbrink - initial API and implementation
+ #=============================================================================*/
+
+package de.walware.rj.server.gr;
+
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+
+/**
+ * LRU cache for the string widths and font metrics of a graphic computed by the client.
+ * <p>
+ * The values are cached per font (family, face and size); the number of fonts and the number
+ * of values per font are bounded.</p>
+ */
+final class RjsGraphicFontCache {
+	
+	
+	private static final int MAX_FONTS = 16;
+	private static final int MAX_STR_WIDTHS = 512;
+	private static final int MAX_METRICS = 512;
+	
+	
+	private static final class LRUMap<K, V> extends LinkedHashMap<K, V> {
+		
+		private static final long serialVersionUID = 1L;
+		
+		private final int maxSize;
+		
+		public LRUMap(final int maxSize) {
+			super(16, 0.75f, true);
+			this.maxSize = maxSize;
+		}
+		
+		@Override
+		protected boolean removeEldestEntry(final Map.Entry<K, V> eldest) {
+			return (size() > this.maxSize);
+		}
+		
+	}
+	
+	private static final class FontKey {
+		
+		private final String family;
+		private final int face;
+		private final float size;
+		
+		public FontKey(final String family, final int face, final float size) {
+			this.family = (family != null) ? family : ""; //$NON-NLS-1$
+			this.face = face;
+			this.size = size;
+		}
+		
+		@Override
+		public int hashCode() {
+			return this.family.hashCode() ^ (this.face << 24) ^ Float.floatToIntBits(this.size);
+		}
+		
+		@Override
+		public boolean equals(final Object obj) {
+			if (this == obj) {
+				return true;
+			}
+			if (!(obj instanceof FontKey)) {
+				return false;
+			}
+			final FontKey other = (FontKey) obj;
+			return (this.face == other.face
+					&& Float.floatToIntBits(this.size) == Float.floatToIntBits(other.size)
+					&& this.family.equals(other.family) );
+		}
+		
+	}
+	
+	private static final class FontEntry {
+		
+		final Map<String, double[]> strWidths = new LRUMap<>(MAX_STR_WIDTHS);
+		final Map<Integer, double[]> metrics = new LRUMap<>(MAX_METRICS);
+		
+		boolean metricTableLoaded;
+		
+	}
+	
+	
+	private final Map<FontKey, FontEntry> fonts = new LRUMap<>(MAX_FONTS);
+	
+	private FontKey currentKey;
+	private FontEntry current;
+	
+	
+	public RjsGraphicFontCache() {
+	}
+	
+	
+	/**
+	 * Sets the current font.
+	 */
+	public void setFont(final String family, final int face, final float size) {
+		this.currentKey = new FontKey(family, face, size);
+		this.current = null;
+	}
+	
+	/**
+	 * Removes all cached values.
+	 */
+	public void clear() {
+		this.fonts.clear();
+		this.current = null;
+	}
+	
+	private FontEntry getCurrent() {
+		FontEntry entry = this.current;
+		if (entry == null) {
+			if (this.currentKey == null) {
+				this.currentKey = new FontKey(null, 0, 0);
+			}
+			entry = this.fonts.get(this.currentKey);
+			if (entry == null) {
+				entry = new FontEntry();
+				this.fonts.put(this.currentKey, entry);
+			}
+			this.current = entry;
+		}
+		return entry;
+	}
+	
+	
+	public double[] getStrWidth(final String str) {
+		return getCurrent().strWidths.get(str);
+	}
+	
+	public void putStrWidth(final String str, final double[] width) {
+		getCurrent().strWidths.put(str, width);
+	}
+	
+	public double[] getMetric(final int ch) {
+		return getCurrent().metrics.get(Integer.valueOf(ch));
+	}
+	
+	public void putMetric(final int ch, final double[] metric) {
+		getCurrent().metrics.put(Integer.valueOf(ch), metric);
+	}
+	
+	/**
+	 * Returns if the metric table was already loaded for the current font.
+	 */
+	public boolean isMetricTableLoaded() {
+		return getCurrent().metricTableLoaded;
+	}
+	
+	public void setMetricTableLoaded() {
+		getCurrent().metricTableLoaded = true;
+	}
+	
+}
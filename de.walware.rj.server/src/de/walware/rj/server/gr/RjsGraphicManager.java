@@ -108,6 +108,16 @@ public class RjsGraphicManager {
 	}
 	
 	
+	/**
+	 * Sends the commands buffered in the display lists of all graphics.
+	 */
+	public void flushDisplayLists() {
+		for (int i = 0; i < this.graphicList.size(); i++) {
+			this.graphicList.get(i).flush();
+		}
+	}
+	
+	
 	protected void beginOperation() {
 		if (this.inOperation == 0) {
 			this.inOperationActiveGraphic = this.activeGraphic;
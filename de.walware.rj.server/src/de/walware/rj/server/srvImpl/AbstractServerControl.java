@@ -43,8 +43,10 @@ import javax.rmi.ssl.SslRMIServerSocketFactory;
 
 import de.walware.rj.RjException;
 import de.walware.rj.RjInvalidConfigurationException;
+import de.walware.rj.server.ConsoleEngine;
 import de.walware.rj.server.RjsComConfig;
 import de.walware.rj.server.Server;
+import de.walware.rj.server.SocketConsoleEngine;
 import de.walware.rj.server.jri.loader.JRIServerLoader;
 import de.walware.rj.server.srvext.ServerAuthMethod;
 import de.walware.rj.server.srvext.ServerRuntimePlugin;
@@ -159,6 +161,65 @@ public class AbstractServerControl {
 		return UnicastRemoteObject.exportObject(obj, 0, csf, ssf);
 	}
 	
+	/**
+	 * Creates the reference to the console engine passed to the client.
+	 * <p>
+	 * If the socket transport is enabled (server argument <code>-transport=socket</code>,
+	 * optional <code>-transport.port=&lt;port&gt;</code>), the returned reference exchanges the
+	 * data by a socket connection, otherwise the exported RMI reference is returned.
+	 * The socket is bound to the address of the RMI registry; the socket transport is
+	 * not available for servers using SSL.</p>
+	 * 
+	 * @param engine the console engine
+	 * @param export the exported RMI reference of the engine
+	 * @return the reference for the client
+	 */
+	public ConsoleEngine createClientRef(final ConsoleEngine engine, final ConsoleEngine export) {
+		final SocketTransportServer socketTransport = getSocketTransport();
+		if (socketTransport != null) {
+			return socketTransport.createClientRef(engine, export);
+		}
+		return export;
+	}
+	
+	/**
+	 * Disposes the reference to the console engine created by
+	 * {@link #createClientRef(ConsoleEngine, ConsoleEngine)}.
+	 * 
+	 * @param engine the console engine
+	 */
+	public void disposeClientRef(final ConsoleEngine engine) {
+		final SocketTransportServer socketTransport;
+		synchronized (this) {
+			socketTransport = this.socketTransport;
+		}
+		if (socketTransport != null) {
+			socketTransport.remove(engine);
+		}
+	}
+	
+	private synchronized SocketTransportServer getSocketTransport() {
+		if (this.socketTransport == null && !this.socketTransportFailed && this.args != null
+				&& SocketConsoleEngine.TRANSPORT_SOCKET.equals(this.args.get("transport"))) {
+			try {
+				final String portArg = this.args.get("transport.port");
+				final int port = (portArg != null) ? Integer.parseInt(portArg) : 0;
+				final String host = System.getProperty("java.rmi.server.hostname");
+				this.socketTransport = new SocketTransportServer(
+						this.rmiAddress.getHostAddress(),
+						port,
+						(host != null) ? host : this.rmiAddress.getHostAddress().getHostAddress() );
+				LOGGER.log(Level.INFO, "{0} socket transport started at port {1}.",
+						new Object[] { this.logPrefix, Integer.toString(this.socketTransport.getPort()) });
+			}
+			catch (final Exception e) {
+				this.socketTransportFailed = true;
+				LOGGER.log(Level.SEVERE, this.logPrefix + " failed to start the socket transport, using RMI.", e);
+			}
+		}
+		return this.socketTransport;
+	}
+	
 	
 	protected final String logPrefix;
 	
@@ -169,6 +230,9 @@ public class AbstractServerControl {
 	protected Server mainServer;
 	private boolean isPublished;
 	
+	private SocketTransportServer socketTransport;
+	private boolean socketTransportFailed;
+	
 	
 	protected AbstractServerControl(final String name, final Map<String, String> args) {
 		final int lastSegment = name.lastIndexOf('/');
@@ -202,6 +266,15 @@ public class AbstractServerControl {
 			if (args.containsKey("verbose")) {
 				initVerbose();
 			}
+			if (SocketConsoleEngine.TRANSPORT_SOCKET.equals(args.get("transport"))
+					&& this.rmiAddress.isSSL()) {
+				final LogRecord record = new LogRecord(Level.SEVERE,
+						"{0} the socket transport (-transport=socket) is not supported for servers using SSL.");
+				record.setParameters(new Object[] { this.logPrefix });
+				LOGGER.log(record);
+				
+				exit(EXIT_ARGS_INVALID);
+			}
 			if (args.containsKey("embedded")) {
 				if (System.getProperty("de.walware.rj.rmi.disableSocketFactory") == null) {
 					System.setProperty("de.walware.rj.rmi.disableSocketFactory", "true");
@@ -315,6 +388,7 @@ public class AbstractServerControl {
 				}
 			});
 			this.isPublished = true;
+			ServerMetrics.getDefault().register(getName());
 			LOGGER.log(Level.INFO, "{0} server is added to registry - ready.", this.logPrefix);
 			
 			return;
@@ -367,6 +441,13 @@ public class AbstractServerControl {
 		catch (final NoSuchObjectException e) {
 			// ok
 		}
+		ServerMetrics.getDefault().unregister();
+		synchronized (this) {
+			if (this.socketTransport != null) {
+				this.socketTransport.close();
+				this.socketTransport = null;
+			}
+		}
 		this.mainServer = null;
 		System.gc();
 	}
@@ -41,6 +41,7 @@ import de.walware.rj.server.RjsStatus;
 import de.walware.rj.server.Server;
 import de.walware.rj.server.ServerInfo;
 import de.walware.rj.server.ServerLogin;
+import de.walware.rj.server.SocketConsoleEngine;
 import de.walware.rj.server.srvext.Client;
 import de.walware.rj.server.srvext.ServerAuthMethod;
 
@@ -56,7 +57,10 @@ public class DefaultServerImpl implements Server, RjsComConfig.PathResolver {
 	public static void addClient(final Remote remote) {
 		clients.add(remote);
 	}
-	public static boolean isValid(final Remote remote) {
+	public static boolean isValid(Remote remote) {
+		if (remote instanceof SocketConsoleEngine) {
+			remote = ((SocketConsoleEngine) remote).getRMIRef();
+		}
 		return clients.contains(remote);
 	}
 	
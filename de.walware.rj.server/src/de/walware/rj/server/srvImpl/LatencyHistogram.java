@@ -0,0 +1,115 @@
+/*=============================================================================#
+ # Copyright (c) 2016 Stephan Wahlbrink (WalWare.de) and others.
+ # All rights reserved. This program and the accompanying materials
+ # are made available under the terms of either (per the licensee's choosing)
+ #   - the Eclipse Public License v1.0
+ #     which accompanies this distribution, and is available at
+ #     http://www.eclipse.org/legal/epl-v10.html, or
+ #   - the GNU Lesser General Public License v2.1 or newer
+ #     which accompanies this distribution, and is available at
+ #     http://www.gnu.org/licenses/lgpl.html
+ # 
+ # Contributors:
+ #     Stephan Wahlbrink - initial API and implementation
+ #=============================================================================*/
+
+package de.walware.rj.server.srvImpl;
+
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicLongArray;
+
+
+/**
+ * Lock-free histogram of durations with buckets of powers of two (nanoseconds).
+ */
+public final class LatencyHistogram {
+	
+	
+	private static final int BUCKETS = 48;
+	
+	
+	private final AtomicLongArray buckets = new AtomicLongArray(BUCKETS);
+	
+	private final AtomicLong count = new AtomicLong();
+	private final AtomicLong total = new AtomicLong();
+	private final AtomicLong max = new AtomicLong();
+	
+	
+	public LatencyHistogram() {
+	}
+	
+	
+	/**
+	 * Records a duration.
+	 * 
+	 * @param nanos the duration in nanoseconds
+	 */
+	public void record(long nanos) {
+		if (nanos < 0) {
+			nanos = 0;
+		}
+		final int bucket = Math.min(64 - Long.numberOfLeadingZeros(nanos), BUCKETS - 1);
+		this.buckets.incrementAndGet(bucket);
+		this.count.incrementAndGet();
+		this.total.addAndGet(nanos);
+		long current;
+		while (nanos > (current = this.max.get())) {
+			if (this.max.compareAndSet(current, nanos)) {
+				break;
+			}
+		}
+	}
+	
+	public long getCount() {
+		return this.count.get();
+	}
+	
+	public long getTotalNanos() {
+		return this.total.get();
+	}
+	
+	public long getMeanNanos() {
+		final long count = this.count.get();
+		return (count > 0) ? this.total.get() / count : 0;
+	}
+	
+	public long getMaxNanos() {
+		return this.max.get();
+	}
+	
+	/**
+	 * Returns the upper bound of the bucket containing the specified percentile.
+	 * 
+	 * @param percentile the percentile (0 - 100)
+	 * @return the upper bound in nanoseconds
+	 */
+	public long getPercentileNanos(final double percentile) {
+		final long[] counts = new long[BUCKETS];
+		long sum = 0;
+		for (int i = 0; i < BUCKETS; i++) {
+			sum += counts[i] = this.buckets.get(i);
+		}
+		if (sum == 0) {
+			return 0;
+		}
+		final long limit = (long) Math.ceil(sum * percentile / 100.0);
+		long n = 0;
+		for (int i = 0; i < BUCKETS; i++) {
+			n += counts[i];
+			if (n >= limit && counts[i] > 0) {
+				return Math.min((i > 0) ? (1L << i) - 1 : 0, this.max.get());
+			}
+		}
+		return this.max.get();
+	}
+	
+	public void reset() {
+		for (int i = 0; i < BUCKETS; i++) {
+			this.buckets.set(i, 0);
+		}
+		this.count.set(0);
+		this.total.set(0);
+		this.max.set(0);
+	}
+	
+}
@@ -0,0 +1,169 @@
+/*=============================================================================#
+ # Copyright (c) 2016 Stephan Wahlbrink (WalWare.de) and others.
+ # All rights reserved. This program and the accompanying materials
+ # are made available under the terms of either (per the licensee's choosing)
+ #   - the Eclipse Public License v1.0
+ #     which accompanies this distribution, and is available at
+ #     http://www.eclipse.org/legal/epl-v10.html, or
+ #   - the GNU Lesser General Public License v2.1 or newer
+ #     which accompanies this distribution, and is available at
+ #     http://www.gnu.org/licenses/lgpl.html
+ # 
+ # Contributors:
+ #     Stephan Wahlbrink - initial API and implementation
+ #=============================================================================*/
+
+package de.walware.rj.server.srvImpl;
+
+import java.util.Date;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.locks.Condition;
+import java.util.concurrent.locks.ReentrantLock;
+
+
+/**
+ * Reentrant lock recording the time waiting for the lock and holding the lock in the
+ * {@link ServerMetrics}.
+ * <p>
+ * The time waiting in a condition of the lock is not counted as hold time. Only
+ * {@link #lock()} and {@link #unlock()} are metered.</p>
+ */
+public class MeteredLock extends ReentrantLock {
+	
+	
+	private static final long serialVersionUID = 4862046618524314529L;
+	
+	
+	private class MeteredCondition implements Condition {
+		
+		
+		private final Condition condition;
+		
+		
+		public MeteredCondition(final Condition condition) {
+			this.condition = condition;
+		}
+		
+		
+		@Override
+		public void await() throws InterruptedException {
+			pauseHold();
+			try {
+				this.condition.await();
+			}
+			finally {
+				resumeHold();
+			}
+		}
+		
+		@Override
+		public void awaitUninterruptibly() {
+			pauseHold();
+			try {
+				this.condition.awaitUninterruptibly();
+			}
+			finally {
+				resumeHold();
+			}
+		}
+		
+		@Override
+		public long awaitNanos(final long nanosTimeout) throws InterruptedException {
+			pauseHold();
+			try {
+				return this.condition.awaitNanos(nanosTimeout);
+			}
+			finally {
+				resumeHold();
+			}
+		}
+		
+		@Override
+		public boolean await(final long time, final TimeUnit unit) throws InterruptedException {
+			pauseHold();
+			try {
+				return this.condition.await(time, unit);
+			}
+			finally {
+				resumeHold();
+			}
+		}
+		
+		@Override
+		public boolean awaitUntil(final Date deadline) throws InterruptedException {
+			pauseHold();
+			try {
+				return this.condition.awaitUntil(deadline);
+			}
+			finally {
+				resumeHold();
+			}
+		}
+		
+		@Override
+		public void signal() {
+			this.condition.signal();
+		}
+		
+		@Override
+		public void signalAll() {
+			this.condition.signalAll();
+		}
+		
+	}
+	
+	
+	private final transient ServerMetrics metrics;
+	
+	/** start of the current hold, 0 if not metered; guarded by this lock */
+	private long holdStart;
+	
+	
+	public MeteredLock(final ServerMetrics metrics) {
+		this.metrics = metrics;
+	}
+	
+	
+	@Override
+	public void lock() {
+		if (!this.metrics.isEnabled()) {
+			super.lock();
+			if (getHoldCount() == 1) {
+				this.holdStart = 0;
+			}
+			return;
+		}
+		final long start = System.nanoTime();
+		super.lock();
+		if (getHoldCount() == 1) {
+			final long now = System.nanoTime();
+			this.metrics.getLockWaitTimes().record(now - start);
+			this.holdStart = now;
+		}
+	}
+	
+	@Override
+	public void unlock() {
+		if (getHoldCount() == 1) {
+			pauseHold();
+		}
+		super.unlock();
+	}
+	
+	private void pauseHold() {
+		if (this.holdStart != 0 && isHeldByCurrentThread()) {
+			this.metrics.getLockHoldTimes().record(System.nanoTime() - this.holdStart);
+			this.holdStart = 0;
+		}
+	}
+	
+	private void resumeHold() {
+		this.holdStart = (this.metrics.isEnabled()) ? System.nanoTime() : 0;
+	}
+	
+	@Override
+	public Condition newCondition() {
+		return new MeteredCondition(super.newCondition());
+	}
+	
+}
@@ -0,0 +1,316 @@
+/*=============================================================================#
+ # Copyright (c) 2016 Stephan Wahlbrink (WalWare.de) and others.
+ # All rights reserved. This program and the accompanying materials
+ # are made available under the terms of either (per the licensee's choosing)
+ #   - the Eclipse Public License v1.0
+ #     which accompanies this distribution, and is available at
+ #     http://www.eclipse.org/legal/epl-v10.html, or
+ #   - the GNU Lesser General Public License v2.1 or newer
+ #     which accompanies this distribution, and is available at
+ #     http://www.gnu.org/licenses/lgpl.html
+ # 
+ # Contributors:
+ #     Stephan Wahlbrink - initial API and implementation
+ #=============================================================================*/
+
+package de.walware.rj.server.srvImpl;
+
+import java.lang.management.ManagementFactory;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+
+import javax.management.MBeanServer;
+import javax.management.ObjectName;
+
+import de.walware.rj.server.MainCmdItem;
+
+
+/**
+ * Latency and throughput metrics of the main exchange loop of the server.
+ * <p>
+ * The metrics are recorded by lock-free counters and histograms, so they can stay enabled
+ * in production. They can be disabled by the Java property
+ * <code>de.walware.rj.server.metrics=false</code> or at runtime by {@link #setEnabled(boolean)}.
+ * </p>
+ * <p>
+ * The metrics are available by {@link #getSnapshot()} and as MXBean in the platform MBean
+ * server, see {@link #register(String)}.</p>
+ */
+public final class ServerMetrics implements ServerMetricsMXBean {
+	
+	
+	public static final String ENABLED_PROPERTY_ID = "de.walware.rj.server.metrics"; //$NON-NLS-1$
+	
+	public static final String OBJECT_NAME_DOMAIN = "de.walware.rj.server"; //$NON-NLS-1$
+	
+	private static final Logger LOGGER = Logger.getLogger("de.walware.rj.server"); //$NON-NLS-1$
+	
+	private static final int TYPES = 0x40;
+	
+	private static final ServerMetrics DEFAULT = new ServerMetrics(
+			!"false".equals(System.getProperty(ENABLED_PROPERTY_ID)) ); //$NON-NLS-1$
+	
+	
+	/**
+	 * Returns the metrics of the server in this VM.
+	 * 
+	 * @return the metrics
+	 */
+	public static ServerMetrics getDefault() {
+		return DEFAULT;
+	}
+	
+	
+	private static String getCmdTypeName(final int type) {
+		switch (type) {
+		case MainCmdItem.T_CONSOLE_READ_ITEM:
+			return "console_read"; //$NON-NLS-1$
+		case MainCmdItem.T_CONSOLE_WRITE_ITEM:
+			return "console_write"; //$NON-NLS-1$
+		case MainCmdItem.T_MESSAGE_ITEM:
+			return "message"; //$NON-NLS-1$
+		case MainCmdItem.T_EXTENDEDUI_ITEM:
+			return "extended_ui"; //$NON-NLS-1$
+		case MainCmdItem.T_GRAPH_ITEM:
+			return "graph"; //$NON-NLS-1$
+		case MainCmdItem.T_MAIN_CTRL_ITEM:
+			return "main_ctrl"; //$NON-NLS-1$
+		case MainCmdItem.T_DATA_ITEM:
+			return "data"; //$NON-NLS-1$
+		case MainCmdItem.T_GRAPHICS_OP_ITEM:
+			return "graphics_op"; //$NON-NLS-1$
+		case MainCmdItem.T_DBG_ITEM:
+			return "dbg"; //$NON-NLS-1$
+		case MainCmdItem.T_SRV_ITEM:
+			return "srv"; //$NON-NLS-1$
+		default:
+			return "0x" + Integer.toHexString(type); //$NON-NLS-1$
+		}
+	}
+	
+	private static void putHistogram(final Map<String, Long> snapshot, final String name,
+			final LatencyHistogram histogram) {
+		final long count = histogram.getCount();
+		snapshot.put(name + ".count", Long.valueOf(count)); //$NON-NLS-1$
+		if (count > 0) {
+			snapshot.put(name + ".mean_us", Long.valueOf(histogram.getMeanNanos() / 1000)); //$NON-NLS-1$
+			snapshot.put(name + ".p50_us", Long.valueOf(histogram.getPercentileNanos(50) / 1000)); //$NON-NLS-1$
+			snapshot.put(name + ".p99_us", Long.valueOf(histogram.getPercentileNanos(99) / 1000)); //$NON-NLS-1$
+			snapshot.put(name + ".max_us", Long.valueOf(histogram.getMaxNanos() / 1000)); //$NON-NLS-1$
+		}
+	}
+	
+	
+	private volatile boolean enabled;
+	
+	private final AtomicLong mainLoopCount = new AtomicLong();
+	
+	/** if the transport counts the transferred bytes */
+	private volatile boolean byteCountSupported;
+	private final AtomicLong bytesIn = new AtomicLong();
+	private final AtomicLong bytesOut = new AtomicLong();
+	
+	/** time of the exchange with a client (call of the main loop) */
+	private final LatencyHistogram exchangeTimes = new LatencyHistogram();
+	/** time a command waits in the queue until it is processed by the R thread */
+	private final LatencyHistogram queueTimes = new LatencyHistogram();
+	/** time the R thread executes a command, by command type */
+	private final LatencyHistogram[] execTimes = new LatencyHistogram[TYPES];
+	/** time to read (deserialize) the command list of a client call */
+	private final LatencyHistogram readTimes = new LatencyHistogram();
+	/** time to write (serialize) the command list of an answer to a client */
+	private final LatencyHistogram writeTimes = new LatencyHistogram();
+	
+	private final LatencyHistogram lockWaitTimes = new LatencyHistogram();
+	private final LatencyHistogram lockHoldTimes = new LatencyHistogram();
+	
+	private ObjectName objectName;
+	
+	
+	ServerMetrics(final boolean enabled) {
+		this.enabled = enabled;
+		for (int i = 0; i < TYPES; i++) {
+			this.execTimes[i] = new LatencyHistogram();
+		}
+	}
+	
+	
+	@Override
+	public boolean isEnabled() {
+		return this.enabled;
+	}
+	
+	@Override
+	public void setEnabled(final boolean enabled) {
+		this.enabled = enabled;
+	}
+	
+	
+	/**
+	 * Registers the metrics in the platform MBean server.
+	 * 
+	 * @param name the name of the server
+	 */
+	public synchronized void register(final String name) {
+		if (this.objectName != null) {
+			return;
+		}
+		try {
+			final ObjectName objectName = new ObjectName(OBJECT_NAME_DOMAIN
+					+ ":type=ServerMetrics,name=" + ObjectName.quote(name) ); //$NON-NLS-1$
+			final MBeanServer mbeanServer = ManagementFactory.getPlatformMBeanServer();
+			mbeanServer.registerMBean(this, objectName);
+			this.objectName = objectName;
+		}
+		catch (final Exception e) {
+			LOGGER.log(Level.WARNING, "Failed to register the server metrics MBean.", e);
+		}
+	}
+	
+	/**
+	 * Unregisters the metrics from the platform MBean server.
+	 */
+	public synchronized void unregister() {
+		if (this.objectName == null) {
+			return;
+		}
+		try {
+			ManagementFactory.getPlatformMBeanServer().unregisterMBean(this.objectName);
+		}
+		catch (final Exception e) {
+			LOGGER.log(Level.FINE, "Failed to unregister the server metrics MBean.", e);
+		}
+		finally {
+			this.objectName = null;
+		}
+	}
+	
+	
+	/**
+	 * Records an exchange with a client (call of the main loop).
+	 * 
+	 * @param nanos the duration of the exchange
+	 */
+	public void recordExchange(final long nanos) {
+		this.mainLoopCount.incrementAndGet();
+		this.exchangeTimes.record(nanos);
+	}
+	
+	/**
+	 * Records a command executed by the R thread.
+	 * 
+	 * @param type the command type ({@link MainCmdItem#getCmdType()})
+	 * @param queueNanos the time the command waited in the queue or <code>-1</code> if unknown
+	 * @param execNanos the time to execute the command
+	 */
+	public void recordCommand(final byte type, final long queueNanos, final long execNanos) {
+		if (queueNanos >= 0) {
+			this.queueTimes.record(queueNanos);
+		}
+		this.execTimes[type & (TYPES - 1)].record(execNanos);
+	}
+	
+	/**
+	 * Records the deserialization of a command list received from a client.
+	 * 
+	 * @param nanos the duration
+	 */
+	public void recordRead(final long nanos) {
+		this.readTimes.record(nanos);
+	}
+	
+	/**
+	 * Records the serialization of a command list sent to a client.
+	 * 
+	 * @param nanos the duration
+	 */
+	public void recordWrite(final long nanos) {
+		this.writeTimes.record(nanos);
+	}
+	
+	/**
+	 * Sets that the transport counts the transferred bytes.
+	 * <p>
+	 * RMI doesn't allow to count the bytes, only the socket transport does.</p>
+	 */
+	void setByteCountSupported() {
+		this.byteCountSupported = true;
+	}
+	
+	/**
+	 * Records the bytes transferred by the transport.
+	 * 
+	 * @param bytesIn the number of bytes read
+	 * @param bytesOut the number of bytes written
+	 */
+	void recordBytes(final long bytesIn, final long bytesOut) {
+		this.bytesIn.addAndGet(bytesIn);
+		this.bytesOut.addAndGet(bytesOut);
+	}
+	
+	LatencyHistogram getLockWaitTimes() {
+		return this.lockWaitTimes;
+	}
+	
+	LatencyHistogram getLockHoldTimes() {
+		return this.lockHoldTimes;
+	}
+	
+	
+	@Override
+	public long getMainLoopCount() {
+		return this.mainLoopCount.get();
+	}
+	
+	@Override
+	public long getBytesIn() {
+		return (this.byteCountSupported) ? this.bytesIn.get() : -1;
+	}
+	
+	@Override
+	public long getBytesOut() {
+		return (this.byteCountSupported) ? this.bytesOut.get() : -1;
+	}
+	
+	@Override
+	public Map<String, Long> getSnapshot() {
+		final Map<String, Long> snapshot = new TreeMap<>();
+		snapshot.put("mainloop.count", Long.valueOf(this.mainLoopCount.get())); //$NON-NLS-1$
+		if (this.byteCountSupported) {
+			snapshot.put("bytes.in", Long.valueOf(this.bytesIn.get())); //$NON-NLS-1$
+			snapshot.put("bytes.out", Long.valueOf(this.bytesOut.get())); //$NON-NLS-1$
+		}
+		putHistogram(snapshot, "exchange", this.exchangeTimes); //$NON-NLS-1$
+		putHistogram(snapshot, "queue", this.queueTimes); //$NON-NLS-1$
+		for (int type = 0; type < TYPES; type++) {
+			if (this.execTimes[type].getCount() > 0) {
+				putHistogram(snapshot, "exec." + getCmdTypeName(type), this.execTimes[type]); //$NON-NLS-1$
+			}
+		}
+		putHistogram(snapshot, "read", this.readTimes); //$NON-NLS-1$
+		putHistogram(snapshot, "write", this.writeTimes); //$NON-NLS-1$
+		putHistogram(snapshot, "lock.wait", this.lockWaitTimes); //$NON-NLS-1$
+		putHistogram(snapshot, "lock.hold", this.lockHoldTimes); //$NON-NLS-1$
+		return snapshot;
+	}
+	
+	@Override
+	public void reset() {
+		this.mainLoopCount.set(0);
+		this.bytesIn.set(0);
+		this.bytesOut.set(0);
+		this.exchangeTimes.reset();
+		this.queueTimes.reset();
+		for (int type = 0; type < TYPES; type++) {
+			this.execTimes[type].reset();
+		}
+		this.readTimes.reset();
+		this.writeTimes.reset();
+		this.lockWaitTimes.reset();
+		this.lockHoldTimes.reset();
+	}
+	
+}
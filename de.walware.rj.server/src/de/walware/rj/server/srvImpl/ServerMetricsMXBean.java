@@ -0,0 +1,62 @@
+/*=============================================================================#
+ # Copyright (c) 2016 Stephan Wahlbrink (WalWare.de) and others.
+ # All rights reserved. This program and the accompanying materials
+ # are made available under the terms of either (per the licensee's choosing)
+ #   - the Eclipse Public License v1.0
+ #     which accompanies this distribution, and is available at
+ #     http://www.eclipse.org/legal/epl-v10.html, or
+ #   - the GNU Lesser General Public License v2.1 or newer
+ #     which accompanies this distribution, and is available at
+ #     http://www.gnu.org/licenses/lgpl.html
+ # 
+ # Contributors:
+ #     Stephan Wahlbrink - initial API and implementation
+ #=============================================================================*/
+
+package de.walware.rj.server.srvImpl;
+
+import java.util.Map;
+
+
+/**
+ * Management interface of the {@link ServerMetrics}.
+ */
+public interface ServerMetricsMXBean {
+	
+	
+	boolean isEnabled();
+	
+	void setEnabled(boolean enabled);
+	
+	long getMainLoopCount();
+	
+	/**
+	 * Returns the number of bytes received from clients.
+	 * 
+	 * @return the number of bytes or <code>-1</code> if not supported by the transport (RMI)
+	 */
+	long getBytesIn();
+	
+	/**
+	 * Returns the number of bytes sent to clients.
+	 * 
+	 * @return the number of bytes or <code>-1</code> if not supported by the transport (RMI)
+	 */
+	long getBytesOut();
+	
+	/**
+	 * Returns a snapshot of all metrics.
+	 * <p>
+	 * Counts are plain numbers, durations are in microseconds (suffix <code>_us</code>).
+	 * Metrics not supported by the transport are missing.</p>
+	 * 
+	 * @return a sorted map with the metric names and values
+	 */
+	Map<String, Long> getSnapshot();
+	
+	/**
+	 * Resets all metrics.
+	 */
+	void reset();
+	
+}
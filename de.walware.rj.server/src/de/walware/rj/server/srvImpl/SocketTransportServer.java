@@ -0,0 +1,329 @@
+/*=============================================================================#
+ # Copyright (c) 2016 Stephan Wahlbrink (WalWare.de) and others.
+ # All rights reserved. This program and the accompanying materials
+ # are made available under the terms of either (per the licensee's choosing)
+ #   - the Eclipse Public License v1.0
+ #     which accompanies this distribution, and is available at
+ #     http://www.eclipse.org/legal/epl-v10.html, or
+ #   - the GNU Lesser General Public License v2.1 or newer
+ #     which accompanies this distribution, and is available at
+ #     http://www.gnu.org/licenses/lgpl.html
+ # 
+ # Contributors:
+ #     Stephan Wahlbrink - initial API and implementation
+ #=============================================================================*/
+
+package de.walware.rj.server.srvImpl;
+
+import java.io.EOFException;
+import java.io.IOException;
+import java.net.InetAddress;
+import java.net.InetSocketAddress;
+import java.net.Socket;
+import java.net.SocketTimeoutException;
+import java.nio.channels.ServerSocketChannel;
+import java.nio.channels.SocketChannel;
+import java.rmi.RemoteException;
+import java.security.SecureRandom;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.SynchronousQueue;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+
+import de.walware.rj.data.ChannelObjectInputStream;
+import de.walware.rj.data.ChannelObjectOutputStream;
+import de.walware.rj.server.ConsoleEngine;
+import de.walware.rj.server.RjsComObject;
+import de.walware.rj.server.SocketConsoleEngine;
+
+
+/**
+ * Server of the socket transport for console engines.
+ * <p>
+ * Each client connection is served by a thread of a bounded pool (at most
+ * {@link #MAX_CONNECTIONS}); the {@link RjsComObject}s are exchanged by a persistent
+ * {@link ChannelObjectOutputStream channel object stream} per connection, so large data is
+ * transferred directly between the socket channel and the buffers of RJIO. A client opens
+ * additional connections for concurrent calls.</p>
+ * <p>
+ * Like RMI without SSL, the transport is not encrypted; a client is accepted only if it
+ * sends the random key of a registered engine before any object is read from the
+ * connection. The server binds the socket only to the address of the RMI registry and
+ * doesn't support SSL.</p>
+ * <p>
+ * Connections are closed if the handshake is not completed within
+ * {@link #HANDSHAKE_TIMEOUT}, if no request is received within
+ * {@link SocketConsoleEngine#IDLE_TIMEOUT}, if the client is not reachable anymore (TCP
+ * keepalive) or if the engine was unregistered.</p>
+ * 
+ * @see SocketConsoleEngine
+ */
+public class SocketTransportServer {
+	
+	
+	private static final Logger LOGGER = Logger.getLogger("de.walware.rj.server"); //$NON-NLS-1$
+	
+	/**
+	 * Maximum number of concurrently served connections; additional connections are closed
+	 * immediately.
+	 */
+	public static final int MAX_CONNECTIONS = 32;
+	
+	/**
+	 * Time in milliseconds a client has to complete the handshake.
+	 */
+	public static final int HANDSHAKE_TIMEOUT = 30000;
+	
+	
+	private class ConnectionHandler implements Runnable {
+		
+		
+		private final SocketChannel channel;
+		
+		
+		public ConnectionHandler(final SocketChannel channel) {
+			this.channel = channel;
+		}
+		
+		
+		@Override
+		public void run() {
+			final Socket socket = this.channel.socket();
+			try {
+				socket.setTcpNoDelay(true);
+				// detect dead clients and close connections of inactive clients
+				socket.setKeepAlive(true);
+				socket.setSoTimeout(HANDSHAKE_TIMEOUT);
+				final ChannelObjectOutputStream out = new ChannelObjectOutputStream(this.channel);
+				out.flush();
+				final ChannelObjectInputStream in = new ChannelObjectInputStream(
+						socket.getInputStream(), this.channel );
+				
+				final ConsoleEngine engine;
+				if (in.readInt() != SocketConsoleEngine.MAGIC
+						|| (engine = SocketTransportServer.this.engines.get(in.readUTF())) == null) {
+					out.writeByte(SocketConsoleEngine.REPLY_EXCEPTION);
+					out.flush();
+					return;
+				}
+				out.writeByte(SocketConsoleEngine.REPLY_OK);
+				out.flush();
+				socket.setSoTimeout(SocketConsoleEngine.IDLE_TIMEOUT);
+				
+				final ServerMetrics metrics = ServerMetrics.getDefault();
+				metrics.setByteCountSupported();
+				long inCount = in.getByteCount();
+				long outCount = out.getByteCount();
+				while (true) {
+					final byte op;
+					try {
+						op = in.readByte();
+					}
+					catch (final EOFException e) {
+						return;
+					}
+					catch (final SocketTimeoutException e) {
+						return;
+					}
+					if (!SocketTransportServer.this.engines.containsValue(engine)) {
+						// engine disposed
+						return;
+					}
+					final RjsComObject com = (RjsComObject) in.readObject();
+					RjsComObject answer = null;
+					Exception exception = null;
+					try {
+						switch (op) {
+						case SocketConsoleEngine.OP_RUN_MAIN_LOOP:
+							answer = engine.runMainLoop(com);
+							break;
+						case SocketConsoleEngine.OP_RUN_ASYNC:
+							answer = engine.runAsync(com);
+							break;
+						default:
+							throw new IOException("Unknown operation: " + op);
+						}
+					}
+					catch (final RemoteException e) {
+						exception = e;
+					}
+					catch (final RuntimeException e) {
+						exception = e;
+					}
+					if (exception == null) {
+						out.writeByte(SocketConsoleEngine.REPLY_OK);
+						out.writeObject(answer);
+					}
+					else {
+						out.writeByte(SocketConsoleEngine.REPLY_EXCEPTION);
+						out.writeObject(exception);
+					}
+					out.reset();
+					out.flush();
+					if (metrics.isEnabled()) {
+						metrics.recordBytes(in.getByteCount() - inCount, out.getByteCount() - outCount);
+					}
+					inCount = in.getByteCount();
+					outCount = out.getByteCount();
+				}
+			}
+			catch (final Exception e) {
+				if (SocketTransportServer.this.serverChannel.isOpen()) {
+					LOGGER.log(Level.FINE, "Socket transport connection closed.", e);
+				}
+			}
+			finally {
+				closeChannel(this.channel);
+			}
+		}
+		
+	}
+	
+	
+	private static void closeChannel(final SocketChannel channel) {
+		try {
+			channel.close();
+		}
+		catch (final IOException e) {}
+	}
+	
+	
+	private final ServerSocketChannel serverChannel;
+	
+	private final String host;
+	
+	private final ThreadPoolExecutor executor;
+	
+	private final Map<String, ConsoleEngine> engines = new ConcurrentHashMap<>();
+	
+	private final SecureRandom random = new SecureRandom();
+	
+	
+	/**
+	 * Creates and starts the server.
+	 * 
+	 * @param bindAddress the local address to bind
+	 * @param port the port or <code>0</code> for any free port
+	 * @param host the host name the clients connect to
+	 */
+	public SocketTransportServer(final InetAddress bindAddress, final int port,
+			final String host) throws IOException {
+		if (bindAddress == null) {
+			throw new NullPointerException("bindAddress"); //$NON-NLS-1$
+		}
+		this.serverChannel = ServerSocketChannel.open();
+		try {
+			this.serverChannel.socket().setReuseAddress(true);
+			this.serverChannel.socket().bind(new InetSocketAddress(bindAddress, port));
+		}
+		catch (final IOException e) {
+			this.serverChannel.close();
+			throw e;
+		}
+		this.host = host;
+		
+		final AtomicInteger threadNum = new AtomicInteger();
+		this.executor = new ThreadPoolExecutor(0, MAX_CONNECTIONS,
+				60L, TimeUnit.SECONDS, new SynchronousQueue<Runnable>(),
+				new ThreadFactory() {
+					@Override
+					public Thread newThread(final Runnable r) {
+						final Thread thread = new Thread(r,
+								"RJ Socket Transport - " + threadNum.incrementAndGet() ); //$NON-NLS-1$
+						thread.setDaemon(true);
+						return thread;
+					}
+				});
+		
+		final Thread thread = new Thread("RJ Socket Transport") { //$NON-NLS-1$
+			@Override
+			public void run() {
+				acceptConnections();
+			}
+		};
+		thread.setDaemon(true);
+		thread.start();
+	}
+	
+	
+	public int getPort() {
+		return this.serverChannel.socket().getLocalPort();
+	}
+	
+	private void acceptConnections() {
+		while (this.serverChannel.isOpen()) {
+			final SocketChannel channel;
+			try {
+				channel = this.serverChannel.accept();
+			}
+			catch (final IOException e) {
+				if (this.serverChannel.isOpen()) {
+					LOGGER.log(Level.WARNING, "An error occurred when accepting socket transport connection.", e);
+				}
+				continue;
+			}
+			try {
+				this.executor.execute(new ConnectionHandler(channel));
+			}
+			catch (final RejectedExecutionException e) {
+				closeChannel(channel);
+				if (this.serverChannel.isOpen()) {
+					LOGGER.log(Level.WARNING, "Socket transport connection refused, the maximum number of connections is reached.");
+				}
+			}
+		}
+	}
+	/**
+	 * Registers the console engine and creates the reference for the client.
+	 * 
+	 * @param engine the console engine
+	 * @param rmiRef the exported RMI reference of the engine
+	 * @return the reference for the client
+	 */
+	public ConsoleEngine createClientRef(final ConsoleEngine engine, final ConsoleEngine rmiRef) {
+		final byte[] bytes = new byte[16];
+		this.random.nextBytes(bytes);
+		final StringBuilder sb = new StringBuilder(32);
+		for (int i = 0; i < bytes.length; i++) {
+			sb.append(Character.forDigit((bytes[i] >>> 4) & 0xf, 16));
+			sb.append(Character.forDigit(bytes[i] & 0xf, 16));
+		}
+		final String key = sb.toString();
+		
+		for (final Map.Entry<String, ConsoleEngine> entry : this.engines.entrySet()) {
+			if (entry.getValue() == engine) {
+				this.engines.remove(entry.getKey());
+			}
+		}
+		this.engines.put(key, engine);
+		return new SocketConsoleEngine(rmiRef, this.host, getPort(), key);
+	}
+	
+	/**
+	 * Unregisters the console engine.
+	 * 
+	 * @param engine the console engine
+	 */
+	public void remove(final ConsoleEngine engine) {
+		for (final Map.Entry<String, ConsoleEngine> entry : this.engines.entrySet()) {
+			if (entry.getValue() == engine) {
+				this.engines.remove(entry.getKey());
+			}
+		}
+	}
+	
+	public void close() {
+		try {
+			this.serverChannel.close();
+		}
+		catch (final IOException e) {}
+		this.executor.shutdown();
+	}
+	
+}